@@ -7,11 +7,6 @@
 // Lab Description: This lab is meant to demonstrate our knowledge in object-oriented concepts such as inheritance, polymorphism, UML diagrams, interfaces, design patterns, and more through coding our own implementation of a bank system of which deposits, withdraws, transfer, pays, and generates various files. This lab also included concepts of logging, testing with JUnit, debugging, file reading, error handling and JavaDoc.
 // Honesty Statement: We affirm that we have completed this assignment entirely on our own, without any assistance from outside sources, including peers, experts, online resources, or other means. All code and ideas were that of our own work, and we have followed proper academic integrity.
  */
-import java.text.NumberFormat;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Represents an Account with its unique account number and current balance
@@ -24,14 +19,30 @@ public abstract class Account {
     int accNum;
 
     /**
-     * Account current balance.
+     * Marker returned by the balance functions when an operation is not allowed.
      */
-    double balance;
+    static final long REJECTED = Long.MIN_VALUE;
+
+    /**
+     * Account current balance, in cents. Only changed under the account's lock in
+     * {@link TransferEngine}, and readable without it.
+     */
+    volatile long balance;
 
     /**
      * Transactions associated with this account.
      */
-    TransactionLinkedList transactionList;
+    TransactionStore transactionList;
+
+    /**
+     * What the account had when it was last written to the customer report.
+     */
+    final ReportExporter.Marker reportMarker = new ReportExporter.Marker();
+
+    /**
+     * What the account had when it was last written to a delta of the customer report.
+     */
+    final ReportExporter.Marker deltaMarker = new ReportExporter.Marker();
 
     /**
      * Constructs a new Account with the specified attributes.
@@ -41,8 +52,8 @@ public abstract class Account {
      */
     Account(int accNum, double startBalance){
         this.accNum = accNum;
-        this.balance = startBalance;
-        this.transactionList = new TransactionLinkedList(this.getBalance());
+        this.balance = Money.toCents(startBalance);
+        this.transactionList = new TransactionStore(this.balance);
     }
 
     /**
@@ -51,9 +62,36 @@ public abstract class Account {
      * @return  The current balance of the account.
      * **/
     public double getBalance() {
-        BigDecimal bd = BigDecimal.valueOf(this.balance);
-        bd = bd.setScale(2, RoundingMode.HALF_UP);
-        return bd.doubleValue();
+        return Money.toDollars(this.balance);
+    }
+
+    /**
+     * Get the account's current balance in cents.
+     *
+     * @return  The current balance of the account, in cents.
+     * **/
+    public long getBalanceCents() {
+        return this.balance;
+    }
+
+    /**
+     * Get the balance the account had at the end of a day, from its transaction history.
+     *
+     * @param epochDay  day, as days since 1970-01-01.
+     * @return          balance in cents at the end of that day.
+     */
+    public long getBalanceCentsAsOf(int epochDay) {
+        return this.transactionList.balanceAsOf(epochDay);
+    }
+
+    /**
+     * Set the balance the account opens with, before any transactions.
+     *
+     * @param cents starting balance, in cents.
+     */
+    void setStartingBalance(long cents) {
+        this.balance = cents;
+        this.transactionList = new TransactionStore(cents);
     }
 
     /**
@@ -77,9 +115,9 @@ public abstract class Account {
     /**
      * Get the account's transaction list.
      *
-     * @return  the account's transaction linked list.
+     * @return  the account's transaction store.
      */
-    public TransactionLinkedList getTransactionList() {
+    public TransactionStore getTransactionList() {
         return this.transactionList;}
 
     /**
@@ -88,7 +126,9 @@ public abstract class Account {
      * @param amount    amount to be deposited.
      * @return          success/fail of deposit.
      */
-    public abstract boolean deposit(double amount);
+    public boolean deposit(double amount) {
+        return this.depositCents(Money.toCents(amount));
+    }
 
     /**
      * Take money out of an account.
@@ -97,7 +137,66 @@ public abstract class Account {
      *
      * @return          The successfulness of a withdrawal.
      * **/
-    public abstract boolean withdraw(double amount);
+    public boolean withdraw(double amount) {
+        return this.withdrawCents(Money.toCents(amount));
+    }
+
+    /**
+     * Success indicating that deposit was successful.
+     *
+     * @param cents     amount to be deposited, in cents.
+     * @return          success/fail of deposit.
+     */
+    public boolean depositCents(long cents) {
+        return TransferEngine.getInstance().deposit(this, cents, null) == TransferEngine.Outcome.APPLIED;
+    }
+
+    /**
+     * Take money out of an account.
+     *
+     * @param cents     amount to be withdrawn, in cents.
+     *
+     * @return          The successfulness of a withdrawal.
+     * **/
+    public boolean withdrawCents(long cents) {
+        return TransferEngine.getInstance().withdraw(this, cents, null) == TransferEngine.Outcome.APPLIED;
+    }
+
+    /**
+     * Balance after a deposit, without changing the account.
+     *
+     * @param balance   balance before the deposit, in cents.
+     * @param cents     amount to be deposited, in cents.
+     * @return          balance after the deposit, or REJECTED if it is not allowed.
+     */
+    abstract long balanceAfterDeposit(long balance, long cents);
+
+    /**
+     * Balance after a withdrawal, without changing the account.
+     *
+     * @param balance   balance before the withdrawal, in cents.
+     * @param cents     amount to be withdrawn, in cents.
+     * @return          balance after the withdrawal, or REJECTED if it is not allowed.
+     */
+    abstract long balanceAfterWithdraw(long balance, long cents);
+
+    /**
+     * Message shown when a deposit is rejected.
+     *
+     * @return the warning.
+     */
+    String depositWarning() {
+        return "\nWarning: Invalid amount.";
+    }
+
+    /**
+     * Message shown when a withdrawal is rejected.
+     *
+     * @return the warning.
+     */
+    String withdrawWarning() {
+        return "\nWarning: Insufficient funds.";
+    }
 
     /**
      * Print attributes of an account
@@ -108,9 +207,8 @@ public abstract class Account {
      **/
     public void printAccount(boolean showBalance, boolean printHeader) {
         if (printHeader) this.printHeader(showBalance);
-        NumberFormat formatter = NumberFormat.getCurrencyInstance();
         // format the balance
-        String formattedBalance = formatter.format(this.getBalance());
+        String formattedBalance = Money.formatCurrency(this.balance);
         // print balance
         if (showBalance) {
             System.out.printf("| %-15s | %-20s | %-20s | %-20s | \n",
@@ -147,14 +245,14 @@ public abstract class Account {
     }
 
     /**
-     * Adds a transaction string to transaction LL.
+     * Adds a transaction to the account's transaction store, dated today by the bank clock.
      *
      * @param description string that describes the transaction.
      *
-     * @param amount      to be transacted
+     * @param amountCents to be transacted, in cents.
      */
-    public void addTransaction(String description, double amount){
-        this.transactionList.addTransaction(LocalDate.now().format(DateTimeFormatter.ofPattern("MM-dd-yyyy")), description, amount, this.getBalance());
+    public void addTransaction(String description, long amountCents){
+        this.transactionList.addTransaction(BankClock.getInstance().today(), description, amountCents, this.balance);
     }
 
     /**
@@ -21,4 +21,19 @@ public class AccountFactory {
             default -> null;
         };
     }
+
+    /**
+     * Get account based on type, with its starting balance given in cents.
+     *
+     * @param accountType   type of account requested.
+     * @param accNum        account number to be added to account.
+     * @param startCents    account's start balance, in cents.
+     * @param limit         account's limit.
+     * @return              new instance of account of requested type.
+     */
+    public static Account getAccountCents(String accountType, int accNum, long startCents, int limit){
+        Account account = getAccount(accountType, accNum, 0, limit);
+        if (account != null) account.setStartingBalance(startCents);
+        return account;
+    }
 }
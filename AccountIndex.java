@@ -0,0 +1,149 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Index of every account keyed by kind and primitive account number.
+ * Open addressing with linear probing over an atomic array: lookups never lock or box,
+ * while inserts (only done when customers are added) are serialized on the index.
+ * The highest number of each kind is tracked so new numbers can be allocated atomically.
+ */
+public class AccountIndex {
+
+    /**
+     * Slots of the table when the index is created or cleared.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Current table, replaced as a whole when it grows.
+     */
+    private volatile AtomicReferenceArray<Account> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    /**
+     * Accounts in the table.
+     */
+    private volatile int size;
+
+    /**
+     * Highest account number of each kind, by kind ordinal.
+     */
+    private final AtomicIntegerArray highest = new AtomicIntegerArray(AccountKind.values().length);
+
+    /**
+     * Find an account without locking.
+     *
+     * @param kind      kind of the account.
+     * @param accNum    number of the account.
+     * @return          the account, null if there is none.
+     */
+    public Account get(AccountKind kind, int accNum) {
+        if (kind == null) return null;
+        AtomicReferenceArray<Account> slots = this.table;
+        int mask = slots.length() - 1;
+        for (int i = hash(kind, accNum) & mask; ; i = (i + 1) & mask) {
+            Account account = slots.get(i);
+            if (account == null) return null;
+            if (account.accNum == accNum && AccountKind.of(account) == kind) return account;
+        }
+    }
+
+    /**
+     * Add an account unless one of the same kind already has its number.
+     *
+     * @param account   account to add.
+     * @return          true if added, false if the number is taken.
+     */
+    public synchronized boolean putIfAbsent(Account account) {
+        AccountKind kind = AccountKind.of(account);
+        if (get(kind, account.accNum) != null) return false;
+        // keep the table at most half full so probes stay short
+        if ((size + 1) * 2 > table.length()) table = resize(table, table.length() * 2);
+        insert(table, account);
+        size++;
+        highest.accumulateAndGet(kind.ordinal(), account.accNum, Math::max);
+        return true;
+    }
+
+    /**
+     * Reserve a new account number, one above the highest of its kind.
+     *
+     * @param kind  kind of the account.
+     * @return      a number no other call returns.
+     */
+    public int allocateNumber(AccountKind kind) {
+        return highest.incrementAndGet(kind.ordinal());
+    }
+
+    /**
+     * Get the number of accounts.
+     *
+     * @return number of accounts.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Visit every account, in no particular order.
+     *
+     * @param action    action run on each account.
+     */
+    public void forEach(Consumer<Account> action) {
+        AtomicReferenceArray<Account> slots = this.table;
+        for (int i = 0; i < slots.length(); i++) {
+            Account account = slots.get(i);
+            if (account != null) action.accept(account);
+        }
+    }
+
+    /**
+     * Remove every account.
+     */
+    public synchronized void clear() {
+        table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+        size = 0;
+        for (int i = 0; i < highest.length(); i++) highest.set(i, 0);
+    }
+
+    /**
+     * Copy a table into a larger one.
+     *
+     * @param old       table to copy.
+     * @param capacity  slots of the new table, a power of two.
+     * @return          the new table.
+     */
+    private static AtomicReferenceArray<Account> resize(AtomicReferenceArray<Account> old, int capacity) {
+        AtomicReferenceArray<Account> slots = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < old.length(); i++) {
+            Account account = old.get(i);
+            if (account != null) insert(slots, account);
+        }
+        return slots;
+    }
+
+    /**
+     * Put an account in the first free slot of its probe sequence.
+     *
+     * @param slots     table to insert into.
+     * @param account   account to insert.
+     */
+    private static void insert(AtomicReferenceArray<Account> slots, Account account) {
+        int mask = slots.length() - 1;
+        int i = hash(AccountKind.of(account), account.accNum) & mask;
+        while (slots.get(i) != null) i = (i + 1) & mask;
+        slots.set(i, account);
+    }
+
+    /**
+     * Spread a kind and account number over the table.
+     *
+     * @param kind      kind of the account.
+     * @param accNum    number of the account.
+     * @return          hash of the key.
+     */
+    private static int hash(AccountKind kind, int accNum) {
+        int h = accNum * 0x9E3779B9 + kind.ordinal() * 0x85EBCA6B;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Kinds of accounts a customer can own. The code is how the kind is stored in
+ * snapshots and the journal, so existing codes must never change.
+ */
+public enum AccountKind {
+
+    /** Checking account. */
+    CHECKING((byte) 0),
+    /** Savings account. */
+    SAVINGS((byte) 1),
+    /** Credit account. */
+    CREDIT((byte) 2);
+
+    /**
+     * Kinds by code.
+     */
+    private static final AccountKind[] BY_CODE = values();
+
+    /**
+     * Code of the kind on disk.
+     */
+    private final byte code;
+
+    /**
+     * Name of the kind in lower case, as compared with csv fields.
+     */
+    private final String lowerName;
+
+    /**
+     * Constructor of a kind.
+     *
+     * @param code  code of the kind on disk.
+     */
+    AccountKind(byte code) {
+        this.code = code;
+        this.lowerName = name().toLowerCase();
+    }
+
+    /**
+     * Get the code of the kind on disk.
+     *
+     * @return the code.
+     */
+    public byte code() {
+        return this.code;
+    }
+
+    /**
+     * Get the kind of an account.
+     *
+     * @param account   account to classify.
+     * @return          its kind.
+     */
+    public static AccountKind of(Account account) {
+        return switch (account) {
+            case Credit ignored -> CREDIT;
+            case Savings ignored -> SAVINGS;
+            default -> CHECKING;
+        };
+    }
+
+    /**
+     * Get a kind from its code on disk.
+     *
+     * @param code  code of the kind.
+     * @return      the kind, null if no kind has that code.
+     */
+    public static AccountKind fromCode(byte code) {
+        return (code >= 0 && code < BY_CODE.length) ? BY_CODE[code] : null;
+    }
+
+    /**
+     * Get a kind from a type name such as "Checking" or "savings".
+     *
+     * @param type  name of the account type, any case.
+     * @return      the kind, null if no kind has that name.
+     */
+    public static AccountKind parse(String type) {
+        if (type == null) return null;
+        for (AccountKind kind : BY_CODE) if (kind.name().equalsIgnoreCase(type.trim())) return kind;
+        return null;
+    }
+
+    /**
+     * Get a kind from a csv field holding a type name, without creating a String.
+     *
+     * @param row   row holding the field.
+     * @param col   index of the field.
+     * @return      the kind, null if no kind has that name.
+     */
+    public static AccountKind parse(CsvRow row, int col) {
+        for (AccountKind kind : BY_CODE) if (row.equalsIgnoreCase(col, kind.lowerName)) return kind;
+        return null;
+    }
+}
@@ -0,0 +1,320 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.lang.System.out;
+
+/**
+ * Asynchronous audit logger. Each log (e.g. EPMB_Transactions, EPMB_Error_Log) owns one
+ * open file channel and a bounded queue; a background writer drains the queue and
+ * writes every waiting line in one group commit.
+ *
+ * Configured through system properties:
+ * epmb.log.policy (line, batch, interval), epmb.log.intervalMs and epmb.log.capacity.
+ */
+public class AuditLog {
+
+    /**
+     * When the writer forces written lines to disk.
+     */
+    public enum FlushPolicy {
+        /** Force after every line. */
+        PER_LINE,
+        /** Force after every group commit. */
+        PER_BATCH,
+        /** Force at most once per interval. */
+        INTERVAL
+    }
+
+    /**
+     * One instance of the audit log.
+     */
+    private static AuditLog instance;
+
+    /**
+     * Log name: channel writing that log.
+     */
+    private final ConcurrentHashMap<String, LogChannel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * When written lines are forced to disk.
+     */
+    private final FlushPolicy policy;
+
+    /**
+     * Milliseconds between forces for the interval policy.
+     */
+    private final long intervalMillis;
+
+    /**
+     * Lines each log can hold before appending blocks.
+     */
+    private final int capacity;
+
+    /**
+     * Initialize the audit log singleton from the system properties.
+     */
+    private AuditLog() {
+        this.policy = switch (System.getProperty("epmb.log.policy", "batch").toLowerCase()) {
+            case "line" -> FlushPolicy.PER_LINE;
+            case "interval" -> FlushPolicy.INTERVAL;
+            default -> FlushPolicy.PER_BATCH;
+        };
+        this.intervalMillis = Long.getLong("epmb.log.intervalMs", 1000);
+        this.capacity = Integer.getInteger("epmb.log.capacity", 8192);
+    }
+
+    /**
+     * Returns the singleton instance of the audit log.
+     *
+     * @return The singleton instance of AuditLog.
+     */
+    public static synchronized AuditLog getInstance() {
+        if (instance == null) {
+            instance = new AuditLog();
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a line to be appended to a log (txt). Blocks only while the log's queue is full.
+     *
+     * @param logName   name of the log, without extension.
+     * @param line      line to be appended.
+     */
+    public void append(String logName, String line) {
+        for (int attempts = 0; attempts < 2; attempts++) {
+            LogChannel channel = channels.computeIfAbsent(logName, name -> new LogChannel(name + ".txt"));
+            if (channel.offer(line)) return;
+            // a channel closed by a shutdown or a failed write is replaced by a fresh one
+            channels.remove(logName, channel);
+        }
+        out.println("An error occurred while writing to the log file: " + logName + " is closed.");
+    }
+
+    /**
+     * Wait until every line queued so far has been written.
+     */
+    public void flush() {
+        for (LogChannel channel : channels.values()) channel.awaitWritten();
+    }
+
+    /**
+     * Drain every log, force it to disk, close its channel and make the file read-only.
+     */
+    public void shutdown() {
+        for (String name : channels.keySet()) {
+            LogChannel channel = channels.remove(name);
+            if (channel != null) channel.close();
+        }
+    }
+
+    /**
+     * Open log file with its queue and background writer.
+     */
+    private class LogChannel implements Runnable {
+
+        /**
+         * Marker telling the writer to stop once everything before it is written.
+         */
+        private static final String CLOSE = new String("close");
+
+        /**
+         * Log file being written.
+         */
+        private final File file;
+
+        /**
+         * Lines waiting to be written.
+         */
+        private final ArrayBlockingQueue<String> queue = new ArrayBlockingQueue<>(capacity);
+
+        /**
+         * Thread writing the queued lines.
+         */
+        private final Thread writer;
+
+        /**
+         * Guards closing against lines being queued at the same time.
+         */
+        private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+
+        /**
+         * Lines queued so far.
+         */
+        private final AtomicLong queued = new AtomicLong();
+
+        /**
+         * Lines written so far.
+         */
+        private long written;
+
+        /**
+         * Flag if the channel accepts no more lines.
+         */
+        private volatile boolean closed;
+
+        /**
+         * Open a log file and start its writer.
+         *
+         * @param filename  file of the log.
+         */
+        LogChannel(String filename) {
+            this.file = new File(filename);
+            this.writer = new Thread(this, "EPMB-log-" + filename);
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        /**
+         * Queue a line for the writer.
+         *
+         * @param line  line to be appended.
+         * @return      false if the channel was closed.
+         */
+        boolean offer(String line) {
+            closing.readLock().lock();
+            try {
+                if (closed) return false;
+                queued.incrementAndGet();
+                queue.put(line);
+            } catch (InterruptedException e) {
+                queued.decrementAndGet();
+                Thread.currentThread().interrupt();
+            } finally {
+                closing.readLock().unlock();
+            }
+            return true;
+        }
+
+        /**
+         * Wait until every line queued so far has been written.
+         */
+        synchronized void awaitWritten() {
+            long target = queued.get();
+            try {
+                while (written < target && writer.isAlive()) wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Stop accepting lines, drain the queue and wait for the writer to finish.
+         */
+        void close() {
+            // wait for lines being queued, then refuse new ones
+            closing.writeLock().lock();
+            try {
+                if (closed) return;
+                closed = true;
+            } finally {
+                closing.writeLock().unlock();
+            }
+            try {
+                queue.put(CLOSE);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Count lines as written and wake anyone waiting on them.
+         *
+         * @param lines number of lines written.
+         */
+        private synchronized void markWritten(int lines) {
+            written += lines;
+            notifyAll();
+        }
+
+        /**
+         * Writer loop: take whatever is queued, write it as one batch and force per the policy.
+         */
+        @Override
+        public void run() {
+            if (file.exists()) if (!file.setWritable(true)) out.println("An error occurred while attempting to set the file as writable. File: " + file.getName());
+            ArrayList<String> batch = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            byte[] separator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+            long lastForce = System.currentTimeMillis();
+            boolean running = true;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (running) {
+                    String first = (policy == FlushPolicy.INTERVAL) ? queue.poll(intervalMillis, TimeUnit.MILLISECONDS) : queue.take();
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch);
+                    }
+                    int lines = 0;
+                    // group commit everything that was waiting
+                    for (String line : batch) {
+                        if (line == CLOSE) {
+                            running = false;
+                            continue;
+                        }
+                        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                        if (buffer.remaining() < bytes.length + separator.length) {
+                            drain(channel, buffer);
+                            if (buffer.capacity() < bytes.length + separator.length) buffer = ByteBuffer.allocate(bytes.length + separator.length);
+                        }
+                        buffer.put(bytes).put(separator);
+                        lines++;
+                        if (policy == FlushPolicy.PER_LINE) {
+                            drain(channel, buffer);
+                            channel.force(false);
+                        }
+                    }
+                    batch.clear();
+                    drain(channel, buffer);
+                    long now = System.currentTimeMillis();
+                    if ((policy == FlushPolicy.PER_BATCH && lines > 0) || !running
+                            || (policy == FlushPolicy.INTERVAL && now - lastForce >= intervalMillis)) {
+                        channel.force(false);
+                        lastForce = now;
+                    }
+                    markWritten(lines);
+                }
+            } catch (IOException e) {
+                out.println("An error occurred while writing to the log file: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                // nothing more will be written, refuse new lines and release anyone blocked on a full queue
+                closed = true;
+                queue.clear();
+                closing.writeLock().lock();
+                queue.clear();
+                closing.writeLock().unlock();
+                synchronized (this) {
+                    written = queued.get();
+                    notifyAll();
+                }
+                if (!file.setWritable(false)) out.println("An error occurred while attempting to set the file as read-only. File: " + file.getName());
+            }
+        }
+
+        /**
+         * Write out everything in the buffer.
+         *
+         * @param channel   channel to write to.
+         * @param buffer    buffer holding encoded lines.
+         * @throws IOException if the write fails.
+         */
+        private void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+    }
+}
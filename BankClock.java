@@ -0,0 +1,127 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Source of the date transactions are recorded on. Everything that stamps a transaction asks
+ * this clock instead of reading the system time, so tests and replay runs can fix the date
+ * and get the same histories every time.
+ */
+public class BankClock {
+
+    /**
+     * Single instance of the clock, created eagerly so every transaction looks it up without a lock.
+     */
+    private static final BankClock INSTANCE = new BankClock();
+
+    /**
+     * Clock the date is read from.
+     */
+    private volatile Clock clock = Clock.systemDefaultZone();
+
+    /**
+     * Day last read from the clock, reused while the clock stays within it.
+     */
+    private volatile Day cached = new Day(null, 0, 0, 0);
+
+    /**
+     * Private constructor, use getInstance.
+     */
+    private BankClock() {
+    }
+
+    /**
+     * Get the single instance of the clock.
+     *
+     * @return the clock.
+     */
+    public static BankClock getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get today's date. Only the clock's milliseconds are read while they stay within the day read last.
+     *
+     * @return days since 1970-01-01, in the clock's time zone.
+     */
+    public int today() {
+        Clock current = this.clock;
+        long now = current.millis();
+        Day day = this.cached;
+        if (day.clock == current && now >= day.startMillis && now < day.endMillis) return day.epochDay;
+        // a new day, or a new clock: find where the day starts and ends in the clock's zone
+        ZoneId zone = current.getZone();
+        LocalDate date = LocalDate.ofInstant(Instant.ofEpochMilli(now), zone);
+        day = new Day(current, (int) date.toEpochDay(), date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        this.cached = day;
+        return day.epochDay;
+    }
+
+    /**
+     * Get the clock the date is read from.
+     *
+     * @return the clock.
+     */
+    public Clock getClock() {
+        return this.clock;
+    }
+
+    /**
+     * Set the clock the date is read from, e.g. Clock.fixed for a deterministic run.
+     *
+     * @param clock the clock, replacing the system clock.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Go back to the system clock.
+     */
+    public void reset() {
+        this.clock = Clock.systemDefaultZone();
+    }
+
+    /**
+     * One day of a clock and the milliseconds it spans.
+     */
+    private static final class Day {
+
+        /**
+         * Clock the day was read from.
+         */
+        final Clock clock;
+
+        /**
+         * Days since 1970-01-01.
+         */
+        final int epochDay;
+
+        /**
+         * First millisecond of the day.
+         */
+        final long startMillis;
+
+        /**
+         * First millisecond of the next day.
+         */
+        final long endMillis;
+
+        /**
+         * Constructor of a day.
+         *
+         * @param clock         clock the day was read from.
+         * @param epochDay      days since 1970-01-01.
+         * @param startMillis   first millisecond of the day.
+         * @param endMillis     first millisecond of the next day.
+         */
+        Day(Clock clock, int epochDay, long startMillis, long endMillis) {
+            this.clock = clock;
+            this.epochDay = epochDay;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+    }
+}
@@ -8,58 +8,54 @@
 // Honesty Statement: We affirm that we have completed this assignment entirely on our own, without any assistance from outside sources, including peers, experts, online resources, or other means. All code and ideas were that of our own work, and we have followed proper academic integrity.
 */
 import java.util.Dictionary;
-import java.util.Hashtable;
-import java.util.TreeSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 /**
  * Represents the database of the bank.
+ * Lookups never take a global lock: customers live in concurrent maps and accounts in a
+ * primitive-keyed {@link AccountIndex}; only adding customers is serialized.
  */
 public class BankDatabase {
 
     /**
-     * One instance of database.
-     */
-    private static BankDatabase instance;
-
-    /**
-     * Customer name: Customer object
-     */
-    public static  Dictionary<String, Customer> customers = new Hashtable<>();
-
-    /**
-     * Checking account id number: Checking account object
+     * Characters stripped from phone numbers before they are stored.
      */
-    public static  Dictionary<Integer, Checking> checkingAccounts = new Hashtable<>();
+    static final Pattern PHONE_PUNCTUATION = Pattern.compile("[()\\s-]");
 
     /**
-     * Saving account id number: Saving account object
+     * One instance of database.
      */
-    public static  Dictionary<Integer, Savings> savingAccounts = new Hashtable<>();
+    private static BankDatabase instance;
 
     /**
-     * Credit account id number: Credit account object
+     * Customer name: Customer object
      */
-    public static final Dictionary<Integer, Credit> creditAccounts = new Hashtable<>();
+    public static final ConcurrentHashMap<String, Customer> customers = new ConcurrentHashMap<>();
 
     /**
-     * In order of customer IDs
+     * Customer id: Customer object
      */
-    public static  TreeSet<Integer> customerIDs = new TreeSet<>();
+    public static final ConcurrentHashMap<Integer, Customer> customersById = new ConcurrentHashMap<>();
 
     /**
-     * In order of checking account numbers
+     * Every checking, savings and credit account by kind and account number
      */
-    public static final TreeSet<Integer> checkingAccNums = new TreeSet<>();
+    public static final AccountIndex accounts = new AccountIndex();
 
     /**
-     * In order of saving account numbers
+     * Customers by the bytes of their name key, for resolving csv rows without building Strings.
      */
-    public static final TreeSet<Integer> savingsAccNums = new TreeSet<>();
+    private static final CustomerNameIndex customerNames = new CustomerNameIndex();
 
     /**
-     * In order of credit account numbers
+     * Highest customer id in use or handed out
      */
-    public static final TreeSet<Integer> creditAccNums = new TreeSet<>();
+    private static final AtomicInteger highestCustomerId = new AtomicInteger();
 
     /**
      * Initialize bank database singleton.
@@ -69,79 +65,83 @@ public class BankDatabase {
     }
 
     /**
-     * Returns a dictionary containing all customers in the bank database.
+     * Returns a map containing all customers in the bank database.
      *
-     * @return A Dictionary where the key is a String (customer ID or name) and
+     * @return A map where the key is the customer's first and last name and
      *         the value is a Customer object.
      */
-    public Dictionary<String, Customer> getCustomers() {
+    public ConcurrentHashMap<String, Customer> getCustomers() {
         return customers;
     }
 
     /**
-     * Returns a TreeSet of all checking account numbers in the bank database.
+     * Returns the ids of all customers in the bank database.
      *
-     * @return A TreeSet containing unique Integer checking account numbers.
+     * @return A live, thread-safe view of the customer ids.
      */
-    public TreeSet<Integer> getCheckingAccNums() {
-        return checkingAccNums;
+    public Set<Integer> getCustomerIDs() {
+        return customersById.keySet();
     }
 
     /**
-     * Returns a TreeSet of all savings account numbers in the bank database.
+     * Returns the customer with an id.
      *
-     * @return A TreeSet containing unique Integer savings account numbers.
+     * @param idNum customer's id number.
+     * @return      the customer, null if there is none.
      */
-    public TreeSet<Integer> getSavingsAccNums() {
-        return savingsAccNums;
+    public Customer getCustomerById(int idNum) {
+        return customersById.get(idNum);
     }
 
     /**
-     * Returns a TreeSet of all credit account numbers in the bank database.
+     * Returns the index of all accounts in the bank database.
      *
-     * @return A TreeSet containing unique Integer credit account numbers.
+     * @return the account index.
      */
-    public TreeSet<Integer> getCreditAccNums() {
-        return creditAccNums;
+    public AccountIndex getAccounts() {
+        return accounts;
     }
 
     /**
-     * Returns a dictionary containing all checking accounts in the bank database.
+     * Returns an account by kind and number without locking.
      *
-     * @return A Dictionary where the key is an Integer (account number) and
-     *         the value is a Checking object representing the checking account.
+     * @param kind      kind of the account.
+     * @param accNum    number of the account.
+     * @return          the account, null if there is none.
      */
-    public Dictionary<Integer, Checking> getCheckingAccounts() {
-        return checkingAccounts;
+    public Account getAccount(AccountKind kind, int accNum) {
+        return accounts.get(kind, accNum);
     }
 
     /**
-     * Returns a dictionary containing all savings accounts in the bank database.
+     * Returns the customer named by two fields of a csv row, ignoring case, without building Strings.
      *
-     * @return A Dictionary where the key is an Integer (account number) and
-     *         the value is a Savings object representing the savings account.
+     * @param row       row holding the names.
+     * @param firstCol  index of the first name field.
+     * @param lastCol   index of the last name field.
+     * @return          the customer, null if there is none.
      */
-    public Dictionary<Integer, Savings> getSavingsAccounts() {
-        return savingAccounts;
+    public Customer findCustomer(CsvRow row, int firstCol, int lastCol) {
+        return customerNames.find(row, firstCol, lastCol);
     }
 
     /**
-     * Returns a dictionary containing all credit accounts in the bank database.
+     * Reserve a new customer id, one above the highest in use.
      *
-     * @return A Dictionary where the key is an Integer (account number) and
-     *         the value is a Credit object representing the credit account.
+     * @return an id no other call returns.
      */
-    public Dictionary<Integer, Credit> getCreditAccounts() {
-        return creditAccounts;
+    public int allocateCustomerId() {
+        return highestCustomerId.incrementAndGet();
     }
 
     /**
-     * Returns a TreeSet of all customer IDs in the bank database.
+     * Reserve a new account number, one above the highest of its kind.
      *
-     * @return A TreeSet containing unique Integer customer IDs.
+     * @param kind  kind of the account.
+     * @return      a number no other call returns.
      */
-    public TreeSet<Integer> getCustomerIDs() {
-        return customerIDs;
+    public int allocateAccountNumber(AccountKind kind) {
+        return accounts.allocateNumber(kind);
     }
 
     /**
@@ -157,6 +157,17 @@ public class BankDatabase {
         return instance;
     }
 
+    /**
+     * Remove every customer, account and id, e.g. before loading a snapshot.
+     */
+    public synchronized void clear() {
+        customers.clear();
+        customersById.clear();
+        accounts.clear();
+        customerNames.clear();
+        highestCustomerId.set(0);
+    }
+
     /**
      * Add a customer given values mapped to headers.
      *
@@ -167,45 +178,106 @@ public class BankDatabase {
         // default headers to add a customer's values
         String[] headers = {"Identification Number", "First Name", "Last Name", "Date of Birth", "Address", "Phone Number", "Checking Account Number", "Checking Starting Balance", "Savings Account Number", "Savings Starting Balance", "Credit Account Number", "Credit Max", "Credit Starting Balance", "Password"};
         // obtain all customer's values
-        int idNum = Integer.parseInt(record.get(headers[0]));
-        String firstName = record.get(headers[1]).toLowerCase();
-        String lastName = record.get(headers[2]).toLowerCase();
-        String dob = record.get(headers[3]);
-        String address = record.get(headers[4]).replace("\"", "");
-        String phoneNum = record.get(headers[5]).replaceAll("[()\\s-]", "");
-        int checkingAccNum = Integer.parseInt(record.get(headers[6]));
-        double checkingStartBalance = Double.parseDouble(record.get(headers[7]));
-        int savingsAccNum = Integer.parseInt(record.get(headers[8]));
-        double savingsStartBalance = Double.parseDouble(record.get(headers[9]));
-        int creditAccNum = Integer.parseInt(record.get(headers[10]));
-        int creditMax = Integer.parseInt(record.get(headers[11]));
-        double creditStartBalance = Double.parseDouble(record.get(headers[12]));
         String password = (record.get(headers[13]) != null) ? record.get(headers[13]) : "";
-        // each record is based on customer's name (assuming unique names)
-        FileHandler fh = new FileHandler();
-        if (customers.get(firstName+lastName)!=null){
-            System.out.println("-----A Customer with that name already exists!-----");
-            fh.appendLog("EPMB_Error_Log", "Failed to add user with id: " + idNum + ". Reason: User with that name already exists.");
-            return false;
-        }
-        // add customer and its accounts
-        boolean rc = customerIDs.add(idNum);
-        // exit if customer already exists
-        if(!rc) fh.appendLog("EPMB_Error_Log", "Failed to add user with id: " + idNum + ". Reason: User with that id already exists.");
-        else {
-            // create and add customer's new bank accounts
-            Customer newCustomer = new Customer(idNum, firstName, lastName, dob, address, phoneNum, password);
-            Account checkingAcc = AccountFactory.getAccount("checking", checkingAccNum, checkingStartBalance, 0);
-            Account savingsAcc = AccountFactory.getAccount("savings", savingsAccNum, savingsStartBalance, 0);
-            Account creditAcc = AccountFactory.getAccount("credit", creditAccNum, creditStartBalance, creditMax);
-            assert checkingAcc != null;
-            if (fh.addAccountToMaps(checkingAcc)) newCustomer.addAccount(checkingAcc);
-            assert savingsAcc != null;
-            if (fh.addAccountToMaps(savingsAcc)) newCustomer.addAccount(savingsAcc);
-            assert creditAcc != null;
-            if (fh.addAccountToMaps(creditAcc)) newCustomer.addAccount(creditAcc);
-            customers.put(firstName+lastName, newCustomer);
+        return addCustomer(Integer.parseInt(record.get(headers[0])), record.get(headers[1]), record.get(headers[2]), record.get(headers[3]),
+                record.get(headers[4]), record.get(headers[5]),
+                Integer.parseInt(record.get(headers[6])), Money.parseCents(record.get(headers[7])),
+                Integer.parseInt(record.get(headers[8])), Money.parseCents(record.get(headers[9])),
+                Integer.parseInt(record.get(headers[10])), Integer.parseInt(record.get(headers[11])), Money.parseCents(record.get(headers[12])),
+                password);
+    }
+
+    /**
+     * Add a customer and its three accounts.
+     *
+     * @param idNum                 customer's unique id number.
+     * @param firstName             customer's first name.
+     * @param lastName              customer's last name.
+     * @param dob                   customer's date of birth.
+     * @param address               customer's address.
+     * @param phoneNum              customer's phone number.
+     * @param checkingAccNum        checking account number.
+     * @param checkingStartBalance  checking starting balance, in cents.
+     * @param savingsAccNum         savings account number.
+     * @param savingsStartBalance   savings starting balance, in cents.
+     * @param creditAccNum          credit account number.
+     * @param creditMax             credit limit.
+     * @param creditStartBalance    credit starting balance, in cents.
+     * @param password              customer's password.
+     * @return                      true if success/false if failed.
+     */
+    boolean addCustomer(int idNum, String firstName, String lastName, String dob, String address, String phoneNum,
+                        int checkingAccNum, long checkingStartBalance, int savingsAccNum, long savingsStartBalance,
+                        int creditAccNum, int creditMax, long creditStartBalance, String password) {
+        firstName = firstName.toLowerCase();
+        lastName = lastName.toLowerCase();
+        address = address.replace("\"", "");
+        phoneNum = PHONE_PUNCTUATION.matcher(phoneNum).replaceAll("");
+        // create the customer's new bank accounts, then add them all together
+        Customer newCustomer = new Customer(idNum, firstName, lastName, dob, address, phoneNum, password);
+        Account[] accounts = {
+                AccountFactory.getAccountCents("checking", checkingAccNum, checkingStartBalance, 0),
+                AccountFactory.getAccountCents("savings", savingsAccNum, savingsStartBalance, 0),
+                AccountFactory.getAccountCents("credit", creditAccNum, creditStartBalance, creditMax)
+        };
+        return addParsedCustomer(newCustomer, accounts, new FileHandler());
+    }
+
+    /**
+     * Add an already built customer and the accounts it should own.
+     * Rejects a customer whose name or id is taken, and skips accounts whose number is taken.
+     *
+     * @param newCustomer   customer to add, without accounts yet.
+     * @param accounts      accounts the customer should own.
+     * @param fh            file handler for logging.
+     * @return              true if success/false if failed.
+     */
+    boolean addParsedCustomer(Customer newCustomer, Account[] accounts, FileHandler fh) {
+        return addParsedCustomers(List.of(new BulkCustomerLoader.ParsedCustomer(newCustomer, accounts)), fh) == 1;
+    }
+
+    /**
+     * Add already built customers and the accounts they should own, under one lock.
+     * One pass in order rejects every customer whose name or id is taken, by the database or an earlier
+     * customer of the list, and skips accounts whose number is taken, exactly as adding them one by one would;
+     * the accepted customers are then published together.
+     *
+     * @param parsed    customers to add, without accounts yet, with the accounts each should own.
+     * @param fh        file handler for logging.
+     * @return          number of customers added.
+     */
+    synchronized int addParsedCustomers(List<BulkCustomerLoader.ParsedCustomer> parsed, FileHandler fh) {
+        HashMap<String, Customer> byName = new HashMap<>();
+        HashMap<Integer, Customer> byId = new HashMap<>();
+        int highestId = 0;
+        for (BulkCustomerLoader.ParsedCustomer next : parsed) {
+            Customer newCustomer = next.customer;
+            int idNum = newCustomer.getId();
+            String key = newCustomer.getFirstName() + newCustomer.getLastName();
+            // each record is based on customer's name (assuming unique names)
+            if (customers.containsKey(key) || byName.containsKey(key)) {
+                System.out.println("-----A Customer with that name already exists!-----");
+                fh.appendLog("EPMB_Error_Log", "Failed to add user with id: " + idNum + ". Reason: User with that name already exists.");
+                continue;
+            }
+            // skip if customer already exists
+            if (customersById.containsKey(idNum) || byId.containsKey(idNum)) {
+                fh.appendLog("EPMB_Error_Log", "Failed to add user with id: " + idNum + ". Reason: User with that id already exists.");
+                continue;
+            }
+            // add its accounts, the customer is published with the others
+            for (Account account : next.accounts) {
+                assert account != null;
+                if (fh.addAccountToMaps(account)) newCustomer.addAccount(account);
+            }
+            byName.put(key, newCustomer);
+            byId.put(idNum, newCustomer);
+            highestId = Math.max(highestId, idNum);
         }
-        return rc;
+        highestCustomerId.accumulateAndGet(highestId, Math::max);
+        customersById.putAll(byId);
+        customers.putAll(byName);
+        byName.forEach(customerNames::putIfAbsent);
+        return byName.size();
     }
 }
@@ -0,0 +1,407 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Versioned, checksummed binary snapshot of the bank database, used for fast restarts.
+ * Csv files stay the import and export format; the snapshot only mirrors the state in memory.
+ *
+ * Layout: magic "EPMB", version, flags, creation time, last journal sequence number, customer count, one record per customer
+ * (its fields, credit score and accounts, optionally with their transactions), then the CRC32
+ * of everything before it. The id and account number sets are rebuilt from the records.
+ */
+public class BankSnapshot {
+
+    /**
+     * Default location of the snapshot.
+     */
+    public static final Path DEFAULT_PATH = Path.of("BankSnapshots", "EPMB_Snapshot.bin");
+
+    /**
+     * First bytes of every snapshot, "EPMB" in ASCII.
+     */
+    private static final int MAGIC = 0x45504D42;
+
+    /**
+     * Version of the layout written by this class.
+     */
+    private static final short VERSION = 2;
+
+    /**
+     * Flag set when the snapshot holds the transaction history.
+     */
+    private static final int WITH_TRANSACTIONS = 1;
+
+    /**
+     * Prevent instantiation of the helper class.
+     */
+    private BankSnapshot() {
+        /* static helpers only */
+    }
+
+    /**
+     * Write the whole database to a snapshot. The file is written next to the target
+     * and moved over it once complete, so a crash never leaves a torn snapshot.
+     *
+     * @param path                  snapshot file.
+     * @param includeTransactions   flag to also write every account's transaction history.
+     * @param journalSeq            sequence number of the last journal record contained in the state.
+     * @return                      number of customers written.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public static int write(Path path, boolean includeTransactions, long journalSeq) throws IOException {
+        ArrayList<Customer> customers = new ArrayList<>(BankDatabase.getInstance().getCustomers().values());
+        customers.sort(Comparator.comparingInt(Customer::getId));
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16), new CRC32());
+            try (DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeByte(includeTransactions ? WITH_TRANSACTIONS : 0);
+                out.writeLong(System.currentTimeMillis());
+                out.writeLong(journalSeq);
+                out.writeInt(customers.size());
+                for (Customer customer : customers) writeCustomer(out, customer, includeTransactions);
+                // the checksum covers everything written before it
+                out.flush();
+                out.writeInt((int) checked.getChecksum().getValue());
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return customers.size();
+    }
+
+    /**
+     * Replace the database with the contents of a snapshot. The whole file is read and its
+     * checksum verified before the database is touched, so a bad snapshot changes nothing.
+     *
+     * @param path  snapshot file.
+     * @return      sequence number of the last journal record contained in the snapshot.
+     * @throws IOException if the snapshot cannot be read, is not a snapshot or is corrupt.
+     */
+    public static long load(Path path) throws IOException {
+        ArrayList<SnapshotCustomer> loaded;
+        long journalSeq = 0;
+        try (SnapshotInput in = new SnapshotInput(FileChannel.open(path, StandardOpenOption.READ))) {
+            if (in.getInt() != MAGIC) throw new IOException(path + " is not a bank snapshot.");
+            short version = in.getShort();
+            if (version != 1 && version != VERSION) throw new IOException("Unsupported snapshot version " + version + " in " + path + ".");
+            boolean withTransactions = (in.getByte() & WITH_TRANSACTIONS) != 0;
+            in.getLong();
+            // version 1 predates the journal
+            if (version >= 2) journalSeq = in.getLong();
+            int count = in.getInt();
+            if (count < 0) throw new IOException("Corrupt snapshot " + path + ".");
+            loaded = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) loaded.add(readCustomer(in, withTransactions));
+            int expected = in.checksum();
+            if (in.getInt() != expected) throw new IOException("Checksum mismatch in snapshot " + path + ".");
+        }
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        FileHandler fh = new FileHandler();
+        for (SnapshotCustomer record : loaded) {
+            // adding a credit account draws a new score, keep the saved one
+            if (db.addParsedCustomer(record.customer, record.accounts, fh)) record.customer.creditScore = record.creditScore;
+        }
+        return journalSeq;
+    }
+
+    /**
+     * Load a snapshot at startup if it is at least as recent as the csv it was built from.
+     *
+     * @param path      snapshot file.
+     * @param csvFile   customer csv that would otherwise be imported.
+     * @return          sequence number of the last journal record in the snapshot, -1 if the csv should be imported.
+     */
+    public static long loadIfCurrent(Path path, Path csvFile) {
+        try {
+            if (!Files.isRegularFile(path)) return -1;
+            if (Files.exists(csvFile) && Files.getLastModifiedTime(csvFile).compareTo(Files.getLastModifiedTime(path)) > 0) return -1;
+            return load(path);
+        } catch (IOException e) {
+            System.out.println("Error loading snapshot, importing " + csvFile + " instead: " + e.getMessage());
+            BankDatabase.getInstance().clear();
+            return -1;
+        }
+    }
+
+    /**
+     * Write one customer record.
+     *
+     * @param out                   snapshot stream.
+     * @param customer              customer to write.
+     * @param includeTransactions   flag to write the transaction history.
+     * @throws IOException if the write fails.
+     */
+    private static void writeCustomer(DataOutputStream out, Customer customer, boolean includeTransactions) throws IOException {
+        out.writeInt(customer.idNum);
+        writeString(out, customer.firstName);
+        writeString(out, customer.lastName);
+        writeString(out, customer.dob);
+        writeString(out, customer.address);
+        writeString(out, customer.phoneNum);
+        writeString(out, customer.password);
+        out.writeInt(customer.creditScore);
+        out.writeInt(customer.accounts.size());
+        for (Account account : customer.accounts) {
+            TransactionStore store = account.getTransactionList();
+            out.writeByte(AccountKind.of(account).code());
+            if (account instanceof Credit credit) out.writeLong(credit.creditMax);
+            out.writeInt(account.accNum);
+            out.writeLong(account.balance);
+            if (!includeTransactions) continue;
+            out.writeLong(store.startingBalance);
+            out.writeInt(store.size());
+            for (int i = 0; i < store.size(); i++) {
+                out.writeInt(store.getEpochDay(i));
+                writeString(out, store.getDescription(i));
+                out.writeLong(store.getAmountCents(i));
+                out.writeLong(store.getNewBalanceCents(i));
+            }
+        }
+    }
+
+    /**
+     * Read one customer record.
+     *
+     * @param in                snapshot stream.
+     * @param withTransactions  flag if the record holds the transaction history.
+     * @return                  customer with the accounts it should own.
+     * @throws IOException if the read fails or the record is corrupt.
+     */
+    private static SnapshotCustomer readCustomer(SnapshotInput in, boolean withTransactions) throws IOException {
+        Customer customer = new Customer(in.getInt(), in.getString(), in.getString(), in.getString(), in.getString(), in.getString(), in.getString());
+        int creditScore = in.getInt();
+        int accountCount = in.getInt();
+        if (accountCount < 0) throw new IOException("Corrupt snapshot record for customer " + customer.idNum + ".");
+        Account[] accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            byte code = in.getByte();
+            AccountKind kind = AccountKind.fromCode(code);
+            if (kind == null) throw new IOException("Unknown account kind " + code + " in snapshot.");
+            long creditMax = (kind == AccountKind.CREDIT) ? in.getLong() : 0;
+            int accNum = in.getInt();
+            long balance = in.getLong();
+            Account account = switch (kind) {
+                case CHECKING -> new Checking(accNum, 0);
+                case SAVINGS -> new Savings(accNum, 0);
+                case CREDIT -> new Credit(accNum, 0, 0);
+            };
+            if (account instanceof Credit credit) credit.creditMax = creditMax;
+            if (withTransactions) {
+                account.setStartingBalance(in.getLong());
+                TransactionStore store = account.getTransactionList();
+                int transactions = in.getInt();
+                for (int t = 0; t < transactions; t++) store.addTransaction(in.getInt(), in.getString(), in.getLong(), in.getLong());
+            } else {
+                // without the history the current balance becomes the opening balance
+                account.setStartingBalance(balance);
+            }
+            account.balance = balance;
+            accounts[i] = account;
+        }
+        return new SnapshotCustomer(customer, accounts, creditScore);
+    }
+
+    /**
+     * Write a string as its UTF-8 length and bytes, null as empty.
+     *
+     * @param out   snapshot stream.
+     * @param value string to write.
+     * @throws IOException if the write fails or the string is longer than 65535 bytes.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null) ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IOException("String too long for a snapshot: " + bytes.length + " bytes.");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Buffered reader of a snapshot file that checksums the bytes as they are consumed.
+     */
+    private static final class SnapshotInput implements AutoCloseable {
+
+        /**
+         * Channel of the snapshot file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Bytes read from the channel and not consumed yet.
+         */
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).flip();
+
+        /**
+         * Checksum of the bytes consumed before checksumFrom.
+         */
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Position in the buffer of the first consumed byte not checksummed yet.
+         */
+        private int checksumFrom;
+
+        /**
+         * Open a snapshot for reading.
+         *
+         * @param channel   channel of the snapshot file.
+         */
+        SnapshotInput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Make sure enough bytes are buffered, checksumming and dropping the consumed ones.
+         *
+         * @param bytes number of bytes needed.
+         * @throws IOException if the file ends first.
+         */
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            crc.update(buffer.array(), checksumFrom, buffer.position() - checksumFrom);
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) throw new EOFException("Snapshot ends in the middle of a record.");
+            }
+            buffer.flip();
+            checksumFrom = 0;
+        }
+
+        /**
+         * Get the checksum of every byte consumed so far.
+         *
+         * @return CRC32 of the consumed bytes.
+         */
+        int checksum() {
+            crc.update(buffer.array(), checksumFrom, buffer.position() - checksumFrom);
+            checksumFrom = buffer.position();
+            return (int) crc.getValue();
+        }
+
+        /**
+         * Read one byte.
+         *
+         * @return the byte.
+         * @throws IOException if the file ends first.
+         */
+        byte getByte() throws IOException {
+            require(Byte.BYTES);
+            return buffer.get();
+        }
+
+        /**
+         * Read a short.
+         *
+         * @return the short.
+         * @throws IOException if the file ends first.
+         */
+        short getShort() throws IOException {
+            require(Short.BYTES);
+            return buffer.getShort();
+        }
+
+        /**
+         * Read an int.
+         *
+         * @return the int.
+         * @throws IOException if the file ends first.
+         */
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        /**
+         * Read a long.
+         *
+         * @return the long.
+         * @throws IOException if the file ends first.
+         */
+        long getLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        /**
+         * Read a string written by writeString.
+         *
+         * @return the string.
+         * @throws IOException if the file ends first.
+         */
+        String getString() throws IOException {
+            int length = getShort() & 0xFFFF;
+            require(length);
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+
+        /**
+         * Close the snapshot file.
+         *
+         * @throws IOException if the channel cannot be closed.
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Customer read from a snapshot, with the accounts it should own and its saved credit score.
+     */
+    private static final class SnapshotCustomer {
+
+        /**
+         * The customer, without accounts yet.
+         */
+        final Customer customer;
+
+        /**
+         * Accounts the customer should own.
+         */
+        final Account[] accounts;
+
+        /**
+         * Credit score saved with the customer.
+         */
+        final int creditScore;
+
+        /**
+         * Constructor of a snapshot customer.
+         *
+         * @param customer      the customer, without accounts yet.
+         * @param accounts      accounts the customer should own.
+         * @param creditScore   credit score saved with the customer.
+         */
+        SnapshotCustomer(Customer customer, Account[] accounts, int creditScore) {
+            this.customer = customer;
+            this.accounts = accounts;
+            this.creditScore = creditScore;
+        }
+    }
+}
@@ -0,0 +1,444 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Durable progress of a run over a transaction file: which file (path, size, modification time and a
+ * checksum of its first bytes), the byte offset and row number after the last applied row, running
+ * counters, and the journal sequence number the accounts were at. A checkpoint is only saved once the
+ * journal is durable up to that number, so the file and the journal always agree on what was applied.
+ *
+ * A run that crashes leaves its checkpoint RUNNING. On the next start the journal is replayed only up
+ * to that checkpoint, since the console runs one thing at a time and every later record belongs to the
+ * rows after it, and the checkpoint is settled as STOPPED. Running the file again then resumes after
+ * the checkpointed row, so no row is applied twice and only the remaining rows are paid for.
+ *
+ * Layout: magic "EPMC", version, state, path, size, modification time, head checksum, offset, row,
+ * applied, rejected and skipped counts, journal sequence number, then the CRC32 of everything before it.
+ */
+public class BatchCheckpoint {
+
+    /**
+     * State of the run a checkpoint belongs to.
+     */
+    public enum State {
+        /** The run was going on when the checkpoint was saved. */
+        RUNNING,
+        /** The run stopped early; the checkpoint is exactly where it stopped. */
+        STOPPED,
+        /** Every row of the file was run. */
+        COMPLETE
+    }
+
+    /**
+     * Folder holding the checkpoints, next to the journal they agree with.
+     */
+    public static final Path DIRECTORY = Path.of("BankSnapshots");
+
+    /**
+     * First bytes of every checkpoint, "EPMC" in ASCII.
+     */
+    private static final int MAGIC = 0x45504D43;
+
+    /**
+     * Version of the layout written by this class.
+     */
+    private static final short VERSION = 1;
+
+    /**
+     * Bytes at the start of the file covered by the head checksum.
+     */
+    private static final int HEAD_BYTES = 64 * 1024;
+
+    /**
+     * Transaction file the checkpoint belongs to.
+     */
+    private final Path file;
+
+    /**
+     * Size of the transaction file when the run started.
+     */
+    private final long fileSize;
+
+    /**
+     * Modification time of the transaction file when the run started, in milliseconds.
+     */
+    private final long fileModified;
+
+    /**
+     * CRC32 of the first bytes of the transaction file.
+     */
+    private final int headCrc;
+
+    /**
+     * State of the run.
+     */
+    private State state = State.RUNNING;
+
+    /**
+     * Byte offset in the file right after the last applied row.
+     */
+    private long offset;
+
+    /**
+     * Row number of the last applied row, counting the first row after the headers as 1.
+     */
+    private long row;
+
+    /**
+     * Rows applied so far.
+     */
+    private long applied;
+
+    /**
+     * Rows an account refused so far.
+     */
+    private long rejected;
+
+    /**
+     * Malformed rows skipped so far.
+     */
+    private long skipped;
+
+    /**
+     * Journal sequence number the accounts were at when the checkpoint was saved.
+     */
+    private long journalSeq;
+
+    /**
+     * Constructor of a checkpoint.
+     *
+     * @param file          transaction file.
+     * @param fileSize      size of the file.
+     * @param fileModified  modification time of the file, in milliseconds.
+     * @param headCrc       CRC32 of the first bytes of the file.
+     */
+    private BatchCheckpoint(Path file, long fileSize, long fileModified, int headCrc) {
+        this.file = file;
+        this.fileSize = fileSize;
+        this.fileModified = fileModified;
+        this.headCrc = headCrc;
+    }
+
+    /**
+     * Start a checkpoint for a fresh run over a file.
+     *
+     * @param file          transaction file.
+     * @param firstOffset   byte offset of the first row after the headers.
+     * @return              a RUNNING checkpoint before the first row.
+     * @throws IOException if the file cannot be read.
+     */
+    public static BatchCheckpoint start(Path file, long firstOffset) throws IOException {
+        BatchCheckpoint checkpoint = new BatchCheckpoint(file.toAbsolutePath().normalize(), Files.size(file), Files.getLastModifiedTime(file).toMillis(), headCrc(file));
+        checkpoint.offset = firstOffset;
+        return checkpoint;
+    }
+
+    /**
+     * Find where an earlier run over a file stopped, if it did not finish and the file is unchanged.
+     *
+     * @param file  transaction file.
+     * @return      the checkpoint to resume from, null to run the file from the start.
+     */
+    public static BatchCheckpoint resumable(Path file) {
+        Path path = pathFor(file);
+        if (!Files.isRegularFile(path)) return null;
+        try {
+            BatchCheckpoint checkpoint = load(path);
+            if (checkpoint.state == State.COMPLETE || !checkpoint.matches(file)) return null;
+            checkpoint.state = State.RUNNING;
+            return checkpoint;
+        } catch (IOException e) {
+            System.out.println("Error reading checkpoint " + path + ", running " + file + " from the start: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Check if an earlier run over a file finished and the file is unchanged, e.g. when it was not archived afterwards.
+     *
+     * @param file  transaction file.
+     * @return      true if the file has a COMPLETE checkpoint.
+     */
+    public static boolean isComplete(Path file) {
+        Path path = pathFor(file);
+        if (!Files.isRegularFile(path)) return false;
+        try {
+            BatchCheckpoint checkpoint = load(path);
+            return checkpoint.state == State.COMPLETE && checkpoint.matches(file);
+        } catch (IOException e) {
+            System.out.println("Error reading checkpoint " + path + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get the journal sequence number recovery must stop at, because a run crashed after it.
+     *
+     * @param afterSeq  sequence number already contained in the loaded state.
+     * @return          sequence number of the earliest RUNNING checkpoint not older than afterSeq, Long.MAX_VALUE if none.
+     */
+    public static long recoveryLimit(long afterSeq) {
+        long limit = Long.MAX_VALUE;
+        for (BatchCheckpoint checkpoint : loadAll()) {
+            if (checkpoint.state == State.RUNNING && checkpoint.journalSeq >= afterSeq) limit = Math.min(limit, checkpoint.journalSeq);
+        }
+        return limit;
+    }
+
+    /**
+     * Mark every RUNNING checkpoint as STOPPED, once the journal has been cut back to them.
+     *
+     * @return number of interrupted runs.
+     */
+    public static int settleInterrupted() {
+        int settled = 0;
+        for (BatchCheckpoint checkpoint : loadAll()) {
+            if (checkpoint.state != State.RUNNING) continue;
+            try {
+                checkpoint.state = State.STOPPED;
+                checkpoint.write();
+                settled++;
+            } catch (IOException e) {
+                System.out.println("Error settling the checkpoint of " + checkpoint.file + ": " + e.getMessage());
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * Count one run row.
+     *
+     * @param outcome       outcome of the row.
+     * @param rowNumber     row number of the row.
+     * @param endOffset     byte offset in the file right after the row.
+     */
+    public void count(TransactionRow.Outcome outcome, long rowNumber, long endOffset) {
+        switch (outcome) {
+            case APPLIED -> this.applied++;
+            case REJECTED -> this.rejected++;
+            case SKIPPED -> this.skipped++;
+        }
+        this.row = rowNumber;
+        this.offset = endOffset;
+    }
+
+    /**
+     * Save the checkpoint once every journal record so far is durable.
+     *
+     * @param state state of the run.
+     * @throws IOException if the checkpoint cannot be written.
+     */
+    public void save(State state) throws IOException {
+        this.journalSeq = Journal.getInstance().sync();
+        this.state = state;
+        this.write();
+    }
+
+    /**
+     * Get the byte offset in the file right after the last applied row.
+     *
+     * @return byte offset.
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Get the row number of the last applied row.
+     *
+     * @return row number, 0 before the first row.
+     */
+    public long getRow() {
+        return this.row;
+    }
+
+    /**
+     * Get the rows applied so far.
+     *
+     * @return applied rows.
+     */
+    public long getApplied() {
+        return this.applied;
+    }
+
+    /**
+     * Get the rows an account refused so far.
+     *
+     * @return rejected rows.
+     */
+    public long getRejected() {
+        return this.rejected;
+    }
+
+    /**
+     * Get the malformed rows skipped so far.
+     *
+     * @return skipped rows.
+     */
+    public long getSkipped() {
+        return this.skipped;
+    }
+
+    /**
+     * Get the state of the run.
+     *
+     * @return the state.
+     */
+    public State getState() {
+        return this.state;
+    }
+
+    /**
+     * Get where the checkpoint of a transaction file is kept.
+     *
+     * @param file  transaction file.
+     * @return      path of its checkpoint.
+     */
+    public static Path pathFor(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return DIRECTORY.resolve("EPMB_Checkpoint_" + ((dot > 0) ? name.substring(0, dot) : name) + ".bin");
+    }
+
+    /**
+     * Check if a file is still the one the checkpoint was taken on.
+     *
+     * @param file  transaction file.
+     * @return      true if its path, size, modification time and first bytes are unchanged.
+     * @throws IOException if the file cannot be read.
+     */
+    private boolean matches(Path file) throws IOException {
+        return Files.isRegularFile(file) && this.file.equals(file.toAbsolutePath().normalize()) && Files.size(file) == this.fileSize
+                && Files.getLastModifiedTime(file).toMillis() == this.fileModified && headCrc(file) == this.headCrc;
+    }
+
+    /**
+     * Write the checkpoint next to its target, force it and move it over the target.
+     *
+     * @throws IOException if the checkpoint cannot be written.
+     */
+    private void write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeByte(this.state.ordinal());
+            out.writeUTF(this.file.toString());
+            out.writeLong(this.fileSize);
+            out.writeLong(this.fileModified);
+            out.writeInt(this.headCrc);
+            out.writeLong(this.offset);
+            out.writeLong(this.row);
+            out.writeLong(this.applied);
+            out.writeLong(this.rejected);
+            out.writeLong(this.skipped);
+            out.writeLong(this.journalSeq);
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+        }
+        Path path = pathFor(this.file);
+        Files.createDirectories(DIRECTORY);
+        Path temp = Files.createTempFile(DIRECTORY, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) channel.write(buffer);
+                // a settled or complete checkpoint must never fall back to an older running one
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read every checkpoint in the folder, skipping unreadable ones.
+     *
+     * @return the checkpoints.
+     */
+    private static ArrayList<BatchCheckpoint> loadAll() {
+        ArrayList<BatchCheckpoint> checkpoints = new ArrayList<>();
+        if (!Files.isDirectory(DIRECTORY)) return checkpoints;
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(DIRECTORY, "EPMB_Checkpoint_*.bin")) {
+            for (Path path : paths) {
+                try {
+                    checkpoints.add(load(path));
+                } catch (IOException e) {
+                    System.out.println("Error reading checkpoint " + path + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading checkpoints: " + e.getMessage());
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Read a checkpoint.
+     *
+     * @param path  checkpoint file.
+     * @return      the checkpoint.
+     * @throws IOException if the file cannot be read, is not a checkpoint or is corrupt.
+     */
+    private static BatchCheckpoint load(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < Integer.BYTES * 2) throw new IOException("Corrupt checkpoint " + path + ".");
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        if (ByteBuffer.wrap(bytes).getInt(bytes.length - Integer.BYTES) != (int) crc.getValue()) throw new IOException("Checksum mismatch in checkpoint " + path + ".");
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC) throw new IOException(path + " is not a batch checkpoint.");
+            short version = in.readShort();
+            if (version != VERSION) throw new IOException("Unsupported checkpoint version " + version + " in " + path + ".");
+            int state = in.readByte();
+            if (state < 0 || state >= State.values().length) throw new IOException("Corrupt checkpoint " + path + ".");
+            BatchCheckpoint checkpoint = new BatchCheckpoint(Path.of(in.readUTF()), in.readLong(), in.readLong(), in.readInt());
+            checkpoint.state = State.values()[state];
+            checkpoint.offset = in.readLong();
+            checkpoint.row = in.readLong();
+            checkpoint.applied = in.readLong();
+            checkpoint.rejected = in.readLong();
+            checkpoint.skipped = in.readLong();
+            checkpoint.journalSeq = in.readLong();
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Checksum the first bytes of a file.
+     *
+     * @param file  file to checksum.
+     * @return      CRC32 of up to its first 64 KiB.
+     * @throws IOException if the file cannot be read.
+     */
+    private static int headCrc(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate((int) Math.min(HEAD_BYTES, channel.size()));
+            while (head.hasRemaining() && channel.read(head) > 0) {
+                /* keep reading */
+            }
+            CRC32 crc = new CRC32();
+            crc.update(head.flip());
+            return (int) crc.getValue();
+        }
+    }
+}
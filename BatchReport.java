@@ -0,0 +1,391 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Machine-readable summary of one run of a transaction file: rows read and what became of them,
+ * rejections and skips by reason, amount moved per operation, busy time of each pipeline stage,
+ * and the latency of applying a row. It sits between the pipeline and the caller's listener,
+ * counting every result before passing it on, and is written as json next to the transaction file
+ * so runs can be compared across releases.
+ */
+public class BatchReport implements OperationListener {
+
+    /**
+     * Stages of a pipeline run.
+     */
+    public enum Phase {
+        /** Copying csv rows off the file. */
+        READ,
+        /** Mapping names and account types to accounts. */
+        RESOLVE,
+        /** Changing balances. */
+        APPLY,
+        /** Formatting the audit lines. */
+        LOG
+    }
+
+    /**
+     * Listener the results are passed on to.
+     */
+    private final OperationListener delegate;
+
+    /**
+     * Rows refused, by reason.
+     */
+    private final long[] rejections = new long[OperationResult.Rejection.values().length];
+
+    /**
+     * Rows skipped, by problem.
+     */
+    private final long[] skips = new long[TransactionRow.Problem.values().length];
+
+    /**
+     * Amount moved by applied operations, by operation, in cents.
+     */
+    private final long[] moved = new long[OperationResult.Type.values().length];
+
+    /**
+     * Time each stage spent working, in nanoseconds.
+     */
+    private final long[] phaseNanos = new long[Phase.values().length];
+
+    /**
+     * Time taken to apply each row.
+     */
+    private final LatencyHistogram applyLatency = new LatencyHistogram();
+
+    /**
+     * Transaction file run.
+     */
+    private Path file;
+
+    /**
+     * When the run started.
+     */
+    private Instant started;
+
+    /**
+     * Time from opening the file to the last stage finishing, in nanoseconds.
+     */
+    private long wallNanos;
+
+    /**
+     * Row the run continued after, 0 if it ran from the start.
+     */
+    private long resumedAfter;
+
+    /**
+     * Rows applied.
+     */
+    private long applied;
+
+    /**
+     * Rows an account refused.
+     */
+    private long rejected;
+
+    /**
+     * Rows skipped as malformed.
+     */
+    private long skipped;
+
+    /**
+     * Constructor of an empty report.
+     *
+     * @param delegate  listener every result is passed on to.
+     */
+    public BatchReport(OperationListener delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Get where the report of a transaction file is written.
+     *
+     * @param file  transaction file.
+     * @return      path of its report, in the same folder.
+     */
+    public static Path pathFor(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return file.resolveSibling("EPMB_Report_" + ((dot > 0) ? name.substring(0, dot) : name) + ".json");
+    }
+
+    @Override
+    public void completed(OperationResult result) {
+        if (result.isApplied()) moved[result.getType().ordinal()] += result.getCents();
+        else rejections[result.getRejection().ordinal()]++;
+        delegate.completed(result);
+    }
+
+    @Override
+    public void rowSkipped(TransactionRow row, TransactionRow.Problem problem) {
+        skips[problem.ordinal()]++;
+        delegate.rowSkipped(row, problem);
+    }
+
+    @Override
+    public void resumed(Path file, BatchCheckpoint checkpoint) {
+        this.resumedAfter = checkpoint.getRow();
+        delegate.resumed(file, checkpoint);
+    }
+
+    /**
+     * Get a listener filling this report from several threads at once, e.g. the workers of a partitioned batch.
+     * Rows are counted with {@link #count} while holding the report's lock the same way.
+     *
+     * @return  listener passing every call on to this report under its lock.
+     */
+    OperationListener synchronizedListener() {
+        BatchReport report = this;
+        return new OperationListener() {
+            @Override
+            public void completed(OperationResult result) {
+                synchronized (report) {
+                    report.completed(result);
+                }
+            }
+
+            @Override
+            public void rowSkipped(TransactionRow row, TransactionRow.Problem problem) {
+                synchronized (report) {
+                    report.rowSkipped(row, problem);
+                }
+            }
+        };
+    }
+
+    /**
+     * Mark the start of a run.
+     *
+     * @param file  transaction file run.
+     */
+    void start(Path file) {
+        this.file = file;
+        this.started = Instant.now();
+    }
+
+    /**
+     * Count the outcome of one row.
+     *
+     * @param outcome   outcome of the row.
+     * @param nanos     time taken to apply it.
+     */
+    void count(TransactionRow.Outcome outcome, long nanos) {
+        switch (outcome) {
+            case APPLIED -> applied++;
+            case REJECTED -> rejected++;
+            case SKIPPED -> skipped++;
+        }
+        applyLatency.record(nanos);
+    }
+
+    /**
+     * Add to the time a stage spent working.
+     *
+     * @param phase the stage.
+     * @param nanos time worked, in nanoseconds.
+     */
+    void addPhase(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Set the time the whole run took.
+     *
+     * @param nanos time from opening the file to the last stage finishing, in nanoseconds.
+     */
+    void setWallNanos(long nanos) {
+        this.wallNanos = nanos;
+    }
+
+    /**
+     * Get the number of rows run.
+     *
+     * @return rows run.
+     */
+    public long getRows() {
+        return applied + rejected + skipped;
+    }
+
+    /**
+     * Get the number of rows applied.
+     *
+     * @return rows applied.
+     */
+    public long getApplied() {
+        return this.applied;
+    }
+
+    /**
+     * Get the number of rows an account refused.
+     *
+     * @return rows rejected.
+     */
+    public long getRejected() {
+        return this.rejected;
+    }
+
+    /**
+     * Get the number of rows skipped as malformed.
+     *
+     * @return rows skipped.
+     */
+    public long getSkipped() {
+        return this.skipped;
+    }
+
+    /**
+     * Get the number of rows refused for a reason.
+     *
+     * @param reason    why the rows were refused.
+     * @return          rows refused for it.
+     */
+    public long getRejections(OperationResult.Rejection reason) {
+        return rejections[reason.ordinal()];
+    }
+
+    /**
+     * Get the number of rows skipped for a problem.
+     *
+     * @param problem   why the rows were skipped.
+     * @return          rows skipped for it.
+     */
+    public long getSkips(TransactionRow.Problem problem) {
+        return skips[problem.ordinal()];
+    }
+
+    /**
+     * Get the amount moved by an operation.
+     *
+     * @param type  the operation.
+     * @return      amount its applied rows moved, in cents.
+     */
+    public long getMovedCents(OperationResult.Type type) {
+        return moved[type.ordinal()];
+    }
+
+    /**
+     * Get the time a stage spent working.
+     *
+     * @param phase the stage.
+     * @return      time worked, in nanoseconds, not counting waits on the other stages.
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Get the time the whole run took.
+     *
+     * @return time from opening the file to the last stage finishing, in nanoseconds.
+     */
+    public long getWallNanos() {
+        return this.wallNanos;
+    }
+
+    /**
+     * Get the row the run continued after.
+     *
+     * @return row number, 0 if the run started at the first row.
+     */
+    public long getResumedAfter() {
+        return this.resumedAfter;
+    }
+
+    /**
+     * Get the time taken to apply each row.
+     *
+     * @return histogram of apply times, in nanoseconds.
+     */
+    public LatencyHistogram getApplyLatency() {
+        return this.applyLatency;
+    }
+
+    /**
+     * Write the report as json.
+     *
+     * @param path  file to write, replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        Files.writeString(path, this.toJson());
+    }
+
+    /**
+     * Format the report as json.
+     *
+     * @return the report, one field per line.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"file\": ").append(quote(String.valueOf(file))).append(",\n");
+        json.append("  \"started\": ").append(quote(String.valueOf(started))).append(",\n");
+        json.append("  \"resumedAfterRow\": ").append(resumedAfter).append(",\n");
+        json.append("  \"rows\": {\"read\": ").append(this.getRows()).append(", \"applied\": ").append(applied)
+                .append(", \"rejected\": ").append(rejected).append(", \"skipped\": ").append(skipped).append("},\n");
+        json.append("  \"rejected\": ");
+        object(json, OperationResult.Rejection.values(), rejections);
+        json.append(",\n  \"skipped\": ");
+        object(json, TransactionRow.Problem.values(), skips);
+        json.append(",\n  \"movedCents\": ");
+        object(json, OperationResult.Type.values(), moved);
+        json.append(",\n  \"phaseMillis\": {");
+        for (Phase phase : Phase.values()) {
+            json.append(quote(phase.name().toLowerCase(Locale.ROOT))).append(": ").append(millis(phaseNanos[phase.ordinal()])).append(", ");
+        }
+        json.append("\"wall\": ").append(millis(wallNanos)).append("},\n");
+        double seconds = wallNanos / 1e9;
+        json.append("  \"rowsPerSecond\": ").append((seconds > 0) ? Math.round(this.getRows() / seconds) : 0).append(",\n");
+        json.append("  \"applyLatencyNanos\": {\"p50\": ").append(applyLatency.percentile(0.50))
+                .append(", \"p99\": ").append(applyLatency.percentile(0.99))
+                .append(", \"max\": ").append(applyLatency.getMax())
+                .append(", \"mean\": ").append(applyLatency.getMean()).append("}\n");
+        return json.append("}\n").toString();
+    }
+
+    /**
+     * Append counts keyed by enum constant as a json object.
+     *
+     * @param json      json being built.
+     * @param keys      constants, in ordinal order.
+     * @param counts    count of each constant.
+     */
+    private static void object(StringBuilder json, Enum<?>[] keys, long[] counts) {
+        json.append('{');
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) json.append(", ");
+            json.append(quote(keys[i].name())).append(": ").append(counts[i]);
+        }
+        json.append('}');
+    }
+
+    /**
+     * Format nanoseconds as milliseconds with three decimals.
+     *
+     * @param nanos time in nanoseconds.
+     * @return      time in milliseconds.
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Quote a value as a json string.
+     *
+     * @param value the value.
+     * @return      the value in double quotes, with quotes, backslashes and control characters escaped.
+     */
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') quoted.append('\\').append(c);
+            else if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+            else quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+}
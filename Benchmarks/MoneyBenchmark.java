@@ -0,0 +1,73 @@
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Compares the allocation rate and speed of reading balances as rounded doubles
+ * (the former BigDecimal-based getBalance) against the long-cents balances.
+ * Run with: java -cp out MoneyBenchmark [iterations]
+ */
+public class MoneyBenchmark {
+
+    /**
+     * Thread bean used to read the bytes allocated by the benchmark thread.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Sink so the JIT cannot drop the measured work.
+     */
+    private static long sink;
+
+    /**
+     * Former getBalance: round a double balance to cents through a BigDecimal.
+     *
+     * @param balance   balance in dollars.
+     * @return          balance rounded to cents.
+     */
+    private static double legacyGetBalance(double balance) {
+        BigDecimal bd = BigDecimal.valueOf(balance);
+        bd = bd.setScale(2, RoundingMode.HALF_UP);
+        return bd.doubleValue();
+    }
+
+    /**
+     * Run one measured loop and print its time and allocation per operation.
+     *
+     * @param name          label of the loop.
+     * @param iterations    operations to run.
+     * @param body          loop body, given the iteration number.
+     */
+    private static void measure(String name, int iterations, java.util.function.IntToLongFunction body) {
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long acc = 0;
+        for (int i = 0; i < iterations; i++) acc += body.applyAsLong(i);
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+        sink += acc;
+        System.out.printf("%-36s %8.2f ns/op %8.2f B/op%n", name, (double) elapsed / iterations, (double) bytes / iterations);
+    }
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of iterations per loop.
+     */
+    public static void main(String[] args) {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 5_000_000;
+        Checking account = new Checking(1, 1234.56);
+        double legacyBalance = 1234.56;
+        // warm up both paths before measuring
+        for (int round = 0; round < 2; round++) {
+            System.out.println((round == 0) ? "warm-up" : "measured");
+            measure("before: BigDecimal getBalance()", iterations, i -> (long) legacyGetBalance(legacyBalance + i));
+            measure("after: getBalance()", iterations, i -> (long) account.getBalance());
+            measure("after: getBalanceCents()", iterations, i -> account.getBalanceCents());
+            measure("before: credit fee in doubles", iterations, i -> (long) legacyGetBalance(i + 0.025 * i));
+            measure("after: credit fee in cents", iterations, i -> Money.applyRate(i, Credit.FEE_NUMERATOR, Credit.FEE_DENOMINATOR));
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+}
@@ -0,0 +1,124 @@
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Compares the cost per row of resolving transaction rows to customers and accounts:
+ * the former way (concatenating and lower-casing the names for the customers map, then scanning
+ * the customer's accounts comparing getType() names) against TransactionRow.parse with the
+ * customer name index and the per-kind account slots.
+ * Run with: java -cp out ResolutionBenchmark [customers] [rows]
+ */
+public class ResolutionBenchmark {
+
+    /**
+     * Thread bean used to read the bytes allocated by the benchmark thread.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Sink so the JIT cannot drop the measured work.
+     */
+    private static long sink;
+
+    /**
+     * Former resolution of one row.
+     *
+     * @param row   row of the transaction file.
+     * @param cols  columns of the transaction fields.
+     * @return      something derived from the resolved accounts.
+     */
+    private static long legacyResolve(CsvRow row, int[] cols) {
+        Customer fromCustomer = BankDatabase.customers.get((row.get(cols[0]) + row.get(cols[1])).toLowerCase());
+        Customer toCustomer = BankDatabase.customers.get((row.get(cols[5]) + row.get(cols[6])).toLowerCase());
+        String action = row.get(cols[3]).toLowerCase();
+        Account fromAccount = legacyFind(fromCustomer, row.get(cols[2]));
+        Account toAccount = legacyFind(toCustomer, row.get(cols[7]));
+        return action.length() + ((fromAccount == null) ? 0 : fromAccount.accNum) + ((toAccount == null) ? 0 : toAccount.accNum);
+    }
+
+    /**
+     * Former account lookup: scan the customer's accounts by type name.
+     *
+     * @param customer  customer owning the account, may be null.
+     * @param type      account type, any case.
+     * @return          the first account of that type, null if there is none.
+     */
+    private static Account legacyFind(Customer customer, String type) {
+        if (customer == null) return null;
+        for (Account account : customer.getAccounts()) if (account.getType().equalsIgnoreCase(type)) return account;
+        return null;
+    }
+
+    /**
+     * Resolution of one row through the index.
+     *
+     * @param row   row of the transaction file.
+     * @param cols  columns of the transaction fields.
+     * @return      something derived from the resolved accounts.
+     */
+    private static long indexedResolve(CsvRow row, int[] cols) {
+        TransactionRow resolved = TransactionRow.parse(row, cols);
+        return resolved.action.length() + ((resolved.fromAccount == null) ? 0 : resolved.fromAccount.accNum) + ((resolved.toAccount == null) ? 0 : resolved.toAccount.accNum);
+    }
+
+    /**
+     * Run one measured loop over every row and print its time and allocation per row.
+     *
+     * @param name      label of the loop.
+     * @param rows      rows to resolve.
+     * @param cols      columns of the transaction fields.
+     * @param resolver  resolution being measured.
+     */
+    private static void measure(String name, CsvRow[] rows, int[] cols, java.util.function.ToLongBiFunction<CsvRow, int[]> resolver) {
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long acc = 0;
+        for (CsvRow row : rows) acc += resolver.applyAsLong(row, cols);
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+        sink += acc;
+        System.out.printf("%-44s %8.2f ns/row %8.2f B/row%n", name, (double) elapsed / rows.length, (double) bytes / rows.length);
+    }
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of customers and of rows.
+     * @throws java.io.IOException never, the csv is in memory.
+     */
+    public static void main(String[] args) throws java.io.IOException {
+        int customers = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        int rowCount = (args.length > 1) ? Integer.parseInt(args[1]) : 1_000_000;
+        BankDatabase db = BankDatabase.getInstance();
+        for (int i = 0; i < customers; i++) {
+            db.addCustomer(i + 1, "First" + i, "Last" + i, "1-Jan-00", "1 Main St", "(915) 555-0100",
+                    1_000_000 + i, 10_000, 2_000_000 + i, 10_000, 3_000_000 + i, 1000, 0, "pw");
+        }
+        // a pays row between two random customers, names capitalized as in the files
+        java.util.Random random = new java.util.Random(1);
+        StringBuilder csv = new StringBuilder("From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n");
+        String[] kinds = {"Checking", "Savings", "Credit"};
+        for (int i = 0; i < rowCount; i++) {
+            int from = random.nextInt(customers), to = random.nextInt(customers);
+            csv.append("First").append(from).append(",Last").append(from).append(',').append(kinds[i % 3]).append(",pays,First")
+                    .append(to).append(",Last").append(to).append(',').append(kinds[(i + 1) % 3]).append(",12.34\n");
+        }
+        CsvReader reader = new CsvReader(ByteBuffer.wrap(csv.toString().getBytes(StandardCharsets.UTF_8)), 0);
+        reader.next();
+        reader.setHeaders(new String[]{"From First Name", "From Last Name", "From Where", "Action", "To First Name", "To Last Name", "To Where", "Action Amount"});
+        int[] cols = TransactionRow.columns(reader);
+        ArrayList<CsvRow> parsed = new ArrayList<>(rowCount);
+        while (reader.next()) parsed.add(reader.row().copy());
+        CsvRow[] rows = parsed.toArray(new CsvRow[0]);
+        // warm up both paths before measuring
+        for (int round = 0; round < 3; round++) {
+            System.out.println((round == 0) ? "warm-up" : "measured");
+            measure("before: concat + toLowerCase + account scan", rows, cols, ResolutionBenchmark::legacyResolve);
+            measure("after: name index + kind slots", rows, cols, ResolutionBenchmark::indexedResolve);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares startup time of importing customers from csv against loading a binary snapshot.
+ * Generates a customer csv of the requested size in a temporary directory, imports it,
+ * writes a snapshot, then clears the database and loads the snapshot.
+ * Run with: java -Xmx4g -cp out StartupBenchmark [customers] [rounds]
+ */
+public class StartupBenchmark {
+
+    /**
+     * Write a customer csv with the given number of rows.
+     *
+     * @param file      csv file to write.
+     * @param customers number of rows.
+     * @throws IOException if the file cannot be written.
+     */
+    private static void generateCsv(Path file, int customers) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("Identification Number,First Name,Last Name,Date of Birth,Address,Phone Number,Checking Account Number,Checking Starting Balance,Savings Account Number,Savings Starting Balance,Credit Account Number,Credit Max,Credit Starting Balance,Password");
+            writer.newLine();
+            for (int i = 1; i <= customers; i++) {
+                writer.write(i + ",First" + i + ",Last" + i + ",1-Jan-90,\"" + i + " Main St, El Paso, TX 79968\",(915) 555-" + (1000 + i % 9000)
+                        + "," + (1000000 + i) + "," + (i % 5000) + ".25," + (2000000 + i) + "," + (i % 7000) + ".50,"
+                        + (3000000 + i) + "," + (100 + i % 24900) + ",-" + (i % 100) + ".75,pass" + i);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of customers and number of rounds.
+     * @throws IOException if a temporary file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int customers = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+        Path dir = Files.createTempDirectory("epmb-startup");
+        Path csv = dir.resolve("BankUsers.csv");
+        Path snapshot = dir.resolve("EPMB_Snapshot.bin");
+        generateCsv(csv, customers);
+        BankDatabase db = BankDatabase.getInstance();
+        for (int round = 1; round <= rounds; round++) {
+            db.clear();
+            System.gc();
+            long start = System.nanoTime();
+            int fromCsv = new BulkCustomerLoader().load(dir.resolve("BankUsers").toString());
+            long csvNanos = System.nanoTime() - start;
+            BankSnapshot.write(snapshot, true, 0);
+            db.clear();
+            System.gc();
+            start = System.nanoTime();
+            BankSnapshot.load(snapshot);
+            long snapshotNanos = System.nanoTime() - start;
+            int fromSnapshot = db.getCustomerIDs().size();
+            System.out.printf("round %d: csv %,d customers in %,d ms (%,d bytes), snapshot %,d customers in %,d ms (%,d bytes)%n",
+                    round, fromCsv, csvNanos / 1_000_000, Files.size(csv), fromSnapshot, snapshotNanos / 1_000_000, Files.size(snapshot));
+        }
+        Files.delete(snapshot);
+        Files.delete(csv);
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares statements per second for an account with many transactions: the former statement
+ * writer (String.format per line through an unbuffered FileWriter opened in append mode, toggling
+ * the file writable around each call) against StatementRenderer through one buffered writer.
+ * Each path is measured writing the file and rendering into a discarding writer.
+ * Run with: java -cp out StatementBenchmark [transactions] [statements]
+ */
+public class StatementBenchmark {
+
+    /**
+     * Thread bean used to read the bytes allocated by the benchmark thread.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Former statement of one account, as FileHandler.generateUserTransactionsFile wrote it.
+     *
+     * @param writer    writer of the statement.
+     * @param customer  owner of the account.
+     * @param account   account for the transactions.
+     * @param startDate start range (mm-dd-yyyy).
+     * @param endDate   end range (mm-dd-yyyy).
+     * @throws Exception if the statement cannot be written or a date parsed.
+     */
+    private static void legacyStatement(Writer writer, Customer customer, Account account, String startDate, String endDate) throws Exception {
+        TransactionCursor transactions = account.getTransactionList().getTransactionsBetweenDates(startDate, endDate);
+        writer.write(String.format("Name: %s\nID: %s\nAccount: %s\nAccount ID: %s\nStarting Balance: $%s\nStatement Period: %s to %s\n==================================================\n",
+                customer.getFullName(), customer.getId(), account.getType(), account.getAccountNumber(), Money.format(account.getTransactionList().startingBalance), startDate, endDate));
+        while (transactions.next()) {
+            writer.write(String.format("Date: %s\nDescription: %s\nAmount: $%s\nNew Balance: $%s\n-------------------------------------\n",
+                    transactions.getDate(), transactions.getDescription(), Money.format(transactions.getAmountCents()), Money.format(transactions.getNewBalanceCents())));
+        }
+        writer.write(String.format("Ending balance: $%s\n==================================================\n", Money.format(account.getBalanceCents())));
+    }
+
+    /**
+     * Former statement file: unbuffered, appended to, made writable and read-only around the write.
+     *
+     * @param file      statement file.
+     * @param customer  owner of the account.
+     * @param account   account for the transactions.
+     * @throws Exception if the statement cannot be written.
+     */
+    private static void legacyFile(File file, Customer customer, Account account) throws Exception {
+        if (file.exists()) file.setWritable(true);
+        try (FileWriter writer = new FileWriter(file, true)) {
+            legacyStatement(writer, customer, account, "01-01-2020", "12-31-2030");
+        } finally {
+            file.setWritable(false);
+        }
+    }
+
+    /**
+     * Statement file through the renderer and one buffered writer.
+     *
+     * @param file      statement file.
+     * @param renderer  renderer reused across statements.
+     * @param customer  owner of the account.
+     * @param account   account for the transactions.
+     * @param start     start range, as days since 1970-01-01.
+     * @param end       end range, as days since 1970-01-01.
+     * @throws IOException if the statement cannot be written.
+     */
+    private static void rendererFile(File file, StatementRenderer renderer, Customer customer, Account account, int start, int end) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter(file, false), 1 << 16)) {
+            renderer.render(writer, customer, account, start, end);
+        }
+    }
+
+    /**
+     * Run one measured loop and print statements per second and allocation per statement.
+     *
+     * @param name          label of the loop.
+     * @param statements    statements to write.
+     * @param body          one statement.
+     * @throws Exception if a statement cannot be written.
+     */
+    private static void measure(String name, int statements, Statement body) throws Exception {
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < statements; i++) body.write();
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+        System.out.printf("%-44s %10.1f statements/s %12.0f B/statement%n", name, statements / (elapsed / 1e9), (double) bytes / statements);
+    }
+
+    /**
+     * One statement written by a measured loop.
+     */
+    @FunctionalInterface
+    private interface Statement {
+
+        /**
+         * Write the statement.
+         *
+         * @throws Exception if it cannot be written.
+         */
+        void write() throws Exception;
+    }
+
+    /**
+     * Entry point of the benchmark.
+     *
+     * @param args optional number of transactions on the account and of statements per loop.
+     * @throws Exception if a statement cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        int transactionCount = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        int statements = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+        BankDatabase db = BankDatabase.getInstance();
+        db.addCustomer(1, "Ada", "Lovelace", "10-Dec-15", "1 Engine St", "(915) 555-0100", 1001, 1_000_000, 1002, 0, 1003, 1000, 0, "pw");
+        Customer customer = db.getCustomers().get("adalovelace");
+        Account account = customer.getAccounts().get(0);
+        // about twenty transactions a day, as a busy account has
+        int firstDay = TransactionStore.parseEpochDay("01-01-2024");
+        long balance = account.getBalanceCents();
+        for (int i = 0; i < transactionCount; i++) {
+            long cents = 100 + i % 9_900;
+            balance += (i % 2 == 0) ? cents : -cents;
+            account.getTransactionList().addTransaction(firstDay + i / 20, (i % 2 == 0) ? "Deposit of funds" : "Withdrawal of funds", cents, balance);
+        }
+        int start = TransactionStore.parseEpochDay("01-01-2020"), end = TransactionStore.parseEpochDay("12-31-2030");
+        Path directory = Files.createTempDirectory("EPMB_StatementBenchmark");
+        File legacy = directory.resolve("legacy.txt").toFile(), rendered = directory.resolve("rendered.txt").toFile();
+        StatementRenderer renderer = new StatementRenderer();
+        // warm up both paths before measuring
+        for (int round = 0; round < 3; round++) {
+            System.out.println((round == 0) ? "warm-up" : "measured");
+            // the former writer appended, so start every round from an empty file
+            legacy.setWritable(true);
+            Files.deleteIfExists(legacy.toPath());
+            measure("before: String.format, unbuffered append", statements, () -> legacyFile(legacy, customer, account));
+            measure("after: renderer, buffered writer", statements, () -> rendererFile(rendered, renderer, customer, account, start, end));
+            measure("before: String.format, render only", statements, () -> legacyStatement(Writer.nullWriter(), customer, account, "01-01-2020", "12-31-2030"));
+            measure("after: renderer, render only", statements, () -> renderer.render(Writer.nullWriter(), customer, account, start, end));
+        }
+        System.out.println(transactionCount + " transactions per statement, files in " + directory);
+        legacy.setWritable(true);
+        Files.deleteIfExists(legacy.toPath());
+        Files.deleteIfExists(rendered.toPath());
+        Files.deleteIfExists(directory);
+    }
+}
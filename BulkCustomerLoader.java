@@ -0,0 +1,376 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads a customer csv (e.g. BankUsers) by memory-mapping it, splitting it into
+ * chunks at line breaks and parsing the chunks in parallel on a fork-join pool.
+ * A quoted field may span lines, so each chunk also checks, from its mapped bytes, that
+ * its last line break ends a row as {@link CsvReader} reads it; the rare chunk cut inside
+ * a quoted field is parsed again together with the next one. The parsed customers are then
+ * inserted together, in one pass in file order that rejects duplicate ids, names and account
+ * numbers exactly as adding them one by one would.
+ */
+public class BulkCustomerLoader {
+
+    /**
+     * Target size of one chunk; chunk ends are moved forward to the next line break.
+     */
+    private static final long CHUNK_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * Pool parsing the chunks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Target size of one chunk, in bytes.
+     */
+    private final long chunkSize;
+
+    /**
+     * Constructor of a loader using the common fork-join pool.
+     */
+    public BulkCustomerLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor of a loader using a given pool.
+     *
+     * @param pool  pool parsing the chunks.
+     */
+    public BulkCustomerLoader(ForkJoinPool pool) {
+        this(pool, CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor of a loader using a given pool and chunk size, e.g. small chunks to test the cuts.
+     *
+     * @param pool      pool parsing the chunks.
+     * @param chunkSize target size of one chunk, in bytes.
+     */
+    BulkCustomerLoader(ForkJoinPool pool, long chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Load every customer of a csv file into the bank database.
+     *
+     * @param filename  name of the csv file, without extension.
+     * @return          number of customers added.
+     */
+    public int load(String filename) {
+        FileHandler fh = new FileHandler();
+        try (FileChannel channel = FileChannel.open(Path.of(filename + ".csv"), StandardOpenOption.READ)) {
+            // read the headers once, every chunk shares their column mapping
+            CsvReader headerReader = new CsvReader(channel, 0, true);
+            String[] headers = headerReader.getHeaders();
+            int[] cols = FileHandler.customerColumns(headerReader);
+            long[] bounds = chunkBounds(channel, headerReader.position(), channel.size(), chunkSize);
+            ParsedChunk[] chunks = new ParsedChunk[bounds.length - 1];
+            pool.invoke(new ParseTask(channel, headers, cols, bounds, chunks, 0, chunks.length));
+            int rejected = 0;
+            ArrayList<ParsedCustomer> parsed = new ArrayList<>();
+            for (int i = 0; i < chunks.length; ) {
+                // this chunk starts on a row, as every chunk before it ended on one
+                ParsedChunk chunk = chunks[i];
+                int end = i + 1;
+                while (!chunk.endsRow && end < chunks.length) {
+                    // cut inside a quoted field: the next chunk started mid-row, so parse both again as one
+                    end++;
+                    chunk = parseChunk(channel, headers, cols, bounds[i], bounds[end]);
+                }
+                for (String error : chunk.errors) fh.appendLog("EPMB_Error_Log", error);
+                rejected += chunk.errors.size();
+                parsed.addAll(chunk.customers);
+                i = end;
+            }
+            // one pass in file order for duplicate ids, names and account numbers
+            int added = BankDatabase.getInstance().addParsedCustomers(parsed, fh);
+            rejected += parsed.size() - added;
+            if (rejected > 0) System.out.println("Failed to add " + rejected + " customer(s) from " + filename + ".csv, see EPMB_Error_Log.");
+            return added;
+        } catch (IOException e) {
+            System.out.println("Error loading from file: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Split the data rows of a file into chunks that end on line breaks. Only the bytes from each
+     * target size to the next line break are read; whether that line break ends a row is checked
+     * by the chunk's own parse.
+     *
+     * @param channel   channel of the file.
+     * @param start     byte offset of the first data row.
+     * @param size      size of the file.
+     * @param chunkSize target size of one chunk.
+     * @return          offsets where each chunk starts, followed by the end of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    private static long[] chunkBounds(FileChannel channel, long start, long size, long chunkSize) throws IOException {
+        ArrayList<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long position = start;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (size - position > chunkSize) {
+            // move the cut forward to just after the next line break
+            long scanned = position + chunkSize;
+            long cut = -1;
+            while (cut < 0 && scanned < size) {
+                probe.clear();
+                int read = channel.read(probe, scanned);
+                if (read <= 0) break;
+                for (int i = 0; i < read && cut < 0; i++) {
+                    if (probe.get(i) == '\n') cut = scanned + i + 1;
+                }
+                scanned += read;
+            }
+            if (cut < 0 || cut >= size) break;
+            bounds.add(cut);
+            position = cut;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) result[i] = bounds.get(i);
+        return result;
+    }
+
+    /**
+     * Parse the rows of one chunk and check that its last byte ends a row.
+     *
+     * @param channel   channel of the file.
+     * @param headers   headers of the file.
+     * @param cols      column of every customer field.
+     * @param start     offset of the chunk, on a row start.
+     * @param end       offset after the chunk.
+     * @return          customers and errors of the chunk.
+     */
+    private static ParsedChunk parseChunk(FileChannel channel, String[] headers, int[] cols, long start, long end) {
+        ParsedChunk chunk = new ParsedChunk();
+        try {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            // follow the quotes from the row start, so a cut inside a quoted field shows
+            RowEnds rowEnds = new RowEnds();
+            boolean rowEnd = false;
+            for (int i = 0, length = mapped.limit(); i < length; i++) rowEnd = rowEnds.isRowEnd(mapped.get(i));
+            chunk.endsRow = rowEnd;
+            CsvReader reader = new CsvReader(mapped, start);
+            reader.setHeaders(headers);
+            while (reader.next()) parseRow(reader.row(), cols, chunk);
+        } catch (IOException e) {
+            chunk.errors.add("Failed to read customers at byte " + start + ". Reason: " + e.getMessage());
+            // nothing to parse again, the error is reported once
+            chunk.endsRow = true;
+        }
+        return chunk;
+    }
+
+    /**
+     * Build the customer and accounts of one row.
+     *
+     * @param row   row of the customer csv.
+     * @param cols  column of every customer field.
+     * @param chunk chunk collecting the results.
+     */
+    private static void parseRow(CsvRow row, int[] cols, ParsedChunk chunk) {
+        try {
+            Customer customer = new Customer(row.getInt(cols[0]), row.get(cols[1]).toLowerCase(), row.get(cols[2]).toLowerCase(), row.get(cols[3]),
+                    row.get(cols[4]).replace("\"", ""), BankDatabase.PHONE_PUNCTUATION.matcher(row.get(cols[5])).replaceAll(""), row.get(cols[13]));
+            Account[] accounts = {
+                    AccountFactory.getAccountCents("checking", row.getInt(cols[6]), row.getCents(cols[7]), 0),
+                    AccountFactory.getAccountCents("savings", row.getInt(cols[8]), row.getCents(cols[9]), 0),
+                    AccountFactory.getAccountCents("credit", row.getInt(cols[10]), row.getCents(cols[12]), row.getInt(cols[11]))
+            };
+            chunk.customers.add(new ParsedCustomer(customer, accounts));
+        } catch (NumberFormatException e) {
+            chunk.errors.add("Failed to add user at byte " + row.getEndOffset() + ". Reason: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Follows the quoting of {@link CsvReader} byte by byte, to tell which line breaks end a row.
+     */
+    private static final class RowEnds {
+
+        /**
+         * Flag if inside a quoted field.
+         */
+        private boolean quoted;
+
+        /**
+         * Flag if the last byte was a quote inside a quoted field, closing it unless another quote follows.
+         */
+        private boolean closing;
+
+        /**
+         * Flag if the current field had a closing quote.
+         */
+        private boolean afterQuote;
+
+        /**
+         * Flag if the current field holds only spaces so far.
+         */
+        private boolean blank = true;
+
+        /**
+         * Follow one byte.
+         *
+         * @param b the next byte of the file.
+         * @return  true if it is a line break ending a row.
+         */
+        boolean isRowEnd(byte b) {
+            if (closing) {
+                closing = false;
+                // a doubled quote inside quotes is a literal quote
+                if (b == '"') return false;
+                quoted = false;
+                afterQuote = true;
+            } else if (quoted) {
+                closing = b == '"';
+                return false;
+            }
+            if (b == ',' || b == '\n') {
+                afterQuote = false;
+                blank = true;
+                return b == '\n';
+            }
+            if (b == '"' && !afterQuote && blank) quoted = true;
+            else if (b != ' ' && b != '\t' && b != '\r') blank = false;
+            return false;
+        }
+    }
+
+    /**
+     * Customer parsed from one row, with the accounts it should own.
+     */
+    static final class ParsedCustomer {
+
+        /**
+         * The customer, without accounts yet.
+         */
+        final Customer customer;
+
+        /**
+         * Checking, savings and credit accounts of the customer.
+         */
+        final Account[] accounts;
+
+        /**
+         * Constructor of a parsed customer.
+         *
+         * @param customer  the customer, without accounts yet.
+         * @param accounts  accounts the customer should own.
+         */
+        ParsedCustomer(Customer customer, Account[] accounts) {
+            this.customer = customer;
+            this.accounts = accounts;
+        }
+    }
+
+    /**
+     * Result of parsing one chunk.
+     */
+    private static final class ParsedChunk {
+
+        /**
+         * Customers parsed, in file order.
+         */
+        final ArrayList<ParsedCustomer> customers = new ArrayList<>();
+
+        /**
+         * Rows that could not be parsed.
+         */
+        final ArrayList<String> errors = new ArrayList<>();
+
+        /**
+         * Flag if the chunk's last byte ends a row, read from its start; false if it was cut inside a quoted field.
+         */
+        boolean endsRow;
+    }
+
+    /**
+     * Fork-join task parsing a range of chunks, splitting it in halves until one chunk is left.
+     */
+    @SuppressWarnings("serial")
+    private static final class ParseTask extends RecursiveAction {
+
+        /**
+         * Channel of the file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Headers of the file.
+         */
+        private final String[] headers;
+
+        /**
+         * Column of every customer field.
+         */
+        private final int[] cols;
+
+        /**
+         * Offsets where each chunk starts, followed by the end of the file.
+         */
+        private final long[] bounds;
+
+        /**
+         * Results, one slot per chunk.
+         */
+        private final ParsedChunk[] results;
+
+        /**
+         * First chunk of the range.
+         */
+        private final int from;
+
+        /**
+         * Chunk after the last of the range.
+         */
+        private final int to;
+
+        /**
+         * Constructor of a parse task.
+         *
+         * @param channel   channel of the file.
+         * @param headers   headers of the file.
+         * @param cols      column of every customer field.
+         * @param bounds    offsets where each chunk starts, followed by the end of the file.
+         * @param results   results, one slot per chunk.
+         * @param from      first chunk of the range.
+         * @param to        chunk after the last of the range.
+         */
+        ParseTask(FileChannel channel, String[] headers, int[] cols, long[] bounds, ParsedChunk[] results, int from, int to) {
+            this.channel = channel;
+            this.headers = headers;
+            this.cols = cols;
+            this.bounds = bounds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Parse the range, forking halves while more than one chunk is left.
+         */
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ParseTask(channel, headers, cols, bounds, results, from, mid),
+                        new ParseTask(channel, headers, cols, bounds, results, mid, to));
+                return;
+            }
+            results[from] = parseChunk(channel, headers, cols, bounds[from], bounds[from + 1]);
+        }
+    }
+}
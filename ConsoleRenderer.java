@@ -0,0 +1,116 @@
+import java.nio.file.Path;
+
+/**
+ * Prints customer operations and transaction file rows the way the menus show them:
+ * the warning of a refused operation, the success or failure banner, and the affected accounts.
+ */
+public class ConsoleRenderer implements OperationListener {
+
+    /**
+     * Print an operation with its warning, banner and affected accounts.
+     *
+     * @param result    what the operation did.
+     */
+    @Override
+    public void completed(OperationResult result) {
+        Account src = result.getSource(), dst = result.getDestination();
+        switch (result.getType()) {
+            case TRANSFER:
+                if (result.getRejection() == OperationResult.Rejection.NOT_OWNER) {
+                    System.out.println("\nWarning: The customer must own both accounts to transfer funds between them and the accounts cannot be the same.");
+                    return;
+                }
+                this.printRefusal(result);
+                if (result.isApplied()) {
+                    System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *  Transfer Successful  *  *  *  *  *  *  *  *  *  *  *");
+                }
+                else System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *    Transfer Failed    *  *  *  *  *  *  *  *  *  *  *");
+                src.printAccount(true, true);
+                dst.printAccount(true, false);
+                break;
+            case SEND:
+                if (result.getRejection() == OperationResult.Rejection.SELF_SEND) {
+                    System.out.println("\nWarning: Customers cannot send funds to themselves; please use the transfer option instead.");
+                    return;
+                }
+                this.printRefusal(result);
+                if (result.isApplied()) {
+                    System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *    Send Successful    *  *  *  *  *  *  *  *  *  *  *");
+                } else System.out.println("*  *  *  *  *  *  *  *  *  *  *  *      Send Failed      *  *  *  *  *  *  *  *  *  *  *");
+                // the receiving customer's balance is not shown
+                src.printAccount(true, true);
+                dst.printAccount(false, false);
+                break;
+            case WITHDRAW:
+                if (result.getRejection() == OperationResult.Rejection.NOT_OWNER) {
+                    System.out.println("\nWarning: This account does not belong to this customer.");
+                    return;
+                }
+                this.printRefusal(result);
+                if (result.isApplied()) {
+                    System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *  Withdraw Successful  *  *  *  *  *  *  *  *  *  *  *");
+                }
+                else System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *    Withdraw Failed    *  *  *  *  *  *  *  *  *  *  *");
+                src.printAccount(true, true);
+                break;
+            case DEPOSIT:
+                if (result.getRejection() == OperationResult.Rejection.NOT_OWNER) {
+                    System.out.println("\nWarning: Deposits are only permitted into accounts owned by the customer.");
+                    return;
+                }
+                this.printRefusal(result);
+                if (result.isApplied()) {
+                    System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *  Deposit Successful   *  *  *  *  *  *  *  *  *  *  *");
+                } else System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *     Deposit Failed    *  *  *  *  *  *  *  *  *  *  *");
+                dst.printAccount(true, true);
+                break;
+            case INQUIRY:
+                result.getCustomer().viewAccount(src, true);
+                break;
+        }
+    }
+
+    /**
+     * Print why a row was skipped.
+     *
+     * @param row       the row.
+     * @param problem   why it was skipped.
+     */
+    @Override
+    public void rowSkipped(TransactionRow row, TransactionRow.Problem problem) {
+        switch (problem) {
+            case INVALID_AMOUNT -> System.out.println("Error: invalid amount");
+            case NO_SOURCE -> System.out.println("Error: source not specified");
+            case NO_DESTINATION -> System.out.println("Error: destination not specified");
+            case UNEXPECTED_SOURCE -> System.out.println("Error: source should not be specified");
+            case UNEXPECTED_DESTINATION -> System.out.println("Error: destination should not be specified");
+            case UNKNOWN_ACTION -> System.out.println("Invalid action: " + row.action);
+            case NO_SOURCE_ACCOUNT -> System.out.println("Error: source account not found");
+            case NO_DESTINATION_ACCOUNT -> System.out.println("Error: destination account not found");
+        }
+    }
+
+    /**
+     * Print where a resumed transaction file continues from.
+     *
+     * @param file          path of the transaction csv.
+     * @param checkpoint    checkpoint the run continues after.
+     */
+    @Override
+    public void resumed(Path file, BatchCheckpoint checkpoint) {
+        System.out.println("Resuming " + file.getFileName() + " after row " + checkpoint.getRow() + " (" + checkpoint.getApplied() + " applied, "
+                + checkpoint.getRejected() + " rejected, " + checkpoint.getSkipped() + " skipped so far).");
+    }
+
+    /**
+     * Print the warning of the account that refused an operation, if one did, or of an operation the journal could not record.
+     *
+     * @param result    what the operation did.
+     */
+    private void printRefusal(OperationResult result) {
+        if (result.getRejection() == OperationResult.Rejection.SOURCE_REFUSED) System.out.println(result.getSource().withdrawWarning());
+        else if (result.getRejection() == OperationResult.Rejection.DESTINATION_REFUSED) System.out.println(result.getDestination().depositWarning());
+        else if (result.getRejection() == OperationResult.Rejection.NOT_RECORDED) System.out.println("\nWarning: The operation could not be recorded, so it was not completed. Please contact the bank.");
+        else if (!result.isDurable()) System.out.println("\nWarning: The operation was completed but could not be recorded. Please contact the bank before repeating it.");
+    }
+}
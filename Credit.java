@@ -7,14 +7,26 @@
 // Lab Description: This lab is meant to demonstrate our knowledge in object-oriented concepts such as inheritance, polymorphism, UML diagrams, interfaces, design patterns, and more through coding our own implementation of a bank system of which deposits, withdraws, transfer, pays, and generates various files. This lab also included concepts of logging, testing with JUnit, debugging, file reading, error handling and JavaDoc.
 // Honesty Statement: We affirm that we have completed this assignment entirely on our own, without any assistance from outside sources, including peers, experts, online resources, or other means. All code and ideas were that of our own work, and we have followed proper academic integrity.
 */
-import java.text.NumberFormat;
-
 /**
  * Represents a credit account with its balance, unique account number, and a maximum allowed credit debt
  */
 
 public class Credit extends Account{
-    double creditMax;
+
+    /**
+     * Transaction fee charged on every withdrawal, as a fraction of FEE_DENOMINATOR.
+     */
+    static final long FEE_NUMERATOR = 25;
+
+    /**
+     * Denominator of the transaction fee (25/1000 = 2.5%).
+     */
+    static final long FEE_DENOMINATOR = 1000;
+
+    /**
+     * Maximum allowed credit debt, in cents.
+     */
+    long creditMax;
 
     /**
      * Constructs a new Credit Account with the specified attributes.
@@ -25,37 +37,54 @@ public class Credit extends Account{
      */
     Credit(int accNum, double startBalance, int creditMax){
         super(accNum, startBalance);
-        this.creditMax = creditMax;
+        this.creditMax = creditMax * Money.CENTS_PER_DOLLAR;
     }
 
     /**
-     * Takes a specified amount out from one customer's account.
-     *
-     * @param amount            The total amount to be withdrawn from the account.
+     * Balance after taking a specified amount out, including the transaction fee.
      *
+     * @param balance   balance before the withdrawal, in cents.
+     * @param cents     The total amount to be withdrawn from the account, in cents.
+     * @return          balance after the withdrawal, or REJECTED if it would pass the credit limit.
      * **/
-    public boolean withdraw(double amount){
-        double totalCharge = (amount + (0.025*amount)); // AVERAGE TRANSACTION FEE
+    long balanceAfterWithdraw(long balance, long cents){
+        long totalCharge = cents + Money.applyRate(cents, FEE_NUMERATOR, FEE_DENOMINATOR); // AVERAGE TRANSACTION FEE
         // if valid amount to withdraw, including a fee
-        if ((amount > 0) && ((this.balance - totalCharge) >= (-1*this.creditMax))) {
-            this.balance -= totalCharge;
-            return true;
-        }
-        System.out.println("\nWarning: Invalid amount.");
-        return false;
+        if ((cents > 0) && ((balance - totalCharge) >= (-1*this.creditMax))) return balance - totalCharge;
+        return REJECTED;
     }
 
     /**
-     * Add money to an account.
+     * Balance after adding money to an account, which cannot pay past the outstanding balance.
+     *
+     * @param balance   balance before the deposit, in cents.
+     * @param cents     amount to be deposited, in cents.
+     * @return          balance after the deposit, or REJECTED if it would overpay.
      **/
-    public boolean deposit(double amount){
+    long balanceAfterDeposit(long balance, long cents){
         // if valid amount to deposit
-        if (amount + this.balance <= 0){
-            this.balance += amount;
-            return true;
-        }
-        else System.out.println("\nWarning: Credit deposits cannot exceed the outstanding balance.");
-        return false;
+        if (cents + balance <= 0) return balance + cents;
+        return REJECTED;
+    }
+
+    /**
+     * Message shown when a deposit is rejected.
+     *
+     * @return the warning.
+     */
+    @Override
+    String depositWarning() {
+        return "\nWarning: Credit deposits cannot exceed the outstanding balance.";
+    }
+
+    /**
+     * Message shown when a withdrawal is rejected.
+     *
+     * @return the warning.
+     */
+    @Override
+    String withdrawWarning() {
+        return "\nWarning: Invalid amount.";
     }
 
     /**
@@ -64,6 +93,15 @@ public class Credit extends Account{
      * @return an accounts maximum credit limit
      */
     public double getCreditMax(){
+        return Money.toDollars(this.creditMax);
+    }
+
+    /**
+     * Get the maximum credit limit of an account in cents.
+     *
+     * @return an accounts maximum credit limit, in cents.
+     */
+    public long getCreditMaxCents(){
         return this.creditMax;
     }
 
@@ -74,9 +112,8 @@ public class Credit extends Account{
      **/
     public void printAccount(boolean showBalance, boolean printHeader) {
         if (printHeader) this.printHeader(showBalance);
-        NumberFormat formatter = NumberFormat.getCurrencyInstance();
-        String formattedBalance = formatter.format(this.getBalance());
-        String formattedCreditMax = formatter.format(this.getCreditMax());
+        String formattedBalance = Money.formatCurrency(this.balance);
+        String formattedCreditMax = Money.formatCurrency(this.creditMax);
         // print detailed header if requested
         if (showBalance) {
             System.out.printf("| %-15s | %-20s | %-20s | %-20s | \n",
@@ -0,0 +1,271 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming csv reader (RFC 4180: quoted fields, doubled quotes, line breaks inside quotes).
+ * Rows are pulled one at a time into a reused {@link CsvRow}, so memory stays constant
+ * no matter how large the file is. Headers are mapped to column indexes once.
+ */
+public class CsvReader implements Closeable {
+
+    /**
+     * Size of the read buffer when reading from a channel.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Channel the bytes come from, null when reading a buffer in memory.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * Buffer of bytes not parsed yet.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Row being read, reused for every row.
+     */
+    private final CsvRow row = new CsvRow();
+
+    /**
+     * Headers of the file, trimmed.
+     */
+    private String[] headers = new String[0];
+
+    /**
+     * Byte offset in the file of the next byte to parse.
+     */
+    private long offset;
+
+    /**
+     * Rows read so far, not counting the headers.
+     */
+    private long rows;
+
+    /**
+     * Flag if the source has no more bytes.
+     */
+    private boolean eof;
+
+    /**
+     * Flag if the last line read holds nothing but spaces, outside of quotes.
+     */
+    private boolean blankLine;
+
+    /**
+     * Open a csv file and read its headers.
+     *
+     * @param path  path of the csv file.
+     * @throws IOException if the file cannot be read.
+     */
+    public CsvReader(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), 0, true);
+    }
+
+    /**
+     * Read csv rows from a channel.
+     *
+     * @param channel       channel to read from.
+     * @param startOffset   byte offset in the file the channel is positioned at.
+     * @param readHeaders   flag if the first row holds the headers.
+     * @throws IOException  if the channel cannot be read.
+     */
+    public CsvReader(ReadableByteChannel channel, long startOffset, boolean readHeaders) throws IOException {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        this.offset = startOffset;
+        if (readHeaders) this.readHeaders();
+    }
+
+    /**
+     * Read csv rows from bytes already in memory (e.g. a mapped region of a file).
+     *
+     * @param bytes         bytes to parse, from position to limit.
+     * @param startOffset   byte offset in the file of the buffer's position.
+     */
+    public CsvReader(ByteBuffer bytes, long startOffset) {
+        this.channel = null;
+        this.buffer = bytes;
+        this.offset = startOffset;
+    }
+
+    /**
+     * Get the headers of the file.
+     *
+     * @return trimmed headers.
+     */
+    public String[] getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * Use headers read elsewhere, e.g. when reading from the middle of a file.
+     *
+     * @param headers   headers of the file.
+     */
+    public void setHeaders(String[] headers) {
+        this.headers = headers;
+    }
+
+    /**
+     * Get the column index of a header.
+     *
+     * @param header    header to look for.
+     * @return          index of the column, -1 if there is no such header.
+     */
+    public int column(String header) {
+        for (int i = 0; i < headers.length; i++) if (headers[i].equalsIgnoreCase(header.trim())) return i;
+        return -1;
+    }
+
+    /**
+     * Start counting rows from a given row number, e.g. when resuming from the middle of a file.
+     *
+     * @param rowsBefore    rows of the file before the first row this reader will read.
+     */
+    public void setRowsBefore(long rowsBefore) {
+        this.rows = rowsBefore;
+    }
+
+    /**
+     * Get the current row. Its contents change on the next call to next().
+     *
+     * @return the current row.
+     */
+    public CsvRow row() {
+        return this.row;
+    }
+
+    /**
+     * Get the byte offset in the file right after the last row read.
+     *
+     * @return byte offset.
+     */
+    public long position() {
+        return this.offset;
+    }
+
+    /**
+     * Read the next non-blank row.
+     *
+     * @return true if a row was read, false at the end of the file.
+     * @throws IOException if the source cannot be read.
+     */
+    public boolean next() throws IOException {
+        while (readRow()) {
+            // skip blank and whitespace-only lines
+            if (!blankLine) {
+                row.number = ++rows;
+                row.endOffset = offset;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the first row as the headers.
+     *
+     * @throws IOException if the source cannot be read.
+     */
+    private void readHeaders() throws IOException {
+        // skip a UTF-8 byte order mark
+        if (fill() && buffer.remaining() >= 3 && (buffer.get(buffer.position()) & 0xFF) == 0xEF
+                && (buffer.get(buffer.position() + 1) & 0xFF) == 0xBB && (buffer.get(buffer.position() + 2) & 0xFF) == 0xBF) {
+            buffer.position(buffer.position() + 3);
+            offset += 3;
+        }
+        if (!readRow()) return;
+        headers = new String[row.count];
+        for (int i = 0; i < row.count; i++) headers[i] = row.get(i);
+    }
+
+    /**
+     * Parse one line (or several, for quoted line breaks) into the row.
+     *
+     * @return false if there were no bytes left.
+     * @throws IOException if the source cannot be read.
+     */
+    private boolean readRow() throws IOException {
+        row.reset();
+        if (!fill()) return false;
+        int fieldStart = 0;
+        boolean quoted = false, afterQuote = false, sawQuote = false;
+        while (fill()) {
+            byte b = buffer.get();
+            offset++;
+            if (quoted) {
+                if (b != '"') row.put(b);
+                // a doubled quote inside quotes is a literal quote
+                else if (fill() && buffer.get(buffer.position()) == '"') {
+                    buffer.get();
+                    offset++;
+                    row.put(b);
+                } else {
+                    quoted = false;
+                    afterQuote = true;
+                }
+            } else if (b == ',') {
+                row.endField(fieldStart);
+                fieldStart = row.length;
+                afterQuote = false;
+            } else if (b == '\n') {
+                break;
+            } else if (b == '"' && !afterQuote && isBlankSince(fieldStart)) {
+                // opening quote, spaces before it are dropped
+                row.length = fieldStart;
+                quoted = true;
+                sawQuote = true;
+            } else if (b != '\r') {
+                row.put(b);
+            }
+        }
+        row.endField(fieldStart);
+        blankLine = row.count == 1 && !sawQuote && isBlankSince(0);
+        return true;
+    }
+
+    /**
+     * Check if the field being read holds only spaces so far.
+     *
+     * @param fieldStart    position in the row where the field started.
+     * @return              true if only spaces were read.
+     */
+    private boolean isBlankSince(int fieldStart) {
+        for (int i = fieldStart; i < row.length; i++) if (row.data[i] != ' ' && row.data[i] != '\t') return false;
+        return true;
+    }
+
+    /**
+     * Make sure there is a byte to parse, reading from the channel if needed.
+     *
+     * @return false once the source has no more bytes.
+     * @throws IOException if the channel cannot be read.
+     */
+    private boolean fill() throws IOException {
+        if (buffer.hasRemaining()) return true;
+        if (eof || channel == null) return false;
+        buffer.clear();
+        int read;
+        do read = channel.read(buffer); while (read == 0);
+        buffer.flip();
+        if (read < 0) eof = true;
+        return buffer.hasRemaining();
+    }
+
+    /**
+     * Close the underlying channel.
+     *
+     * @throws IOException if the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+}
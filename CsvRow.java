@@ -0,0 +1,286 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One row of a csv file, kept as the raw bytes of its fields.
+ * Fields are unquoted and trimmed, and only become Strings when asked for.
+ */
+public class CsvRow {
+
+    /**
+     * Bytes of every field of the row, back to back.
+     */
+    byte[] data = new byte[256];
+
+    /**
+     * Start of each field in data.
+     */
+    int[] starts = new int[16];
+
+    /**
+     * End (exclusive) of each field in data.
+     */
+    int[] ends = new int[16];
+
+    /**
+     * Number of fields in the row.
+     */
+    int count;
+
+    /**
+     * Bytes used in data.
+     */
+    int length;
+
+    /**
+     * Row number in the file, counting the first row after the headers as 1.
+     */
+    long number;
+
+    /**
+     * Byte offset in the file right after this row.
+     */
+    long endOffset;
+
+    /**
+     * Reusable view of one field, handed to parsers that read characters.
+     */
+    private final FieldView view = new FieldView();
+
+    /**
+     * Get the number of fields in the row.
+     *
+     * @return number of fields.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Get the row number in the file, counting the first row after the headers as 1.
+     *
+     * @return row number.
+     */
+    public long getNumber() {
+        return this.number;
+    }
+
+    /**
+     * Get the byte offset in the file right after this row.
+     *
+     * @return byte offset after the row.
+     */
+    public long getEndOffset() {
+        return this.endOffset;
+    }
+
+    /**
+     * Get a field as a String.
+     *
+     * @param col   index of the field.
+     * @return      the field, or "" if the row has no such field.
+     */
+    public String get(int col) {
+        if (col < 0 || col >= count) return "";
+        return new String(data, starts[col], ends[col] - starts[col], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Check if a field is empty or missing.
+     *
+     * @param col   index of the field.
+     * @return      true if the field has no characters.
+     */
+    public boolean isEmpty(int col) {
+        return col < 0 || col >= count || starts[col] == ends[col];
+    }
+
+    /**
+     * Get the length in bytes of a field.
+     *
+     * @param col   index of the field.
+     * @return      bytes in the field, 0 if missing.
+     */
+    public int fieldLength(int col) {
+        return (col < 0 || col >= count) ? 0 : ends[col] - starts[col];
+    }
+
+    /**
+     * Get one byte of a field.
+     *
+     * @param col   index of the field.
+     * @param i     position in the field.
+     * @return      the byte.
+     */
+    public byte byteAt(int col, int i) {
+        return data[starts[col] + i];
+    }
+
+    /**
+     * Parse a field as an int without creating a String.
+     *
+     * @param col   index of the field.
+     * @return      the field's value.
+     * @throws NumberFormatException if the field is not an int.
+     */
+    public int getInt(int col) {
+        long value = getLong(col);
+        if (value != (int) value) throw new NumberFormatException("Not an int: " + get(col));
+        return (int) value;
+    }
+
+    /**
+     * Parse a field as a long without creating a String.
+     *
+     * @param col   index of the field.
+     * @return      the field's value.
+     * @throws NumberFormatException if the field is not a long.
+     */
+    public long getLong(int col) {
+        int length = fieldLength(col);
+        if (length == 0) throw new NumberFormatException("Empty number in column " + col);
+        int i = starts[col], end = ends[col];
+        boolean negative = data[i] == '-';
+        if (negative || data[i] == '+') i++;
+        if (i == end) throw new NumberFormatException("Not a number: " + get(col));
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) throw new NumberFormatException("Not a number: " + get(col));
+            value = Math.addExact(Math.multiplyExact(value, 10), digit);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parse a field as an amount of money without creating a String.
+     *
+     * @param col   index of the field.
+     * @return      the amount in cents.
+     * @throws NumberFormatException if the field is not an amount.
+     */
+    public long getCents(int col) {
+        if (col < 0 || col >= count) throw new NumberFormatException("Missing amount in column " + col);
+        view.set(starts[col], ends[col]);
+        return Money.parseCents(view);
+    }
+
+    /**
+     * Compare a field to ASCII text, ignoring case, without creating a String.
+     *
+     * @param col   index of the field.
+     * @param text  lower case ASCII text to compare with.
+     * @return      true if the field matches the text.
+     */
+    public boolean equalsIgnoreCase(int col, String text) {
+        int length = fieldLength(col);
+        if (length != text.length()) return false;
+        int start = starts[col];
+        for (int i = 0; i < length; i++) {
+            int b = data[start + i];
+            if (b >= 'A' && b <= 'Z') b += 'a' - 'A';
+            if (b != Character.toLowerCase(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copy the row so it outlives the reader moving to the next row.
+     *
+     * @return independent copy of the row.
+     */
+    public CsvRow copy() {
+        CsvRow copy = new CsvRow();
+        copy.data = Arrays.copyOf(data, length);
+        copy.starts = Arrays.copyOf(starts, count);
+        copy.ends = Arrays.copyOf(ends, count);
+        copy.count = count;
+        copy.length = length;
+        copy.number = number;
+        copy.endOffset = endOffset;
+        return copy;
+    }
+
+    /**
+     * Clear the row before it is filled again.
+     */
+    void reset() {
+        this.count = 0;
+        this.length = 0;
+    }
+
+    /**
+     * Append one byte to the field being read.
+     *
+     * @param b byte to append.
+     */
+    void put(byte b) {
+        if (length == data.length) data = Arrays.copyOf(data, data.length * 2);
+        data[length++] = b;
+    }
+
+    /**
+     * Close the field being read, trimming surrounding whitespace.
+     *
+     * @param start position in data where the field started.
+     */
+    void endField(int start) {
+        int end = length;
+        while (start < end && (data[start] == ' ' || data[start] == '\t')) start++;
+        while (end > start && (data[end - 1] == ' ' || data[end - 1] == '\t')) end--;
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * Character view over a range of the row's bytes (ASCII digits and signs).
+     */
+    private class FieldView implements CharSequence {
+
+        /**
+         * Start of the viewed range.
+         */
+        private int start;
+
+        /**
+         * End (exclusive) of the viewed range.
+         */
+        private int end;
+
+        /**
+         * Point the view at a range of the row.
+         *
+         * @param start start of the range.
+         * @param end   end (exclusive) of the range.
+         */
+        void set(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (data[start + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(data, start, end - start, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -14,6 +14,16 @@ import java.util.*;
  */
 public class Customer implements Person{
 
+    /**
+     * Description recorded on an account for a withdrawal.
+     */
+    static final String WITHDRAW_DESCRIPTION = "Withdrawal of funds";
+
+    /**
+     * Description recorded on an account for a deposit.
+     */
+    static final String DEPOSIT_DESCRIPTION = "Deposit of funds";
+
     /**
      * customer's unique id number
      */
@@ -54,6 +64,11 @@ public class Customer implements Person{
      */
     ArrayList<Account> accounts = new ArrayList<>();
 
+    /**
+     * First account of each kind, by kind ordinal, for lookups without scanning accounts.
+     */
+    private final Account[] accountsByKind = new Account[AccountKind.values().length];
+
     /**
      * customer's password
      */
@@ -179,6 +194,16 @@ public class Customer implements Person{
         else System.out.println("This account does not belong to this owner!");
     }
 
+    /**
+     * Get the customer's first account of a kind.
+     *
+     * @param kind  kind of the account, may be null.
+     * @return      the account, null if the customer has none of that kind.
+     */
+    public Account getAccount(AccountKind kind) {
+        return (kind == null) ? null : this.accountsByKind[kind.ordinal()];
+    }
+
     /**
      * Add account.
      *
@@ -186,6 +211,8 @@ public class Customer implements Person{
      */
     public void addAccount(Account account){
         this.accounts.add(account);
+        AccountKind kind = AccountKind.of(account);
+        if (this.accountsByKind[kind.ordinal()] == null) this.accountsByKind[kind.ordinal()] = account;
         if (account.getType().equals("Credit")){
             this.creditScore = generateCreditScore((Credit) account);
         }
@@ -201,25 +228,46 @@ public class Customer implements Person{
      * @return          The successfulness of money being transferred.
      * **/
     public boolean transfer(Account src, Account dst, double amount) {
-        // check if valid transfer
-        if (!this.accounts.contains(src) || !this.accounts.contains(dst) || src.equals(dst)) {
-            System.out.println("\nWarning: The customer must own both accounts to transfer funds between them and the accounts cannot be the same.");
-            return false;
-        }
-        // check if valid withdraw
-        boolean rc = src.withdraw(amount) && dst.deposit(amount);
-        String transferMsg = "Transfer of funds to " + dst.getType() + " [id=" + dst.getAccountNumber() + "]";
-        String receiveMsg = "Transfer of funds from " + src.getType() + " [id=" + src.getAccountNumber() + "]";
-        if (rc) {
-            src.addTransaction(transferMsg, amount);
-            dst.addTransaction(receiveMsg, amount);
-            System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *  Transfer Successful  *  *  *  *  *  *  *  *  *  *  *");
+        return this.transferCents(src, dst, Money.toCents(amount));
+    }
+
+    /**
+     * Transfers money from one customer's account to another account under the same customer.
+     *
+     * @param src       The source account that the amount will be withdrawn from.
+     * @param dst       The destination account that the amount will be deposited to.
+     * @param cents     The amount of money to be transferred, in cents.
+     *
+     * @return          The successfulness of money being transferred.
+     * **/
+    public boolean transferCents(Account src, Account dst, long cents) {
+        return this.transferCents(src, dst, cents, OperationListener.NONE).isApplied();
+    }
+
+    /**
+     * Transfers money between two accounts of the customer, reporting what happened to a listener.
+     *
+     * @param src       The source account that the amount will be withdrawn from.
+     * @param dst       The destination account that the amount will be deposited to.
+     * @param cents     The amount of money to be transferred, in cents.
+     * @param listener  Listener told the result, OperationListener.NONE for none.
+     *
+     * @return          What the transfer did.
+     * **/
+    public OperationResult transferCents(Account src, Account dst, long cents, OperationListener listener) {
+        OperationResult result;
+        OperationResult.Rejection rejection = this.transferRejection(src, dst);
+        if (rejection != null) {
+            result = new OperationResult(OperationResult.Type.TRANSFER, this, src, dst, cents, rejection);
+        } else {
+            String transferMsg = transferOutDescription(dst);
+            String receiveMsg = transferInDescription(src);
+            // move the funds atomically, both legs or neither
+            TransferEngine.Outcome outcome = TransferEngine.getInstance().transfer(src, dst, cents, transferMsg, receiveMsg);
+            result = OperationResult.of(OperationResult.Type.TRANSFER, this, src, dst, cents, outcome);
         }
-        else System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *    Transfer Failed    *  *  *  *  *  *  *  *  *  *  *");
-        // print appropriate accounts when finished
-        src.printAccount(true, true);
-        dst.printAccount(true, false);
-        return rc;
+        listener.completed(result);
+        return result;
     }
 
     /**
@@ -233,24 +281,48 @@ public class Customer implements Person{
      * @return          The successfulness of money being sent.
      * **/
     public boolean send(Account src, Account dst, double amount, Customer toCustomer) {
-        // check if valid send
-        if (this.accounts.contains(src) && this.accounts.contains(dst)) {
-            System.out.println("\nWarning: Customers cannot send funds to themselves; please use the transfer option instead.");
-            return false;
+        return this.sendCents(src, dst, Money.toCents(amount), toCustomer);
+    }
+
+    /**
+     * Sends money from one customer's account to another customer's account.
+     *
+     * @param src       The source account that the amount will be withdrawn from.
+     * @param dst       The destination account that the amount will be deposited to.
+     * @param cents     The amount of money to be sent, in cents.
+     * @param toCustomer The customer receiving funds.
+     *
+     * @return          The successfulness of money being sent.
+     * **/
+    public boolean sendCents(Account src, Account dst, long cents, Customer toCustomer) {
+        return this.sendCents(src, dst, cents, toCustomer, OperationListener.NONE).isApplied();
+    }
+
+    /**
+     * Sends money to another customer's account, reporting what happened to a listener.
+     *
+     * @param src       The source account that the amount will be withdrawn from.
+     * @param dst       The destination account that the amount will be deposited to.
+     * @param cents     The amount of money to be sent, in cents.
+     * @param toCustomer The customer receiving funds.
+     * @param listener  Listener told the result, OperationListener.NONE for none.
+     *
+     * @return          What the send did.
+     * **/
+    public OperationResult sendCents(Account src, Account dst, long cents, Customer toCustomer, OperationListener listener) {
+        OperationResult result;
+        OperationResult.Rejection rejection = this.sendRejection(src, dst);
+        if (rejection != null) {
+            result = new OperationResult(OperationResult.Type.SEND, this, src, dst, cents, rejection);
+        } else {
+            String transactionMessage = sendDescription(toCustomer);
+            String depositMessage = receiveDescription(this);
+            // move the funds atomically, both legs or neither
+            TransferEngine.Outcome outcome = TransferEngine.getInstance().transfer(src, dst, cents, transactionMessage, depositMessage);
+            result = OperationResult.of(OperationResult.Type.SEND, this, src, dst, cents, outcome);
         }
-        // check if valid withdraw
-        boolean rc = src.withdraw(amount) && dst.deposit(amount);
-        String transactionMessage = "Sent funds to " + toCustomer.getFullName();
-        String depositMessage = "Received funds from " + this.getFullName();
-        if (rc) {
-            dst.addTransaction(depositMessage, amount);
-            src.addTransaction(transactionMessage, amount);
-            System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *    Send Successful    *  *  *  *  *  *  *  *  *  *  *");
-        } else System.out.println("*  *  *  *  *  *  *  *  *  *  *  *      Send Failed      *  *  *  *  *  *  *  *  *  *  *");
-        // print appropriate accounts when finished
-        src.printAccount(true, true);
-        dst.printAccount(false, false);
-        return rc;
+        listener.completed(result);
+        return result;
     }
 
     /**
@@ -261,22 +333,35 @@ public class Customer implements Person{
      * @return                  true if success/false if failed.
      */
     public boolean withdraw(Account src, double amount) {
-        // check if customer owns this account
-        if (!this.accounts.contains(src)) {
-            System.out.println("\nWarning: This account does not belong to this customer.");
-            return false;
-        }
-        // check if valid withdraw
-        boolean rc = src.withdraw(amount);
-        if (rc) {
-            String transactionMessage = "Withdrawal of funds";
-            src.addTransaction(transactionMessage, amount);
-            System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *  Withdraw Successful  *  *  *  *  *  *  *  *  *  *  *");
-        }
-        else System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *    Withdraw Failed    *  *  *  *  *  *  *  *  *  *  *");
-        // print customer's affected account
-        src.printAccount(true, true);
-        return rc;
+        return this.withdrawCents(src, Money.toCents(amount));
+    }
+
+    /**
+     * Withdraw an amount from an account, if customer owns it.
+     *
+     * @param src               source account.
+     * @param cents             amount to be withdrawn, in cents.
+     * @return                  true if success/false if failed.
+     */
+    public boolean withdrawCents(Account src, long cents) {
+        return this.withdrawCents(src, cents, OperationListener.NONE).isApplied();
+    }
+
+    /**
+     * Withdraw an amount from an account, if customer owns it, reporting what happened to a listener.
+     *
+     * @param src               source account.
+     * @param cents             amount to be withdrawn, in cents.
+     * @param listener          listener told the result, OperationListener.NONE for none.
+     * @return                  what the withdrawal did.
+     */
+    public OperationResult withdrawCents(Account src, long cents, OperationListener listener) {
+        OperationResult result;
+        OperationResult.Rejection rejection = this.ownerRejection(src);
+        if (rejection != null) result = new OperationResult(OperationResult.Type.WITHDRAW, this, src, null, cents, rejection);
+        else result = OperationResult.of(OperationResult.Type.WITHDRAW, this, src, null, cents, TransferEngine.getInstance().withdraw(src, cents, WITHDRAW_DESCRIPTION));
+        listener.completed(result);
+        return result;
     }
 
     /**
@@ -287,21 +372,110 @@ public class Customer implements Person{
      * @return                  true if success/false if failed.
      */
     public boolean deposit(Account src, double amount) {
+        return this.depositCents(src, Money.toCents(amount));
+    }
+
+    /**
+     * Deposit an amount into an account if owned by customer.
+     *
+     * @param src               source account to have a deposited amount.
+     * @param cents             amount to be deposited, in cents.
+     * @return                  true if success/false if failed.
+     */
+    public boolean depositCents(Account src, long cents) {
+        return this.depositCents(src, cents, OperationListener.NONE).isApplied();
+    }
+
+    /**
+     * Deposit an amount into an account if owned by customer, reporting what happened to a listener.
+     *
+     * @param src               source account to have a deposited amount.
+     * @param cents             amount to be deposited, in cents.
+     * @param listener          listener told the result, OperationListener.NONE for none.
+     * @return                  what the deposit did.
+     */
+    public OperationResult depositCents(Account src, long cents, OperationListener listener) {
+        OperationResult result;
+        OperationResult.Rejection rejection = this.ownerRejection(src);
+        if (rejection != null) result = new OperationResult(OperationResult.Type.DEPOSIT, this, null, src, cents, rejection);
+        else result = OperationResult.of(OperationResult.Type.DEPOSIT, this, null, src, cents, TransferEngine.getInstance().deposit(src, cents, DEPOSIT_DESCRIPTION));
+        listener.completed(result);
+        return result;
+    }
+
+    /**
+     * Check if the customer may withdraw from or deposit to an account.
+     *
+     * @param account   account of the operation.
+     * @return          NOT_OWNER if the customer does not own it, null if allowed.
+     */
+    OperationResult.Rejection ownerRejection(Account account) {
         // check if customer owns this account
-        if (!this.accounts.contains(src)) {
-            System.out.println("\nWarning: Deposits are only permitted into accounts owned by the customer.");
-            return false;
-        }
-        // check if valid deposit
-        boolean rc = src.deposit(amount);
-        if (rc) {
-            String transactionMessage = "Deposit of funds";
-            src.addTransaction(transactionMessage, amount);
-            System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *  Deposit Successful   *  *  *  *  *  *  *  *  *  *  *");
-        } else System.out.println("\n*  *  *  *  *  *  *  *  *  *  *  *     Deposit Failed    *  *  *  *  *  *  *  *  *  *  *");
-        // print appropriate accounts when finished
-        src.printAccount(true, true);
-        return rc;
+        return this.accounts.contains(account) ? null : OperationResult.Rejection.NOT_OWNER;
+    }
+
+    /**
+     * Check if the customer may transfer between two accounts.
+     *
+     * @param src   source account.
+     * @param dst   destination account.
+     * @return      NOT_OWNER unless the customer owns both and they differ, null if allowed.
+     */
+    OperationResult.Rejection transferRejection(Account src, Account dst) {
+        // check if valid transfer
+        return (!this.accounts.contains(src) || !this.accounts.contains(dst) || src.equals(dst)) ? OperationResult.Rejection.NOT_OWNER : null;
+    }
+
+    /**
+     * Check if the customer may send from one account to another.
+     *
+     * @param src   source account.
+     * @param dst   destination account.
+     * @return      SELF_SEND if the customer owns both, null if allowed.
+     */
+    OperationResult.Rejection sendRejection(Account src, Account dst) {
+        // check if valid send
+        return (this.accounts.contains(src) && this.accounts.contains(dst)) ? OperationResult.Rejection.SELF_SEND : null;
+    }
+
+    /**
+     * Description recorded on the source account of a transfer.
+     *
+     * @param dst   destination account.
+     * @return      the description.
+     */
+    static String transferOutDescription(Account dst) {
+        return "Transfer of funds to " + dst.getType() + " [id=" + dst.getAccountNumber() + "]";
+    }
+
+    /**
+     * Description recorded on the destination account of a transfer.
+     *
+     * @param src   source account.
+     * @return      the description.
+     */
+    static String transferInDescription(Account src) {
+        return "Transfer of funds from " + src.getType() + " [id=" + src.getAccountNumber() + "]";
+    }
+
+    /**
+     * Description recorded on the sender's account of a send.
+     *
+     * @param toCustomer    customer receiving funds.
+     * @return              the description.
+     */
+    static String sendDescription(Customer toCustomer) {
+        return "Sent funds to " + toCustomer.getFullName();
+    }
+
+    /**
+     * Description recorded on the receiver's account of a send.
+     *
+     * @param fromCustomer  customer sending funds.
+     * @return              the description.
+     */
+    static String receiveDescription(Customer fromCustomer) {
+        return "Received funds from " + fromCustomer.getFullName();
     }
 
     /**
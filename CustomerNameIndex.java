@@ -0,0 +1,225 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Index of every customer keyed by the bytes of their name key (first name followed by last name,
+ * lower case), so a csv row can be resolved straight from the bytes of its two name fields:
+ * one hash probe, no concatenated or lower-cased String. Open addressing with linear probing over an
+ * atomic array: lookups never lock, while inserts (only done when customers are added) are serialized.
+ * Fields with non-ASCII bytes fall back to lower-casing a String, as the name keys themselves were built.
+ */
+public class CustomerNameIndex {
+
+    /**
+     * Slots of the table when the index is created or cleared.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Current table, replaced as a whole when it grows.
+     */
+    private volatile AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    /**
+     * Customers in the table.
+     */
+    private volatile int size;
+
+    /**
+     * Find the customer named by two fields of a csv row, ignoring ASCII case.
+     *
+     * @param row       row holding the names.
+     * @param firstCol  index of the first name field.
+     * @param lastCol   index of the last name field.
+     * @return          the customer, null if there is none.
+     */
+    public Customer find(CsvRow row, int firstCol, int lastCol) {
+        int firstLength = row.fieldLength(firstCol), lastLength = row.fieldLength(lastCol);
+        int h = 0;
+        for (int i = 0; i < firstLength; i++) {
+            byte b = row.byteAt(firstCol, i);
+            if (b < 0) return this.find((row.get(firstCol) + row.get(lastCol)).toLowerCase());
+            h = 31 * h + lower(b);
+        }
+        for (int i = 0; i < lastLength; i++) {
+            byte b = row.byteAt(lastCol, i);
+            if (b < 0) return this.find((row.get(firstCol) + row.get(lastCol)).toLowerCase());
+            h = 31 * h + lower(b);
+        }
+        AtomicReferenceArray<Entry> slots = this.table;
+        int mask = slots.length() - 1;
+        for (int i = spread(h) & mask; ; i = (i + 1) & mask) {
+            Entry entry = slots.get(i);
+            if (entry == null) return null;
+            if (entry.hash == h && entry.key.length == firstLength + lastLength && matches(entry.key, row, firstCol, firstLength, lastCol, lastLength)) {
+                return entry.customer;
+            }
+        }
+    }
+
+    /**
+     * Find a customer by name key.
+     *
+     * @param key   first name followed by last name, as the customer was added.
+     * @return      the customer, null if there is none.
+     */
+    public Customer find(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int h = hash(bytes);
+        AtomicReferenceArray<Entry> slots = this.table;
+        int mask = slots.length() - 1;
+        for (int i = spread(h) & mask; ; i = (i + 1) & mask) {
+            Entry entry = slots.get(i);
+            if (entry == null) return null;
+            if (entry.hash == h && Arrays.equals(entry.key, bytes)) return entry.customer;
+        }
+    }
+
+    /**
+     * Add a customer under its name key unless the key is taken.
+     *
+     * @param key       first name followed by last name.
+     * @param customer  customer to add.
+     * @return          true if added, false if the key is taken.
+     */
+    public synchronized boolean putIfAbsent(String key, Customer customer) {
+        if (this.find(key) != null) return false;
+        // keep the table at most half full so probes stay short
+        if ((size + 1) * 2 > table.length()) table = resize(table, table.length() * 2);
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        insert(table, new Entry(bytes, hash(bytes), customer));
+        size++;
+        return true;
+    }
+
+    /**
+     * Get the number of customers.
+     *
+     * @return number of customers.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Remove every customer.
+     */
+    public synchronized void clear() {
+        table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Compare a key with two fields of a row, lower-casing the row's ASCII letters.
+     *
+     * @param key           key of an entry.
+     * @param row           row holding the names.
+     * @param firstCol      index of the first name field.
+     * @param firstLength   length of the first name field.
+     * @param lastCol       index of the last name field.
+     * @param lastLength    length of the last name field.
+     * @return              true if the key is the two fields back to back.
+     */
+    private static boolean matches(byte[] key, CsvRow row, int firstCol, int firstLength, int lastCol, int lastLength) {
+        for (int i = 0; i < firstLength; i++) if (key[i] != lower(row.byteAt(firstCol, i))) return false;
+        for (int i = 0; i < lastLength; i++) if (key[firstLength + i] != lower(row.byteAt(lastCol, i))) return false;
+        return true;
+    }
+
+    /**
+     * Copy a table into a larger one.
+     *
+     * @param old       table to copy.
+     * @param capacity  slots of the new table, a power of two.
+     * @return          the new table.
+     */
+    private static AtomicReferenceArray<Entry> resize(AtomicReferenceArray<Entry> old, int capacity) {
+        AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < old.length(); i++) {
+            Entry entry = old.get(i);
+            if (entry != null) insert(slots, entry);
+        }
+        return slots;
+    }
+
+    /**
+     * Put an entry in the first free slot of its probe sequence.
+     *
+     * @param slots     table to insert into.
+     * @param entry     entry to insert.
+     */
+    private static void insert(AtomicReferenceArray<Entry> slots, Entry entry) {
+        int mask = slots.length() - 1;
+        int i = spread(entry.hash) & mask;
+        while (slots.get(i) != null) i = (i + 1) & mask;
+        slots.set(i, entry);
+    }
+
+    /**
+     * Hash the bytes of a key the same way rows are hashed.
+     *
+     * @param bytes key bytes.
+     * @return      hash of the key.
+     */
+    private static int hash(byte[] bytes) {
+        int h = 0;
+        for (byte b : bytes) h = 31 * h + lower(b);
+        return h;
+    }
+
+    /**
+     * Spread a hash over the table.
+     *
+     * @param h hash of a key.
+     * @return  spread hash.
+     */
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Lower-case an ASCII letter.
+     *
+     * @param b byte of a name.
+     * @return  the byte, lower case if it is an upper case ASCII letter.
+     */
+    private static byte lower(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * Name key with its customer.
+     */
+    private static final class Entry {
+
+        /**
+         * UTF-8 bytes of the name key.
+         */
+        final byte[] key;
+
+        /**
+         * Hash of the key.
+         */
+        final int hash;
+
+        /**
+         * Customer of that name.
+         */
+        final Customer customer;
+
+        /**
+         * Constructor of an entry.
+         *
+         * @param key       UTF-8 bytes of the name key.
+         * @param hash      hash of the key.
+         * @param customer  customer of that name.
+         */
+        Entry(byte[] key, int hash, Customer customer) {
+            this.key = key;
+            this.hash = hash;
+            this.customer = customer;
+        }
+    }
+}
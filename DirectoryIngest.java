@@ -0,0 +1,467 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs every pending transaction file of a directory in one go. Files run one after another, ordered by
+ * modification time (then name), so every account sees the rows of all files in that global order. While one
+ * file runs, the next few are read and resolved on virtual threads, each only a few chunks ahead, and the rows
+ * of each chunk are applied on a bounded pool in groups sharing no account (see {@link PartitionedBatch}).
+ * Like a single file run, each file is checkpointed as it goes (see {@link BatchCheckpoint}) and gets its own
+ * {@link BatchReport}; once its last row is applied it is moved to an archive folder so it is not run twice.
+ * A file an earlier run stopped partway through continues after its checkpoint.
+ */
+public class DirectoryIngest {
+
+    /**
+     * Name of the archive folder, inside the ingested directory.
+     */
+    public static final String ARCHIVE = "Archive";
+
+    /**
+     * Rows per chunk applied at once.
+     */
+    private static final int CHUNK_ROWS = 4096;
+
+    /**
+     * Chunks of a file read ahead before its reader blocks.
+     */
+    private static final int QUEUE_CHUNKS = 4;
+
+    /**
+     * Files read ahead of the one running.
+     */
+    private static final int READ_AHEAD_FILES = 4;
+
+    /**
+     * Rows applied between two checkpoints.
+     */
+    private static final int CHECKPOINT_ROWS = 50_000;
+
+    /**
+     * Chunk marking the end of a file.
+     */
+    private static final List<TransactionRow> END = List.of();
+
+    /**
+     * Manager applying and logging the rows.
+     */
+    private final Manager manager;
+
+    /**
+     * File handler for logging.
+     */
+    private final FileHandler fh;
+
+    /**
+     * Directory holding the pending files.
+     */
+    private final Path directory;
+
+    /**
+     * Constructor of an ingest.
+     *
+     * @param manager   manager applying and logging the rows.
+     * @param fh        file handler for logging.
+     * @param directory directory holding the pending transaction files.
+     */
+    public DirectoryIngest(Manager manager, FileHandler fh, Path directory) {
+        this.manager = manager;
+        this.fh = fh;
+        this.directory = directory;
+    }
+
+    /**
+     * Get the pending transaction files, oldest first.
+     *
+     * @return  csv files directly in the directory, by modification time then name.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public List<Path> pending() throws IOException {
+        HashMap<Path, Long> modified = new HashMap<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*.csv")) {
+            for (Path path : paths) if (Files.isRegularFile(path)) modified.put(path, Files.getLastModifiedTime(path).toMillis());
+        }
+        List<Path> files = new ArrayList<>(modified.keySet());
+        files.sort(Comparator.comparingLong((Path file) -> modified.get(file)).thenComparing(file -> file.getFileName().toString()));
+        return files;
+    }
+
+    /**
+     * Run every pending file, archiving each one as soon as it ran.
+     *
+     * @param pool  bounded pool applying the rows.
+     * @return      a summary per file, oldest first.
+     * @throws IOException if the directory cannot be listed, a checkpoint cannot be written or the journal failed.
+     */
+    public List<FileSummary> run(ForkJoinPool pool) throws IOException {
+        List<Path> files = this.pending();
+        List<FileSummary> summaries = new ArrayList<>(files.size());
+        List<FileRead> reads = new ArrayList<>(files.size());
+        for (Path file : files) {
+            FileSummary summary = new FileSummary(file);
+            summaries.add(summary);
+            reads.add(new FileRead(summary));
+        }
+        // reading is I/O bound, so each file gets its own virtual thread
+        ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            int submitted = 0;
+            for (int f = 0; f < reads.size(); f++) {
+                for (; submitted < Math.min(reads.size(), f + 1 + READ_AHEAD_FILES); submitted++) readers.submit(reads.get(submitted));
+                this.runFile(reads.get(f), pool);
+                this.finish(summaries.get(f));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Directory ingest interrupted");
+        } finally {
+            // readers still waiting to hand over a chunk are no longer needed
+            readers.shutdownNow();
+            readers.close();
+        }
+        return summaries;
+    }
+
+    /**
+     * Apply the rows of a file as its reader hands them over, checkpointing the progress.
+     *
+     * @param read  reader of the file.
+     * @param pool  bounded pool applying the rows.
+     * @throws IOException if a checkpoint cannot be written or the journal failed.
+     * @throws InterruptedException if interrupted while waiting for the reader.
+     */
+    private void runFile(FileRead read, ForkJoinPool pool) throws IOException, InterruptedException {
+        FileSummary summary = read.summary;
+        BatchReport report = new BatchReport(OperationListener.NONE);
+        summary.report = report;
+        long started = System.nanoTime();
+        report.start(summary.file);
+        // the rows of a chunk run on several threads
+        OperationListener listener = report.synchronizedListener();
+        List<TransactionRow> chunk = read.chunks.take();
+        // the reader sets the checkpoint before handing over its first chunk
+        BatchCheckpoint checkpoint = read.checkpoint;
+        if (checkpoint != null) {
+            if (summary.resumedAfter > 0) report.resumed(summary.file, checkpoint);
+            checkpoint.save(BatchCheckpoint.State.RUNNING);
+        }
+        long unsaved = 0;
+        for (; chunk != END; chunk = read.chunks.take()) {
+            TransactionRow.Outcome[] outcomes = new TransactionRow.Outcome[chunk.size()];
+            long chunkStarted = System.nanoTime();
+            boolean recorded = new PartitionedBatch(chunk).runIndexed(pool, (row, index) -> {
+                long rowStarted = System.nanoTime();
+                TransactionRow.Outcome outcome = manager.applyRow(row, listener);
+                long nanos = System.nanoTime() - rowStarted;
+                synchronized (report) {
+                    report.count(outcome, nanos);
+                }
+                manager.logRow(row, outcome, fh);
+                summary.count(outcome);
+                outcomes[index] = outcome;
+            });
+            report.addPhase(BatchReport.Phase.APPLY, System.nanoTime() - chunkStarted);
+            // the checkpoint stays before these rows, so the file is not archived and runs again once the journal records
+            if (!recorded) throw new IOException(Journal.FAILED_MESSAGE);
+            for (int i = 0; i < outcomes.length; i++) checkpoint.count(outcomes[i], chunk.get(i).number, chunk.get(i).endOffset);
+            unsaved += outcomes.length;
+            if (unsaved >= CHECKPOINT_ROWS) {
+                checkpoint.save(BatchCheckpoint.State.RUNNING);
+                unsaved = 0;
+            }
+        }
+        // record exactly where the file ended, so running it again picks up from there or not at all
+        if (checkpoint != null) checkpoint.save((read.error == null) ? BatchCheckpoint.State.COMPLETE : BatchCheckpoint.State.STOPPED);
+        summary.error = read.error;
+        report.setWallNanos(System.nanoTime() - started);
+    }
+
+    /**
+     * Log a file's summary, archive it if it ran to the end and write its report.
+     *
+     * @param summary   summary of the file.
+     */
+    private void finish(FileSummary summary) {
+        String name = summary.file.getFileName().toString();
+        if (summary.error != null) {
+            fh.appendLog("EPMB_Error_Log", "Transaction file " + name + " stopped after " + summary.getRows() + " rows. Reason for failure: " + summary.error);
+        } else {
+            try {
+                Path archive = Files.createDirectories(directory.resolve(ARCHIVE));
+                Path target = archive.resolve(name);
+                // never overwrite an archived file of the same name
+                if (Files.exists(target)) target = archive.resolve(name.substring(0, name.length() - ".csv".length()) + "_" + System.currentTimeMillis() + ".csv");
+                Files.move(summary.file, target);
+                Files.deleteIfExists(BatchCheckpoint.pathFor(summary.file));
+                summary.archived = target;
+            } catch (IOException e) {
+                fh.appendLog("EPMB_Error_Log", "Transaction file " + name + " could not be archived. Reason for failure: " + e.getMessage());
+            }
+            fh.appendLog("EPMB_Transactions", "Transaction file " + name + " ran " + summary.getRows() + " rows: " + summary.getApplied() + " applied, "
+                    + summary.getRejected() + " rejected, " + summary.getSkipped() + " skipped.");
+        }
+        // the report goes with the file, into the archive once it is there
+        Path reportPath = BatchReport.pathFor((summary.archived != null) ? summary.archived : summary.file);
+        try {
+            summary.report.write(reportPath);
+        } catch (IOException e) {
+            fh.appendLog("EPMB_Error_Log", "Report " + reportPath.getFileName() + " could not be written. Reason for failure: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads and resolves the rows of one file into a bounded queue of chunks, after its checkpoint
+     * if an earlier run stopped partway, so only a few chunks of the file are ever in memory.
+     */
+    private static final class FileRead implements Runnable {
+
+        /**
+         * Summary of the file.
+         */
+        private final FileSummary summary;
+
+        /**
+         * Resolved rows in file order, ending with {@link #END}.
+         */
+        private final ArrayBlockingQueue<List<TransactionRow>> chunks = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+
+        /**
+         * Checkpoint of the run over the file, set before the first chunk is handed over; null if the file cannot
+         * be read or already ran to the end.
+         */
+        private BatchCheckpoint checkpoint;
+
+        /**
+         * Why the file could not be read to the end, set before {@link #END} is handed over; null if it was.
+         */
+        private String error;
+
+        /**
+         * Constructor of a reader.
+         *
+         * @param summary   summary of the file.
+         */
+        FileRead(FileSummary summary) {
+            this.summary = summary;
+        }
+
+        @Override
+        public void run() {
+            try {
+                this.read();
+            } catch (IOException e) {
+                this.error = e.getMessage();
+            } catch (InterruptedException e) {
+                // the ingest stopped, nobody takes the rows anymore
+                return;
+            }
+            try {
+                chunks.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Read the rows of the file chunk by chunk.
+         *
+         * @throws IOException if the file cannot be read.
+         * @throws InterruptedException if interrupted while waiting for the rows to be taken.
+         */
+        private void read() throws IOException, InterruptedException {
+            Path file = summary.file;
+            // an earlier run that ended before the file was archived leaves nothing to run
+            if (BatchCheckpoint.isComplete(file)) return;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                CsvReader reader = new CsvReader(channel, 0, true);
+                int[] cols = TransactionRow.columns(reader);
+                BatchCheckpoint resumed = BatchCheckpoint.resumable(file);
+                if (resumed != null) {
+                    // skip the rows already applied
+                    String[] headers = reader.getHeaders();
+                    channel.position(resumed.getOffset());
+                    reader = new CsvReader(channel, resumed.getOffset(), false);
+                    reader.setHeaders(headers);
+                    reader.setRowsBefore(resumed.getRow());
+                    summary.resumedAfter = resumed.getRow();
+                    this.checkpoint = resumed;
+                } else {
+                    // a fresh run starts right after the headers
+                    this.checkpoint = BatchCheckpoint.start(file, reader.position());
+                }
+                List<TransactionRow> chunk = new ArrayList<>(CHUNK_ROWS);
+                while (reader.next()) {
+                    chunk.add(TransactionRow.parse(reader.row(), cols));
+                    if (chunk.size() == CHUNK_ROWS) {
+                        chunks.put(chunk);
+                        chunk = new ArrayList<>(CHUNK_ROWS);
+                    }
+                }
+                if (!chunk.isEmpty()) chunks.put(chunk);
+            }
+        }
+    }
+
+    /**
+     * What running one file did.
+     */
+    public static final class FileSummary {
+
+        /**
+         * Path of the file when it was picked up.
+         */
+        private final Path file;
+
+        /**
+         * Rows applied.
+         */
+        private final LongAdder applied = new LongAdder();
+
+        /**
+         * Rows an account refused.
+         */
+        private final LongAdder rejected = new LongAdder();
+
+        /**
+         * Rows skipped as malformed.
+         */
+        private final LongAdder skipped = new LongAdder();
+
+        /**
+         * Row the file continued after, 0 if it ran from the start.
+         */
+        private long resumedAfter;
+
+        /**
+         * Why the file stopped before its end, null if it ran to the end.
+         */
+        private String error;
+
+        /**
+         * Where the file was archived, null if it was not.
+         */
+        private Path archived;
+
+        /**
+         * Report of the run over the file, null until it ran.
+         */
+        private BatchReport report;
+
+        /**
+         * Constructor of an empty summary.
+         *
+         * @param file  path of the file.
+         */
+        FileSummary(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Count the outcome of one row.
+         *
+         * @param outcome   outcome of the row.
+         */
+        void count(TransactionRow.Outcome outcome) {
+            switch (outcome) {
+                case APPLIED -> applied.increment();
+                case REJECTED -> rejected.increment();
+                case SKIPPED -> skipped.increment();
+            }
+        }
+
+        /**
+         * Get the path of the file when it was picked up.
+         *
+         * @return path of the file.
+         */
+        public Path getFile() {
+            return this.file;
+        }
+
+        /**
+         * Get the number of rows run.
+         *
+         * @return rows run.
+         */
+        public long getRows() {
+            return this.getApplied() + this.getRejected() + this.getSkipped();
+        }
+
+        /**
+         * Get the number of rows applied.
+         *
+         * @return rows applied.
+         */
+        public long getApplied() {
+            return this.applied.sum();
+        }
+
+        /**
+         * Get the number of rows an account refused.
+         *
+         * @return rows rejected.
+         */
+        public long getRejected() {
+            return this.rejected.sum();
+        }
+
+        /**
+         * Get the number of rows skipped as malformed.
+         *
+         * @return rows skipped.
+         */
+        public long getSkipped() {
+            return this.skipped.sum();
+        }
+
+        /**
+         * Get the row the file continued after.
+         *
+         * @return row number, 0 if the file ran from the start.
+         */
+        public long getResumedAfter() {
+            return this.resumedAfter;
+        }
+
+        /**
+         * Get why the file stopped before its end.
+         *
+         * @return the reason, null if it ran to the end.
+         */
+        public String getError() {
+            return this.error;
+        }
+
+        /**
+         * Get where the file was archived.
+         *
+         * @return archived path, null if it was not archived.
+         */
+        public Path getArchived() {
+            return this.archived;
+        }
+
+        /**
+         * Get the report of the run over the file, as written next to it.
+         *
+         * @return counts, amounts and timings of the rows run, null if the file did not run.
+         */
+        public BatchReport getReport() {
+            return this.report;
+        }
+    }
+}
@@ -8,10 +8,9 @@
 // Honesty Statement: We affirm that we have completed this assignment entirely on our own, without any assistance from outside sources, including peers, experts, online resources, or other means. All code and ideas were that of our own work, and we have followed proper academic integrity.
 */
 import java.io.*;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import static java.lang.System.out;
 
@@ -21,18 +20,45 @@ import static java.lang.System.out;
 public class FileHandler {
 
     /**
-     * Load from CSV.
+     * Load from CSV, one row at a time.
      *
      * @param filename the filename.
      */
     public void getCustomersFromCSV(String filename) {
-        // get all the records from csv into dictionary, then add each record to customers
-        ArrayList<Dictionary<String, String>> allRecords = getAllRecordsFromCSV(filename);
-        for (Dictionary<String, String> recordDict : allRecords){
-            if (!BankDatabase.getInstance().addCustomer(recordDict)) System.out.println("Failed to add customer.");
+        try (CsvReader reader = new CsvReader(Path.of(filename + ".csv"))) {
+            // map each header to its column once, then add every row as a customer
+            int[] cols = customerColumns(reader);
+            while (reader.next()) {
+                CsvRow row = reader.row();
+                try {
+                    if (!BankDatabase.getInstance().addCustomer(row.getInt(cols[0]), row.get(cols[1]), row.get(cols[2]), row.get(cols[3]), row.get(cols[4]), row.get(cols[5]),
+                            row.getInt(cols[6]), row.getCents(cols[7]), row.getInt(cols[8]), row.getCents(cols[9]),
+                            row.getInt(cols[10]), row.getInt(cols[11]), row.getCents(cols[12]), row.get(cols[13])))
+                        System.out.println("Failed to add customer.");
+                } catch (NumberFormatException e) {
+                    this.appendLog("EPMB_Error_Log", "Failed to add user on row " + row.getNumber() + " of " + filename + ". Reason: " + e.getMessage());
+                    System.out.println("Failed to add customer.");
+                }
+            }
+        } catch (IOException e) {
+            out.println("Error loading from file: " + e.getMessage());
         }
     }
 
+    /**
+     * Get the column of every customer field in a customer csv.
+     *
+     * @param reader    reader positioned after the headers.
+     * @return          columns of id, first name, last name, dob, address, phone, checking number/balance,
+     *                  savings number/balance, credit number, credit max, credit balance and password (-1 if absent).
+     */
+    static int[] customerColumns(CsvReader reader) {
+        String[] headers = {"Identification Number", "First Name", "Last Name", "Date of Birth", "Address", "Phone Number", "Checking Account Number", "Checking Starting Balance", "Savings Account Number", "Savings Starting Balance", "Credit Account Number", "Credit Max", "Credit Starting Balance", "Password"};
+        int[] cols = new int[headers.length];
+        for (int i = 0; i < headers.length; i++) cols[i] = reader.column(headers[i]);
+        return cols;
+    }
+
     /**
      * Add provided account to respective dictionary
      *
@@ -41,37 +67,9 @@ public class FileHandler {
      * @return flag if success or not.
      */
     public boolean addAccountToMaps(Account account) {
-        boolean rc = false;
-        int accountNum = account.getAccountNumber();
-        String err = "Failed to add account with account number: " + accountNum + ". Reason: Account with that account number already exists.";
-        // switch based on account type
-        switch (account) {
-            case Checking ignored -> {
-                TreeSet<Integer> checkingAccNums = BankDatabase.getInstance().getCheckingAccNums();
-                rc = checkingAccNums.add(accountNum);
-                Dictionary<Integer, Checking> checkingAccounts = BankDatabase.getInstance().getCheckingAccounts();
-                // append new checking account to database
-                if (rc) checkingAccounts.put(accountNum, (Checking) account);
-                else this.appendLog("EPMB_Error_Log", err);
-            }
-            case Savings ignored -> {
-                TreeSet<Integer> savingsAccNums = BankDatabase.getInstance().getSavingsAccNums();
-                rc = savingsAccNums.add(accountNum);
-                Dictionary<Integer, Savings> savingAccounts = BankDatabase.getInstance().getSavingsAccounts();
-                // append new saving account to database
-                if (rc) savingAccounts.put(accountNum, (Savings) account);
-                else this.appendLog("EPMB_Error_Log", err);
-            }
-            case Credit ignored -> {
-                TreeSet<Integer> creditAccNums = BankDatabase.getInstance().getCreditAccNums();
-                rc = creditAccNums.add(accountNum);
-                Dictionary<Integer, Credit> creditAccounts = BankDatabase.getInstance().getCreditAccounts();
-                // append new credit account to database
-                if (rc) creditAccounts.put(accountNum, (Credit) account);
-                else this.appendLog("EPMB_Error_Log", err);
-            }
-            default -> this.appendLog("EPMB_Error_Log", "Failed to add account with account number: " + accountNum + ". Reason: Account with that type does not exist.");
-        }
+        // append new account to the database unless its number is taken for its kind
+        boolean rc = BankDatabase.getInstance().getAccounts().putIfAbsent(account);
+        if (!rc) this.appendLog("EPMB_Error_Log", "Failed to add account with account number: " + account.getAccountNumber() + ". Reason: Account with that account number already exists.");
         return rc;
     }
 
@@ -82,85 +80,61 @@ public class FileHandler {
      */
     public void exportCustomerReportToCSV(String filename) {
         filename = "BankReports/"+filename+".csv";
-        String[] defaultHeaders = {"Identification Number", "First Name", "Last Name", "Date of Birth", "Address", "Phone Number", "Checking Account Number", "Checking Starting Balance", "Savings Account Number", "Savings Starting Balance", "Credit Account Number", "Credit Starting Balance", "Credit Max"};
-        // write to file
-        File file = new File(filename);
-        if (file.exists()) if (!file.setWritable(true)) System.out.println("An error occurred while attempting to set the file as writable. File: " + filename);
-        try (FileWriter writer = new FileWriter(filename, false)) {
-            // add quotes if string has commas
-            Function<String, String> escapeValue = value -> {
-                if (value.contains(","))return "\"" + value.replace("\"", "\"\"") + "\"";
-                return value;
-            };
-            // capitalize each word in a string
-            Function<String, String> capitalizeWords = input -> Arrays.stream(input.split("\\s+")).map(word -> Character.toTitleCase(word.charAt(0)) + word.substring(1)).collect(Collectors.joining(" "));
-            // write hardcoded headers
-            writer.write(String.join(",", defaultHeaders) + System.lineSeparator());
-            // iterate customers data to add
-            Dictionary<String, Customer> customers = BankDatabase.getInstance().getCustomers();
-            for (String key : Collections.list(customers.keys())) {
-                Customer customer = customers.get(key);
-                String[] customerData = new String[defaultHeaders.length];
-                customerData[0] = String.valueOf(customer.getId());
-                customerData[1] = capitalizeWords.apply(customer.getFirstName());
-                customerData[2] = capitalizeWords.apply(customer.getLastName());
-                customerData[3] = customer.getDob();
-                customerData[4] = capitalizeWords.apply(escapeValue.apply(customer.getAddress()));
-                customerData[5] = customer.getPhoneNum();
-                String checkingAccountNumber = "", checkingBalance = "";
-                String savingsAccountNumber = "", savingsBalance = "";
-                String creditAccountNumber = "", creditBalance = "", creditMaxValue = "";
-                for (Account account : customer.getAccounts()) {
-                    if (account instanceof Checking checking) {
-                        checkingAccountNumber = String.valueOf(checking.getAccountNumber());
-                        checkingBalance = String.format("%.2f", checking.getBalance());
-                    } else if (account instanceof Savings savings) {
-                        savingsAccountNumber = String.valueOf(savings.getAccountNumber());
-                        savingsBalance = String.format("%.2f", savings.getBalance());
-                    } else if (account instanceof Credit credit) {
-                        creditAccountNumber = String.valueOf(credit.getAccountNumber());
-                        creditBalance = String.format("%.2f", credit.getBalance());
-                        creditMaxValue = String.valueOf(credit.getCreditMax());
-                    }
-                }
-                customerData[6] = checkingAccountNumber;
-                customerData[7] = checkingBalance;
-                customerData[8] = savingsAccountNumber;
-                customerData[9] = savingsBalance;
-                customerData[10] = creditAccountNumber;
-                customerData[11] = creditMaxValue;
-                customerData[12] = creditBalance;
-                writer.write(String.join(",", customerData) + System.lineSeparator());
-            }
-
+        try {
+            new ReportExporter(BankDatabase.getInstance().getCustomers().values()).exportAll(Path.of(filename));
             out.println("\n* * * Successfully exported data to " + filename + " * * *");
         } catch (IOException e) {
             out.println("An error occurred while writing to the CSV file: " + e.getMessage());
-        } finally {
-            if (!file.setWritable(false)) System.out.println("An error occurred while attempting to set the file as read-only. File: " + filename);
         }
     }
 
     /**
-     * Append message to a log (txt).
+     * Update a csv file exported earlier with the customers that changed since, leaving the other lines as they are.
      *
-     * @param filename the filename.
-     * @param msg      message to be appended.
+     * @param filename the filename to exported to.
+     * @return         number of customers written, -1 if the file could not be written.
      */
-    public void appendLog(String filename, String msg) {
-        File file = new File(filename+".txt");
-        if (file.exists()) if (!file.setWritable(true)) System.out.println("An error occurred while attempting to set the file as writable. File: " + filename);
-        try (FileWriter myWriter = new FileWriter(filename + ".txt", true)) {
-            // append message to text file
-            myWriter.write(msg + System.lineSeparator());
+    public int patchCustomerReportCSV(String filename) {
+        filename = "BankReports/"+filename+".csv";
+        try {
+            int written = new ReportExporter(BankDatabase.getInstance().getCustomers().values()).patch(Path.of(filename));
+            this.appendLog("EPMB_Transactions", "Updated " + written + " customers in " + filename + ".");
+            return written;
         } catch (IOException e) {
-            out.println("An error occurred while writing to the log file: " + e.getMessage());
-        } finally {
-            if (!file.setWritable(false)) System.out.println("An error occurred while attempting to set the file as read-only. File: " + filename);
+            out.println("An error occurred while writing to the CSV file: " + e.getMessage());
+            return -1;
+        }
+    }
 
+    /**
+     * Export only the customers that changed since they were last exported to a csv file of their own.
+     *
+     * @param filename the filename to exported to.
+     * @return         number of customers written, -1 if the file could not be written.
+     */
+    public int exportCustomerReportDeltaCSV(String filename) {
+        filename = "BankReports/"+filename+".csv";
+        try {
+            int written = new ReportExporter(BankDatabase.getInstance().getCustomers().values()).exportChanged(Path.of(filename));
+            this.appendLog("EPMB_Transactions", "Exported " + written + " changed customers to " + filename + ".");
+            return written;
+        } catch (IOException e) {
+            out.println("An error occurred while writing to the CSV file: " + e.getMessage());
+            return -1;
         }
     }
 
+    /**
+     * Append message to a log (txt). The line is queued on the audit log and written
+     * in the background, so callers never wait on the file.
+     *
+     * @param filename the filename.
+     * @param msg      message to be appended.
+     */
+    public void appendLog(String filename, String msg) {
+        AuditLog.getInstance().append(filename, msg);
+    }
+
     /**
      * Given a record and the file's headers, get a dictionary mapping header to its value.
      *
@@ -183,16 +157,14 @@ public class FileHandler {
      */
     public ArrayList<Dictionary<String, String>> getAllRecordsFromCSV(String filename) {
         ArrayList<Dictionary<String, String>> allRecords = new ArrayList<>();
-        String[] headers = getHeadersFromCSV(filename);
-        filename += ".csv";
-        try (Scanner scan = new Scanner(new File(filename))) {
-            scan.nextLine();
-            // for every line map record to dictionary based on headers from csv
-            while (scan.hasNextLine()) {
-                String line = scan.nextLine();
-                String[] values = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-                Dictionary<String, String> recordDict = recordToDictionary(values, headers);
-                allRecords.add(recordDict);
+        try (CsvReader reader = new CsvReader(Path.of(filename + ".csv"))) {
+            String[] headers = reader.getHeaders();
+            // for every row map record to dictionary based on headers from csv
+            while (reader.next()) {
+                CsvRow row = reader.row();
+                String[] values = new String[headers.length];
+                for (int i = 0; i < headers.length; i++) values[i] = row.get(i);
+                allRecords.add(recordToDictionary(values, headers));
             }
         } catch (IOException e) {
             return null;
@@ -208,10 +180,9 @@ public class FileHandler {
      */
     public String[] getHeadersFromCSV(String filename) {
         String[] headers = null;
-        filename += ".csv";
-        try (Scanner scan = new Scanner(new File(filename))) {
-            // grab first line from file to be headers (comma-separated)
-            headers = scan.nextLine().split(",");
+        try (CsvReader reader = new CsvReader(Path.of(filename + ".csv"))) {
+            // headers are read when the file is opened
+            headers = reader.getHeaders();
         } catch (IOException e) {
             out.println("Error loading from file: " + e.getMessage());
         }
@@ -230,26 +201,29 @@ public class FileHandler {
      * @throws ParseException for dates.
      */
     public boolean generateUserTransactionsFile(String filename, Customer customer, Account account, String startDate, String endDate) throws ParseException {
-        double startingBalance = account.getTransactionList().startingBalance;
-        List<TransactionNode> filteredTransactions = account.getTransactionList().getTransactionsBetweenDates(startDate, endDate);
+        return this.generateUserTransactionsFile(filename, customer, List.of(account), startDate, endDate);
+    }
+
+    /**
+     * Generates a file of the user's transactions for several accounts, opening the file once.
+     *
+     * @param filename  name of file.
+     * @param customer  customer of whom is to be inquired.
+     * @param accounts  accounts for the transactions, in the order they are written.
+     * @param startDate start range.
+     * @param endDate   end range.
+     * @return          true if successful, false if not.
+     * @throws ParseException for dates.
+     */
+    public boolean generateUserTransactionsFile(String filename, Customer customer, List<Account> accounts, String startDate, String endDate) throws ParseException {
+        int startDay = TransactionStore.parseEpochDay(startDate), endDay = TransactionStore.parseEpochDay(endDate);
         File file = new File(filename);
         try {
             // set file to writeable
             if (file.exists()) if (!file.setWritable(true)) System.out.println("An error occurred while attempting to set the file as writable. File: " + filename);
-            try (FileWriter myWriter = new FileWriter(file, true)) {
-                // top header line for each account
-                String header = String.format("Name: %s\nID: %s\nAccount: %s\nAccount ID: %s\nStarting Balance: $%.2f\nStatement Period: %s to %s\n==================================================\n",
-                        customer.getFullName(), customer.getId(), account.getType(), account.getAccountNumber(), startingBalance, startDate, endDate);
-                myWriter.write(header);
-                // filter based on time range
-                for (TransactionNode trans : filteredTransactions) {
-                    String transactionDetails = String.format("Date: %s\nDescription: %s\nAmount: $%.2f\nNew Balance: $%.2f\n-------------------------------------\n",
-                            trans.date, trans.description, trans.amount, trans.newBalance);
-                    myWriter.write(transactionDetails);
-                }
-                // print ending balance
-                String footer = String.format("Ending balance: $%.2f\n==================================================\n", account.getBalance());
-                myWriter.write(footer);
+            try (Writer myWriter = new BufferedWriter(new FileWriter(file, true))) {
+                StatementRenderer renderer = new StatementRenderer();
+                for (Account account : accounts) renderer.render(myWriter, customer, account, startDay, endDay);
             }
             return true;
         } catch (IOException e) {
@@ -1,3 +1,36 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -154,4 +187,1401 @@ class ElPasoMinersBankJUnitTesting {
                 () -> assertEquals("(098) 765-4321", customerB.getPhoneNum())
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Ensure exact cent arithmetic for balances and the credit fee.")
+    void testMoneyInCents() {
+        assertAll(
+                "Fixed-point money verification",
+                () -> assertEquals(12345, accountA.getBalanceCents()),
+                () -> assertTrue(accountD.withdraw(100)),
+                () -> assertEquals(-10250, accountD.getBalanceCents()),
+                () -> assertTrue(accountE.withdraw(0.1) && accountE.withdraw(0.2)),
+                () -> assertEquals(12315, accountE.getBalanceCents())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure cents format as plain and currency amounts.")
+    void testMoneyFormatting() {
+        assertAll(
+                "Money formatting verification",
+                () -> assertEquals("-$1,234.50", Money.formatCurrency(-123450)),
+                () -> assertEquals("$0.05", Money.formatCurrency(5)),
+                () -> assertEquals("-1234.50", Money.format(-123450))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure parsed amounts round half away from zero and overflow is reported.")
+    void testMoneyParsing() {
+        assertAll(
+                "Money parsing verification",
+                () -> assertEquals(123456, Money.parseCents("1,234.56")),
+                () -> assertEquals(101, Money.parseCents("1.005")),
+                () -> assertEquals(-101, Money.parseCents("-1.005")),
+                () -> assertEquals(-100, Money.parseCents("-1.004")),
+                () -> assertEquals(Long.MAX_VALUE, Money.parseCents("92233720368547758.07")),
+                () -> assertThrows(ArithmeticException.class, () -> Money.parseCents("92233720368547758.08")),
+                () -> assertThrows(ArithmeticException.class, () -> Money.parseCents("92233720368547758.079"))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the csv reader strips a byte order mark and finds columns by trimmed name in any case.")
+    void testCsvHeaders() throws IOException {
+        byte[] bytes = "\uFEFFName, Amount ,Note\r\nDoe,1,\r\n".getBytes(StandardCharsets.UTF_8);
+        CsvReader reader = new CsvReader(Channels.newChannel(new ByteArrayInputStream(bytes)), 0, true);
+        assertAll(
+                "Csv header verification",
+                () -> assertArrayEquals(new String[]{"Name", "Amount", "Note"}, reader.getHeaders()),
+                () -> assertEquals(1, reader.column("amount")),
+                () -> assertEquals(2, reader.column(" NOTE ")),
+                () -> assertEquals(-1, reader.column("Balance"))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the csv reader handles quotes, line breaks inside quotes, CRLF and blank lines.")
+    void testCsvReader() throws IOException {
+        String text = "\uFEFFName, Amount ,Note\r\n"
+                + "\"Doe, Jane\",12.50,\"say \"\"hi\"\"\"\r\n"
+                + "\r\n"
+                + "   \t \n"
+                + "\n"
+                + "Smith,3,\"two\nlines\"\n"
+                + "\"  \"";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        CsvReader reader = new CsvReader(Channels.newChannel(new ByteArrayInputStream(bytes)), 0, true);
+        List<String> fields = new ArrayList<>();
+        List<Long> numbers = new ArrayList<>();
+        List<Long> ends = new ArrayList<>();
+        while (reader.next()) {
+            CsvRow row = reader.row();
+            for (int i = 0; i < row.size(); i++) fields.add(row.get(i));
+            numbers.add(row.getNumber());
+            ends.add(row.getEndOffset());
+        }
+        long firstRowEnd = text.substring(0, text.indexOf("\r\n\r\n") + 2).getBytes(StandardCharsets.UTF_8).length;
+        assertAll(
+                "Csv reader verification",
+                () -> assertEquals(List.of("Doe, Jane", "12.50", "say \"hi\"", "Smith", "3", "two\nlines", ""), fields),
+                () -> assertEquals(List.of(1L, 2L, 3L), numbers),
+                () -> assertEquals(firstRowEnd, (long) ends.get(0)),
+                () -> assertEquals(bytes.length, (long) ends.get(2)),
+                () -> assertEquals(bytes.length, reader.position())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure csv rows parse numbers and amounts in place and report bad or missing fields.")
+    void testCsvRow() throws IOException {
+        byte[] bytes = "42,-1234.56,Ada\n99999999999,abc,\n".getBytes(StandardCharsets.UTF_8);
+        CsvReader reader = new CsvReader(ByteBuffer.wrap(bytes), 0);
+        assertTrue(reader.next());
+        CsvRow first = reader.row().copy();
+        assertTrue(reader.next());
+        CsvRow second = reader.row();
+        assertAll(
+                "Csv row verification",
+                () -> assertEquals(42, first.getInt(0)),
+                () -> assertEquals(-123456, first.getCents(1)),
+                () -> assertTrue(first.equalsIgnoreCase(2, "ada")),
+                () -> assertEquals(3, first.fieldLength(2)),
+                () -> assertEquals(99999999999L, second.getLong(0)),
+                () -> assertThrows(NumberFormatException.class, () -> second.getInt(0)),
+                () -> assertThrows(NumberFormatException.class, () -> second.getCents(1)),
+                () -> assertTrue(second.isEmpty(2)),
+                () -> assertTrue(second.isEmpty(7)),
+                () -> assertEquals("", second.get(-1))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure csv rows are numbered after the rows before them and copies outlive the reader.")
+    void testCsvRowNumbers() throws IOException {
+        byte[] bytes = "Id,Amount,Name\n42,-1234.56,Ada\n99999999999,abc,\n".getBytes(StandardCharsets.UTF_8);
+        CsvReader reader = new CsvReader(ByteBuffer.wrap(bytes), 0);
+        reader.setHeaders(new String[]{"Id", "Amount", "Name"});
+        reader.setRowsBefore(10);
+        // the first line is read as a row, the headers were given
+        assertTrue(reader.next());
+        assertTrue(reader.next());
+        CsvRow first = reader.row().copy();
+        assertTrue(reader.next());
+        CsvRow second = reader.row();
+        boolean more = reader.next();
+        assertAll(
+                "Csv row number verification",
+                () -> assertEquals(12, first.getNumber()),
+                () -> assertEquals(13, second.getNumber()),
+                () -> assertTrue(first.equalsIgnoreCase(2, "ada")),
+                () -> assertFalse(more)
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure queued log lines are all written once flushed.")
+    void testAuditLogFlush() throws IOException {
+        Path log = Path.of("EPMB_Test_Log.txt");
+        Files.deleteIfExists(log);
+        for (int i = 0; i < 1000; i++) fh.appendLog("EPMB_Test_Log", "line " + i);
+        AuditLog.getInstance().flush();
+        List<String> lines = Files.readAllLines(log);
+        assertAll(
+                "Audit log verification",
+                () -> assertEquals(1000, lines.size()),
+                () -> assertEquals("line 999", lines.get(999))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a snapshot restores customers, balances and transactions.")
+    void testSnapshotRoundTrip() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        assertTrue(db.addCustomer(7, "Ada", "Lovelace", "10-Dec-15", "1 Analytical Way", "(915) 555-0101",
+                9001, 12345, 9002, 500, 9003, 2000, -2550, "engine"));
+        Customer ada = db.getCustomers().get("adalovelace");
+        assertTrue(ada.deposit(ada.getAccounts().getFirst(), 10.05));
+        Path snapshot = Files.createTempFile("EPMB_Test_Snapshot", ".bin");
+        assertEquals(1, BankSnapshot.write(snapshot, true, 42));
+        db.clear();
+        assertEquals(42, BankSnapshot.load(snapshot));
+        Customer restored = db.getCustomers().get("adalovelace");
+        Files.delete(snapshot);
+        assertAll(
+                "Snapshot verification",
+                () -> assertEquals(ada.getCreditScore(), restored.getCreditScore()),
+                () -> assertEquals(13350, db.getAccount(AccountKind.CHECKING, 9001).getBalanceCents()),
+                () -> assertEquals(1, db.getAccount(AccountKind.CHECKING, 9001).getTransactionList().size()),
+                () -> assertEquals(12345, db.getAccount(AccountKind.CHECKING, 9001).getTransactionList().startingBalance),
+                () -> assertEquals(200000, ((Credit) db.getAccount(AccountKind.CREDIT, 9003)).getCreditMaxCents()),
+                () -> assertTrue(db.getCustomerIDs().contains(7)),
+                () -> assertNotNull(db.getAccount(AccountKind.SAVINGS, 9002))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the bulk loader cuts chunks only at row ends and rejects duplicate ids, names and account numbers in file order.")
+    void testBulkCustomerLoader() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        StringBuilder csv = new StringBuilder("Identification Number,First Name,Last Name,Date of Birth,Address,Phone Number,Checking Account Number,"
+                + "Checking Starting Balance,Savings Account Number,Savings Starting Balance,Credit Account Number,Credit Max,Credit Starting Balance\n");
+        // every address is quoted and spans two lines, so a cut at the first line break would split a row
+        for (int i = 0; i < 40; i++) {
+            csv.append(500 + i).append(",First").append(i).append(",Last").append(i).append(",1-Jan-90,\"").append(i).append(" Main St,\nSuite \"\"B\"\"\",(915) 555-0100,")
+                    .append(5000 + i).append(",1.00,").append(6000 + i).append(",2.00,").append(7000 + i).append(",100,-3.00\n");
+        }
+        csv.append("505,Other,Name,1-Jan-90,\"1 Id St,\nEl Paso\",(915) 555-0100,5100,1.00,6100,2.00,7100,100,0\n");
+        csv.append("600,First7,Last7,1-Jan-90,\"1 Name St,\nEl Paso\",(915) 555-0100,5101,1.00,6101,2.00,7101,100,0\n");
+        csv.append("601,Shared,Account,1-Jan-90,\"1 Account St,\nEl Paso\",(915) 555-0100,5003,9.00,6102,2.00,7102,100,0\n");
+        Path file = Files.createTempFile("EPMB_Test_Bulk", ".csv");
+        Files.writeString(file, csv);
+        String name = file.toString();
+        int added = new BulkCustomerLoader(new ForkJoinPool(4), 16).load(name.substring(0, name.length() - ".csv".length()));
+        Files.delete(file);
+        Customer shared = db.getCustomerById(601);
+        assertAll(
+                "Bulk loader verification",
+                () -> assertEquals(41, added),
+                () -> assertEquals("3 Main St,\nSuite B", db.getCustomerById(503).getAddress()),
+                () -> assertEquals("first39", db.getCustomerById(539).getFirstName()),
+                () -> assertEquals("first5", db.getCustomerById(505).getFirstName()),
+                () -> assertNull(db.getCustomerById(600)),
+                () -> assertNull(db.getAccount(AccountKind.CHECKING, 5100)),
+                () -> assertEquals(2, shared.getAccounts().size()),
+                () -> assertEquals(100, db.getAccount(AccountKind.CHECKING, 5003).getBalanceCents()),
+                () -> assertTrue(db.getCustomerById(503).getAccounts().contains(db.getAccount(AccountKind.CHECKING, 5003)))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure journaled operations are replayed after a restart.")
+    void testJournalReplay() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        Path journal = Files.createTempFile("EPMB_Test_Journal", ".bin");
+        db.clear();
+        db.addCustomer(8, "Grace", "Hopper", "9-Dec-06", "2 Compiler Ct", "(915) 555-0102", 9101, 10000, 9102, 0, 9103, 1000, 0, "cobol");
+        Journal.getInstance().open(journal, 0);
+        Customer grace = db.getCustomers().get("gracehopper");
+        assertTrue(grace.deposit(grace.getAccounts().getFirst(), 10.05));
+        Journal.getInstance().close();
+        // restart from the same csv state and replay the journal
+        db.clear();
+        db.addCustomer(8, "Grace", "Hopper", "9-Dec-06", "2 Compiler Ct", "(915) 555-0102", 9101, 10000, 9102, 0, 9103, 1000, 0, "cobol");
+        int replayed = Journal.getInstance().open(journal, 0);
+        Journal.getInstance().close();
+        Files.delete(journal);
+        assertAll(
+                "Journal verification",
+                () -> assertEquals(1, replayed),
+                () -> assertEquals(11005, db.getAccount(AccountKind.CHECKING, 9101).getBalanceCents()),
+                () -> assertEquals(1, db.getAccount(AccountKind.CHECKING, 9101).getTransactionList().size())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure operations are refused instead of acknowledged once the journal cannot record them.")
+    void testJournalFailsClosed() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        Path journal = Files.createTempFile("EPMB_Test_Journal", ".bin");
+        db.clear();
+        db.addCustomer(8, "Grace", "Hopper", "9-Dec-06", "2 Compiler Ct", "(915) 555-0102", 9101, 10000, 9102, 0, 9103, 1000, 0, "cobol");
+        Customer grace = db.getCustomers().get("gracehopper");
+        Account checking = db.getAccount(AccountKind.CHECKING, 9101), savings = db.getAccount(AccountKind.SAVINGS, 9102);
+        Journal.getInstance().open(journal, 0);
+        OperationResult recorded = grace.depositCents(checking, 500, OperationListener.NONE);
+        Journal.getInstance().fail(new IOException("disk full"));
+        OperationResult deposit = grace.depositCents(checking, 500, OperationListener.NONE);
+        OperationResult transfer = grace.transferCents(checking, savings, 500, OperationListener.NONE);
+        boolean syncFailed = false;
+        try {
+            Journal.getInstance().sync();
+        } catch (IOException e) {
+            syncFailed = true;
+        }
+        boolean thrown = syncFailed;
+        long refusedBalance = checking.getBalanceCents();
+        int refusedTransactions = checking.getTransactionList().size();
+        Journal.getInstance().close();
+        // a closed journal records nothing and refuses nothing
+        OperationResult afterClose = grace.depositCents(checking, 500, OperationListener.NONE);
+        Files.delete(journal);
+        assertAll(
+                "Journal failure verification",
+                () -> assertTrue(recorded.isApplied()),
+                () -> assertEquals(OperationResult.Rejection.NOT_RECORDED, deposit.getRejection()),
+                () -> assertEquals(OperationResult.Rejection.NOT_RECORDED, transfer.getRejection()),
+                () -> assertTrue(thrown),
+                () -> assertEquals(10500, refusedBalance),
+                () -> assertEquals(1, refusedTransactions),
+                () -> assertEquals(0, savings.getBalanceCents()),
+                () -> assertTrue(afterClose.isApplied())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure an operation applied before the journal fails is reported applied but not durable, not refused.")
+    void testJournalFailsAfterApply() throws IOException {
+        Path journal = Files.createTempFile("EPMB_Test_Journal", ".bin");
+        // the journal fails once the first transaction is added, after the balance moved and before the record is durable
+        Account failing = new Checking(9201, 100) {
+            @Override
+            public void addTransaction(String description, long amountCents) {
+                super.addTransaction(description, amountCents);
+                Journal.getInstance().fail(new IOException("disk full"));
+            }
+        };
+        Account savings = new Savings(9202, 0);
+        customerB.addAccount(failing);
+        customerB.addAccount(savings);
+        BatchReport report = new BatchReport(OperationListener.NONE);
+        Journal.getInstance().open(journal, 0);
+        OperationResult transfer = customerB.transferCents(failing, savings, 3000, report);
+        Journal.getInstance().close();
+        Journal.getInstance().open(journal, 0);
+        OperationResult withdraw = customerB.withdrawCents(failing, 2000, report);
+        Journal.getInstance().close();
+        Files.delete(journal);
+        assertAll(
+                "Journal failure after apply verification",
+                () -> assertTrue(transfer.isApplied()),
+                () -> assertFalse(transfer.isDurable()),
+                () -> assertTrue(withdraw.isApplied()),
+                () -> assertFalse(withdraw.isDurable()),
+                () -> assertEquals(5000, failing.getBalanceCents()),
+                () -> assertEquals(3000, savings.getBalanceCents()),
+                () -> assertEquals(2, failing.getTransactionList().size()),
+                () -> assertEquals(3000, report.getMovedCents(OperationResult.Type.TRANSFER)),
+                () -> assertEquals(2000, report.getMovedCents(OperationResult.Type.WITHDRAW))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a description too long for a journal record is refused before anything changes.")
+    void testJournalDescriptionLimit() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        Path journal = Files.createTempFile("EPMB_Test_Journal", ".bin");
+        db.clear();
+        db.addCustomer(8, "Grace", "Hopper", "9-Dec-06", "2 Compiler Ct", "(915) 555-0102", 9101, 10000, 9102, 0, 9103, 1000, 0, "cobol");
+        Customer grace = db.getCustomers().get("gracehopper");
+        Account checking = db.getAccount(AccountKind.CHECKING, 9101);
+        // three UTF-8 bytes per letter, so the send description is longer than the record's length field allows
+        Customer longName = new Customer(3, "€".repeat(22000), "Doe", "1-Jan-90", "1 Long St", "(915) 555-0100", "123");
+        Account receiving = new Checking(9301, 0);
+        longName.addAccount(receiving);
+        Journal.getInstance().open(journal, 0);
+        OperationResult send = grace.sendCents(checking, receiving, 100, longName, OperationListener.NONE);
+        OperationResult deposit = grace.depositCents(checking, 500, OperationListener.NONE);
+        boolean failed = Journal.getInstance().isFailed();
+        Journal.getInstance().close();
+        // restart from the same csv state and replay the journal
+        db.clear();
+        db.addCustomer(8, "Grace", "Hopper", "9-Dec-06", "2 Compiler Ct", "(915) 555-0102", 9101, 10000, 9102, 0, 9103, 1000, 0, "cobol");
+        int replayed = Journal.getInstance().open(journal, 0);
+        Journal.getInstance().close();
+        Files.delete(journal);
+        assertAll(
+                "Journal description limit verification",
+                () -> assertEquals(OperationResult.Rejection.NOT_RECORDED, send.getRejection()),
+                () -> assertEquals(0, receiving.getBalanceCents()),
+                () -> assertEquals(0, receiving.getTransactionList().size()),
+                () -> assertTrue(deposit.isApplied()),
+                () -> assertFalse(failed),
+                () -> assertEquals(1, replayed),
+                () -> assertEquals(10500, db.getAccount(AccountKind.CHECKING, 9101).getBalanceCents())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure concurrent account lookups and number allocation are consistent.")
+    void testAccountIndexConcurrency() throws InterruptedException {
+        AccountIndex index = new AccountIndex();
+        for (int i = 1; i <= 10000; i++) {
+            assertTrue(index.putIfAbsent(new Checking(i, 0)));
+            assertTrue(index.putIfAbsent(new Savings(i, 0)));
+        }
+        Set<Integer> allocated = ConcurrentHashMap.newKeySet();
+        AtomicInteger misses = new AtomicInteger();
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 1; i <= 10000; i++) {
+                    Account account = index.get(AccountKind.SAVINGS, i);
+                    if (account == null || account.getAccountNumber() != i || !"Savings".equals(account.getType())) misses.incrementAndGet();
+                    allocated.add(index.allocateNumber(AccountKind.CREDIT));
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join();
+        assertAll(
+                "Account index verification",
+                () -> assertEquals(0, misses.get()),
+                () -> assertEquals(40000, allocated.size())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the account index keeps account kinds apart and allocates numbers past the highest one.")
+    void testAccountIndexNumbers() {
+        AccountIndex index = new AccountIndex();
+        for (int i = 1; i <= 100; i++) assertTrue(index.putIfAbsent(new Checking(i, 0)));
+        assertAll(
+                "Account index number verification",
+                () -> assertFalse(index.putIfAbsent(new Checking(42, 0))),
+                () -> assertNull(index.get(AccountKind.CREDIT, 42)),
+                () -> assertEquals(101, index.allocateNumber(AccountKind.CHECKING)),
+                () -> assertEquals(102, index.allocateNumber(AccountKind.CHECKING))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the customer name index finds csv names in any case and with non-ASCII letters.")
+    void testCustomerNameIndex() throws IOException {
+        CustomerNameIndex index = new CustomerNameIndex();
+        Customer ada = new Customer(1, "ada", "lovelace", "", "", "", "");
+        Customer accented = new Customer(2, "josé", "núñez", "", "", "", "");
+        assertTrue(index.putIfAbsent("adalovelace", ada));
+        assertTrue(index.putIfAbsent("josénúñez", accented));
+        byte[] bytes = "ADA,LoVeLaCe\nJOSÉ,Núñez\nada,núñez\n".getBytes(StandardCharsets.UTF_8);
+        CsvReader reader = new CsvReader(ByteBuffer.wrap(bytes), 0);
+        List<Customer> found = new ArrayList<>();
+        while (reader.next()) found.add(index.find(reader.row(), 0, 1));
+        assertAll(
+                "Customer name index verification",
+                () -> assertSame(ada, found.get(0)),
+                () -> assertSame(accented, found.get(1)),
+                () -> assertNull(found.get(2))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the customer name index keeps every name and refuses duplicates as it grows.")
+    void testCustomerNameIndexGrowth() {
+        CustomerNameIndex index = new CustomerNameIndex();
+        // enough names to grow the table a few times
+        for (int i = 0; i < 5000; i++) assertTrue(index.putIfAbsent("first" + i + "last" + i, new Customer(i, "first" + i, "last" + i, "", "", "", "")));
+        assertAll(
+                "Customer name index growth verification",
+                () -> assertTrue(IntStream.range(0, 5000).allMatch(i -> index.find("first" + i + "last" + i).getId() == i)),
+                () -> assertFalse(index.putIfAbsent("first7last7", new Customer(5000, "first7", "last7", "", "", "", ""))),
+                () -> assertEquals(7, index.find("first7last7").getId()),
+                () -> assertEquals(5000, index.size())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a cleared customer name index forgets every name and accepts them again.")
+    void testCustomerNameIndexClear() {
+        CustomerNameIndex index = new CustomerNameIndex();
+        for (int i = 0; i < 100; i++) assertTrue(index.putIfAbsent("first" + i + "last" + i, new Customer(i, "first" + i, "last" + i, "", "", "", "")));
+        index.clear();
+        Customer afterClear = index.find("first7last7");
+        Customer again = new Customer(7, "first7", "last7", "", "", "", "");
+        boolean addedAfterClear = index.putIfAbsent("first7last7", again);
+        assertAll(
+                "Customer name index clear verification",
+                () -> assertNull(afterClear),
+                () -> assertTrue(addedAfterClear),
+                () -> assertEquals(1, index.size()),
+                () -> assertSame(again, index.find("first7last7"))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure concurrent transfers lose no money, never deadlock and never half-apply.")
+    void testConcurrentTransfers() throws InterruptedException {
+        // checking and savings accounts send and receive, credit accounts only receive and refuse overpayment
+        Account[] funded = new Account[48];
+        for (int i = 0; i < funded.length; i++) funded[i] = (i % 2 == 0) ? new Checking(100 + i, 1000) : new Savings(100 + i, 1000);
+        Account[] credit = new Account[16];
+        for (int i = 0; i < credit.length; i++) credit[i] = new Credit(200 + i, -500, 1000);
+        LongSupplier total = () -> Stream.of(funded, credit).flatMap(Arrays::stream).mapToLong(Account::getBalanceCents).sum();
+        long before = total.getAsLong();
+        TransferEngine engine = TransferEngine.getInstance();
+        AtomicInteger applied = new AtomicInteger();
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            long seed = t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 20000; i++) {
+                    Account src = funded[random.nextInt(funded.length)];
+                    Account dst = (random.nextInt(4) == 0) ? credit[random.nextInt(credit.length)] : funded[random.nextInt(funded.length)];
+                    if (src == dst) continue;
+                    if (engine.transfer(src, dst, 1 + random.nextInt(40000), null, null) == TransferEngine.Outcome.APPLIED) applied.incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join(60000);
+        assertAll(
+                "Concurrent transfer verification",
+                () -> assertTrue(Arrays.stream(workers).noneMatch(Thread::isAlive), "Transfers deadlocked"),
+                () -> assertTrue(applied.get() > 0),
+                () -> assertEquals(before, total.getAsLong()),
+                () -> assertTrue(Arrays.stream(funded).allMatch(account -> account.getBalanceCents() >= 0)),
+                () -> assertTrue(Arrays.stream(credit).allMatch(account -> account.getBalanceCents() <= 0))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure operations report structured results to their listener and print nothing themselves.")
+    void testOperationResults() {
+        List<OperationResult> events = new ArrayList<>();
+        OperationListener listener = new OperationListener() {
+            @Override
+            public void completed(OperationResult result) {
+                events.add(result);
+            }
+        };
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        OperationResult withdrawn, overdrawn, notOwned, selfSend;
+        try {
+            withdrawn = customerA.withdrawCents(accountA, 2345, listener);
+            overdrawn = customerA.withdrawCents(accountA, 1_000_000, listener);
+            notOwned = customerA.depositCents(accountB, 100, listener);
+            selfSend = customerA.sendCents(accountA, accountC, 100, customerA, listener);
+            customerA.transferCents(accountA, accountC, 100);
+        } finally {
+            System.setOut(stdout);
+        }
+        assertAll(
+                "Operation result verification",
+                () -> assertEquals(List.of(withdrawn, overdrawn, notOwned, selfSend), events),
+                () -> assertTrue(withdrawn.isApplied()),
+                () -> assertEquals(OperationResult.Type.WITHDRAW, withdrawn.getType()),
+                () -> assertEquals(2345, withdrawn.getCents()),
+                () -> assertEquals(OperationResult.Rejection.SOURCE_REFUSED, overdrawn.getRejection()),
+                () -> assertEquals(OperationResult.Rejection.NOT_OWNER, notOwned.getRejection()),
+                () -> assertEquals(OperationResult.Rejection.SELF_SEND, selfSend.getRejection()),
+                () -> assertEquals(9900, accountA.getBalanceCents()),
+                () -> assertEquals(0, printed.size())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the staged pipeline applies every row of a file larger than its queues, in order.")
+    void testTransactionPipeline() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(9, "Alan", "Turing", "23-Jun-12", "4 Enigma Ln", "(915) 555-0104", 9201, 0, 9202, 0, 9203, 1000, 0, "bombe");
+        StringBuilder csv = new StringBuilder("From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n");
+        for (int i = 0; i < 20000; i++) csv.append(",,,deposits,Alan,Turing,Checking,0.01\n");
+        csv.append(",,,deposits,Alan,Turing,Checking,abc\n");
+        csv.append("Alan,Turing,Checking,withdraws,,,,150\n");
+        Path file = Files.createTempFile("EPMB_Test_Pipeline", ".csv");
+        Files.writeString(file, csv);
+        long rows = new TransactionPipeline(manager, fh, OperationListener.NONE).run(file);
+        Files.delete(file);
+        TransactionStore list = db.getAccount(AccountKind.CHECKING, 9201).getTransactionList();
+        assertAll(
+                "Pipeline verification",
+                () -> assertEquals(20002, rows),
+                () -> assertEquals(20001, list.size()),
+                () -> assertEquals(5000, db.getAccount(AccountKind.CHECKING, 9201).getBalanceCents()),
+                () -> assertEquals(19999, list.getNewBalanceCents(19998))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure an inquiry of an account type the customer lacks is skipped without stopping the run.")
+    void testInquiryWithoutAccount() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(9, "Alan", "Turing", "23-Jun-12", "4 Enigma Ln", "(915) 555-0104", 9201, 0, 9202, 0, 9203, 1000, 0, "bombe");
+        String csv = "From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n"
+                + "Alan,Turing,Brokerage,inquires,,,,\n"
+                + ",,,deposits,Alan,Turing,Checking,5\n";
+        List<TransactionRow.Problem> problems = new ArrayList<>();
+        OperationListener listener = new OperationListener() {
+            @Override
+            public void rowSkipped(TransactionRow row, TransactionRow.Problem problem) {
+                problems.add(problem);
+            }
+        };
+        Path file = Files.createTempFile("EPMB_Test_Inquiry", ".csv");
+        Files.writeString(file, csv);
+        long rows = new TransactionPipeline(manager, fh, listener).run(file);
+        Files.delete(file);
+        Path partitioned = Path.of("Transactions/EPMB_Test_Inquiry.csv");
+        Files.writeString(partitioned, csv);
+        int partitionedRows = manager.transactFromFile("EPMB_Test_Inquiry", ForkJoinPool.commonPool());
+        Files.delete(partitioned);
+        Files.delete(BatchReport.pathFor(partitioned));
+        assertAll(
+                "Inquiry without account verification",
+                () -> assertEquals(2, rows),
+                () -> assertEquals(List.of(TransactionRow.Problem.NO_SOURCE_ACCOUNT), problems),
+                () -> assertEquals(2, partitionedRows),
+                () -> assertEquals(1000, db.getAccount(AccountKind.CHECKING, 9201).getBalanceCents())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a checkpointed run resumes after the last applied row instead of repeating it.")
+    void testCheckpointResume() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(10, "Katherine", "Johnson", "26-Aug-18", "5 Orbit Ave", "(915) 555-0105", 9301, 0, 9302, 0, 9303, 1000, 0, "apollo");
+        String header = "From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n";
+        String[] rows = {",,,deposits,Katherine,Johnson,Checking,1\n", ",,,deposits,Katherine,Johnson,Checking,2\n",
+                ",,,deposits,Katherine,Johnson,Checking,4\n", ",,,deposits,Katherine,Johnson,Checking,8\n"};
+        Path file = Files.createTempFile("EPMB_Test_Checkpoint", ".csv");
+        Files.writeString(file, header + String.join("", rows));
+        // an earlier run stopped after the first two rows
+        BatchCheckpoint stopped = BatchCheckpoint.start(file, header.length());
+        stopped.count(TransactionRow.Outcome.APPLIED, 1, header.length() + rows[0].length());
+        stopped.count(TransactionRow.Outcome.APPLIED, 2, header.length() + rows[0].length() + rows[1].length());
+        stopped.save(BatchCheckpoint.State.STOPPED);
+        long resumed = new TransactionPipeline(manager, fh, OperationListener.NONE).run(file, true);
+        long balanceAfterResume = db.getAccount(AccountKind.CHECKING, 9301).getBalanceCents();
+        // once complete, running the file again starts over
+        long rerun = new TransactionPipeline(manager, fh, OperationListener.NONE).run(file, true);
+        Files.delete(BatchCheckpoint.pathFor(file));
+        Files.delete(file);
+        assertAll(
+                "Checkpoint verification",
+                () -> assertEquals(2, resumed),
+                () -> assertEquals(1200, balanceAfterResume),
+                () -> assertEquals(4, rerun),
+                () -> assertEquals(2700, db.getAccount(AccountKind.CHECKING, 9301).getBalanceCents())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure validation reports every failing row against projected balances without changing any account.")
+    void testValidationDryRun() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(11, "Dorothy", "Vaughan", "20-Sep-10", "6 Fortran Way", "(915) 555-0106", 9401, 0, 9402, 0, 9403, 1000, 0, "fortran");
+        String csv = "From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n"
+                + ",,,deposits,Dorothy,Vaughan,Checking,100\n"
+                + "Dorothy,Vaughan,Checking,withdraws,,,,150\n"
+                + "Dorothy,Vaughan,Checking,transfers,Dorothy,Vaughan,Savings,60\n"
+                + "Dorothy,Vaughan,Checking,transfers,Dorothy,Vaughan,Savings,60\n"
+                + ",,,deposits,Dorothy,Vaughan,Credit,5\n"
+                + "Dorothy,Vaughan,Checking,pays,Dorothy,Vaughan,Savings,1\n"
+                + ",,,deposits,Nobody,Here,Checking,1\n"
+                + ",,,deposits,Dorothy,Vaughan,Brokerage,1\n"
+                + ",,,deposits,Dorothy,Vaughan,Checking,abc\n"
+                + "Dorothy,Vaughan,Checking,borrows,,,,1\n";
+        Path file = Files.createTempFile("EPMB_Test_Validation", ".csv");
+        Files.writeString(file, csv);
+        TransactionValidator.Report report = new TransactionValidator().validate(file);
+        List<String> problems = Files.readAllLines(report.getErrorFile()).stream().skip(1).map(line -> line.split(",")[2]).toList();
+        Files.delete(file);
+        Files.delete(report.getErrorFile());
+        assertAll(
+                "Validation verification",
+                () -> assertEquals(10, report.getRows()),
+                () -> assertEquals(8, report.getFailures()),
+                () -> assertEquals(List.of("SOURCE_REFUSED", "SOURCE_REFUSED", "DESTINATION_REFUSED", "SELF_SEND",
+                        "NO_DESTINATION", "NO_DESTINATION_ACCOUNT", "INVALID_AMOUNT", "UNKNOWN_ACTION"), problems),
+                () -> assertEquals(0, db.getAccount(AccountKind.CHECKING, 9401).getBalanceCents()),
+                () -> assertEquals(0, db.getAccount(AccountKind.SAVINGS, 9402).getTransactionList().size())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure directory ingest runs every pending file in modification order, summarizes and archives each one.")
+    void testDirectoryIngest() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(12, "Mary", "Jackson", "9-Apr-21", "7 Tunnel Rd", "(915) 555-0107", 9501, 0, 9502, 0, 9503, 1000, 0, "wind");
+        db.addCustomer(13, "Annie", "Easley", "23-Apr-33", "8 Centaur Ct", "(915) 555-0108", 9601, 0, 9602, 0, 9603, 1000, 0, "rocket");
+        String header = "From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n";
+        // the withdrawal file sorts first by name but is newer, so it must run after the deposits
+        String[][] files = {
+                {"b_deposits.csv", ",,,deposits,Mary,Jackson,Checking,100\n,,,deposits,Annie,Easley,Checking,5\n"},
+                {"a_withdrawals.csv", "Mary,Jackson,Checking,withdraws,,,,100\nMary,Jackson,Checking,withdraws,,,,1\n"},
+                {"empty.csv", ""},
+                {"c_payments.csv", "Annie,Easley,Checking,pays,Mary,Jackson,Checking,5\nAnnie,Easley,Checking,flies,,,,1\n"}
+        };
+        Path directory = Files.createTempDirectory("EPMB_Test_Ingest");
+        long time = System.currentTimeMillis() - 60_000;
+        for (int i = 0; i < files.length; i++) {
+            Path file = Files.writeString(directory.resolve(files[i][0]), header + files[i][1]);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(time + i * 1000L));
+        }
+        DirectoryIngest ingest = new DirectoryIngest(manager, fh, directory);
+        List<DirectoryIngest.FileSummary> summaries = ingest.run(new ForkJoinPool(4));
+        List<String> counts = summaries.stream().map(summary -> summary.getFile().getFileName() + " " + summary.getApplied() + " "
+                + summary.getRejected() + " " + summary.getSkipped()).toList();
+        List<Path> pending = ingest.pending();
+        List<Path> archived;
+        try (Stream<Path> listed = Files.list(directory.resolve(DirectoryIngest.ARCHIVE))) {
+            archived = listed.toList();
+        }
+        boolean checkpointsLeft = summaries.stream().anyMatch(summary -> Files.exists(BatchCheckpoint.pathFor(summary.getFile())));
+        for (Path file : archived) Files.delete(file);
+        Files.delete(directory.resolve(DirectoryIngest.ARCHIVE));
+        Files.delete(directory);
+        assertAll(
+                "Directory ingest verification",
+                () -> assertEquals(List.of("b_deposits.csv 2 0 0", "a_withdrawals.csv 1 1 0", "empty.csv 0 0 0", "c_payments.csv 1 0 1"), counts),
+                () -> assertEquals(500, db.getAccount(AccountKind.CHECKING, 9501).getBalanceCents()),
+                () -> assertEquals(0, db.getAccount(AccountKind.CHECKING, 9601).getBalanceCents()),
+                () -> assertTrue(pending.isEmpty()),
+                () -> assertEquals(8, archived.size()),
+                () -> assertTrue(summaries.stream().allMatch(summary -> summary.getArchived() != null
+                        && archived.contains(BatchReport.pathFor(summary.getArchived())) && summary.getReport().getRows() == summary.getRows())),
+                () -> assertFalse(checkpointsLeft)
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure directory ingest continues a stopped file after its checkpoint and archives a completed one without running it again.")
+    void testDirectoryIngestCheckpoints() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(12, "Mary", "Jackson", "9-Apr-21", "7 Tunnel Rd", "(915) 555-0107", 9501, 0, 9502, 0, 9503, 1000, 0, "wind");
+        String header = "From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n";
+        String row = ",,,deposits,Mary,Jackson,Checking,1\n";
+        Path directory = Files.createTempDirectory("EPMB_Test_IngestCheckpoint");
+        Path stopped = Files.writeString(directory.resolve("a_stopped.csv"), header + row + row + row);
+        Path complete = Files.writeString(directory.resolve("b_complete.csv"), header + row + row);
+        Files.setLastModifiedTime(complete, Files.getLastModifiedTime(stopped));
+        // an earlier ingest stopped after the first row of one file and finished the other before archiving it
+        BatchCheckpoint first = BatchCheckpoint.start(stopped, header.length());
+        first.count(TransactionRow.Outcome.APPLIED, 1, header.length() + row.length());
+        first.save(BatchCheckpoint.State.STOPPED);
+        BatchCheckpoint done = BatchCheckpoint.start(complete, header.length());
+        done.count(TransactionRow.Outcome.APPLIED, 2, header.length() + 2L * row.length());
+        done.save(BatchCheckpoint.State.COMPLETE);
+        List<DirectoryIngest.FileSummary> summaries = new DirectoryIngest(manager, fh, directory).run(new ForkJoinPool(2));
+        Path archive = directory.resolve(DirectoryIngest.ARCHIVE);
+        boolean checkpointsLeft = Files.exists(BatchCheckpoint.pathFor(stopped)) || Files.exists(BatchCheckpoint.pathFor(complete));
+        long resumedAfter = summaries.get(0).getReport().getResumedAfter();
+        try (Stream<Path> listed = Files.list(archive)) {
+            for (Path file : listed.toList()) Files.delete(file);
+        }
+        Files.delete(archive);
+        Files.delete(directory);
+        assertAll(
+                "Directory ingest checkpoint verification",
+                () -> assertEquals(2, summaries.get(0).getApplied()),
+                () -> assertEquals(1, summaries.get(0).getResumedAfter()),
+                () -> assertEquals(1, resumedAfter),
+                () -> assertEquals(0, summaries.get(1).getRows()),
+                () -> assertEquals(200, db.getAccount(AccountKind.CHECKING, 9501).getBalanceCents()),
+                () -> assertTrue(summaries.stream().allMatch(summary -> summary.getArchived() != null)),
+                () -> assertFalse(checkpointsLeft)
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a netted run refuses overdrawing rows where a sequential run would and keeps one transaction per row.")
+    void testNettedBatch() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(14, "Evelyn", "Boyd", "16-Jan-24", "9 Matrix Blvd", "(915) 555-0109", 9701, 10000, 9702, 0, 9703, 1000, 0, "vanguard");
+        db.addCustomer(15, "Gladys", "West", "27-Oct-30", "10 Geoid Dr", "(915) 555-0110", 9801, 0, 9802, 0, 9803, 1000, 0, "gps");
+        StringBuilder csv = new StringBuilder("From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n");
+        // only the first ten payments are covered
+        for (int i = 0; i < 30; i++) csv.append("Evelyn,Boyd,Checking,pays,Gladys,West,Checking,10\n");
+        csv.append("Gladys,West,Checking,pays,Evelyn,Boyd,Checking,5\n");
+        Path file = Path.of("Transactions/EPMB_Test_Netted.csv");
+        Files.writeString(file, csv);
+        int rows = manager.transactFromFileNetted("EPMB_Test_Netted");
+        Files.delete(file);
+        Files.delete(BatchReport.pathFor(file));
+        TransactionStore evelyn = db.getAccount(AccountKind.CHECKING, 9701).getTransactionList();
+        TransactionStore gladys = db.getAccount(AccountKind.CHECKING, 9801).getTransactionList();
+        assertAll(
+                "Netted batch verification",
+                () -> assertEquals(31, rows),
+                () -> assertEquals(500, db.getAccount(AccountKind.CHECKING, 9701).getBalanceCents()),
+                () -> assertEquals(9500, db.getAccount(AccountKind.CHECKING, 9801).getBalanceCents()),
+                () -> assertEquals(11, evelyn.size()),
+                () -> assertEquals(11, gladys.size()),
+                () -> assertEquals(0, evelyn.getNewBalanceCents(9)),
+                () -> assertEquals("Sent funds to Gladys West", evelyn.getDescription(0)),
+                () -> assertEquals(500, evelyn.getNewBalanceCents(10))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure running, netting and validating a file skip and refuse the same rows.")
+    void testRowPlansAgree() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(14, "Evelyn", "Boyd", "16-Jan-24", "9 Matrix Blvd", "(915) 555-0109", 9701, 10000, 9702, 0, 9703, 1000, 0, "vanguard");
+        db.addCustomer(15, "Gladys", "West", "27-Oct-30", "10 Geoid Dr", "(915) 555-0110", 9801, 0, 9802, 0, 9803, 1000, 0, "gps");
+        String csv = "From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n"
+                + "Evelyn,Boyd,Checking,pays,Gladys,West,Brokerage,1\n"
+                + "Evelyn,Boyd,Brokerage,transfers,Evelyn,Boyd,Savings,1\n"
+                + "Evelyn,Boyd,Checking,transfers,Evelyn,Boyd,Checking,1\n"
+                + "Evelyn,Boyd,Checking,pays,Evelyn,Boyd,Savings,1\n"
+                + "Evelyn,Boyd,Checking,withdraws,,,Savings,1\n"
+                + ",,,deposits,Gladys,West,Brokerage,1\n"
+                + "Gladys,West,Checking,withdraws,,,,1\n"
+                + "Evelyn,Boyd,Checking,inquires,,,,\n"
+                + "Evelyn,Boyd,Checking,borrows,,,,1\n"
+                + "Evelyn,Boyd,Checking,pays,Gladys,West,Checking,25\n";
+        Path file = Files.createTempFile("EPMB_Test_Plans", ".csv");
+        Files.writeString(file, csv);
+        List<TransactionRow> rows = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(file)) {
+            int[] cols = TransactionRow.columns(reader);
+            while (reader.next()) rows.add(TransactionRow.parse(reader.row(), cols));
+        }
+        TransactionValidator.Report report = new TransactionValidator().validate(file);
+        Files.delete(report.getErrorFile());
+        Files.delete(file);
+        List<TransactionRow.Outcome> sequential = rows.stream().map(row -> manager.applyRow(row, OperationListener.NONE)).toList();
+        long sequentialBalance = db.getAccount(AccountKind.CHECKING, 9701).getBalanceCents();
+        db.getAccount(AccountKind.CHECKING, 9701).balance = 10000;
+        db.getAccount(AccountKind.CHECKING, 9801).balance = 0;
+        List<TransactionRow.Outcome> netted = List.of(new NettedBatch(rows).run());
+        TransactionRow.Outcome applied = TransactionRow.Outcome.APPLIED, rejected = TransactionRow.Outcome.REJECTED, skipped = TransactionRow.Outcome.SKIPPED;
+        assertAll(
+                "Row plan verification",
+                () -> assertEquals(List.of(skipped, skipped, rejected, rejected, skipped, skipped, rejected, applied, skipped, applied), sequential),
+                () -> assertEquals(sequential, netted),
+                () -> assertEquals(8, report.getFailures()),
+                () -> assertEquals(7500, sequentialBalance),
+                () -> assertEquals(7500, db.getAccount(AccountKind.CHECKING, 9701).getBalanceCents())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a batch run reports its rows by outcome and reason and the amounts moved.")
+    void testBatchReport() throws IOException {
+        BatchReport report = runReportFile();
+        assertAll(
+                "Batch report verification",
+                () -> assertEquals(6, report.getRows()),
+                () -> assertEquals(3, report.getApplied()),
+                () -> assertEquals(2, report.getRejected()),
+                () -> assertEquals(1, report.getSkipped()),
+                () -> assertEquals(1, report.getRejections(OperationResult.Rejection.SOURCE_REFUSED)),
+                () -> assertEquals(1, report.getRejections(OperationResult.Rejection.SELF_SEND)),
+                () -> assertEquals(1, report.getSkips(TransactionRow.Problem.UNEXPECTED_DESTINATION)),
+                () -> assertEquals(10000, report.getMovedCents(OperationResult.Type.DEPOSIT)),
+                () -> assertEquals(4000, report.getMovedCents(OperationResult.Type.TRANSFER)),
+                () -> assertEquals(0, report.getMovedCents(OperationResult.Type.WITHDRAW))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a batch report times every row and keeps its phases within the wall time.")
+    void testBatchReportTimings() throws IOException {
+        BatchReport report = runReportFile();
+        assertAll(
+                "Batch report timing verification",
+                () -> assertEquals(6, report.getApplyLatency().getCount()),
+                () -> assertTrue(report.getApplyLatency().percentile(0.5) <= report.getApplyLatency().percentile(0.99)),
+                () -> assertTrue(report.getApplyLatency().percentile(0.99) <= report.getApplyLatency().getMax()),
+                () -> assertTrue(report.getWallNanos() >= report.getPhaseNanos(BatchReport.Phase.APPLY))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a written batch report holds its row counts and reasons.")
+    void testBatchReportWrite() throws IOException {
+        BatchReport report = runReportFile();
+        Path json = Files.createTempFile("EPMB_Test_Report", ".json");
+        report.write(json);
+        String written = Files.readString(json);
+        Files.delete(json);
+        assertAll(
+                "Batch report file verification",
+                () -> assertTrue(written.contains("\"rows\": {\"read\": 6, \"applied\": 3, \"rejected\": 2, \"skipped\": 1}")),
+                () -> assertTrue(written.contains("\"SOURCE_REFUSED\": 1"))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure parallel and netted runs write a json report counting rows as a pipeline run does.")
+    void testBatchModeReports() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        String csv = "From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n"
+                + ",,,deposits,Christine,Darden,Checking,100\n"
+                + "Christine,Darden,Checking,transfers,Christine,Darden,Savings,40\n"
+                + "Christine,Darden,Savings,withdraws,,,,50\n"
+                + "Christine,Darden,Checking,pays,Christine,Darden,Savings,1\n"
+                + "Christine,Darden,Checking,withdraws,Christine,Darden,Savings,1\n"
+                + "Christine,Darden,Checking,inquires,,,,\n"
+                + ",,,deposits,Nobody,Here,Checking,1\n";
+        Path file = Path.of("Transactions/EPMB_Test_Modes.csv");
+        Files.writeString(file, csv);
+        Path json = BatchReport.pathFor(file);
+        List<List<String>> counts = new ArrayList<>();
+        List<String> phases = new ArrayList<>();
+        for (int mode = 0; mode < 3; mode++) {
+            db.clear();
+            db.addCustomer(16, "Christine", "Darden", "10-Sep-42", "11 Boom Ln", "(915) 555-0111", 9901, 0, 9902, 0, 9903, 1000, 0, "sonic");
+            Files.deleteIfExists(json);
+            if (mode == 0) manager.transactFromFile("EPMB_Test_Modes");
+            else if (mode == 1) manager.transactFromFile("EPMB_Test_Modes", new ForkJoinPool(2));
+            else manager.transactFromFileNetted("EPMB_Test_Modes");
+            List<String> lines = Files.readAllLines(json);
+            // every count, leaving out the timings
+            counts.add(lines.stream().filter(line -> line.startsWith("  \"rows\"") || line.startsWith("  \"rejected\"")
+                    || line.startsWith("  \"skipped\"") || line.startsWith("  \"movedCents\"")).toList());
+            phases.add(lines.stream().filter(line -> line.startsWith("  \"phaseMillis\"") || line.startsWith("  \"applyLatencyNanos\"")).findFirst().orElse(""));
+        }
+        Files.delete(json);
+        Files.delete(BatchCheckpoint.pathFor(file));
+        Files.delete(file);
+        assertAll(
+                "Batch mode report verification",
+                () -> assertEquals(4, counts.get(0).size()),
+                () -> assertTrue(counts.get(0).get(0).contains("\"read\": 7, \"applied\": 3, \"rejected\": 2, \"skipped\": 2")),
+                () -> assertEquals(counts.get(0), counts.get(1)),
+                () -> assertEquals(counts.get(0), counts.get(2)),
+                () -> assertTrue(phases.stream().allMatch(line -> line.contains("\"apply\"")))
+        );
+    }
+
+    /**
+     * Run a file of applied, rejected and skipped rows through the pipeline.
+     *
+     * @return  report of the run.
+     * @throws IOException if the file cannot be written or read.
+     */
+    private BatchReport runReportFile() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(16, "Christine", "Darden", "10-Sep-42", "11 Boom Ln", "(915) 555-0111", 9901, 0, 9902, 0, 9903, 1000, 0, "sonic");
+        String csv = "From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n"
+                + ",,,deposits,Christine,Darden,Checking,100\n"
+                + "Christine,Darden,Checking,transfers,Christine,Darden,Savings,40\n"
+                + "Christine,Darden,Savings,withdraws,,,,50\n"
+                + "Christine,Darden,Checking,pays,Christine,Darden,Savings,1\n"
+                + "Christine,Darden,Checking,withdraws,Christine,Darden,Savings,1\n"
+                + "Christine,Darden,Checking,inquires,,,,\n";
+        Path file = Files.createTempFile("EPMB_Test_Report", ".csv");
+        Files.writeString(file, csv);
+        TransactionPipeline pipeline = new TransactionPipeline(manager, fh, OperationListener.NONE);
+        pipeline.run(file);
+        Files.delete(file);
+        return pipeline.getReport();
+    }
+
+    @Test
+    @DisplayName("Ensure the bank clock turns the day at local midnight, across daylight saving changes and clock changes.")
+    void testBankClockDays() {
+        ZoneId denver = ZoneId.of("America/Denver");
+        AtomicLong millis = new AtomicLong();
+        // one clock whose time moves, so the day read last is reused until it ends
+        Clock moving = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return denver;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(millis.get());
+            }
+        };
+        BankClock clock = BankClock.getInstance();
+        List<Integer> days = new ArrayList<>();
+        boolean matches = true;
+        clock.setClock(moving);
+        try {
+            // the last millisecond of a day and the first of the next, around the 23 hour day of March 10, 2024
+            for (String instant : new String[]{"2024-03-10T06:59:59.999Z", "2024-03-10T07:00:00Z", "2024-03-11T05:59:59.999Z", "2024-03-11T06:00:00Z"}) {
+                millis.set(Instant.parse(instant).toEpochMilli());
+                days.add(clock.today());
+            }
+            // every 37 minutes for a year
+            for (long t = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli(); t < Instant.parse("2025-01-01T00:00:00Z").toEpochMilli(); t += 37 * 60_000L) {
+                millis.set(t);
+                matches &= clock.today() == LocalDate.ofInstant(Instant.ofEpochMilli(t), denver).toEpochDay();
+            }
+            clock.setClock(Clock.fixed(Instant.parse("2024-12-31T23:00:00Z"), ZoneOffset.UTC));
+            days.add(clock.today());
+        } finally {
+            clock.reset();
+        }
+        boolean everyStep = matches;
+        int march9 = (int) LocalDate.of(2024, 3, 9).toEpochDay();
+        assertAll(
+                "Bank clock day verification",
+                () -> assertEquals(List.of(march9, march9 + 1, march9 + 1, march9 + 2, march9 + 297), days),
+                () -> assertTrue(everyStep),
+                () -> assertEquals((int) LocalDate.now().toEpochDay(), clock.today())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure transactions are dated by the bank clock and rendered from their epoch day.")
+    void testBankClock() {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(17, "Mae", "Jemison", "17-Oct-56", "12 Endeavour Dr", "(915) 555-0112", 10001, 0, 10002, 0, 10003, 1000, 0, "orbit");
+        Customer customer = db.getCustomers().get("maejemison");
+        Account checking = db.getAccount(AccountKind.CHECKING, 10001);
+        BankClock.getInstance().setClock(Clock.fixed(Instant.parse("2024-02-29T12:00:00Z"), ZoneOffset.UTC));
+        try {
+            customer.deposit(checking, 10);
+        } finally {
+            BankClock.getInstance().reset();
+        }
+        customer.deposit(checking, 5);
+        TransactionStore list = checking.getTransactionList();
+        assertAll(
+                "Bank clock verification",
+                () -> assertEquals((int) LocalDate.of(2024, 2, 29).toEpochDay(), list.getEpochDay(0)),
+                () -> assertEquals("02-29-2024", list.get(0).getDate()),
+                () -> assertEquals((int) LocalDate.now().toEpochDay(), list.getEpochDay(1)),
+                () -> assertEquals(1, list.between((int) LocalDate.of(2024, 2, 1).toEpochDay(), (int) LocalDate.of(2024, 3, 1).toEpochDay()).remaining())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the bulk statement job writes one statement per selected customer, as the menu would.")
+    void testStatementJob() throws IOException, ParseException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(18, "Katherine", "Johnson", "26-Aug-18", "13 Orbit Ave", "(915) 555-0113", 10101, 0, 10102, 0, 10103, 1000, 0, "trajectory");
+        db.addCustomer(19, "Margaret", "Hamilton", "17-Aug-36", "14 Apollo St", "(915) 555-0114", 10201, 0, 10202, 0, 10203, 1000, 0, "guidance");
+        Customer katherine = db.getCustomers().get("katherinejohnson");
+        BankClock.getInstance().setClock(Clock.fixed(Instant.parse("2024-05-15T12:00:00Z"), ZoneOffset.UTC));
+        try {
+            katherine.deposit(katherine.getAccounts().get(0), 25);
+            katherine.transfer(katherine.getAccounts().get(0), katherine.getAccounts().get(1), 10);
+        } finally {
+            BankClock.getInstance().reset();
+        }
+        Path directory = Files.createTempDirectory("EPMB_Test_Statements");
+        int start = TransactionStore.parseEpochDay("05-01-2024"), end = TransactionStore.parseEpochDay("05-31-2024");
+        List<Integer> updates = new CopyOnWriteArrayList<>();
+        StatementJob.Result result;
+        try (ForkJoinPool pool = new ForkJoinPool(2)) {
+            result = new StatementJob(fh, directory, start, end).run(pool, db.getCustomers().values(),
+                    customer -> customer.getFullName().contains("Johnson"), (done, total) -> updates.add(done));
+        }
+        Path statement = directory.resolve("KatherineJohnsonStatement.txt");
+        String written = Files.readString(statement);
+        // the same statement through the menu's path
+        Path expected = directory.resolve("expected.txt");
+        for (Account account : katherine.getAccounts()) fh.generateUserTransactionsFile(expected.toString(), katherine, account, "05-01-2024", "05-31-2024");
+        String menu = Files.readString(expected);
+        boolean filtered = !Files.exists(directory.resolve("MargaretHamiltonStatement.txt"));
+        for (Path file : new Path[]{statement, expected}) {
+            file.toFile().setWritable(true);
+            Files.delete(file);
+        }
+        Files.delete(directory);
+        assertAll(
+                "Statement job verification",
+                () -> assertEquals(1, result.getCustomers()),
+                () -> assertEquals(1, result.getStatements()),
+                () -> assertEquals(3, result.getAccounts()),
+                () -> assertEquals(3, result.getTransactions()),
+                () -> assertEquals(0, result.getFailures()),
+                () -> assertEquals(List.of(1), updates),
+                () -> assertEquals(menu, written),
+                () -> assertTrue(filtered)
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the statement renderer writes the same text as the former formatted statement, across flushes and days.")
+    void testStatementRenderer() throws IOException, ParseException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(20, "Hedy", "Lamarr", "9-Nov-14", "15 Spread Spectrum Rd", "(915) 555-0115", 10301, 100000, 10302, 0, 10303, 1000, 0, "frequency");
+        Customer hedy = db.getCustomers().get("hedylamarr");
+        Account checking = hedy.getAccounts().get(0);
+        int first = TransactionStore.parseEpochDay("12-30-1999");
+        for (int i = 0; i < 1000; i++) checking.getTransactionList().addTransaction(first + i / 7, "Deposit of funds", i, 100000 + i);
+        int start = TransactionStore.parseEpochDay("01-01-2000"), end = TransactionStore.parseEpochDay("02-29-2000");
+        StringWriter rendered = new StringWriter();
+        int count = new StatementRenderer().render(rendered, hedy, checking, start, end);
+        StringBuilder expected = new StringBuilder(String.format("Name: %s\nID: %s\nAccount: %s\nAccount ID: %s\nStarting Balance: $%s\nStatement Period: %s to %s\n==================================================\n",
+                "Hedy Lamarr", 20, "Checking", 10301, "1000.13", "01-01-2000", "02-29-2000"));
+        for (TransactionCursor cursor = checking.getTransactionList().between(start, end); cursor.next(); ) {
+            expected.append(String.format("Date: %s\nDescription: %s\nAmount: $%s\nNew Balance: $%s\n-------------------------------------\n",
+                    cursor.getDate(), cursor.getDescription(), Money.format(cursor.getAmountCents()), Money.format(cursor.getNewBalanceCents())));
+        }
+        expected.append(String.format("Ending balance: $%s\n==================================================\n", "1004.33"));
+        assertAll(
+                "Statement renderer verification",
+                () -> assertEquals(60 * 7, count),
+                () -> assertEquals(expected.toString(), rendered.toString()),
+                () -> assertTrue(rendered.toString().contains("Date: 02-29-2000\nDescription: Deposit of funds\nAmount: $4.27\n"))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the transaction store keeps every appended transaction in order as its columns grow.")
+    void testTransactionStoreAppend() throws ParseException {
+        TransactionStore store = new TransactionStore(1000);
+        String[] descriptions = {"Deposit", "Withdrawal", "Transfer"};
+        // far past the initial capacity, so the columns grow many times
+        for (int i = 0; i < 10000; i++) store.addTransaction(19000 + i / 10, descriptions[i % 3], i, 1000 + i);
+        TransactionNode node = store.get(9999);
+        assertAll(
+                "Transaction store verification",
+                () -> assertEquals(10000, store.size()),
+                () -> assertEquals(19000, store.getEpochDay(0)),
+                () -> assertEquals("Deposit", store.getDescription(0)),
+                () -> assertEquals(5000, store.getAmountCents(5000)),
+                () -> assertEquals(6000, store.getNewBalanceCents(5000)),
+                () -> assertEquals("Transfer", store.getDescription(5000)),
+                () -> assertEquals(19999, node.epochDay),
+                () -> assertEquals("Deposit", node.description),
+                () -> assertEquals(10999, node.newBalance),
+                () -> assertEquals(TransactionStore.parseEpochDay(node.getDate()), node.epochDay)
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the transaction store refuses indexes outside its transactions.")
+    void testTransactionStoreBounds() {
+        TransactionStore store = new TransactionStore(0);
+        store.addTransaction(19000, "Deposit", 1, 1);
+        assertAll(
+                "Transaction store bounds verification",
+                () -> assertEquals(0, new TransactionStore(0).size()),
+                () -> assertThrows(IndexOutOfBoundsException.class, () -> store.getAmountCents(1)),
+                () -> assertThrows(IndexOutOfBoundsException.class, () -> store.get(-1))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure date range cursors include both bounds and are empty for empty or inverted ranges.")
+    void testTransactionCursorRanges() throws ParseException {
+        TransactionStore sorted = new TransactionStore(0);
+        int[] days = {10, 10, 12, 15, 20};
+        for (int i = 0; i < days.length; i++) sorted.addTransaction(days[i], "Deposit", 100, 100L * (i + 1));
+        assertAll(
+                "Transaction cursor verification",
+                () -> assertEquals(2, sorted.between(10, 10).remaining()),
+                () -> assertEquals(3, sorted.between(12, 20).remaining()),
+                () -> assertEquals(5, sorted.between(Integer.MIN_VALUE, Integer.MAX_VALUE).remaining()),
+                () -> assertEquals(0, sorted.between(11, 11).remaining()),
+                () -> assertEquals(0, sorted.between(0, 9).remaining()),
+                () -> assertEquals(0, sorted.between(21, 30).remaining()),
+                () -> assertEquals(0, sorted.between(15, 12).remaining()),
+                () -> assertEquals(0, new TransactionStore(0).between(0, 100).remaining()),
+                () -> assertEquals(3, sorted.getTransactionsBetweenDates("01-11-1970", "01-13-1970").remaining())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure date range cursors follow date order over transactions appended out of order.")
+    void testTransactionCursorDateOrder() {
+        // deposits appended out of date order
+        TransactionStore unsorted = new TransactionStore(0);
+        int[] backdated = {20, 10, 15, 10, 12};
+        for (int i = 0; i < backdated.length; i++) unsorted.addTransaction(backdated[i], "Deposit", 100, 100L * (i + 1));
+        List<Integer> indexes = new ArrayList<>();
+        List<Long> balances = new ArrayList<>();
+        TransactionCursor cursor = unsorted.between(10, 12);
+        int before = cursor.remaining();
+        while (cursor.next()) {
+            indexes.add(cursor.index());
+            balances.add(cursor.getNewBalanceCents());
+        }
+        assertAll(
+                "Transaction cursor order verification",
+                () -> assertEquals(3, before),
+                () -> assertEquals(List.of(1, 3, 4), indexes),
+                () -> assertEquals(List.of(100L, 200L, 300L), balances),
+                () -> assertFalse(cursor.next()),
+                () -> assertThrows(IllegalStateException.class, cursor::index),
+                () -> assertEquals(0, unsorted.between(16, 19).remaining()),
+                () -> assertEquals(5, unsorted.between(Integer.MIN_VALUE, Integer.MAX_VALUE).remaining())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure statements open with the balance before their period and continue from the last one issued.")
+    void testStatementCheckpoints() throws ParseException {
+        TransactionStore store = new TransactionStore(5000);
+        int january = TransactionStore.parseEpochDay("01-01-2024"), february = TransactionStore.parseEpochDay("02-01-2024");
+        int march = TransactionStore.parseEpochDay("03-01-2024");
+        for (int day = 0; day < 90; day++) store.addTransaction(january + day, "Deposit of funds", 100, 5000 + 100 * (day + 1));
+        TransactionStore.Period jan = store.statement(january, february - 1);
+        TransactionStore.Period feb = store.statement(february, march - 1);
+        int febCount = feb.getTransactions().remaining();
+        // a transaction dated back into february drops the checkpoint
+        store.addTransaction(february + 3, "Deposit of funds", 1, 14001);
+        TransactionStore.Period mar = store.statement(march, march + 30);
+        TransactionStore.Period again = store.statement(february, march - 1);
+        assertAll(
+                "Statement checkpoint verification",
+                () -> assertEquals(5000, jan.getOpeningBalanceCents()),
+                () -> assertEquals(8100, jan.getClosingBalanceCents()),
+                () -> assertFalse(jan.isResumed()),
+                () -> assertTrue(feb.isResumed()),
+                () -> assertEquals(8100, feb.getOpeningBalanceCents()),
+                () -> assertEquals(11000, feb.getClosingBalanceCents()),
+                () -> assertEquals(29, febCount),
+                () -> assertFalse(mar.isResumed()),
+                () -> assertEquals(11001, mar.getOpeningBalanceCents()),
+                () -> assertEquals(14001, mar.getClosingBalanceCents()),
+                () -> assertEquals(30, mar.getTransactions().remaining()),
+                () -> assertEquals(30, again.getTransactions().remaining()),
+                () -> assertEquals(8100, again.getOpeningBalanceCents()),
+                () -> assertEquals(11001, again.getClosingBalanceCents())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure the balance as of a day comes from the history, including days before, between and after transactions.")
+    void testBalanceAsOf() throws ParseException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(21, "Grace", "Murray", "9-Dec-06", "16 Cobol Ct", "(915) 555-0116", 10401, 20000, 10402, 0, 10403, 1000, 0, "compiler");
+        Customer grace = db.getCustomers().get("gracemurray");
+        Account checking = db.getAccount(AccountKind.CHECKING, 10401);
+        Account savings = db.getAccount(AccountKind.SAVINGS, 10402);
+        for (String date : new String[]{"2024-03-01", "2024-03-01", "2024-03-15", "2024-04-02"}) {
+            BankClock.getInstance().setClock(Clock.fixed(Instant.parse(date + "T12:00:00Z"), ZoneOffset.UTC));
+            try {
+                grace.transfer(checking, savings, 10);
+            } finally {
+                BankClock.getInstance().reset();
+            }
+        }
+        int before = TransactionStore.parseEpochDay("02-29-2024"), first = TransactionStore.parseEpochDay("03-01-2024");
+        int between = TransactionStore.parseEpochDay("03-20-2024"), last = TransactionStore.parseEpochDay("04-02-2024");
+        assertAll(
+                "Balance as of verification",
+                () -> assertEquals(20000, checking.getBalanceCentsAsOf(before)),
+                () -> assertEquals(18000, checking.getBalanceCentsAsOf(first)),
+                () -> assertEquals(17000, checking.getBalanceCentsAsOf(between)),
+                () -> assertEquals(16000, checking.getBalanceCentsAsOf(last)),
+                () -> assertEquals(checking.getBalanceCents(), checking.getBalanceCentsAsOf(Integer.MAX_VALUE)),
+                () -> assertEquals(3000, savings.getBalanceCentsAsOf(between))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a back-dated transaction counts toward the balances of the days after its date, not after its appending.")
+    void testBackdatedBalances() {
+        TransactionStore store = new TransactionStore(0);
+        store.addTransaction(10, "Deposit of funds", 100, 100);
+        store.addTransaction(5, "Deposit of funds", 50, 150);
+        store.addTransaction(12, "Withdrawal of funds", 30, 120);
+        TransactionCursor cursor = store.between(0, 20);
+        List<Long> balances = new ArrayList<>();
+        while (cursor.next()) balances.add(cursor.getNewBalanceCents());
+        TransactionStore.Period period = store.statement(6, 10);
+        assertAll(
+                "Back-dated balance verification",
+                () -> assertEquals(0, store.balanceAsOf(4)),
+                () -> assertEquals(50, store.balanceAsOf(7)),
+                () -> assertEquals(150, store.balanceAsOf(10)),
+                () -> assertEquals(120, store.balanceAsOf(Integer.MAX_VALUE)),
+                () -> assertEquals(List.of(50L, 150L, 120L), balances),
+                () -> assertEquals(50, period.getOpeningBalanceCents()),
+                () -> assertEquals(150, period.getClosingBalanceCents())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a customer report patch rewrites only changed customers and matches a full export.")
+    void testReportExport() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(21, "Grace", "Murray", "9-Dec-06", "16 Cobol Ct", "(915) 555-0116", 10401, 20000, 10402, 0, 10403, 1000, 0, "compiler");
+        db.addCustomer(22, "edsger", "dijkstra", "11-May-30", "1 go to st, austin", "(915) 555-0117", 10501, 5000, 10502, 0, 10503, 2000, 0, "shortest");
+        Customer grace = db.getCustomers().get("gracemurray");
+        ReportExporter exporter = new ReportExporter(db.getCustomers().values());
+        Path directory = Files.createTempDirectory("EPMB_Test_Report");
+        Path report = directory.resolve("report.csv"), full = directory.resolve("full.csv");
+        int exported = exporter.exportAll(report);
+        List<String> before = Files.readAllLines(report);
+        int unchanged = exporter.patch(report);
+        grace.deposit(grace.getAccounts().get(0), 25);
+        int patched = exporter.patch(report);
+        List<String> after = Files.readAllLines(report);
+        exporter.exportAll(full);
+        List<String> expected = Files.readAllLines(full);
+        for (Path file : new Path[]{report, full}) {
+            file.toFile().setWritable(true);
+            Files.delete(file);
+        }
+        Files.delete(directory);
+        assertAll(
+                "Report export verification",
+                () -> assertEquals(2, exported),
+                () -> assertEquals(ReportExporter.HEADER, before.get(0)),
+                () -> assertTrue(before.contains("22,Edsger,Dijkstra,11-May-30,\"1 Go To St, Austin\",(915) 555-0117,10501,50.00,10502,0.00,10503,2000.0,0.00")),
+                () -> assertEquals(0, unchanged),
+                () -> assertEquals(1, patched),
+                () -> assertEquals(expected, after),
+                () -> assertTrue(after.contains("21,Grace,Murray,9-Dec-06,16 Cobol Ct,(915) 555-0116,10401,225.00,10402,0.00,10403,1000.0,0.00"))
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a delta export does not hide a change from the next patch of the report.")
+    void testReportDeltaThenPatch() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(21, "Grace", "Murray", "9-Dec-06", "16 Cobol Ct", "(915) 555-0116", 10401, 20000, 10402, 0, 10403, 1000, 0, "compiler");
+        db.addCustomer(22, "Edsger", "Dijkstra", "11-May-30", "1 Go To St", "(915) 555-0117", 10501, 5000, 10502, 0, 10503, 2000, 0, "shortest");
+        Customer grace = db.getCustomers().get("gracemurray");
+        ReportExporter exporter = new ReportExporter(db.getCustomers().values());
+        Path directory = Files.createTempDirectory("EPMB_Test_Report");
+        Path report = directory.resolve("report.csv"), delta = directory.resolve("delta.csv");
+        exporter.exportAll(report);
+        int firstDelta = exporter.exportChanged(delta);
+        grace.deposit(grace.getAccounts().get(1), 0.5);
+        int secondDelta = exporter.exportChanged(delta);
+        List<String> deltaLines = Files.readAllLines(delta);
+        int patched = exporter.patch(report);
+        List<String> reportLines = Files.readAllLines(report);
+        for (Path file : new Path[]{report, delta}) {
+            file.toFile().setWritable(true);
+            Files.delete(file);
+        }
+        Files.delete(directory);
+        assertAll(
+                "Delta then patch verification",
+                () -> assertEquals(2, firstDelta),
+                () -> assertEquals(1, secondDelta),
+                () -> assertEquals(List.of(ReportExporter.HEADER, "21,Grace,Murray,9-Dec-06,16 Cobol Ct,(915) 555-0116,10401,200.00,10402,0.50,10403,1000.0,0.00"), deltaLines),
+                () -> assertEquals(1, patched),
+                () -> assertTrue(reportLines.contains("21,Grace,Murray,9-Dec-06,16 Cobol Ct,(915) 555-0116,10401,200.00,10402,0.50,10403,1000.0,0.00")),
+                () -> assertTrue(exporter.changed(ReportExporter.Target.REPORT).isEmpty()),
+                () -> assertTrue(exporter.changed(ReportExporter.Target.DELTA).isEmpty())
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure an export that cannot replace its target marks no account as written.")
+    void testReportFailedExport() throws IOException {
+        BankDatabase db = BankDatabase.getInstance();
+        db.clear();
+        db.addCustomer(21, "Grace", "Murray", "9-Dec-06", "16 Cobol Ct", "(915) 555-0116", 10401, 20000, 10402, 0, 10403, 1000, 0, "compiler");
+        Customer grace = db.getCustomers().get("gracemurray");
+        ReportExporter exporter = new ReportExporter(db.getCustomers().values());
+        Path directory = Files.createTempDirectory("EPMB_Test_Report");
+        // a folder that is not empty cannot be replaced by the finished file
+        Path blocked = directory.resolve("blocked.csv"), inside = blocked.resolve("keep.txt");
+        Files.createDirectories(blocked);
+        Files.writeString(inside, "keep");
+        grace.deposit(grace.getAccounts().get(0), 25);
+        boolean failed = false;
+        try {
+            exporter.exportAll(blocked);
+        } catch (IOException e) {
+            failed = true;
+        }
+        boolean thrown = failed;
+        boolean tempLeft = Files.exists(directory.resolve("blocked.csv.tmp"));
+        int changed = exporter.changed(ReportExporter.Target.REPORT).size();
+        Files.delete(inside);
+        Files.delete(blocked);
+        Files.delete(directory);
+        assertAll(
+                "Failed export verification",
+                () -> assertTrue(thrown),
+                () -> assertFalse(tempLeft),
+                () -> assertEquals(1, changed)
+        );
+    }
+
+    @Test
+    @DisplayName("Ensure a partitioned parallel batch ends like a sequential one.")
+    void testPartitionedBatchDeterminism() throws IOException {
+        // random pays, transfers, withdrawals and deposits inside four clusters of ten customers, so rows both merge and stay apart
+        String[] kinds = {"Checking", "Savings", "Credit"};
+        String[] actions = {"pays", "transfers", "withdraws", "deposits", "inquires"};
+        Random random = new Random(11);
+        StringBuilder csv = new StringBuilder("From First Name,From Last Name,From Where,Action,To First Name,To Last Name,To Where,Action Amount\n");
+        for (int i = 0; i < 4000; i++) {
+            String action = actions[random.nextInt(actions.length)];
+            int from = random.nextInt(40), to = (action.equals("transfers")) ? from : from / 10 * 10 + random.nextInt(10);
+            String fromWhere = kinds[random.nextInt(3)], toWhere = kinds[random.nextInt(3)];
+            String amount = (random.nextInt(200) == 0) ? "abc" : String.valueOf(random.nextInt(90000) / 100.0);
+            if (action.equals("deposits")) csv.append(",,,deposits,Batch,Customer").append(to).append(',').append(toWhere);
+            else if (action.equals("pays") || action.equals("transfers")) csv.append("Batch,Customer").append(from).append(',').append(fromWhere).append(',').append(action).append(",Batch,Customer").append(to).append(',').append(toWhere);
+            else csv.append("Batch,Customer").append(from).append(',').append(fromWhere).append(',').append(action).append(",,,");
+            csv.append(',').append(action.equals("inquires") ? "" : amount).append('\n');
+        }
+        Path file = Path.of("Transactions/EPMB_Test_Partitioned.csv");
+        Files.writeString(file, csv);
+        Supplier<Map<String, String>> state = () -> {
+            Map<String, String> accounts = new TreeMap<>();
+            BankDatabase.getInstance().getAccounts().forEach(account -> {
+                StringBuilder history = new StringBuilder().append(account.getBalanceCents());
+                TransactionStore list = account.getTransactionList();
+                for (int i = 0; i < list.size(); i++) history.append('|').append(list.getDescription(i)).append(' ').append(list.getAmountCents(i)).append(' ').append(list.getNewBalanceCents(i));
+                accounts.put(account.getType() + account.getAccountNumber(), history.toString());
+            });
+            return accounts;
+        };
+        Runnable reset = () -> {
+            BankDatabase db = BankDatabase.getInstance();
+            db.clear();
+            for (int c = 0; c < 40; c++) db.addCustomer(100 + c, "Batch", "Customer" + c, "1-Jan-00", "3 Batch Rd", "(915) 555-0103",
+                    1000 + c, 50000, 2000 + c, 50000, 3000 + c, 1000, -20000, "batch");
+        };
+        reset.run();
+        manager.transactFromFile("EPMB_Test_Partitioned");
+        Map<String, String> sequential = state.get();
+        reset.run();
+        int rows = manager.transactFromFile("EPMB_Test_Partitioned", new ForkJoinPool(4));
+        Map<String, String> parallel = state.get();
+        Files.delete(file);
+        Files.delete(BatchCheckpoint.pathFor(file));
+        Files.delete(BatchReport.pathFor(file));
+        assertAll(
+                "Partitioned batch verification",
+                () -> assertEquals(4000, rows),
+                () -> assertEquals(120, parallel.size()),
+                () -> assertEquals(sequential, parallel)
+        );
+    }
+}
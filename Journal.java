@@ -0,0 +1,514 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static java.lang.System.out;
+
+/**
+ * Append-only write-ahead journal of balance mutations. Every successful deposit, withdraw,
+ * transfer and send appends one record holding the resulting balance and transaction of each
+ * account it touched (see {@link TransferEngine}), and is only acknowledged once the record is on disk.
+ * A background writer group-commits everything waiting with a single force, and batch runs
+ * (e.g. transactFromFile) wait once at the end instead of once per mutation. Once a write fails
+ * the journal fails closed: waits report the records as not durable and every later mutation is
+ * refused, until the journal is opened again.
+ *
+ * Record layout: length, sequence number, entry count, then per entry the account kind and number,
+ * amount, new balance, day and description, followed by the CRC32 of the record.
+ * On startup the records newer than the loaded snapshot are replayed; a torn tail is cut off.
+ * The journal does nothing until it is opened.
+ */
+public class Journal {
+
+    /**
+     * Default location of the journal, next to the snapshot it continues.
+     */
+    public static final Path DEFAULT_PATH = Path.of("BankSnapshots", "EPMB_Journal.bin");
+
+    /**
+     * Records waiting before appending blocks.
+     */
+    private static final int CAPACITY = 8192;
+
+    /**
+     * Why operations are refused once a write of the journal failed.
+     */
+    public static final String FAILED_MESSAGE = "The journal could not record every operation, operations are refused until it is opened again.";
+
+    /**
+     * Entries one record can hold, as its entry count is a single byte.
+     */
+    public static final int MAX_ENTRIES = Byte.MAX_VALUE;
+
+    /**
+     * UTF-8 bytes a description can take, as its length is an unsigned short.
+     */
+    public static final int MAX_DESCRIPTION_BYTES = 0xFFFF;
+
+    /**
+     * One instance of the journal, created eagerly so every operation looks it up without a lock.
+     */
+    private static final Journal INSTANCE = new Journal();
+
+    /**
+     * Per thread: batches being run (waits are deferred while above zero) and the last record committed in them.
+     */
+    private final ThreadLocal<long[]> batch = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * Orders appends so records are queued in sequence order.
+     */
+    private final Object appendLock = new Object();
+
+    /**
+     * Encoded records waiting to be written.
+     */
+    private ArrayBlockingQueue<byte[]> queue;
+
+    /**
+     * Thread writing the queued records, null while the journal is closed.
+     */
+    private volatile Thread writer;
+
+    /**
+     * Flag telling the writer to stop once the queue is empty.
+     */
+    private volatile boolean stopping;
+
+    /**
+     * Channel of the journal file.
+     */
+    private FileChannel channel;
+
+    /**
+     * Sequence number of the last record appended.
+     */
+    private long lastSeq;
+
+    /**
+     * Sequence number of the last record forced to disk.
+     */
+    private volatile long durableSeq;
+
+    /**
+     * Flag if a write failed and records are no longer made durable.
+     */
+    private volatile boolean failed;
+
+    /**
+     * Initialize the journal singleton, closed.
+     */
+    private Journal() {
+        /* opened by open() */
+    }
+
+    /**
+     * Returns the singleton instance of the journal.
+     *
+     * @return The singleton instance of Journal.
+     */
+    public static Journal getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Replay a journal onto the loaded database, then open it for appending.
+     *
+     * @param path      journal file.
+     * @param afterSeq  sequence number already contained in the loaded state (0 after a csv import).
+     * @return          number of records replayed.
+     * @throws IOException if the journal cannot be read or opened.
+     */
+    public int open(Path path, long afterSeq) throws IOException {
+        return this.open(path, afterSeq, Long.MAX_VALUE);
+    }
+
+    /**
+     * Replay a journal onto the loaded database up to a sequence number, drop the records after it,
+     * then open it for appending (e.g. to roll back to where an interrupted batch run was checkpointed).
+     *
+     * @param path      journal file.
+     * @param afterSeq  sequence number already contained in the loaded state (0 after a csv import).
+     * @param upToSeq   last sequence number to keep.
+     * @return          number of records replayed.
+     * @throws IOException if the journal cannot be read or opened.
+     */
+    public synchronized int open(Path path, long afterSeq, long upToSeq) throws IOException {
+        if (writer != null) throw new IOException("Journal is already open.");
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int replayed = replay(afterSeq, upToSeq);
+        synchronized (appendLock) {
+            this.lastSeq = Math.max(this.lastSeq, afterSeq);
+            this.durableSeq = this.lastSeq;
+        }
+        this.queue = new ArrayBlockingQueue<>(CAPACITY);
+        this.failed = false;
+        this.stopping = false;
+        this.writer = new Thread(this::writeLoop, "EPMB-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        return replayed;
+    }
+
+    /**
+     * Check if a write failed, so operations can no longer be recorded.
+     *
+     * @return true once a write failed, until the journal is closed or opened again.
+     */
+    public boolean isFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Get the sequence number of the last record appended.
+     *
+     * @return last sequence number, 0 if none.
+     */
+    public long lastSeq() {
+        synchronized (appendLock) {
+            return this.lastSeq;
+        }
+    }
+
+    /**
+     * Queue a record of the last transaction of each account of one mutation without waiting,
+     * e.g. while the accounts are still locked so records follow the order mutations were applied.
+     *
+     * @param accounts  accounts the mutation changed, each with its new transaction added.
+     * @return          sequence number of the record, 0 if the journal is closed or failed.
+     */
+    public long record(Account... accounts) {
+        int[] nodes = new int[accounts.length];
+        for (int i = 0; i < accounts.length; i++) nodes[i] = accounts[i].getTransactionList().size() - 1;
+        synchronized (appendLock) {
+            return appendLocked(accounts, nodes, 0, accounts.length);
+        }
+    }
+
+    /**
+     * Queue one record holding several transactions without waiting, e.g. many rows of a netted batch.
+     * Entries replay in order, so an account may appear more than once.
+     *
+     * @param accounts  account of each entry.
+     * @param nodes     index of each entry's transaction in its account's transaction list.
+     * @param from      first entry of the record.
+     * @param to        entry after the last one, at most {@value #MAX_ENTRIES} after from.
+     * @return          sequence number of the record, 0 if the journal is closed or failed.
+     */
+    public long record(Account[] accounts, int[] nodes, int from, int to) {
+        if (to - from > MAX_ENTRIES) throw new IllegalArgumentException("A record holds at most " + MAX_ENTRIES + " entries");
+        synchronized (appendLock) {
+            return appendLocked(accounts, nodes, from, to);
+        }
+    }
+
+    /**
+     * Check if a transaction description fits in a record, so operations can refuse it before changing anything.
+     *
+     * @param description   description of a transaction.
+     * @return              true if its UTF-8 bytes fit the record's length field.
+     */
+    static boolean fits(String description) {
+        // a UTF-16 unit takes at most three UTF-8 bytes, so short strings need no encoding
+        return description.length() <= MAX_DESCRIPTION_BYTES / 3 || description.getBytes(StandardCharsets.UTF_8).length <= MAX_DESCRIPTION_BYTES;
+    }
+
+    /**
+     * Wait until a record is durable, unless the current thread is inside a batch.
+     *
+     * @param seq   sequence number of the record, 0 for none.
+     * @return      false if the journal failed, so the record is not durable and must not be acknowledged.
+     */
+    public boolean awaitCommitted(long seq) {
+        // a failed journal hands out no sequence number, so a missing one is not a success either
+        if (seq == 0) return !failed;
+        long[] state = batch.get();
+        if (state[0] == 0) return awaitDurable(seq);
+        state[1] = Math.max(state[1], seq);
+        return !failed;
+    }
+
+    /**
+     * Wait until every record appended so far is durable, even inside a batch.
+     *
+     * @return sequence number of the last record appended, 0 if none.
+     * @throws IOException if the journal failed before they were durable.
+     */
+    public long sync() throws IOException {
+        long seq = this.lastSeq();
+        if (failed || (seq > 0 && !awaitDurable(seq))) throw new IOException(FAILED_MESSAGE);
+        return seq;
+    }
+
+    /**
+     * Start a batch on the current thread: commits stop waiting until the batch ends.
+     */
+    public void beginBatch() {
+        batch.get()[0]++;
+    }
+
+    /**
+     * End a batch on the current thread, waiting once for everything it committed.
+     *
+     * @return false if the journal failed, so what the batch committed is not durable.
+     */
+    public boolean endBatch() {
+        long[] state = batch.get();
+        if (--state[0] > 0 || state[1] == 0) return !failed;
+        long seq = state[1];
+        state[1] = 0;
+        return awaitDurable(seq);
+    }
+
+    /**
+     * Drop every record, once a snapshot holding them has been written.
+     *
+     * @param upToSeq   sequence number contained in the snapshot.
+     * @throws IOException if the journal cannot be truncated.
+     */
+    public void checkpoint(long upToSeq) throws IOException {
+        // hold back appends so the writer is idle while the file is cut
+        synchronized (appendLock) {
+            if (writer == null) return;
+            awaitDurable(upToSeq);
+            // records appended after the snapshot was taken must survive
+            if (lastSeq > upToSeq || durableSeq < lastSeq) return;
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Write out every queued record and close the journal.
+     */
+    public void close() {
+        Thread closing;
+        long seq;
+        synchronized (appendLock) {
+            closing = writer;
+            if (closing == null) return;
+            seq = lastSeq;
+            // refuse new records
+            writer = null;
+        }
+        stopping = true;
+        try {
+            closing.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            out.println("An error occurred while closing the journal: " + e.getMessage());
+        }
+        if (durableSeq < seq) out.println("Warning: the journal could not record every operation before closing.");
+        // a closed journal records nothing, so it refuses nothing either
+        failed = false;
+    }
+
+    /**
+     * Encode and queue one record while holding the append lock.
+     *
+     * @param accounts  account of each entry.
+     * @param nodes     index of each entry's transaction in its account's transaction list.
+     * @param from      first entry of the record.
+     * @param to        entry after the last one.
+     * @return          sequence number of the record, 0 if the journal is closed.
+     * @throws IllegalArgumentException if a description is longer than {@value #MAX_DESCRIPTION_BYTES} bytes.
+     */
+    private long appendLocked(Account[] accounts, int[] nodes, int from, int to) {
+        if (writer == null || failed) return 0;
+        byte[][] descriptions = new byte[to - from][];
+        int length = Long.BYTES + 1 + Integer.BYTES;
+        for (int i = from; i < to; i++) {
+            descriptions[i - from] = accounts[i].getTransactionList().getDescription(nodes[i]).getBytes(StandardCharsets.UTF_8);
+            // a longer one would wrap its length and corrupt every record after it on replay
+            if (descriptions[i - from].length > MAX_DESCRIPTION_BYTES) {
+                throw new IllegalArgumentException("Description too long for the journal: " + descriptions[i - from].length + " bytes.");
+            }
+            length += 1 + Integer.BYTES + 2 * Long.BYTES + Integer.BYTES + Short.BYTES + descriptions[i - from].length;
+        }
+        long seq = ++lastSeq;
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length);
+        record.putInt(length).putLong(seq).put((byte) (to - from));
+        for (int i = from; i < to; i++) {
+            TransactionStore store = accounts[i].getTransactionList();
+            byte[] description = descriptions[i - from];
+            record.put(AccountKind.of(accounts[i]).code()).putInt(accounts[i].getAccountNumber())
+                    .putLong(store.getAmountCents(nodes[i])).putLong(store.getNewBalanceCents(nodes[i]))
+                    .putInt(store.getEpochDay(nodes[i])).putShort((short) description.length).put(description);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), Integer.BYTES, length - Integer.BYTES);
+        record.putInt((int) crc.getValue());
+        try {
+            queue.put(record.array());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return seq;
+    }
+
+    /**
+     * Wait until a record has been forced to disk.
+     *
+     * @param seq   sequence number of the record.
+     * @return      true if it is durable, false if the journal failed or closed first.
+     */
+    private synchronized boolean awaitDurable(long seq) {
+        try {
+            while (durableSeq < seq && !failed && !stopping) wait(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return durableSeq >= seq;
+    }
+
+    /**
+     * Mark records as durable and wake anyone waiting on them.
+     *
+     * @param seq   sequence number of the last record forced.
+     */
+    private synchronized void markDurable(long seq) {
+        durableSeq = seq;
+        notifyAll();
+    }
+
+    /**
+     * Writer loop: take whatever is queued, write it in one go and force it once.
+     */
+    private void writeLoop() {
+        ArrayList<byte[]> pending = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try {
+            while (true) {
+                byte[] first = queue.poll(100, TimeUnit.MILLISECONDS);
+                // stop once closed and nothing is left
+                if (first == null) {
+                    if (stopping) break;
+                    continue;
+                }
+                pending.add(first);
+                queue.drainTo(pending);
+                long seq = 0;
+                for (byte[] record : pending) {
+                    if (buffer.remaining() < record.length) {
+                        drain(buffer);
+                        if (buffer.capacity() < record.length) buffer = ByteBuffer.allocate(record.length);
+                    }
+                    buffer.put(record);
+                    seq = ByteBuffer.wrap(record).getLong(Integer.BYTES);
+                }
+                pending.clear();
+                drain(buffer);
+                channel.force(false);
+                markDurable(seq);
+            }
+        } catch (IOException e) {
+            this.fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.fail(new IOException("interrupted"));
+        }
+    }
+
+    /**
+     * Stop recording after a write failed: waiting records are dropped and never reported durable,
+     * and every later mutation is refused.
+     *
+     * @param e the failure.
+     */
+    void fail(IOException e) {
+        out.println("An error occurred while writing the journal: " + e.getMessage());
+        failed = true;
+        queue.clear();
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Write out everything in the buffer.
+     *
+     * @param buffer    buffer holding encoded records.
+     * @throws IOException if the write fails.
+     */
+    private void drain(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Apply every intact record in a range of sequence numbers to the database, then cut off the rest.
+     *
+     * @param afterSeq  sequence number already contained in the loaded state.
+     * @param upToSeq   last sequence number to keep.
+     * @return          number of records applied.
+     * @throws IOException if the journal cannot be read.
+     */
+    private int replay(long afterSeq, long upToSeq) throws IOException {
+        long size = channel.size(), position = 0;
+        int applied = 0;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+        while (position + Integer.BYTES <= size) {
+            lengthBuffer.clear();
+            channel.read(lengthBuffer, position);
+            int length = lengthBuffer.getInt(0);
+            if (length < Long.BYTES + 1 + Integer.BYTES || position + Integer.BYTES + length > size) break;
+            ByteBuffer record = ByteBuffer.allocate(length);
+            while (record.hasRemaining() && channel.read(record, position + Integer.BYTES + record.position()) > 0) {
+                /* keep reading */
+            }
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, length - Integer.BYTES);
+            if (record.getInt(length - Integer.BYTES) != (int) crc.getValue()) break;
+            record.flip();
+            long seq = record.getLong();
+            if (seq > upToSeq) break;
+            if (seq > afterSeq && apply(record)) applied++;
+            lastSeq = Math.max(lastSeq, seq);
+            position += Integer.BYTES + length;
+        }
+        // a record cut short by a crash was never acknowledged, records past upToSeq are rolled back
+        if (position < size) channel.truncate(position);
+        channel.position(position);
+        return applied;
+    }
+
+    /**
+     * Apply the entries of one record to their accounts.
+     *
+     * @param record    record positioned after its sequence number.
+     * @return          true if every account was found.
+     */
+    private static boolean apply(ByteBuffer record) {
+        int entries = record.get();
+        boolean found = true;
+        for (int i = 0; i < entries; i++) {
+            AccountKind kind = AccountKind.fromCode(record.get());
+            int accNum = record.getInt();
+            long amount = record.getLong(), newBalance = record.getLong();
+            int epochDay = record.getInt();
+            byte[] description = new byte[record.getShort() & 0xFFFF];
+            record.get(description);
+            Account account = BankDatabase.getInstance().getAccount(kind, accNum);
+            if (account == null) {
+                found = false;
+                continue;
+            }
+            account.balance = newBalance;
+            account.getTransactionList().addTransaction(epochDay, new String(description, StandardCharsets.UTF_8), amount, newBalance);
+        }
+        return found;
+    }
+}
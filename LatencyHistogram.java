@@ -0,0 +1,121 @@
+/**
+ * Histogram of latencies in nanoseconds with a fixed memory footprint. Values below 32 are counted
+ * exactly; above, every power of two is split into 32 buckets, so any percentile is reported within
+ * about 3% of the true value while recording stays one array increment. Not thread-safe: each
+ * histogram is recorded by one thread.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Bits of sub-bucket precision within a power of two.
+     */
+    private static final int SUB_BITS = 5;
+
+    /**
+     * Sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * Count of values per bucket.
+     */
+    private final long[] counts = new long[(Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS];
+
+    /**
+     * Values recorded.
+     */
+    private long count;
+
+    /**
+     * Sum of the values recorded.
+     */
+    private long total;
+
+    /**
+     * Largest value recorded.
+     */
+    private long max;
+
+    /**
+     * Record one value.
+     *
+     * @param nanos latency, negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucket(value)]++;
+        count++;
+        total += value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * Get the number of values recorded.
+     *
+     * @return number of values.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Get the largest value recorded.
+     *
+     * @return largest value, 0 if none.
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Get the mean of the values recorded.
+     *
+     * @return mean value, 0 if none.
+     */
+    public long getMean() {
+        return (count == 0) ? 0 : total / count;
+    }
+
+    /**
+     * Get the value at or below which a fraction of the values fall.
+     *
+     * @param fraction  fraction of the values, e.g. 0.99 for the 99th percentile.
+     * @return          upper bound of the bucket holding that value (never above the max), 0 if none.
+     */
+    public long percentile(double fraction) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Get the bucket of a value.
+     *
+     * @param value non-negative value.
+     * @return      index of its bucket.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    /**
+     * Get the largest value a bucket holds.
+     *
+     * @param bucket    index of the bucket.
+     * @return          largest value of the bucket.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = (bucket >> SUB_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
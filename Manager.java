@@ -7,8 +7,12 @@
 // Lab Description: This lab is meant to demonstrate our knowledge in object-oriented concepts such as inheritance, polymorphism, UML diagrams, interfaces, design patterns, and more through coding our own implementation of a bank system of which deposits, withdraws, transfer, pays, and generates various files. This lab also included concepts of logging, testing with JUnit, debugging, file reading, error handling and JavaDoc.
 // Honesty Statement: We affirm that we have completed this assignment entirely on our own, without any assistance from outside sources, including peers, experts, online resources, or other means. All code and ideas were that of our own work, and we have followed proper academic integrity.
  */
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Dictionary;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 /**
  * Represents a manager.
@@ -37,123 +41,258 @@ public class Manager implements Person{
     }
 
     /**
-     * Performs transaction from a provided file.
+     * Performs transaction from a provided file without printing anything. If an earlier run over
+     * the same, unchanged file did not finish, only the rows after its last checkpoint are performed.
      *
      * @param filename  file that has the transactions.
      */
     public void transactFromFile(String filename) {
+        this.transactFromFile(filename, OperationListener.NONE);
+    }
+
+    /**
+     * Performs transaction from a provided file, reporting every row to a listener. If an earlier run over
+     * the same, unchanged file did not finish, only the rows after its last checkpoint are performed.
+     * A json report of the run is written next to the file (see {@link BatchReport}).
+     *
+     * @param filename  file that has the transactions.
+     * @param listener  listener told what each row did, e.g. a ConsoleRenderer to print the accounts.
+     */
+    public void transactFromFile(String filename, OperationListener listener) {
+        try {
+            Path file = Path.of("Transactions/" + filename + ".csv");
+            TransactionPipeline pipeline = new TransactionPipeline(this, new FileHandler(), listener);
+            pipeline.run(file, true);
+            pipeline.getReport().write(BatchReport.pathFor(file));
+        } catch (IOException e) {
+            System.out.println("Error loading from file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Performs every pending file of the transactions folder, moving each one to its archive folder with its
+     * json report once it ran. Files are read ahead concurrently and their rows applied on a pool as large as the
+     * machine: each account sees the rows of all files ordered by file modification time, then row, without
+     * printing the accounts. A file an earlier run stopped partway through continues after its checkpoint.
+     *
+     * @return  a summary per file, oldest first; empty if the folder cannot be listed.
+     */
+    public List<DirectoryIngest.FileSummary> transactFromDirectory() {
+        try (ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+            return new DirectoryIngest(this, new FileHandler(), Path.of("Transactions")).run(pool);
+        } catch (IOException e) {
+            System.out.println("Error loading from file: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Generates the bank statement of every customer a filter accepts, as generating a statement for all
+     * accounts of each of them would, on a pool as large as the machine.
+     *
+     * @param startDay  start range, as days since 1970-01-01.
+     * @param endDay    end range, as days since 1970-01-01.
+     * @param filter    customers to generate a statement for.
+     * @param progress  told how many statements are written, from the pool's threads.
+     * @return          what the run wrote and how fast, null if the statement folder cannot be created.
+     */
+    public StatementJob.Result generateStatements(int startDay, int endDay, Predicate<Customer> filter, StatementJob.Progress progress) {
+        try (ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+            return new StatementJob(new FileHandler(), Path.of("BankStatements"), startDay, endDay)
+                    .run(pool, BankDatabase.getInstance().getCustomers().values(), filter, progress);
+        } catch (IOException e) {
+            System.out.println("Error writing to file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Checks a provided file without performing it: every row is checked as it would run,
+     * against projected balances, and every failing row is written to one error file.
+     *
+     * @param filename  file that has the transactions.
+     * @return          rows checked, rows failing and the error file, null if the file cannot be read.
+     */
+    public TransactionValidator.Report validateFile(String filename) {
+        try {
+            return new TransactionValidator().validate(Path.of("Transactions/" + filename + ".csv"));
+        } catch (IOException e) {
+            System.out.println("Error loading from file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Performs transaction from a provided file in parallel, without printing the accounts.
+     * Rows touching no account in common run concurrently, while the rows of any one account
+     * run in file order, so balances and transaction histories end up as in {@link #transactFromFile(String)};
+     * only the order of lines across unrelated accounts in the logs may differ.
+     * A json report of the run is written next to the file (see {@link BatchReport}).
+     *
+     * @param filename  file that has the transactions.
+     * @param pool      pool running the independent groups of rows.
+     * @return          number of rows run.
+     */
+    public int transactFromFile(String filename, ForkJoinPool pool) {
         FileHandler fh = new FileHandler();
-        ArrayList<Dictionary<String, String>> allRecords = fh.getAllRecordsFromCSV("Transactions/"+filename);
-        // for every record dictionary in all the csv records
-        if (allRecords==null)return;
-        for (Dictionary<String, String> recordDict : allRecords) {
-            String fromCustomerName = (recordDict.get("From First Name") + recordDict.get("From Last Name")).toLowerCase();
-            Customer fromCustomer = BankDatabase.customers.get(fromCustomerName);
-            String toCustomerName = (recordDict.get("To First Name") + recordDict.get("To Last Name")).toLowerCase();
-            Customer toCustomer = BankDatabase.customers.get(toCustomerName);
-            String action = recordDict.get("Action").toLowerCase();
-            String fromAccountType = recordDict.get("From Where");
-            Account fromAccount = null;
-            // get source account if required
-            if (fromCustomer != null) {
-                for (Account account : fromCustomer.getAccounts()) {
-                    if (account.getType().equalsIgnoreCase(fromAccountType)) {
-                        fromAccount = account;
-                        break;
-                    }
-                }
-            }
-            Account toAccount = null;
-            String toAccountType = recordDict.get("To Where");
-            // get destination account if required
-            if (toCustomer != null) {
-                for (Account account : toCustomer.getAccounts()) {
-                    if (account.getType().equalsIgnoreCase(toAccountType)) {
-                        toAccount = account;
-                        break;
-                    }
+        try {
+            Path file = Path.of("Transactions/" + filename + ".csv");
+            BatchReport report = new BatchReport(OperationListener.NONE);
+            long started = System.nanoTime();
+            report.start(file);
+            // resolve every row first so the batch can see which accounts each one touches
+            ArrayList<TransactionRow> rows = this.resolveFile(file);
+            report.addPhase(BatchReport.Phase.RESOLVE, System.nanoTime() - started);
+            // the rows run on the pool's threads
+            OperationListener listener = report.synchronizedListener();
+            long applyStarted = System.nanoTime();
+            boolean recorded = new PartitionedBatch(rows).run(pool, row -> {
+                long rowStarted = System.nanoTime();
+                TransactionRow.Outcome outcome = this.applyRow(row, listener);
+                long nanos = System.nanoTime() - rowStarted;
+                synchronized (report) {
+                    report.count(outcome, nanos);
                 }
+                this.logRow(row, outcome, fh);
+            });
+            report.addPhase(BatchReport.Phase.APPLY, System.nanoTime() - applyStarted);
+            if (!recorded) System.out.println("Warning: " + Journal.FAILED_MESSAGE);
+            report.setWallNanos(System.nanoTime() - started);
+            report.write(BatchReport.pathFor(file));
+            return rows.size();
+        } catch (IOException e) {
+            System.out.println("Error loading from file: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Performs transaction from a provided file with netted balance changes, without printing the accounts.
+     * Each row is accepted or refused exactly as in {@link #transactFromFile(String)} and records its own
+     * transactions, but the balance of every account is written once per segment of rows and the journal
+     * packs many rows into each record, which suits files moving funds between the same accounts over and over.
+     * A json report of the run is written next to the file (see {@link BatchReport}).
+     *
+     * @param filename  file that has the transactions.
+     * @return          number of rows run.
+     */
+    public int transactFromFileNetted(String filename) {
+        FileHandler fh = new FileHandler();
+        try {
+            Path file = Path.of("Transactions/" + filename + ".csv");
+            BatchReport report = new BatchReport(OperationListener.NONE);
+            long started = System.nanoTime();
+            report.start(file);
+            ArrayList<TransactionRow> rows = this.resolveFile(file);
+            report.addPhase(BatchReport.Phase.RESOLVE, System.nanoTime() - started);
+            NettedBatch batch = new NettedBatch(rows);
+            long applyStarted = System.nanoTime();
+            TransactionRow.Outcome[] outcomes = batch.run(report);
+            report.addPhase(BatchReport.Phase.APPLY, System.nanoTime() - applyStarted);
+            long[] applyNanos = batch.getApplyNanos();
+            long logStarted = System.nanoTime();
+            for (int i = 0; i < outcomes.length; i++) {
+                report.count(outcomes[i], applyNanos[i]);
+                this.logRow(rows.get(i), outcomes[i], fh);
             }
-            double amount = recordDict.get("Action Amount").isEmpty() ? 0 : Double.parseDouble(recordDict.get("Action Amount"));
-            String amountStr = String.format("%.2f", amount);
-            boolean rc;
-            String err = "";
-            String err1 = "source not specified";
-            String err2 = "destination not specified";
-            String err3 = "source should not be specified";
-            String err4 = "destination should not be specified";
-            // switch based on transaction type
-            switch (action) {
-                case "pays":
-                    // check if send is successful
-                    if (fromCustomer != null){
-                        if (toCustomer != null) {
-                            rc = fromCustomer.send(fromAccount, toAccount, amount, toCustomer);
-                            if (!rc) fh.appendLog("EPMB_Error_Log", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "]" + " attempted to send funds to " + toCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "]" + ".");
-                            else {
-                                assert fromAccount != null;
-                                assert toAccount != null;
-                                fh.appendLog("EPMB_Transactions", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "] sent $" + amountStr + " from " + fromAccount.getType() + " [ID=" + fromAccount.getAccountNumber() + "]" + " to " + toCustomer.getFullName() + "'s " + "[ID=" + toCustomer.getId() + "] " + toAccount.getType() + " [ID=" + toAccount.getAccountNumber() + "]");
-                            }
-                        } else err = err2;
-                    } else err = err1;
-                    break;
-                case "transfers":
-                    // check if transfer is successful
-                    if (fromCustomer != null) {
-                        if (toCustomer != null) {
-                            rc = fromCustomer.transfer(fromAccount, toAccount, amount);
-                            if (!rc)
-                                fh.appendLog("EPMB_Error_Log", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "]" + " attempted to transfer invalidly.");
-                            else {
-                                assert toAccount != null;
-                                assert fromAccount != null;
-                                fh.appendLog("EPMB_Transactions", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "] transferred $" + amountStr +  " from " + fromAccount.getType() + " [ID=" + fromAccount.getAccountNumber() + "] to " + toAccount.getType() + " [ID=" + toAccount.getAccountNumber() + "]");
-                            }
-                        } else err = err2;
-                    } else err = err1;
-                    break;
-                case "inquires":
-                    // no checking, inquiring is free of charge
-                    if (fromCustomer != null){
-                        if (toCustomer == null){
-                            fromCustomer.viewAccount(fromAccount, true);
-                            assert fromAccount != null;
-                            fh.appendLog("EPMB_Transactions", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "] inquired the details of " + fromAccount.getType() + " [ID=" + fromAccount.getAccountNumber() +"]");
-                        } else err = err4;
-                    } else err = err1;
-                    break;
-                case "withdraws":
-                    // check if withdraw is successful
-                    if (fromCustomer != null) {
-                        if (toCustomer == null && toAccountType.isEmpty()) {
-                            rc = fromCustomer.withdraw(fromAccount, amount);
-                            if (!rc)
-                                fh.appendLog("EPMB_Error_Log", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "]" + " attempted to withdraw funds.");
-                            else {
-                                assert fromAccount != null;
-                                fh.appendLog("EPMB_Transactions", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "] withdrew $" + amountStr + " from " + fromAccount.getType() + " [ID=" + fromAccount.getAccountNumber() + "]");
-                            }
-                        } else err = err4;
-                    } else err = err1;
-                    break;
-                case "deposits":
-                    // check if deposit is successful
-                    if (toCustomer != null) {
-                        if (fromCustomer == null && fromAccountType.isEmpty()) {
-                            rc = toCustomer.deposit(toAccount, amount);
-                            if (!rc) fh.appendLog("EPMB_Error_Log", toCustomer.getFullName()+ " [ID=" + toCustomer.getId() + "]" + " attempted to deposit funds.");
-                            else {
-                                assert toAccount != null;
-                                fh.appendLog("EPMB_Transactions", toCustomer.getFullName() + " [ID=" + toCustomer.getId() + "] deposited $" + amountStr + " to " + toAccount.getType() + " [ID=" + toAccount.getAccountNumber() +"]");
-                            }
-                        } else err = err3;
-                    } else err = err2;
-                    break;
-                default:
-                    System.out.println("Invalid action: " + action);
+            report.addPhase(BatchReport.Phase.LOG, System.nanoTime() - logStarted);
+            if (!batch.isRecorded()) System.out.println("Warning: " + Journal.FAILED_MESSAGE);
+            report.setWallNanos(System.nanoTime() - started);
+            report.write(BatchReport.pathFor(file));
+            return rows.size();
+        } catch (IOException e) {
+            System.out.println("Error loading from file: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Read and resolve every row of a transaction file, in one pass.
+     *
+     * @param file  transaction csv.
+     * @return      resolved rows in file order.
+     * @throws IOException if the file cannot be read.
+     */
+    private ArrayList<TransactionRow> resolveFile(Path file) throws IOException {
+        ArrayList<TransactionRow> rows = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(file)) {
+            int[] cols = TransactionRow.columns(reader);
+            while (reader.next()) rows.add(TransactionRow.parse(reader.row(), cols));
+        }
+        return rows;
+    }
+
+    /**
+     * Apply one row of a transaction file to the accounts, without logging it.
+     *
+     * @param row           resolved row of the transaction file.
+     * @param listener      listener told what the row did.
+     * @return              whether the row was applied, rejected by an account, or skipped as malformed.
+     */
+    TransactionRow.Outcome applyRow(TransactionRow row, OperationListener listener) {
+        TransactionRow.Plan plan = row.plan();
+        if (plan.problem != null) {
+            listener.rowSkipped(row, plan.problem);
+            return TransactionRow.Outcome.SKIPPED;
+        }
+        Customer customer = plan.customer;
+        long amount = row.cents;
+        // switch based on transaction type
+        OperationResult result = switch (plan.type) {
+            case SEND -> customer.sendCents(plan.source, plan.destination, amount, row.toCustomer, listener);
+            case TRANSFER -> customer.transferCents(plan.source, plan.destination, amount, listener);
+            case WITHDRAW -> customer.withdrawCents(plan.source, amount, listener);
+            case DEPOSIT -> customer.depositCents(plan.destination, amount, listener);
+            case INQUIRY -> {
+                OperationResult inquiry = new OperationResult(OperationResult.Type.INQUIRY, customer, plan.source, null, 0, null);
+                listener.completed(inquiry);
+                yield inquiry;
             }
-            if (!err.isEmpty()) System.out.println("Error: " + err);
+        };
+        return result.isApplied() ? TransactionRow.Outcome.APPLIED : TransactionRow.Outcome.REJECTED;
+    }
+
+    /**
+     * Log the outcome of one row of a transaction file.
+     *
+     * @param row           resolved row of the transaction file.
+     * @param outcome       outcome of applying the row.
+     * @param fh            file handler for logging.
+     */
+    void logRow(TransactionRow row, TransactionRow.Outcome outcome, FileHandler fh) {
+        Customer fromCustomer = row.fromCustomer, toCustomer = row.toCustomer;
+        Account fromAccount = row.fromAccount, toAccount = row.toAccount;
+        if (row.invalidAmount != null) {
+            fh.appendLog("EPMB_Error_Log", "Row " + row.number + " has an invalid amount: " + row.invalidAmount);
+            return;
+        }
+        if (outcome == TransactionRow.Outcome.SKIPPED) return;
+        boolean rc = outcome == TransactionRow.Outcome.APPLIED;
+        String amountStr = Money.format(row.cents);
+        switch (row.action) {
+            case "pays":
+                if (!rc) fh.appendLog("EPMB_Error_Log", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "]" + " attempted to send funds to " + toCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "]" + ".");
+                else fh.appendLog("EPMB_Transactions", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "] sent $" + amountStr + " from " + fromAccount.getType() + " [ID=" + fromAccount.getAccountNumber() + "]" + " to " + toCustomer.getFullName() + "'s " + "[ID=" + toCustomer.getId() + "] " + toAccount.getType() + " [ID=" + toAccount.getAccountNumber() + "]");
+                break;
+            case "transfers":
+                if (!rc) fh.appendLog("EPMB_Error_Log", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "]" + " attempted to transfer invalidly.");
+                else fh.appendLog("EPMB_Transactions", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "] transferred $" + amountStr +  " from " + fromAccount.getType() + " [ID=" + fromAccount.getAccountNumber() + "] to " + toAccount.getType() + " [ID=" + toAccount.getAccountNumber() + "]");
+                break;
+            case "inquires":
+                // no account of that type: the row was skipped
+                if (fromAccount == null) break;
+                fh.appendLog("EPMB_Transactions", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "] inquired the details of " + fromAccount.getType() + " [ID=" + fromAccount.getAccountNumber() +"]");
+                break;
+            case "withdraws":
+                if (!rc) fh.appendLog("EPMB_Error_Log", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "]" + " attempted to withdraw funds.");
+                else fh.appendLog("EPMB_Transactions", fromCustomer.getFullName() + " [ID=" + fromCustomer.getId() + "] withdrew $" + amountStr + " from " + fromAccount.getType() + " [ID=" + fromAccount.getAccountNumber() + "]");
+                break;
+            case "deposits":
+                if (!rc) fh.appendLog("EPMB_Error_Log", toCustomer.getFullName()+ " [ID=" + toCustomer.getId() + "]" + " attempted to deposit funds.");
+                else fh.appendLog("EPMB_Transactions", toCustomer.getFullName() + " [ID=" + toCustomer.getId() + "] deposited $" + amountStr + " to " + toAccount.getType() + " [ID=" + toAccount.getAccountNumber() +"]");
+                break;
+            default:
+                break;
         }
     }
 
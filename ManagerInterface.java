@@ -7,6 +7,7 @@
 // Lab Description: This lab is meant to demonstrate our knowledge in object-oriented concepts such as inheritance, polymorphism, UML diagrams, interfaces, design patterns, and more through coding our own implementation of a bank system of which deposits, withdraws, transfer, pays, and generates various files. This lab also included concepts of logging, testing with JUnit, debugging, file reading, error handling and JavaDoc.
 // Honesty Statement: We affirm that we have completed this assignment entirely on our own, without any assistance from outside sources, including peers, experts, online resources, or other means. All code and ideas were that of our own work, and we have followed proper academic integrity.
 */
+import java.text.ParseException;
 import java.util.Scanner;
 import static java.lang.System.out;
 
@@ -27,7 +28,7 @@ public class ManagerInterface extends UserInterface{
         while(attempts < 3){
             if (this.leave()) return;
             // provide options
-            out.print("A. Inquire accounts by customer name.\nB. Inquire account by type/number.\nC. Perform transaction from file.\nD. Generate Bank Statement for Customer's Account. \nE. Generate Bank Statement for all Customer Accounts.\nF. Create new user.\n> ");
+            out.print("A. Inquire accounts by customer name.\nB. Inquire account by type/number.\nC. Perform transaction from file.\nD. Generate Bank Statement for Customer's Account. \nE. Generate Bank Statement for all Customer Accounts.\nF. Create new user.\nG. Validate transaction file without performing it.\nH. Perform transactions from every pending file.\nI. Generate Bank Statements for every customer.\nJ. Update the customer report with customers changed since the last export.\n> ");
             String input = scan.nextLine().trim().toLowerCase();
             if (logout(input)) return;
             Manager manager = new Manager("Admin", "Admin");
@@ -44,7 +45,7 @@ public class ManagerInterface extends UserInterface{
                     // get filename from user
                     System.out.print("Enter the filename:\n> ");
                     String filename = scan.nextLine().trim().toLowerCase();
-                    manager.transactFromFile(filename);
+                    manager.transactFromFile(filename, this.console);
                     break;
                 case "d":
                     // get customer based on username
@@ -62,6 +63,31 @@ public class ManagerInterface extends UserInterface{
                     // inquire customer to enter fields for their new account
                     handleNewCustomer(scan, fh);
                     break;
+                case "g":
+                    // check a file before performing it, listing every failing row at once
+                    System.out.print("Enter the filename:\n> ");
+                    String validateName = scan.nextLine().trim().toLowerCase();
+                    TransactionValidator.Report report = manager.validateFile(validateName);
+                    if (report != null) out.println(report.getRows() + " rows checked, " + report.getFailures() + " would fail."
+                            + (report.isValid() ? "" : " See " + report.getErrorFile() + " for details."));
+                    break;
+                case "h":
+                    // run every file waiting in the transactions folder, one summary per file
+                    for (DirectoryIngest.FileSummary summary : manager.transactFromDirectory()) {
+                        if (summary.getError() != null) out.println(summary.getFile().getFileName() + ": stopped after " + summary.getRows() + " rows, " + summary.getError());
+                        else out.println(summary.getFile().getFileName() + ": " + summary.getRows() + " rows, " + summary.getApplied() + " applied, "
+                                + summary.getRejected() + " rejected, " + summary.getSkipped() + " skipped.");
+                    }
+                    break;
+                case "i":
+                    // one statement file per customer for a date range, optionally only matching names
+                    generateAllStatements(scan, manager);
+                    break;
+                case "j":
+                    // rewrite only the lines of changed customers, leaving the rest of the report as it is
+                    int updated = fh.patchCustomerReportCSV("EPMB_Report");
+                    if (updated >= 0) out.println("\n* * * Updated " + updated + " customers in the report * * *\n");
+                    break;
                 default:
                     // error logging
                     fh.appendLog("EPMB_Error_Log", "Manager attempted to inquire about an account. Reason for failure: Invalid option for how to inquire for account.");
@@ -72,6 +98,44 @@ public class ManagerInterface extends UserInterface{
         out.println("Too many attempts. Please log in again.\n");
     }
 
+    /**
+     * Query user for a date range and a name filter, then generate the statement of every matching customer.
+     *
+     * @param scan      The scanner object to continue taking input.
+     * @param manager   Manager generating the statements.
+     */
+    private void generateAllStatements(Scanner scan, Manager manager) {
+        for (int i = 0; i < 3; i++) {
+            out.print("Enter date range (comma separated, mm-dd-yyyy format)\n> ");
+            String input = scan.nextLine().trim().toLowerCase();
+            if (logout(input)) return;
+            String[] dates = input.split(",");
+            if (dates.length != 2) {
+                out.println("Incorrect format, please try again. Make sure to enter two dates separated by a comma.");
+                continue;
+            }
+            int startDay, endDay;
+            try {
+                startDay = TransactionStore.parseEpochDay(dates[0].trim());
+                endDay = TransactionStore.parseEpochDay(dates[1].trim());
+            } catch (ParseException e) {
+                out.println("Incorrect date format, please try again.");
+                continue;
+            }
+            out.print("Enter part of a customer name to only include matching customers (leave empty for every customer)\n> ");
+            String name = scan.nextLine().trim().toLowerCase();
+            if (logout(name)) return;
+            StatementJob.Result result = manager.generateStatements(startDay, endDay,
+                    customer -> customer.getFullName().toLowerCase().contains(name),
+                    (done, total) -> out.println(done + " of " + total + " statements generated..."));
+            if (result != null) out.println("\n* * * Generated " + result.getStatements() + " statements (" + result.getAccounts() + " accounts, "
+                    + result.getTransactions() + " transactions) in " + result.getMillis() + " ms, " + result.getStatementsPerSecond() + " per second"
+                    + ((result.getFailures() == 0) ? "" : "; " + result.getFailures() + " failed: " + result.getFirstError()) + " * * *\n");
+            return;
+        }
+        out.println("Too many attempts, returning to main...");
+    }
+
     /**
      * Query user for the type of account to handle with.
      *
@@ -131,7 +195,7 @@ public class ManagerInterface extends UserInterface{
     }
 
     /**
-     * Query user for type of account and print the account information.
+     * Query user for type of account and print the account information, then optionally its balance on an earlier day.
      *
      * @param scan The scanner object to continue taking input.
      */
@@ -141,6 +205,16 @@ public class ManagerInterface extends UserInterface{
             Account account = getAccountInfo(scan, accType, fh);
             if (account != null) {
                 account.printAccount(true, true);
+                // optionally look back at the balance on an earlier day
+                out.print("Enter a date (mm-dd-yyyy) to see the balance on that day, or press enter to continue\n> ");
+                String input = scan.nextLine().trim();
+                if (input.isEmpty() || logout(input)) return;
+                try {
+                    out.println("Balance at the end of " + input + ": $" + Money.format(account.getBalanceCentsAsOf(TransactionStore.parseEpochDay(input))));
+                    fh.appendLog("EPMB_Transactions", "Manager inquired the balance of " + account.getType() + " [Account Number:" + account.getAccountNumber() + "] on " + input);
+                } catch (ParseException e) {
+                    out.println("Incorrect date format, returning...");
+                }
             }
         }
     }
@@ -0,0 +1,158 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money helpers. Amounts are held as a long number of cents,
+ * so reading, adding and comparing balances never allocates or drifts.
+ */
+public final class Money {
+
+    /**
+     * Cents in one dollar.
+     */
+    public static final long CENTS_PER_DOLLAR = 100;
+
+    /**
+     * Prevent instantiation of the helper class.
+     */
+    private Money() {
+        /* static helpers only */
+    }
+
+    /**
+     * Convert a dollar amount to cents, rounding half up to the nearest cent.
+     * Only used where a double enters the system (user input), never on reads.
+     *
+     * @param amount    dollar amount.
+     * @return          amount in cents.
+     */
+    public static long toCents(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) throw new NumberFormatException("Not a money amount: " + amount);
+        // whole dollars convert exactly without rounding
+        if (amount == Math.rint(amount) && Math.abs(amount) < 1e15) return (long) amount * CENTS_PER_DOLLAR;
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert cents to a dollar amount.
+     *
+     * @param cents amount in cents.
+     * @return      dollar amount.
+     */
+    public static double toDollars(long cents) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Apply a rate to an amount, rounding half away from zero to the nearest cent.
+     *
+     * @param cents         amount in cents.
+     * @param numerator     numerator of the rate.
+     * @param denominator   denominator of the rate.
+     * @return              amount times the rate, in cents.
+     */
+    public static long applyRate(long cents, long numerator, long denominator) {
+        long product = Math.multiplyExact(cents, numerator);
+        long half = denominator / 2;
+        return (product >= 0) ? (product + half) / denominator : -((-product + half) / denominator);
+    }
+
+    /**
+     * Parse a decimal amount such as "1,234.5" or "-12.05" into cents.
+     * Digits past the cents round the amount half away from zero.
+     *
+     * @param text  amount to parse.
+     * @return      amount in cents.
+     * @throws NumberFormatException if the text is not a decimal amount.
+     */
+    public static long parseCents(CharSequence text) {
+        int i = 0, length = text.length();
+        // skip surrounding whitespace
+        while (i < length && text.charAt(i) <= ' ') i++;
+        while (length > i && text.charAt(length - 1) <= ' ') length--;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) negative = text.charAt(i++) == '-';
+        if (i < length && text.charAt(i) == '$') i++;
+        long cents = 0;
+        int fraction = -1;
+        boolean digits = false, roundUp = false;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (fraction < 0) cents = Math.addExact(Math.multiplyExact(cents, 10), c - '0');
+                else if (fraction < 2) {
+                    cents = Math.addExact(Math.multiplyExact(cents, 10), c - '0');
+                    fraction++;
+                }
+                // the first digit past the cents decides the rounding
+                else if (fraction++ == 2) roundUp = c >= '5';
+            } else if (c == '.' && fraction < 0) fraction = 0;
+            else if (c != ',' || fraction >= 0) throw new NumberFormatException("Not a money amount: " + text);
+        }
+        if (!digits) throw new NumberFormatException("Not a money amount: " + text);
+        // scale whole dollars and single-digit cents up to cents
+        for (int scale = Math.max(fraction, 0); scale < 2; scale++) cents = Math.multiplyExact(cents, 10);
+        if (roundUp) cents = Math.incrementExact(cents);
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * Format cents as a plain two-decimal amount, e.g. "-1234.50".
+     *
+     * @param cents amount in cents.
+     * @return      formatted amount.
+     */
+    public static String format(long cents) {
+        return append(new StringBuilder(24), cents, false).toString();
+    }
+
+    /**
+     * Format cents as a currency amount, e.g. "-$1,234.50".
+     *
+     * @param cents amount in cents.
+     * @return      formatted amount.
+     */
+    public static String formatCurrency(long cents) {
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) sb.append('-');
+        sb.append('$');
+        return append(sb, Math.absExact(cents), true).toString();
+    }
+
+    /**
+     * Append cents as a two-decimal amount.
+     *
+     * @param sb        builder to append to.
+     * @param cents     amount in cents.
+     * @param grouping  flag to separate thousands with commas.
+     * @return          the builder.
+     */
+    public static StringBuilder append(StringBuilder sb, long cents, boolean grouping) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = Math.negateExact(cents);
+        }
+        long dollars = cents / CENTS_PER_DOLLAR;
+        int fraction = (int) (cents % CENTS_PER_DOLLAR);
+        if (grouping) appendGrouped(sb, dollars);
+        else sb.append(dollars);
+        return sb.append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    /**
+     * Append whole dollars with thousands separated by commas.
+     *
+     * @param sb        builder to append to.
+     * @param dollars   non-negative whole dollars.
+     */
+    private static void appendGrouped(StringBuilder sb, long dollars) {
+        if (dollars < 1000) {
+            sb.append(dollars);
+            return;
+        }
+        appendGrouped(sb, dollars / 1000);
+        int group = (int) (dollars % 1000);
+        sb.append(',').append((char) ('0' + group / 100)).append((char) ('0' + group / 10 % 10)).append((char) ('0' + group % 10));
+    }
+}
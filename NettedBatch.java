@@ -0,0 +1,278 @@
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs the rows of a transaction file as netted balance changes. Rows are taken in segments:
+ * the locks of every account of a segment are taken once, each row is checked in file order against
+ * the running balance of its accounts (so a row that would overdraw is still refused exactly where a
+ * sequential run refuses it), and every account changed by the segment gets its balance written once,
+ * however many rows moved funds between the same accounts. Each row still records its own transaction
+ * on every account it touches, and the journal packs many rows into each record.
+ */
+public class NettedBatch {
+
+    /**
+     * Rows applied under one acquisition of their accounts' locks.
+     */
+    private static final int SEGMENT_ROWS = 65_536;
+
+    /**
+     * Rows of the file, in file order.
+     */
+    private final List<TransactionRow> rows;
+
+    /**
+     * Running balance of every account the current segment changed, in cents.
+     */
+    private final IdentityHashMap<Account, long[]> running = new IdentityHashMap<>();
+
+    /**
+     * Accounts of the journal entries not recorded yet.
+     */
+    private final Account[] entryAccounts = new Account[Journal.MAX_ENTRIES];
+
+    /**
+     * Transaction index of the journal entries not recorded yet.
+     */
+    private final int[] entryNodes = new int[Journal.MAX_ENTRIES];
+
+    /**
+     * Journal entries not recorded yet.
+     */
+    private int entries;
+
+    /**
+     * Sequence number of the last journal record.
+     */
+    private long lastSeq;
+
+    /**
+     * Flag if everything the last run applied is durable.
+     */
+    private boolean recorded = true;
+
+    /**
+     * Day the transactions are recorded on.
+     */
+    private int day;
+
+    /**
+     * Result of each row of the current segment, null for a skipped row, reported once the segment is written.
+     */
+    private OperationResult[] results;
+
+    /**
+     * Time taken to apply each row of the last run, in nanoseconds.
+     */
+    private long[] applyNanos = new long[0];
+
+    /**
+     * Constructor of a netted batch.
+     *
+     * @param rows  resolved rows, in file order.
+     */
+    public NettedBatch(List<TransactionRow> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Apply every row, without printing anything.
+     *
+     * @return  outcome of each row, in file order.
+     */
+    public TransactionRow.Outcome[] run() {
+        return this.run(OperationListener.NONE);
+    }
+
+    /**
+     * Apply every row, telling a listener what each one did once the balances of its segment are written.
+     *
+     * @param listener  listener told the result of each row, in file order.
+     * @return          outcome of each row, in file order.
+     */
+    public TransactionRow.Outcome[] run(OperationListener listener) {
+        TransactionRow.Outcome[] outcomes = new TransactionRow.Outcome[rows.size()];
+        results = new OperationResult[Math.min(rows.size(), SEGMENT_ROWS)];
+        applyNanos = new long[rows.size()];
+        day = BankClock.getInstance().today();
+        // journal the whole file as one batch, waiting for the disk once at the end
+        Journal.getInstance().beginBatch();
+        try {
+            for (int start = 0; start < rows.size(); start += SEGMENT_ROWS) {
+                int end = Math.min(rows.size(), start + SEGMENT_ROWS);
+                Set<Account> accounts = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (int i = start; i < end; i++) {
+                    TransactionRow row = rows.get(i);
+                    if (row.fromAccount != null) accounts.add(row.fromAccount);
+                    if (row.toAccount != null) accounts.add(row.toAccount);
+                }
+                int first = start;
+                TransferEngine.getInstance().runLocked(accounts, () -> this.applySegment(first, end, outcomes));
+                Journal.getInstance().awaitCommitted(lastSeq);
+                // tell the listener outside the locks
+                for (int i = start; i < end; i++) {
+                    OperationResult result = results[i - start];
+                    if (result == null) listener.rowSkipped(rows.get(i), rows.get(i).plan().problem);
+                    else listener.completed(result);
+                    results[i - start] = null;
+                }
+            }
+        } finally {
+            recorded = Journal.getInstance().endBatch();
+        }
+        return outcomes;
+    }
+
+    /**
+     * Get the time each row of the last run took to apply, its balance checks and journal entries.
+     *
+     * @return  nanoseconds per row, in file order.
+     */
+    long[] getApplyNanos() {
+        return this.applyNanos;
+    }
+
+    /**
+     * Check if everything the last run applied is durable.
+     *
+     * @return false if the journal failed, so rows after the failure were refused and earlier ones may not be durable.
+     */
+    public boolean isRecorded() {
+        return this.recorded;
+    }
+
+    /**
+     * Apply the rows of a segment while holding its accounts' locks, then write each changed balance once.
+     *
+     * @param start     first row of the segment.
+     * @param end       row after the last one.
+     * @param outcomes  outcome of each row, filled in.
+     */
+    private void applySegment(int start, int end, TransactionRow.Outcome[] outcomes) {
+        try {
+            for (int i = start; i < end; i++) {
+                long rowStarted = System.nanoTime();
+                OperationResult result = this.apply(rows.get(i));
+                results[i - start] = result;
+                if (result == null) outcomes[i] = TransactionRow.Outcome.SKIPPED;
+                else outcomes[i] = result.isApplied() ? TransactionRow.Outcome.APPLIED : TransactionRow.Outcome.REJECTED;
+                applyNanos[i] = System.nanoTime() - rowStarted;
+            }
+        } finally {
+            // every applied row already recorded its transactions, so the journal and balances must follow them
+            this.flush();
+            running.forEach((account, balance) -> account.balance = balance[0]);
+            running.clear();
+        }
+    }
+
+    /**
+     * Apply one row to the running balances, as planned by the row like Manager.applyRow does.
+     *
+     * @param row   resolved row of the transaction file.
+     * @return      what the row did, as the customer's operation would report it; null if it is skipped as malformed.
+     */
+    private OperationResult apply(TransactionRow row) {
+        TransactionRow.Plan plan = row.plan();
+        if (plan.problem != null) return null;
+        if (plan.type == OperationResult.Type.INQUIRY) return new OperationResult(plan.type, plan.customer, plan.source, null, 0, null);
+        Account src = plan.source, dst = plan.destination;
+        OperationResult.Rejection rejection = plan.rejection;
+        // a failed journal can record nothing more, as in TransferEngine
+        if (rejection == null && Journal.getInstance().isFailed()) rejection = OperationResult.Rejection.NOT_RECORDED;
+        if (rejection == null) {
+            rejection = switch (plan.type) {
+                case SEND -> this.transfer(src, dst, row.cents, Customer.sendDescription(row.toCustomer), Customer.receiveDescription(plan.customer));
+                case TRANSFER -> this.transfer(src, dst, row.cents, Customer.transferOutDescription(dst), Customer.transferInDescription(src));
+                case WITHDRAW -> this.change(src, src.balanceAfterWithdraw(this.balance(src), row.cents), row.cents,
+                        Customer.WITHDRAW_DESCRIPTION, OperationResult.Rejection.SOURCE_REFUSED);
+                case DEPOSIT -> this.change(dst, dst.balanceAfterDeposit(this.balance(dst), row.cents), row.cents,
+                        Customer.DEPOSIT_DESCRIPTION, OperationResult.Rejection.DESTINATION_REFUSED);
+                case INQUIRY -> null;
+            };
+        }
+        return new OperationResult(plan.type, plan.customer, src, dst, row.cents, rejection);
+    }
+
+    /**
+     * Move funds between two accounts, validating both legs before changing either, as TransferEngine does.
+     *
+     * @param src               account the amount is withdrawn from.
+     * @param dst               account the amount is deposited to.
+     * @param cents             amount, in cents.
+     * @param srcDescription    transaction recorded on the source.
+     * @param dstDescription    transaction recorded on the destination.
+     * @return                  null if applied, else which account refused or that a description cannot be journaled.
+     */
+    private OperationResult.Rejection transfer(Account src, Account dst, long cents, String srcDescription, String dstDescription) {
+        if (!Journal.fits(srcDescription) || !Journal.fits(dstDescription)) return OperationResult.Rejection.NOT_RECORDED;
+        long srcBalance = src.balanceAfterWithdraw(this.balance(src), cents);
+        if (srcBalance == Account.REJECTED) return OperationResult.Rejection.SOURCE_REFUSED;
+        long dstBalance = dst.balanceAfterDeposit((src == dst) ? srcBalance : this.balance(dst), cents);
+        if (dstBalance == Account.REJECTED) return OperationResult.Rejection.DESTINATION_REFUSED;
+        // both legs of a row always share a journal record
+        if (entries + 2 > Journal.MAX_ENTRIES) this.flush();
+        this.record(src, srcBalance, cents, srcDescription);
+        this.record(dst, dstBalance, cents, dstDescription);
+        return null;
+    }
+
+    /**
+     * Change the balance of one account, unless it refused.
+     *
+     * @param account       account to change.
+     * @param balance       balance after the change, or Account.REJECTED.
+     * @param cents         amount, in cents.
+     * @param description   transaction recorded on the account.
+     * @param refusal       reason reported if the account refused.
+     * @return              null if applied, else the refusal.
+     */
+    private OperationResult.Rejection change(Account account, long balance, long cents, String description, OperationResult.Rejection refusal) {
+        if (balance == Account.REJECTED) return refusal;
+        if (entries + 1 > Journal.MAX_ENTRIES) this.flush();
+        this.record(account, balance, cents, description);
+        return null;
+    }
+
+    /**
+     * Set the running balance of an account, add its transaction and queue it for the journal.
+     *
+     * @param account       account changed.
+     * @param balance       balance after the change, in cents.
+     * @param cents         amount, in cents.
+     * @param description   transaction recorded on the account.
+     */
+    private void record(Account account, long balance, long cents, String description) {
+        long[] slot = running.get(account);
+        if (slot == null) running.put(account, new long[]{balance});
+        else slot[0] = balance;
+        TransactionStore store = account.getTransactionList();
+        store.addTransaction(day, description, cents, balance);
+        entryAccounts[entries] = account;
+        entryNodes[entries] = store.size() - 1;
+        entries++;
+    }
+
+    /**
+     * Get the running balance of an account.
+     *
+     * @param account   account of a row.
+     * @return          its balance after the rows applied so far, in cents.
+     */
+    private long balance(Account account) {
+        long[] slot = running.get(account);
+        return (slot == null) ? account.balance : slot[0];
+    }
+
+    /**
+     * Journal the queued entries as one record.
+     */
+    private void flush() {
+        if (entries == 0) return;
+        long seq = Journal.getInstance().record(entryAccounts, entryNodes, 0, entries);
+        if (seq != 0) lastSeq = seq;
+        entries = 0;
+    }
+}
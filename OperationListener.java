@@ -0,0 +1,40 @@
+import java.nio.file.Path;
+
+/**
+ * Receives what customer operations and transaction files do, as it happens. Business code never
+ * writes to the terminal itself: it reports here, and whoever wants output attaches a listener
+ * (the menus attach a {@link ConsoleRenderer}). Every method does nothing by default.
+ */
+public interface OperationListener {
+
+    /**
+     * Listener ignoring everything, for batch and API callers.
+     */
+    OperationListener NONE = new OperationListener() { };
+
+    /**
+     * Called once an operation was applied or refused.
+     *
+     * @param result    what the operation did.
+     */
+    default void completed(OperationResult result) {
+    }
+
+    /**
+     * Called when a row of a transaction file is skipped without attempting anything.
+     *
+     * @param row       the row.
+     * @param problem   why it was skipped.
+     */
+    default void rowSkipped(TransactionRow row, TransactionRow.Problem problem) {
+    }
+
+    /**
+     * Called when a transaction file continues after the checkpoint of an earlier run.
+     *
+     * @param file          path of the transaction csv.
+     * @param checkpoint    checkpoint the run continues after.
+     */
+    default void resumed(Path file, BatchCheckpoint checkpoint) {
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * What a customer operation did: the operation, the accounts it touched, the amount, and why it was
+ * refused if it was. Operations return a result instead of printing anything, so batch and API callers
+ * run without terminal output, while the interactive menus hand it to a {@link ConsoleRenderer}.
+ */
+public class OperationResult {
+
+    /**
+     * Operations a customer can perform.
+     */
+    public enum Type {
+        /** Move funds between two accounts of the same customer. */
+        TRANSFER,
+        /** Move funds to another customer's account. */
+        SEND,
+        /** Take funds out of an account. */
+        WITHDRAW,
+        /** Put funds into an account. */
+        DEPOSIT,
+        /** Look at an account, changing nothing. */
+        INQUIRY
+    }
+
+    /**
+     * Reasons an operation is refused.
+     */
+    public enum Rejection {
+        /** The customer does not own the account(s), or a transfer names the same account twice. */
+        NOT_OWNER,
+        /** A send between two accounts of the same customer, which should be a transfer. */
+        SELF_SEND,
+        /** The source account refused the withdrawal. */
+        SOURCE_REFUSED,
+        /** The destination account refused the deposit. */
+        DESTINATION_REFUSED,
+        /** The journal had failed before the operation or cannot hold its description, so nothing was applied. */
+        NOT_RECORDED
+    }
+
+    /**
+     * Operation performed.
+     */
+    private final Type type;
+
+    /**
+     * Customer performing the operation.
+     */
+    private final Customer customer;
+
+    /**
+     * Account the funds come from, null for a deposit.
+     */
+    private final Account source;
+
+    /**
+     * Account the funds go to, null for a withdrawal or an inquiry.
+     */
+    private final Account destination;
+
+    /**
+     * Amount of the operation, in cents.
+     */
+    private final long cents;
+
+    /**
+     * Why the operation was refused, null if it was applied.
+     */
+    private final Rejection rejection;
+
+    /**
+     * Flag if an applied operation's journal record is durable, false if the journal failed first.
+     */
+    private final boolean durable;
+
+    /**
+     * Constructor of a result.
+     *
+     * @param type          operation performed.
+     * @param customer      customer performing the operation.
+     * @param source        account the funds come from, null for a deposit.
+     * @param destination   account the funds go to, null for a withdrawal or an inquiry.
+     * @param cents         amount of the operation, in cents.
+     * @param rejection     why the operation was refused, null if it was applied.
+     */
+    OperationResult(Type type, Customer customer, Account source, Account destination, long cents, Rejection rejection) {
+        this(type, customer, source, destination, cents, rejection, true);
+    }
+
+    /**
+     * Constructor of a result that may not be durable.
+     *
+     * @param type          operation performed.
+     * @param customer      customer performing the operation.
+     * @param source        account the funds come from, null for a deposit.
+     * @param destination   account the funds go to, null for a withdrawal or an inquiry.
+     * @param cents         amount of the operation, in cents.
+     * @param rejection     why the operation was refused, null if it was applied.
+     * @param durable       false if it was applied but its journal record is not durable.
+     */
+    private OperationResult(Type type, Customer customer, Account source, Account destination, long cents, Rejection rejection, boolean durable) {
+        this.type = type;
+        this.customer = customer;
+        this.source = source;
+        this.destination = destination;
+        this.cents = cents;
+        this.rejection = rejection;
+        this.durable = durable;
+    }
+
+    /**
+     * Result of moving funds through the transfer engine.
+     *
+     * @param type          operation performed.
+     * @param customer      customer performing the operation.
+     * @param source        account the funds come from.
+     * @param destination   account the funds go to.
+     * @param cents         amount of the operation, in cents.
+     * @param outcome       outcome reported by the engine.
+     * @return              the result.
+     */
+    static OperationResult of(Type type, Customer customer, Account source, Account destination, long cents, TransferEngine.Outcome outcome) {
+        Rejection rejection = switch (outcome) {
+            case APPLIED, NOT_DURABLE -> null;
+            case SOURCE_REJECTED -> Rejection.SOURCE_REFUSED;
+            case DESTINATION_REJECTED -> Rejection.DESTINATION_REFUSED;
+            case NOT_RECORDED -> Rejection.NOT_RECORDED;
+        };
+        return new OperationResult(type, customer, source, destination, cents, rejection, outcome != TransferEngine.Outcome.NOT_DURABLE);
+    }
+
+    /**
+     * Get the operation performed.
+     *
+     * @return operation performed.
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Get the customer performing the operation.
+     *
+     * @return customer performing the operation.
+     */
+    public Customer getCustomer() {
+        return this.customer;
+    }
+
+    /**
+     * Get the account the funds come from.
+     *
+     * @return source account, null for a deposit.
+     */
+    public Account getSource() {
+        return this.source;
+    }
+
+    /**
+     * Get the account the funds go to.
+     *
+     * @return destination account, null for a withdrawal or an inquiry.
+     */
+    public Account getDestination() {
+        return this.destination;
+    }
+
+    /**
+     * Get the amount of the operation.
+     *
+     * @return amount, in cents.
+     */
+    public long getCents() {
+        return this.cents;
+    }
+
+    /**
+     * Get why the operation was refused.
+     *
+     * @return the reason, null if the operation was applied.
+     */
+    public Rejection getRejection() {
+        return this.rejection;
+    }
+
+    /**
+     * Check whether the operation was applied.
+     *
+     * @return true if applied, false if refused.
+     */
+    public boolean isApplied() {
+        return this.rejection == null;
+    }
+
+    /**
+     * Check whether the operation is recorded in the journal, or changed nothing that needs recording.
+     *
+     * @return false if it was applied but the journal failed before its record was durable.
+     */
+    public boolean isDurable() {
+        return this.durable;
+    }
+}
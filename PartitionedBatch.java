@@ -0,0 +1,221 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Splits the rows of a transaction file into groups that share no account and runs the groups concurrently.
+ * Two rows land in the same group when they touch a common account, directly or through other rows,
+ * and every group keeps its rows in file order, so each account sees exactly the sequence of operations
+ * a sequential run would apply. Groups are handed out largest first to a fixed set of workers.
+ */
+public class PartitionedBatch {
+
+    /**
+     * Rows of the file, in file order.
+     */
+    private final List<TransactionRow> rows;
+
+    /**
+     * Row indexes ordered group by group, file order inside each group.
+     */
+    private final int[] order;
+
+    /**
+     * Start of each group in order, followed by the number of rows; groups are sorted largest first.
+     */
+    private final int[] groupStarts;
+
+    /**
+     * Constructor of a batch, grouping its rows by the accounts they touch.
+     *
+     * @param rows  rows of the file, in file order.
+     */
+    public PartitionedBatch(List<TransactionRow> rows) {
+        this.rows = rows;
+        int n = rows.size();
+        // number every account touched and union the accounts of each row
+        IdentityHashMap<Account, Integer> ids = new IdentityHashMap<>();
+        int[] parent = new int[Math.max(16, n * 2)];
+        int[] first = new int[n];
+        for (int i = 0; i < n; i++) {
+            TransactionRow row = rows.get(i);
+            int a = id(ids, parent, row.fromAccount), b = id(ids, parent, row.toAccount);
+            if (a >= 0 && b >= 0) union(parent, a, b);
+            first[i] = (a >= 0) ? a : b;
+        }
+        // give each root a group, rows touching no account get one of their own
+        int[] groupOfRoot = new int[ids.size()];
+        Arrays.fill(groupOfRoot, -1);
+        int[] groupOfRow = new int[n];
+        int groups = 0;
+        for (int i = 0; i < n; i++) {
+            if (first[i] < 0) {
+                groupOfRow[i] = groups++;
+                continue;
+            }
+            int root = find(parent, first[i]);
+            if (groupOfRoot[root] < 0) groupOfRoot[root] = groups++;
+            groupOfRow[i] = groupOfRoot[root];
+        }
+        // count the rows of each group and visit the groups largest first
+        int[] sizes = new int[groups];
+        for (int i = 0; i < n; i++) sizes[groupOfRow[i]]++;
+        Integer[] bySize = new Integer[groups];
+        for (int g = 0; g < groups; g++) bySize[g] = g;
+        Arrays.sort(bySize, (x, y) -> Integer.compare(sizes[y], sizes[x]));
+        int[] startOfGroup = new int[groups];
+        this.groupStarts = new int[groups + 1];
+        for (int k = 0, position = 0; k < groups; k++) {
+            startOfGroup[bySize[k]] = position;
+            this.groupStarts[k] = position;
+            position += sizes[bySize[k]];
+        }
+        this.groupStarts[groups] = n;
+        // place the rows, a stable pass keeps file order inside each group
+        this.order = new int[n];
+        for (int i = 0; i < n; i++) this.order[startOfGroup[groupOfRow[i]]++] = i;
+    }
+
+    /**
+     * Get the number of independent groups.
+     *
+     * @return number of groups.
+     */
+    public int groups() {
+        return this.groupStarts.length - 1;
+    }
+
+    /**
+     * Run every row, the groups concurrently on a pool and each group in file order.
+     * Each worker journals its rows as one batch, waiting for the disk once when it is done.
+     *
+     * @param pool      pool running the workers.
+     * @param action    action run on each row.
+     * @return          false if the journal failed, so rows reported applied may not be durable.
+     */
+    public boolean run(ForkJoinPool pool, Consumer<TransactionRow> action) {
+        return this.runIndexed(pool, (row, index) -> action.accept(row));
+    }
+
+    /**
+     * Run every row like {@link #run(ForkJoinPool, Consumer)}, also telling the action where the row is in the list.
+     *
+     * @param pool      pool running the workers.
+     * @param action    action run on each row with its index in the list of rows.
+     * @return          false if the journal failed, so rows reported applied may not be durable.
+     */
+    public boolean runIndexed(ForkJoinPool pool, ObjIntConsumer<TransactionRow> action) {
+        int workers = Math.min(pool.getParallelism(), this.groups());
+        if (workers == 0) return true;
+        AtomicInteger next = new AtomicInteger();
+        List<Worker> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) tasks.add(new Worker(next, action));
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        for (Worker task : tasks) if (!task.recorded) return false;
+        return true;
+    }
+
+    /**
+     * Get the union-find id of an account, numbering it on first sight.
+     *
+     * @param ids       ids of the accounts seen so far.
+     * @param parent    union-find parents, by id.
+     * @param account   the account, may be null.
+     * @return          id of the account, -1 if null.
+     */
+    private static int id(IdentityHashMap<Account, Integer> ids, int[] parent, Account account) {
+        if (account == null) return -1;
+        Integer id = ids.get(account);
+        if (id != null) return id;
+        int fresh = ids.size();
+        ids.put(account, fresh);
+        parent[fresh] = fresh;
+        return fresh;
+    }
+
+    /**
+     * Find the root of an id, halving the path on the way.
+     *
+     * @param parent    union-find parents, by id.
+     * @param x         id to look up.
+     * @return          root of its set.
+     */
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * Merge the sets of two ids.
+     *
+     * @param parent    union-find parents, by id.
+     * @param a         first id.
+     * @param b         second id.
+     */
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a), rb = find(parent, b);
+        if (ra != rb) parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    }
+
+    /**
+     * Worker taking the next group until none is left.
+     */
+    @SuppressWarnings("serial")
+    private class Worker extends RecursiveAction {
+
+        /**
+         * Index of the next group to take, shared by every worker.
+         */
+        private final AtomicInteger next;
+
+        /**
+         * Action run on each row with its index.
+         */
+        private final ObjIntConsumer<TransactionRow> action;
+
+        /**
+         * Flag if everything the worker committed is durable, set once it is done.
+         */
+        private boolean recorded;
+
+        /**
+         * Constructor of a worker.
+         *
+         * @param next      shared index of the next group.
+         * @param action    action run on each row with its index.
+         */
+        Worker(AtomicInteger next, ObjIntConsumer<TransactionRow> action) {
+            this.next = next;
+            this.action = action;
+        }
+
+        /**
+         * Run groups until every group is taken.
+         */
+        @Override
+        protected void compute() {
+            Journal.getInstance().beginBatch();
+            try {
+                for (int g = next.getAndIncrement(); g < groups(); g = next.getAndIncrement()) {
+                    for (int k = groupStarts[g]; k < groupStarts[g + 1]; k++) action.accept(rows.get(order[k]), order[k]);
+                }
+            } finally {
+                recorded = Journal.getInstance().endBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,420 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Exports the customer report. Rows are formatted into one reused buffer and streamed through a
+ * buffered writer into a temporary file that then replaces the report, so the report is never seen
+ * half written and the export can run while the bank is open, not only at exit. Every account remembers
+ * the balance and number of transactions it was last written with, once for the report and once for
+ * delta files, so an export can also write only the customers that changed since: either to a delta file,
+ * or by patching them into the existing report, copying the lines of unchanged customers as they are.
+ * Accounts are only marked as written once the file has replaced its target. Exports run one at a time.
+ */
+public class ReportExporter {
+
+    /**
+     * Header of the report.
+     */
+    public static final String HEADER = "Identification Number,First Name,Last Name,Date of Birth,Address,Phone Number,Checking Account Number,Checking Starting Balance,"
+            + "Savings Account Number,Savings Starting Balance,Credit Account Number,Credit Starting Balance,Credit Max";
+
+    /**
+     * Line separator of the report.
+     */
+    private static final String NEWLINE = System.lineSeparator();
+
+    /**
+     * Customers to export.
+     */
+    private final Iterable<Customer> customers;
+
+    /**
+     * Row being formatted.
+     */
+    private final StringBuilder row = new StringBuilder(256);
+
+    /**
+     * Characters of the row, copied out for the writer.
+     */
+    private char[] chars = new char[256];
+
+    /**
+     * Markers of the accounts written by the running export, set once its file is in place.
+     */
+    private Marker[] pendingMarkers = new Marker[64];
+
+    /**
+     * Transaction counts the pending markers are set to.
+     */
+    private int[] pendingTransactions = new int[64];
+
+    /**
+     * Balances the pending markers are set to, in cents.
+     */
+    private long[] pendingBalances = new long[64];
+
+    /**
+     * Number of pending markers.
+     */
+    private int pending;
+
+    /**
+     * Constructor of an exporter.
+     *
+     * @param customers customers of the bank.
+     */
+    public ReportExporter(Iterable<Customer> customers) {
+        this.customers = customers;
+    }
+
+    /**
+     * Write every customer to the report, replacing it.
+     *
+     * @param report    path of the report.
+     * @return          number of customers written.
+     * @throws IOException if the report cannot be written.
+     */
+    public int exportAll(Path report) throws IOException {
+        synchronized (ReportExporter.class) {
+            int[] written = {0};
+            this.export(report, Target.REPORT, writer -> {
+                for (Customer customer : customers) {
+                    this.write(writer, customer, Target.REPORT);
+                    written[0]++;
+                }
+            });
+            return written[0];
+        }
+    }
+
+    /**
+     * Write the customers that changed since the last delta file to a new delta file, with the report's header.
+     * Delta files keep their own markers, so they never hide a change from the next patch of the report.
+     *
+     * @param delta path of the delta file, replaced if it exists.
+     * @return      number of customers written.
+     * @throws IOException if the delta file cannot be written.
+     */
+    public int exportChanged(Path delta) throws IOException {
+        synchronized (ReportExporter.class) {
+            List<Customer> changed = this.changed(Target.DELTA);
+            this.export(delta, Target.DELTA, writer -> {
+                for (Customer customer : changed) this.write(writer, customer, Target.DELTA);
+            });
+            return changed.size();
+        }
+    }
+
+    /**
+     * Patch the customers that changed since they were last written to the report into it: their lines are
+     * replaced, new customers are added at the end, and every other line is copied unchanged.
+     * Without a report to patch, every customer is written.
+     *
+     * @param report    path of the report.
+     * @return          number of customers written.
+     * @throws IOException if the report cannot be read or written.
+     */
+    public int patch(Path report) throws IOException {
+        synchronized (ReportExporter.class) {
+            if (!Files.exists(report)) return this.exportAll(report);
+            HashMap<String, Customer> changed = new HashMap<>();
+            for (Customer customer : this.changed(Target.REPORT)) changed.put(String.valueOf(customer.getId()), customer);
+            if (changed.isEmpty()) return 0;
+            int written = changed.size();
+            this.export(report, Target.REPORT, writer -> {
+                try (BufferedReader reader = Files.newBufferedReader(report, StandardCharsets.UTF_8)) {
+                    String line = reader.readLine();
+                    // the header is rewritten, so an empty report is patched into a complete one
+                    if (line != null && !line.equals(HEADER)) this.copyOrPatch(writer, line, changed);
+                    while ((line = reader.readLine()) != null) this.copyOrPatch(writer, line, changed);
+                }
+                // customers not in the report yet, in id order
+                List<Customer> added = new ArrayList<>(changed.values());
+                added.sort(Comparator.comparingInt(Customer::getId));
+                for (Customer customer : added) this.write(writer, customer, Target.REPORT);
+            });
+            return written;
+        }
+    }
+
+    /**
+     * Write a file with the report's header into a temporary file, replace the target with it, then mark the
+     * written accounts. When anything fails the temporary file is removed and no account is marked.
+     *
+     * @param target    file being exported.
+     * @param kind      which markers the written accounts get.
+     * @param rows      writes the rows after the header.
+     * @throws IOException if the file cannot be written or moved into place.
+     */
+    private void export(Path target, Target kind, Rows rows) throws IOException {
+        pending = 0;
+        Path temp = temporary(target);
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.write(NEWLINE);
+                rows.write(writer);
+            }
+            replace(temp, target);
+        } catch (IOException | RuntimeException e) {
+            pending = 0;
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        for (int i = 0; i < pending; i++) {
+            pendingMarkers[i].transactions = pendingTransactions[i];
+            pendingMarkers[i].balance = pendingBalances[i];
+            pendingMarkers[i] = null;
+        }
+        pending = 0;
+    }
+
+    /**
+     * Copy a line of the report, or write its customer's new row if the customer changed.
+     *
+     * @param writer    writer of the patched report.
+     * @param line      line of the report.
+     * @param changed   changed customers by id not written yet, the written one is removed.
+     * @throws IOException if the line cannot be written.
+     */
+    private void copyOrPatch(BufferedWriter writer, String line, HashMap<String, Customer> changed) throws IOException {
+        int comma = line.indexOf(',');
+        Customer customer = changed.remove((comma < 0) ? line : line.substring(0, comma));
+        if (customer != null) {
+            this.write(writer, customer, Target.REPORT);
+        } else {
+            writer.write(line);
+            writer.write(NEWLINE);
+        }
+    }
+
+    /**
+     * Get the customers with an account that changed since it was last written to a kind of file, or never was.
+     *
+     * @param kind  the report or delta files.
+     * @return      changed customers.
+     */
+    public List<Customer> changed(Target kind) {
+        List<Customer> changed = new ArrayList<>();
+        for (Customer customer : customers) {
+            for (Account account : customer.getAccounts()) {
+                Marker marker = kind.of(account);
+                if (marker.transactions != account.getTransactionList().size() || marker.balance != account.getBalanceCents()) {
+                    changed.add(customer);
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Format and write the row of one customer, keeping what its accounts are to be marked with.
+     *
+     * @param writer    writer of the file.
+     * @param customer  the customer.
+     * @param kind      which markers the accounts get.
+     * @throws IOException if the row cannot be written.
+     */
+    private void write(BufferedWriter writer, Customer customer, Target kind) throws IOException {
+        StringBuilder sb = row;
+        sb.setLength(0);
+        sb.append(customer.getId()).append(',');
+        capitalize(sb, customer.getFirstName()).append(',');
+        capitalize(sb, customer.getLastName()).append(',');
+        sb.append(customer.getDob()).append(',');
+        // quoted first when it holds a comma, then capitalized, as the report always had it
+        String address = customer.getAddress();
+        capitalize(sb, address.contains(",") ? "\"" + address.replace("\"", "\"\"") + "\"" : address).append(',');
+        sb.append(customer.getPhoneNum()).append(',');
+        Account checking = null, savings = null;
+        Credit credit = null;
+        for (Account account : customer.getAccounts()) {
+            if (account instanceof Checking) checking = account;
+            else if (account instanceof Savings) savings = account;
+            else if (account instanceof Credit c) credit = c;
+        }
+        // read the transaction count before the balance, so a change landing in between shows up next time
+        int[] sizes = new int[3];
+        long[] balances = new long[3];
+        Account[] accounts = {checking, savings, credit};
+        for (int i = 0; i < 3; i++) {
+            if (accounts[i] == null) continue;
+            sizes[i] = accounts[i].getTransactionList().size();
+            balances[i] = accounts[i].getBalanceCents();
+        }
+        this.account(sb, checking, balances[0]).append(',');
+        this.account(sb, savings, balances[1]).append(',');
+        if (credit != null) {
+            sb.append(credit.getAccountNumber()).append(',').append(credit.getCreditMax()).append(',');
+            Money.append(sb, balances[2], false);
+        } else {
+            sb.append(",,");
+        }
+        sb.append(NEWLINE);
+        int length = sb.length();
+        if (chars.length < length) chars = new char[length];
+        sb.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+        for (int i = 0; i < 3; i++) if (accounts[i] != null) this.mark(kind.of(accounts[i]), sizes[i], balances[i]);
+    }
+
+    /**
+     * Keep what a marker is set to once the running export's file is in place.
+     *
+     * @param marker        marker of a written account.
+     * @param transactions  number of transactions written for it.
+     * @param balance       balance written for it, in cents.
+     */
+    private void mark(Marker marker, int transactions, long balance) {
+        if (pending == pendingMarkers.length) {
+            pendingMarkers = Arrays.copyOf(pendingMarkers, pending * 2);
+            pendingTransactions = Arrays.copyOf(pendingTransactions, pending * 2);
+            pendingBalances = Arrays.copyOf(pendingBalances, pending * 2);
+        }
+        pendingMarkers[pending] = marker;
+        pendingTransactions[pending] = transactions;
+        pendingBalances[pending] = balance;
+        pending++;
+    }
+
+    /**
+     * Append the number and balance of an account, or two empty fields.
+     *
+     * @param sb        row being formatted.
+     * @param account   the account, may be null.
+     * @param balance   its balance, in cents.
+     * @return          the row.
+     */
+    private StringBuilder account(StringBuilder sb, Account account, long balance) {
+        if (account == null) return sb.append(',');
+        sb.append(account.getAccountNumber()).append(',');
+        return Money.append(sb, balance, false);
+    }
+
+    /**
+     * Append a value with the first letter of each word in title case and whitespace runs collapsed to one space.
+     *
+     * @param sb    row being formatted.
+     * @param value the value.
+     * @return      the row.
+     */
+    private static StringBuilder capitalize(StringBuilder sb, String value) {
+        boolean wordStart = true, pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // the whitespace of the regex \s
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\013' || c == '\f' || c == '\r') {
+                pendingSpace = !wordStart || pendingSpace;
+                wordStart = true;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(wordStart ? Character.toTitleCase(c) : c);
+            wordStart = false;
+        }
+        return sb;
+    }
+
+    /**
+     * Get the temporary file an export is written to before it replaces the target.
+     *
+     * @param target    file being exported.
+     * @return          path of the temporary file, next to the target.
+     * @throws IOException if the target's folder cannot be created.
+     */
+    private static Path temporary(Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        return parent.resolve(target.getFileName() + ".tmp");
+    }
+
+    /**
+     * Replace a file with its finished temporary file, leaving the result read-only.
+     *
+     * @param temp      finished temporary file.
+     * @param target    file to replace.
+     * @throws IOException if the file cannot be replaced.
+     */
+    private static void replace(Path temp, Path target) throws IOException {
+        // the previous export was left read-only
+        if (Files.exists(target) && !target.toFile().setWritable(true)) System.out.println("An error occurred while attempting to set the file as writable. File: " + target);
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (!target.toFile().setWritable(false)) System.out.println("An error occurred while attempting to set the file as read-only. File: " + target);
+    }
+
+    /**
+     * Kind of file an account is written to, each with its own markers.
+     */
+    public enum Target {
+
+        /**
+         * The customer report, written whole or patched.
+         */
+        REPORT,
+
+        /**
+         * Delta files of the customers changed since the previous one.
+         */
+        DELTA;
+
+        /**
+         * Get the marker of an account for this kind of file.
+         *
+         * @param account   the account.
+         * @return          its marker.
+         */
+        Marker of(Account account) {
+            return (this == REPORT) ? account.reportMarker : account.deltaMarker;
+        }
+    }
+
+    /**
+     * What an account had when it was last written to a kind of file.
+     */
+    static final class Marker {
+
+        /**
+         * Number of transactions, -1 if never written.
+         */
+        int transactions = -1;
+
+        /**
+         * Balance, in cents.
+         */
+        long balance;
+    }
+
+    /**
+     * Rows of an export, written after the header.
+     */
+    @FunctionalInterface
+    private interface Rows {
+
+        /**
+         * Write the rows.
+         *
+         * @param writer    writer of the temporary file.
+         * @throws IOException if a row cannot be written or the report being patched read.
+         */
+        void write(BufferedWriter writer) throws IOException;
+    }
+}
@@ -6,6 +6,8 @@
 // Assignment: Programming Assignment 2 (Project Part 2)
 // Lab Description: This lab is meant to demonstrate our knowledge in object-oriented concepts such as inheritance, polymorphism, UML diagrams, interfaces, design patterns, and more through coding our own implementation of a bank system of which deposits, withdraws, transfer, pays, and generates various files. This lab also included concepts of logging, testing with JUnit, debugging, file reading, error handling and JavaDoc.
 // Honesty Statement: We affirm that we have completed this assignment entirely on our own, without any assistance from outside sources, including peers, experts, online resources, or other means. All code and ideas were that of our own work, and we have followed proper academic integrity.*/
+import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * Represents the bank running
@@ -19,11 +21,36 @@ public class RunBank {
      */
     public static void main(String[] args) {
         FileHandler fh = new FileHandler();
-        fh.getCustomersFromCSV("BankUsers");
+        // restart from the last snapshot unless BankUsers was edited since
+        long journalSeq = BankSnapshot.loadIfCurrent(BankSnapshot.DEFAULT_PATH, Path.of("BankUsers.csv"));
+        if (journalSeq < 0) {
+            new BulkCustomerLoader().load("BankUsers");
+            journalSeq = 0;
+        }
+        // replay what happened after the snapshot, up to where an interrupted transaction file run was checkpointed
+        try {
+            int replayed = Journal.getInstance().open(Journal.DEFAULT_PATH, journalSeq, BatchCheckpoint.recoveryLimit(journalSeq));
+            if (replayed > 0) System.out.println("Recovered " + replayed + " operation(s) from the journal.");
+            int interrupted = BatchCheckpoint.settleInterrupted();
+            if (interrupted > 0) System.out.println(interrupted + " transaction file run(s) were interrupted; running them again resumes where they stopped.");
+        } catch (IOException e) {
+            System.out.println("Error opening journal: " + e.getMessage());
+        }
         MainInterface ui = new MainInterface();
         ui.displayWelcomeMessage();
         ui.mainMenu();
         // export once terminated
         fh.exportCustomerReportToCSV("EPMB_Report");
+        try {
+            long lastSeq = Journal.getInstance().lastSeq();
+            BankSnapshot.write(BankSnapshot.DEFAULT_PATH, true, lastSeq);
+            // the snapshot now holds everything journaled
+            Journal.getInstance().checkpoint(lastSeq);
+        } catch (IOException e) {
+            System.out.println("Error writing snapshot: " + e.getMessage());
+        }
+        Journal.getInstance().close();
+        // write out every queued log line before exiting
+        AuditLog.getInstance().shutdown();
     }
 }
\ No newline at end of file
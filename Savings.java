@@ -23,31 +23,27 @@ public class Savings extends Account{
     }
 
     /**
-     * Success indicating that deposit was successful.
+     * Balance after a deposit; savings deposits are always allowed.
      *
-     * @param amount    amount to be deposited.
-     * @return          success/fail of deposit.
+     * @param balance   balance before the deposit, in cents.
+     * @param cents     amount to be deposited, in cents.
+     * @return          balance after the deposit.
      */
-    @Override
-    public boolean deposit(double amount){
-        this.balance += amount;
-        return true;
+    long balanceAfterDeposit(long balance, long cents){
+        return balance + cents;
     }
 
     /**
-     * Take money out of an account.
+     * Balance after a withdrawal, which must be positive and covered by the balance.
      *
-     * @param amount    amount to be withdrawn.
-     *
-     * @return          The successfulness of a withdrawal.
-     * **/
-    @Override
-    public boolean withdraw(double amount){
-        if (amount <= this.balance && amount > 0){
-            this.balance -= amount;
-            return true;
-        }
-        System.out.println("\nWarning: Insufficient funds.");
-        return false;
+     * @param balance   balance before the withdrawal, in cents.
+     * @param cents     amount to be withdrawn, in cents.
+     * @return          balance after the withdrawal, or REJECTED if funds are insufficient.
+     */
+    long balanceAfterWithdraw(long balance, long cents){
+        // if valid amount to withdraw
+        if (cents <= balance && cents > 0) return balance - cents;
+        return REJECTED;
     }
+
 }
@@ -0,0 +1,354 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Writes the statement of every customer (or of those a filter accepts) for one date range, the
+ * bulk form of generating a statement for all accounts of a customer from the manager menu.
+ * Customers are split into ranges on a work-stealing pool, so idle workers take over the rest of a
+ * busy worker's range, and each statement file is written through its own buffered writer.
+ * A statement file already there is replaced, so running the same period again gives the same files.
+ */
+public class StatementJob {
+
+    /**
+     * Customers below which a range is written by one worker instead of being split.
+     */
+    private static final int LEAF_CUSTOMERS = 64;
+
+    /**
+     * Customers written between two progress reports.
+     */
+    private static final int PROGRESS_EVERY = 1000;
+
+    /**
+     * File handler for logging.
+     */
+    private final FileHandler fh;
+
+    /**
+     * Directory the statements are written to.
+     */
+    private final Path directory;
+
+    /**
+     * Start of the range, as days since 1970-01-01.
+     */
+    private final int startDay;
+
+    /**
+     * End of the range, as days since 1970-01-01.
+     */
+    private final int endDay;
+
+    /**
+     * Constructor of a statement job.
+     *
+     * @param fh        file handler for logging.
+     * @param directory directory the statements are written to.
+     * @param startDay  start of the range, as days since 1970-01-01.
+     * @param endDay    end of the range, as days since 1970-01-01, inclusive.
+     */
+    public StatementJob(FileHandler fh, Path directory, int startDay, int endDay) {
+        this.fh = fh;
+        this.directory = directory;
+        this.startDay = startDay;
+        this.endDay = endDay;
+    }
+
+    /**
+     * Get where the statement of a customer is written.
+     *
+     * @param customer  the customer.
+     * @return          path of the statement file, named as the manager menu names it.
+     */
+    public Path pathFor(Customer customer) {
+        return directory.resolve(customer.getFullName().replace(" ", "") + "Statement.txt");
+    }
+
+    /**
+     * Write the statement of every customer a filter accepts.
+     *
+     * @param pool      pool writing the statements.
+     * @param customers customers of the bank.
+     * @param filter    customers to write a statement for.
+     * @param progress  told how many statements are written, from the workers, every {@value #PROGRESS_EVERY} customers and at the end.
+     * @return          what the run wrote and how fast.
+     * @throws IOException if the statement directory cannot be created.
+     */
+    public Result run(ForkJoinPool pool, Iterable<Customer> customers, Predicate<Customer> filter, Progress progress) throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        List<Customer> selected = new ArrayList<>();
+        for (Customer customer : customers) if (filter.test(customer)) selected.add(customer);
+        // by id, so the progress of two runs over the same bank reads the same
+        selected.sort(Comparator.comparingInt(Customer::getId));
+        Result result = new Result(selected.size());
+        AtomicInteger done = new AtomicInteger();
+        pool.invoke(new Range(selected, 0, selected.size(), result, done, progress));
+        result.nanos = System.nanoTime() - started;
+        progress.update(done.get(), selected.size());
+        fh.appendLog("EPMB_Transactions", "Generated " + result.getStatements() + " bank statements from " + TransactionStore.formatEpochDay(startDay)
+                + " to " + TransactionStore.formatEpochDay(endDay) + " in " + directory + ", " + result.getFailures() + " failed.");
+        return result;
+    }
+
+    /**
+     * Write the statement of one customer, every account in one file.
+     *
+     * @param customer  the customer.
+     * @param renderer  renderer of the worker.
+     * @param result    counts of the run.
+     */
+    private void write(Customer customer, StatementRenderer renderer, Result result) {
+        File file = this.pathFor(customer).toFile();
+        long accounts = 0, transactions = 0;
+        try {
+            // a statement of an earlier run is read-only
+            if (file.exists() && !file.setWritable(true)) throw new IOException("cannot make " + file + " writable");
+            try (Writer writer = new BufferedWriter(new FileWriter(file, false), 1 << 16)) {
+                for (Account account : customer.getAccounts()) {
+                    transactions += renderer.render(writer, customer, account, startDay, endDay);
+                    accounts++;
+                }
+            }
+            file.setWritable(false);
+            result.statements.increment();
+            result.accounts.add(accounts);
+            result.transactions.add(transactions);
+        } catch (IOException e) {
+            result.failures.increment();
+            result.firstError.compareAndSet(null, e.getMessage());
+            fh.appendLog("EPMB_Error_Log", "Bank statement of " + customer.getFullName() + " [ID:" + customer.getId() + "] was not generated. Reason for failure: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Told how far a run is.
+     */
+    @FunctionalInterface
+    public interface Progress {
+
+        /**
+         * Progress reporter ignoring every update.
+         */
+        Progress NONE = (done, total) -> { };
+
+        /**
+         * Called as statements are written.
+         *
+         * @param done  customers handled so far.
+         * @param total customers to handle.
+         */
+        void update(int done, int total);
+    }
+
+    /**
+     * Range of customers, split in halves until small enough to write.
+     */
+    @SuppressWarnings("serial")
+    private final class Range extends RecursiveAction {
+
+        /**
+         * Customers of the run.
+         */
+        private final List<Customer> customers;
+
+        /**
+         * First customer of the range.
+         */
+        private final int from;
+
+        /**
+         * Customer after the last one of the range.
+         */
+        private final int to;
+
+        /**
+         * Counts of the run.
+         */
+        private final Result result;
+
+        /**
+         * Customers handled so far, by every worker.
+         */
+        private final AtomicInteger done;
+
+        /**
+         * Told how far the run is.
+         */
+        private final Progress progress;
+
+        /**
+         * Constructor of a range.
+         *
+         * @param customers customers of the run.
+         * @param from      first customer of the range.
+         * @param to        customer after the last one.
+         * @param result    counts of the run.
+         * @param done      customers handled so far.
+         * @param progress  told how far the run is.
+         */
+        Range(List<Customer> customers, int from, int to, Result result, AtomicInteger done, Progress progress) {
+            this.customers = customers;
+            this.from = from;
+            this.to = to;
+            this.result = result;
+            this.done = done;
+            this.progress = progress;
+        }
+
+        /**
+         * Write the range, or split it and let idle workers steal the other half.
+         */
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_CUSTOMERS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(customers, from, mid, result, done, progress), new Range(customers, mid, to, result, done, progress));
+                return;
+            }
+            StatementRenderer renderer = new StatementRenderer();
+            for (int i = from; i < to; i++) {
+                StatementJob.this.write(customers.get(i), renderer, result);
+                int handled = done.incrementAndGet();
+                if (handled % PROGRESS_EVERY == 0) progress.update(handled, customers.size());
+            }
+        }
+    }
+
+    /**
+     * What a statement run wrote.
+     */
+    public static final class Result {
+
+        /**
+         * Customers selected.
+         */
+        private final int customers;
+
+        /**
+         * Statement files written.
+         */
+        private final LongAdder statements = new LongAdder();
+
+        /**
+         * Accounts written.
+         */
+        private final LongAdder accounts = new LongAdder();
+
+        /**
+         * Transactions written.
+         */
+        private final LongAdder transactions = new LongAdder();
+
+        /**
+         * Statements that could not be written.
+         */
+        private final LongAdder failures = new LongAdder();
+
+        /**
+         * Why the first failing statement could not be written.
+         */
+        private final AtomicReference<String> firstError = new AtomicReference<>();
+
+        /**
+         * Time the run took, in nanoseconds.
+         */
+        private long nanos;
+
+        /**
+         * Constructor of an empty result.
+         *
+         * @param customers customers selected.
+         */
+        Result(int customers) {
+            this.customers = customers;
+        }
+
+        /**
+         * Get the number of customers selected.
+         *
+         * @return customers selected.
+         */
+        public int getCustomers() {
+            return this.customers;
+        }
+
+        /**
+         * Get the number of statement files written.
+         *
+         * @return statements written.
+         */
+        public long getStatements() {
+            return this.statements.sum();
+        }
+
+        /**
+         * Get the number of accounts written.
+         *
+         * @return accounts written.
+         */
+        public long getAccounts() {
+            return this.accounts.sum();
+        }
+
+        /**
+         * Get the number of transactions written.
+         *
+         * @return transactions written.
+         */
+        public long getTransactions() {
+            return this.transactions.sum();
+        }
+
+        /**
+         * Get the number of statements that could not be written.
+         *
+         * @return statements failed.
+         */
+        public long getFailures() {
+            return this.failures.sum();
+        }
+
+        /**
+         * Get why the first failing statement could not be written.
+         *
+         * @return the reason, null if none failed.
+         */
+        public String getFirstError() {
+            return this.firstError.get();
+        }
+
+        /**
+         * Get the time the run took.
+         *
+         * @return time in milliseconds.
+         */
+        public long getMillis() {
+            return this.nanos / 1_000_000;
+        }
+
+        /**
+         * Get how fast statements were written.
+         *
+         * @return statements per second.
+         */
+        public long getStatementsPerSecond() {
+            return (nanos == 0) ? 0 : Math.round(this.getStatements() / (nanos / 1e9));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Renders account statements. The fixed text of a statement is held as constants, amounts are
+ * appended digit by digit (see {@link Money#append}) and dates from their epoch day, caching the
+ * characters of the last day since consecutive transactions mostly share it, so nothing is parsed
+ * or formatted per transaction. Text is built in one reused buffer and handed to the writer in
+ * large pieces. A renderer keeps state between calls, so each thread uses its own.
+ */
+public class StatementRenderer {
+
+    /**
+     * Characters buffered before they are handed to the writer.
+     */
+    private static final int FLUSH_CHARS = 8192;
+
+    /**
+     * Line separating the header and the footer from the transactions.
+     */
+    private static final String RULE = "==================================================\n";
+
+    /**
+     * Line following each transaction.
+     */
+    private static final String TRANSACTION_RULE = "-------------------------------------\n";
+
+    /**
+     * Text being built, flushed to the writer once it grows past {@value #FLUSH_CHARS} characters.
+     */
+    private final StringBuilder buffer = new StringBuilder(FLUSH_CHARS * 2);
+
+    /**
+     * Characters copied out of the buffer for the writer, grown if a transaction overshoots it.
+     */
+    private char[] chars = new char[FLUSH_CHARS * 2];
+
+    /**
+     * Day whose characters are cached, Integer.MIN_VALUE before the first date.
+     */
+    private int cachedDay = Integer.MIN_VALUE;
+
+    /**
+     * Characters of the cached day, in mm-dd-yyyy format.
+     */
+    private final char[] cachedDate = new char[10];
+
+    /**
+     * Render the statement of one account: a header with the balance before the range, every transaction
+     * within the range, and the balance at its end. The range becomes the account's statement checkpoint.
+     *
+     * @param writer    writer of the statement file.
+     * @param customer  owner of the account.
+     * @param account   account for the transactions.
+     * @param startDay  start range, as days since 1970-01-01.
+     * @param endDay    end range, as days since 1970-01-01.
+     * @return          number of transactions rendered.
+     * @throws IOException if the statement cannot be written.
+     */
+    public int render(Writer writer, Customer customer, Account account, int startDay, int endDay) throws IOException {
+        TransactionStore.Period period = account.getTransactionList().statement(startDay, endDay);
+        StringBuilder sb = buffer;
+        // text left over by a render that failed belongs to another file
+        sb.setLength(0);
+        sb.append("Name: ").append(customer.getFullName()).append("\nID: ").append(customer.getId())
+                .append("\nAccount: ").append(account.getType()).append("\nAccount ID: ").append(account.getAccountNumber())
+                .append("\nStarting Balance: $");
+        Money.append(sb, period.getOpeningBalanceCents(), false).append("\nStatement Period: ");
+        this.appendDate(sb, startDay).append(" to ");
+        this.appendDate(sb, endDay).append('\n').append(RULE);
+        TransactionCursor transactions = period.getTransactions();
+        int rendered = 0;
+        while (transactions.next()) {
+            sb.append("Date: ");
+            this.appendDate(sb, transactions.getEpochDay()).append("\nDescription: ").append(transactions.getDescription()).append("\nAmount: $");
+            Money.append(sb, transactions.getAmountCents(), false).append("\nNew Balance: $");
+            Money.append(sb, transactions.getNewBalanceCents(), false).append('\n').append(TRANSACTION_RULE);
+            rendered++;
+            if (sb.length() >= FLUSH_CHARS) this.flush(writer);
+        }
+        sb.append("Ending balance: $");
+        Money.append(sb, period.getClosingBalanceCents(), false).append('\n').append(RULE);
+        this.flush(writer);
+        return rendered;
+    }
+
+    /**
+     * Append a day in mm-dd-yyyy format.
+     *
+     * @param sb        builder to append to.
+     * @param epochDay  days since 1970-01-01.
+     * @return          the builder.
+     */
+    StringBuilder appendDate(StringBuilder sb, int epochDay) {
+        if (epochDay != cachedDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            int month = date.getMonthValue(), day = date.getDayOfMonth(), year = date.getYear();
+            if (year < 0 || year > 9999) return sb.append(TransactionStore.formatEpochDay(epochDay));
+            char[] c = cachedDate;
+            c[0] = (char) ('0' + month / 10);
+            c[1] = (char) ('0' + month % 10);
+            c[2] = '-';
+            c[3] = (char) ('0' + day / 10);
+            c[4] = (char) ('0' + day % 10);
+            c[5] = '-';
+            c[6] = (char) ('0' + year / 1000);
+            c[7] = (char) ('0' + year / 100 % 10);
+            c[8] = (char) ('0' + year / 10 % 10);
+            c[9] = (char) ('0' + year % 10);
+            cachedDay = epochDay;
+        }
+        return sb.append(cachedDate);
+    }
+
+    /**
+     * Hand the buffered text to the writer and empty the buffer.
+     *
+     * @param writer    writer of the statement file.
+     * @throws IOException if the text cannot be written.
+     */
+    private void flush(Writer writer) throws IOException {
+        int length = buffer.length();
+        if (chars.length < length) chars = new char[length];
+        buffer.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+        buffer.setLength(0);
+    }
+}
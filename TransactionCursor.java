@@ -0,0 +1,143 @@
+
+/**
+ * Forward-only cursor over a range of an account's transactions.
+ * Reads straight from the columns of the store, so nothing is copied per transaction.
+ */
+public class TransactionCursor {
+
+    /**
+     * Store the cursor reads from.
+     */
+    private final TransactionStore store;
+
+    /**
+     * Date order of the transactions, null if the store is in date order.
+     */
+    private final int[] order;
+
+    /**
+     * Balance after each transaction in date order, null if the store is in date order.
+     */
+    private final long[] balances;
+
+    /**
+     * Position of the next transaction to visit.
+     */
+    private int position;
+
+    /**
+     * Position after the last transaction in range.
+     */
+    private final int end;
+
+    /**
+     * Index in the store of the current transaction.
+     */
+    private int current = -1;
+
+    /**
+     * Constructor of a cursor.
+     *
+     * @param store     store to read from.
+     * @param order     date order of the transactions, null if the store is in date order.
+     * @param balances  balance after each transaction in date order, null if the store is in date order.
+     * @param from      position of the first transaction in range.
+     * @param end       position after the last transaction in range.
+     */
+    TransactionCursor(TransactionStore store, int[] order, long[] balances, int from, int end) {
+        this.store = store;
+        this.order = order;
+        this.balances = balances;
+        this.position = from;
+        this.end = end;
+    }
+
+    /**
+     * Move to the next transaction in range.
+     *
+     * @return true if there is a current transaction, false once the range is exhausted.
+     */
+    public boolean next() {
+        if (position >= end) {
+            current = -1;
+            return false;
+        }
+        current = (order == null) ? position : order[position];
+        position++;
+        return true;
+    }
+
+    /**
+     * Get the number of transactions in range not visited yet.
+     *
+     * @return remaining transactions.
+     */
+    public int remaining() {
+        return end - position;
+    }
+
+    /**
+     * Get the index in the store of the current transaction.
+     *
+     * @return index of the current transaction.
+     */
+    public int index() {
+        if (current < 0) throw new IllegalStateException("Cursor is not on a transaction.");
+        return current;
+    }
+
+    /**
+     * Get the date of the current transaction.
+     *
+     * @return days since 1970-01-01.
+     */
+    public int getEpochDay() {
+        return store.getEpochDay(index());
+    }
+
+    /**
+     * Get the date of the current transaction.
+     *
+     * @return date in mm-dd-yyyy format.
+     */
+    public String getDate() {
+        return TransactionStore.formatEpochDay(getEpochDay());
+    }
+
+    /**
+     * Get the description of the current transaction.
+     *
+     * @return description of the transaction.
+     */
+    public String getDescription() {
+        return store.getDescription(index());
+    }
+
+    /**
+     * Get the amount of the current transaction.
+     *
+     * @return amount in cents.
+     */
+    public long getAmountCents() {
+        return store.getAmountCents(index());
+    }
+
+    /**
+     * Get the balance after the current transaction, counting every transaction dated before it.
+     *
+     * @return balance in cents.
+     */
+    public long getNewBalanceCents() {
+        int index = index();
+        return (balances == null) ? store.getNewBalanceCents(index) : balances[position - 1];
+    }
+
+    /**
+     * Materialize the current transaction as a node.
+     *
+     * @return node holding the transaction's attributes.
+     */
+    public TransactionNode toNode() {
+        return store.get(index());
+    }
+}
@@ -29,10 +29,10 @@ public class TransactionInterface extends UserInterface {
             System.out.print("Enter deposit amount: \n$");
             String depositAmountStr = scan.nextLine();
             try {
-                double depositAmount = this.validateMoney(depositAmountStr);
-                boolean rc = customer.deposit(account, depositAmount);
-                if (rc) fh.appendLog("EPMB_Transactions", customer.getFullName() + " [ID:" + customer.getId() + "] made a deposit of $" + String.format("%.2f", depositAmount) +
-                        " to " + account.getType() + " account [Account Number: " + account.getAccountNumber() + "]. Current balance: $" + String.format("%.2f", account.getBalance()));
+                long depositAmount = this.validateMoney(depositAmountStr);
+                boolean rc = customer.depositCents(account, depositAmount, this.console).isApplied();
+                if (rc) fh.appendLog("EPMB_Transactions", customer.getFullName() + " [ID:" + customer.getId() + "] made a deposit of $" + Money.format(depositAmount) +
+                        " to " + account.getType() + " account [Account Number: " + account.getAccountNumber() + "]. Current balance: $" + Money.format(account.getBalanceCents()));
                 else fh.appendLog("EPMB_Error_Log", "Reason for failure: Customer does not own this account or insufficient funds.");
                 return;
 
@@ -60,11 +60,11 @@ public class TransactionInterface extends UserInterface {
             System.out.print("Enter withdrawal amount: \n$");
             String withdrawAmountStr = scan.nextLine();
             try {
-                double withdrawAmount = this.validateMoney(withdrawAmountStr);
+                long withdrawAmount = this.validateMoney(withdrawAmountStr);
                 // withdraw amount from an account
-                boolean success = customer.withdraw(account, withdrawAmount);
-                String logMessage = customer.getFullName() + " [ID:" + customer.getId() + "] attempted a withdrawal of $" + String.format("%.2f", withdrawAmount) +
-                        " from " + account.getType() + " account [Account Number:" + account.getAccountNumber() + "]. Current balance: $" + String.format("%.2f", account.getBalance());
+                boolean success = customer.withdrawCents(account, withdrawAmount, this.console).isApplied();
+                String logMessage = customer.getFullName() + " [ID:" + customer.getId() + "] attempted a withdrawal of $" + Money.format(withdrawAmount) +
+                        " from " + account.getType() + " account [Account Number:" + account.getAccountNumber() + "]. Current balance: $" + Money.format(account.getBalanceCents());
                 if (success) {
                     fh.appendLog("EPMB_Transactions", logMessage);
                 } else {
@@ -75,7 +75,7 @@ public class TransactionInterface extends UserInterface {
             } catch (InvalidCurrencyFormat e) {
                 // error logging
                 fh.appendLog("EPMB_Error_Log", customer.getFullName() + " [ID:" + customer.getId() + "] attempted a withdrawal from " +
-                        account.getType() + " account [Account Number:" + account.getAccountNumber() + "]. Reason for failure: Inappropriate formatting. Current balance: $" + String.format("%.2f", account.getBalance()));
+                        account.getType() + " account [Account Number:" + account.getAccountNumber() + "]. Reason for failure: Inappropriate formatting. Current balance: $" + Money.format(account.getBalanceCents()));
                 System.out.println("Error: " + e.getMessage());
             }
         }
@@ -103,7 +103,7 @@ public class TransactionInterface extends UserInterface {
                 case "a":
                     // inquire detailed description of account
                     fh.appendLog("EPMB_Transactions", customer.getFullName() + " [ID:" + customer.getId() + "] viewed the details of " + account.getType() + " account [Account Number:" + account.getAccountNumber() +
-                            "] Account's Current Balance: $" + String.format("%.2f", account.getBalance()));
+                            "] Account's Current Balance: $" + Money.format(account.getBalanceCents()));
                     account.printAccount(true, true);
                     return;
                 case "b":
@@ -176,13 +176,13 @@ public class TransactionInterface extends UserInterface {
             System.out.print("Enter transfer amount: \n$");
             String transferAmountStr = scan.nextLine();
             try {
-                double transferAmount = this.validateMoney(transferAmountStr);
-                boolean rc = customer.transfer(accountOne, accountTwo, transferAmount);
-                String logMessage = customer.getFullName() + " [ID:" + customer.getId() + "] attempted a transfer of $" + String.format("%.2f", transferAmount) +
+                long transferAmount = this.validateMoney(transferAmountStr);
+                boolean rc = customer.transferCents(accountOne, accountTwo, transferAmount, this.console).isApplied();
+                String logMessage = customer.getFullName() + " [ID:" + customer.getId() + "] attempted a transfer of $" + Money.format(transferAmount) +
                         " from " + accountOne.getType() + " account [Account Number:" + accountOne.getAccountNumber() +
                         "] to " + accountTwo.getType() + " account [Account Number:" + accountTwo.getAccountNumber() + "]. " +
-                        "Account One Current Balance: $" + String.format("%.2f", accountOne.getBalance()) +
-                        " Account Two Current Balance: $" + String.format("%.2f", accountTwo.getBalance());
+                        "Account One Current Balance: $" + Money.format(accountOne.getBalanceCents()) +
+                        " Account Two Current Balance: $" + Money.format(accountTwo.getBalanceCents());
                 if (rc) fh.appendLog("EPMB_Transactions", logMessage);
                 else // error logging
                     fh.appendLog("EPMB_Error_Log", logMessage + " Reason for failure: Insufficient funds or incorrect account.");
@@ -215,12 +215,12 @@ public class TransactionInterface extends UserInterface {
             String sendAmountStr = scan.nextLine();
 
             try{
-                double sendAmount = this.validateMoney(sendAmountStr);
-                boolean rc = customerOne.send(accountOne, accountTwo, sendAmount, customerTwo);
-                String logMessage = customerOne.getFullName() + " [ID:" + customerOne.getId() + "] attempted to send $" + String.format("%.2f", sendAmount) +
+                long sendAmount = this.validateMoney(sendAmountStr);
+                boolean rc = customerOne.sendCents(accountOne, accountTwo, sendAmount, customerTwo, this.console).isApplied();
+                String logMessage = customerOne.getFullName() + " [ID:" + customerOne.getId() + "] attempted to send $" + Money.format(sendAmount) +
                         " from " + accountOne.getType() + " account [Account Number:" + accountOne.getAccountNumber() +
                         "] to " + customerOne.getFullName() + " [ID:" + customerOne.getId() + "] " + accountTwo.getType() + " account [Account Number:" + accountTwo.getAccountNumber() + "]. " +
-                        "Account One Current Balance: $" + String.format("%.2f", accountOne.getBalance());
+                        "Account One Current Balance: $" + Money.format(accountOne.getBalanceCents());
                 if (rc) {
                     fh.appendLog("EPMB_Transactions", logMessage);
                 } else {
@@ -248,20 +248,18 @@ public class TransactionInterface extends UserInterface {
      * @return The account if it exists.
      */
     public Account getAccount(String accType, int accNum) {
-        return "checking".equalsIgnoreCase(accType) ? BankDatabase.getInstance().getCheckingAccounts().get(accNum) :
-                "savings".equalsIgnoreCase(accType) ? BankDatabase.getInstance().getSavingsAccounts().get(accNum) :
-                        "credit".equalsIgnoreCase(accType) ? BankDatabase.getInstance().getCreditAccounts().get(accNum) : null;
+        return BankDatabase.getInstance().getAccount(AccountKind.parse(accType), accNum);
     }
 
     /**
      * Check if the format provided fits correct money format.
      *
      * @param input The input of money.
-     * @return      If format is valid or not.
+     * @return      The amount in cents if the format is valid.
      */
-    private double validateMoney(String input) throws InvalidCurrencyFormat {
+    private long validateMoney(String input) throws InvalidCurrencyFormat {
         boolean correctFormat = Pattern.matches("^(\\d{1,3}(,\\d{3})*(\\.\\d{1,2})?|\\d+(\\.\\d{1,2})?)$", input);
-        if (correctFormat) return Double.parseDouble(input.replace(",", ""));
+        if (correctFormat) return Money.parseCents(input);
         throw new InvalidCurrencyFormat("Currency format is invalid.");
     }
 }
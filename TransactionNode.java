@@ -14,9 +14,9 @@
 public class TransactionNode {
 
     /**
-     * Date the transaction took place.
+     * Date the transaction took place, as days since 1970-01-01.
      */
-    String date;
+    int epochDay;
 
     /**
      * Description of the transaction.
@@ -24,34 +24,37 @@ public class TransactionNode {
     String description;
 
     /**
-     * Amount of the transaction.
+     * Amount of the transaction, in cents.
      */
-    double amount;
+    long amount;
 
     /**
-     * The new balance of the account after the transaction.
+     * The new balance of the account after the transaction, in cents.
      */
-    double newBalance;
-
-    /**
-     * The next node to point to
-     */
-    TransactionNode next;
+    long newBalance;
 
     /**
      * Constructor to create a transaction node.
      *
-     * @param date          of transaction.
+     * @param epochDay      of transaction, as days since 1970-01-01.
      * @param description   of transaction.
-     * @param amount        transacted.
-     * @param newBalance    after transaction.
+     * @param amount        transacted, in cents.
+     * @param newBalance    after transaction, in cents.
      */
-    public TransactionNode(String date, String description, double amount, double newBalance) {
-        this.date = date;
+    public TransactionNode(int epochDay, String description, long amount, long newBalance) {
+        this.epochDay = epochDay;
         this.description = description;
         this.amount = amount;
         this.newBalance = newBalance;
-        this.next = null;
+    }
+
+    /**
+     * Get the date the transaction took place.
+     *
+     * @return date in mm-dd-yyyy format.
+     */
+    public String getDate() {
+        return TransactionStore.formatEpochDay(this.epochDay);
     }
 }
 
@@ -0,0 +1,398 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a transaction file as a pipeline of four stages joined by bounded queues:
+ * a reader copying csv rows, a resolver mapping names and account types to accounts,
+ * the apply stage changing balances (on the calling thread, inside one journal batch),
+ * and a logging stage formatting the audit lines. Rows travel in chunks so the queues are
+ * touched once per chunk, and a full queue blocks the stage feeding it, so only a few chunks
+ * of a file are ever in memory. Rows are applied and logged in file order, as in a single loop.
+ * Progress can be checkpointed so a run that dies is resumed instead of repeated (see {@link BatchCheckpoint}).
+ * Each run fills a {@link BatchReport} with what the rows did and how long each stage worked.
+ */
+public class TransactionPipeline {
+
+    /**
+     * Rows per chunk handed from one stage to the next.
+     */
+    private static final int CHUNK_ROWS = 256;
+
+    /**
+     * Chunks each queue holds before its producer blocks.
+     */
+    private static final int QUEUE_CHUNKS = 16;
+
+    /**
+     * Rows applied between two checkpoints.
+     */
+    private static final int CHECKPOINT_ROWS = 50_000;
+
+    /**
+     * How often a blocked stage checks whether another stage failed, in milliseconds.
+     */
+    private static final long POLL_MS = 100;
+
+    /**
+     * Chunk marking the end of the file.
+     */
+    private static final Chunk END = new Chunk(0);
+
+    /**
+     * Manager applying and logging the rows.
+     */
+    private final Manager manager;
+
+    /**
+     * File handler for logging.
+     */
+    private final FileHandler fh;
+
+    /**
+     * Report of the run, passing what each row did on to the caller's listener.
+     */
+    private final BatchReport report;
+
+    /**
+     * Copied rows, from the reader to the resolver.
+     */
+    private final ArrayBlockingQueue<Chunk> read = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+
+    /**
+     * Resolved rows, from the resolver to the apply stage.
+     */
+    private final ArrayBlockingQueue<Chunk> resolved = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+
+    /**
+     * Applied rows with their outcomes, from the apply stage to the logging stage.
+     */
+    private final ArrayBlockingQueue<Chunk> applied = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+
+    /**
+     * First failure of any stage.
+     */
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    /**
+     * Constructor of a pipeline.
+     *
+     * @param manager   manager applying and logging the rows.
+     * @param fh        file handler for logging.
+     * @param listener  listener told what each row did, on the calling thread.
+     */
+    public TransactionPipeline(Manager manager, FileHandler fh, OperationListener listener) {
+        this.manager = manager;
+        this.fh = fh;
+        this.report = new BatchReport(listener);
+    }
+
+    /**
+     * Run every row of a transaction file, without checkpoints.
+     *
+     * @param file  path of the transaction csv.
+     * @return      number of rows run.
+     * @throws IOException if the file cannot be read.
+     */
+    public long run(Path file) throws IOException {
+        return this.run(file, false, null);
+    }
+
+    /**
+     * Run the rows of a transaction file, saving a durable checkpoint when starting, every
+     * {@value #CHECKPOINT_ROWS} rows and when stopping, so a run that dies can be resumed.
+     *
+     * @param file      path of the transaction csv.
+     * @param resume    continue after the checkpoint of an earlier run that did not finish, if the file is unchanged.
+     * @return          number of rows run.
+     * @throws IOException if the file cannot be read or the checkpoint cannot be written.
+     */
+    public long run(Path file, boolean resume) throws IOException {
+        BatchCheckpoint checkpoint = resume ? BatchCheckpoint.resumable(file) : null;
+        if (checkpoint != null) report.resumed(file, checkpoint);
+        return this.run(file, true, checkpoint);
+    }
+
+    /**
+     * Run the rows of a transaction file, from the start or from a checkpoint.
+     *
+     * @param file          path of the transaction csv.
+     * @param checkpointed  flag to save checkpoints.
+     * @param resumeFrom    checkpoint to continue after, null to run the whole file.
+     * @return              number of rows run.
+     * @throws IOException if the file cannot be read or the checkpoint cannot be written.
+     */
+    private long run(Path file, boolean checkpointed, BatchCheckpoint resumeFrom) throws IOException {
+        long rows = 0;
+        long started = System.nanoTime();
+        report.start(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CsvReader reader = new CsvReader(channel, 0, true);
+            int[] cols = TransactionRow.columns(reader);
+            BatchCheckpoint checkpoint = resumeFrom;
+            if (checkpoint == null && checkpointed) {
+                // a fresh run starts right after the headers
+                checkpoint = BatchCheckpoint.start(file, reader.position());
+            } else if (checkpoint != null) {
+                // skip the rows already applied
+                String[] headers = reader.getHeaders();
+                channel.position(checkpoint.getOffset());
+                reader = new CsvReader(channel, checkpoint.getOffset(), false);
+                reader.setHeaders(headers);
+                reader.setRowsBefore(checkpoint.getRow());
+            }
+            if (checkpoint != null) checkpoint.save(BatchCheckpoint.State.RUNNING);
+            CsvReader rowReader = reader;
+            Thread readStage = this.start("EPMB-pipeline-read", () -> this.readRows(rowReader));
+            Thread resolveStage = this.start("EPMB-pipeline-resolve", () -> this.resolveRows(cols));
+            Thread logStage = this.start("EPMB-pipeline-log", this::logRows);
+            boolean finished = false;
+            // journal the whole file as one batch, waiting for the disk once at the end
+            Journal.getInstance().beginBatch();
+            try {
+                long unsaved = 0;
+                Chunk chunk;
+                for (chunk = this.take(resolved); chunk != null && chunk != END; chunk = this.take(resolved)) {
+                    long chunkStarted = System.nanoTime(), rowStarted = chunkStarted;
+                    for (int i = 0; i < chunk.size; i++) {
+                        TransactionRow row = chunk.resolved[i];
+                        chunk.outcomes[i] = manager.applyRow(row, report);
+                        long rowEnded = System.nanoTime();
+                        report.count(chunk.outcomes[i], rowEnded - rowStarted);
+                        rowStarted = rowEnded;
+                        if (checkpoint != null) checkpoint.count(chunk.outcomes[i], row.number, row.endOffset);
+                    }
+                    report.addPhase(BatchReport.Phase.APPLY, System.nanoTime() - chunkStarted);
+                    rows += chunk.size;
+                    unsaved += chunk.size;
+                    if (checkpoint != null && unsaved >= CHECKPOINT_ROWS) {
+                        checkpoint.save(BatchCheckpoint.State.RUNNING);
+                        unsaved = 0;
+                    }
+                    if (!this.put(applied, chunk)) break;
+                }
+                finished = chunk == END;
+                this.put(applied, END);
+            } catch (RuntimeException | IOException | InterruptedException e) {
+                this.fail(e);
+            } finally {
+                if (!Journal.getInstance().endBatch()) this.fail(new IOException(Journal.FAILED_MESSAGE));
+            }
+            // record exactly where the run ended, so running the file again picks up from there
+            if (checkpoint != null) {
+                try {
+                    checkpoint.save(finished ? BatchCheckpoint.State.COMPLETE : BatchCheckpoint.State.STOPPED);
+                } catch (IOException e) {
+                    this.fail(e);
+                }
+            }
+            this.join(readStage);
+            this.join(resolveStage);
+            this.join(logStage);
+        }
+        report.setWallNanos(System.nanoTime() - started);
+        Exception e = failure.get();
+        if (e instanceof IOException io) throw io;
+        if (e instanceof RuntimeException re) throw re;
+        if (e != null) throw new IllegalStateException("Transaction pipeline interrupted", e);
+        return rows;
+    }
+
+    /**
+     * Get the report of the last run.
+     *
+     * @return counts, amounts and timings of the rows run, complete once run returns.
+     */
+    public BatchReport getReport() {
+        return this.report;
+    }
+
+    /**
+     * Reader stage: copy rows off the reader into chunks.
+     *
+     * @param reader    reader positioned after the headers.
+     * @throws IOException if the file cannot be read.
+     * @throws InterruptedException if interrupted while waiting for the resolver.
+     */
+    private void readRows(CsvReader reader) throws IOException, InterruptedException {
+        Chunk chunk = new Chunk(CHUNK_ROWS);
+        long started = System.nanoTime();
+        while (reader.next()) {
+            chunk.rows[chunk.size++] = reader.row().copy();
+            if (chunk.size == CHUNK_ROWS) {
+                // time spent blocked on a full queue is not reading
+                report.addPhase(BatchReport.Phase.READ, System.nanoTime() - started);
+                if (!this.put(read, chunk)) return;
+                chunk = new Chunk(CHUNK_ROWS);
+                started = System.nanoTime();
+            }
+        }
+        report.addPhase(BatchReport.Phase.READ, System.nanoTime() - started);
+        if (chunk.size > 0 && !this.put(read, chunk)) return;
+        this.put(read, END);
+    }
+
+    /**
+     * Resolver stage: map the names and account types of each row to customers and accounts.
+     *
+     * @param cols  columns of the transaction fields.
+     * @throws InterruptedException if interrupted while waiting for another stage.
+     */
+    private void resolveRows(int[] cols) throws InterruptedException {
+        for (Chunk chunk = this.take(read); chunk != null; chunk = this.take(read)) {
+            if (chunk == END) {
+                this.put(resolved, END);
+                return;
+            }
+            long started = System.nanoTime();
+            for (int i = 0; i < chunk.size; i++) {
+                chunk.resolved[i] = TransactionRow.parse(chunk.rows[i], cols);
+                chunk.rows[i] = null;
+            }
+            report.addPhase(BatchReport.Phase.RESOLVE, System.nanoTime() - started);
+            if (!this.put(resolved, chunk)) return;
+        }
+    }
+
+    /**
+     * Logging stage: format and queue the audit line of each applied row.
+     *
+     * @throws InterruptedException if interrupted while waiting for the apply stage.
+     */
+    private void logRows() throws InterruptedException {
+        for (Chunk chunk = this.take(applied); chunk != null && chunk != END; chunk = this.take(applied)) {
+            long started = System.nanoTime();
+            for (int i = 0; i < chunk.size; i++) manager.logRow(chunk.resolved[i], chunk.outcomes[i], fh);
+            report.addPhase(BatchReport.Phase.LOG, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Start a stage on its own thread, recording its failure.
+     *
+     * @param name  name of the thread.
+     * @param stage body of the stage.
+     * @return      the started thread.
+     */
+    private Thread start(String name, Stage stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (Exception e) {
+                this.fail(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Hand a chunk to the next stage, waiting while its queue is full.
+     *
+     * @param queue     queue of the next stage.
+     * @param chunk     chunk to hand over.
+     * @return          true if handed over, false if a stage failed meanwhile.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private boolean put(ArrayBlockingQueue<Chunk> queue, Chunk chunk) throws InterruptedException {
+        while (!queue.offer(chunk, POLL_MS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Take the next chunk from the previous stage, waiting while its queue is empty.
+     *
+     * @param queue     queue to take from.
+     * @return          the chunk, null once a stage failed and the queue is drained.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private Chunk take(ArrayBlockingQueue<Chunk> queue) throws InterruptedException {
+        Chunk chunk;
+        // chunks already queued are still handed on, so every applied row gets logged
+        while ((chunk = queue.poll(POLL_MS, TimeUnit.MILLISECONDS)) == null) {
+            if (failure.get() != null && queue.isEmpty()) return null;
+        }
+        return chunk;
+    }
+
+    /**
+     * Record a failure so every stage stops.
+     *
+     * @param e the failure.
+     */
+    private void fail(Exception e) {
+        failure.compareAndSet(null, e);
+    }
+
+    /**
+     * Wait for a stage to finish.
+     *
+     * @param stage thread of the stage.
+     */
+    private void join(Thread stage) {
+        try {
+            stage.join();
+        } catch (InterruptedException e) {
+            this.fail(e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Body of a stage.
+     */
+    @FunctionalInterface
+    private interface Stage {
+
+        /**
+         * Run the stage until the end of the file or a failure.
+         *
+         * @throws Exception if the stage fails.
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Rows travelling between two stages.
+     */
+    private static final class Chunk {
+
+        /**
+         * Copied csv rows, cleared once resolved.
+         */
+        final CsvRow[] rows;
+
+        /**
+         * Resolved rows.
+         */
+        final TransactionRow[] resolved;
+
+        /**
+         * Outcome of applying each row.
+         */
+        final TransactionRow.Outcome[] outcomes;
+
+        /**
+         * Rows in the chunk.
+         */
+        int size;
+
+        /**
+         * Constructor of an empty chunk.
+         *
+         * @param capacity  rows the chunk can hold.
+         */
+        Chunk(int capacity) {
+            this.rows = new CsvRow[capacity];
+            this.resolved = new TransactionRow[capacity];
+            this.outcomes = new TransactionRow.Outcome[capacity];
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * One row of a transaction file with its customers and accounts resolved.
+ * Rows are resolved before they are run, so a batch can look at which accounts
+ * every row touches without running it.
+ */
+public class TransactionRow {
+
+    /**
+     * What running a row did.
+     */
+    public enum Outcome {
+        /** The row was applied (or, for an inquiry, answered). */
+        APPLIED,
+        /** An account refused the row, nothing was applied. */
+        REJECTED,
+        /** The row is malformed or names no one or no such account, nothing was attempted. */
+        SKIPPED
+    }
+
+    /**
+     * Why a row was skipped.
+     */
+    public enum Problem {
+        /** The amount is not a valid amount. */
+        INVALID_AMOUNT,
+        /** The action needs a source customer and names none (or an unknown one). */
+        NO_SOURCE,
+        /** The action needs a destination customer and names none (or an unknown one). */
+        NO_DESTINATION,
+        /** The action takes no source, yet the row gives one. */
+        UNEXPECTED_SOURCE,
+        /** The action takes no destination, yet the row gives one. */
+        UNEXPECTED_DESTINATION,
+        /** The action is none of the known actions. */
+        UNKNOWN_ACTION,
+        /** The source customer has no account of the type given. */
+        NO_SOURCE_ACCOUNT,
+        /** The destination customer has no account of the type given. */
+        NO_DESTINATION_ACCOUNT
+    }
+
+    /**
+     * Actions a row can perform.
+     */
+    private static final String[] ACTIONS = {"pays", "transfers", "inquires", "withdraws", "deposits"};
+
+    /**
+     * Row number in the file, counting the first row after the headers as 1.
+     */
+    final long number;
+
+    /**
+     * Byte offset in the file right after the row.
+     */
+    final long endOffset;
+
+    /**
+     * Action of the row, lowercase (e.g. "pays", "deposits").
+     */
+    final String action;
+
+    /**
+     * Source customer, null if absent or unknown.
+     */
+    final Customer fromCustomer;
+
+    /**
+     * Flag if the row gives a source account type.
+     */
+    final boolean hasFromAccountType;
+
+    /**
+     * Source account, null if the source customer has none of that type.
+     */
+    final Account fromAccount;
+
+    /**
+     * Destination customer, null if absent or unknown.
+     */
+    final Customer toCustomer;
+
+    /**
+     * Flag if the row gives a destination account type.
+     */
+    final boolean hasToAccountType;
+
+    /**
+     * Destination account, null if the destination customer has none of that type.
+     */
+    final Account toAccount;
+
+    /**
+     * Amount of the row, in cents.
+     */
+    final long cents;
+
+    /**
+     * Amount as written in the file when it is not a valid amount, null otherwise.
+     */
+    final String invalidAmount;
+
+    /**
+     * Constructor of a resolved row.
+     *
+     * @param number            row number in the file.
+     * @param endOffset         byte offset in the file right after the row.
+     * @param action            action, lowercase.
+     * @param fromCustomer      source customer.
+     * @param hasFromAccountType flag if the row gives a source account type.
+     * @param fromAccount       source account.
+     * @param toCustomer        destination customer.
+     * @param hasToAccountType  flag if the row gives a destination account type.
+     * @param toAccount         destination account.
+     * @param cents             amount, in cents.
+     * @param invalidAmount     amount as written if invalid, null otherwise.
+     */
+    private TransactionRow(long number, long endOffset, String action, Customer fromCustomer, boolean hasFromAccountType, Account fromAccount,
+                           Customer toCustomer, boolean hasToAccountType, Account toAccount, long cents, String invalidAmount) {
+        this.number = number;
+        this.endOffset = endOffset;
+        this.action = action;
+        this.fromCustomer = fromCustomer;
+        this.hasFromAccountType = hasFromAccountType;
+        this.fromAccount = fromAccount;
+        this.toCustomer = toCustomer;
+        this.hasToAccountType = hasToAccountType;
+        this.toAccount = toAccount;
+        this.cents = cents;
+        this.invalidAmount = invalidAmount;
+    }
+
+    /**
+     * Decide what the row would do from its action, customers and accounts alone, before any balance is
+     * looked at. Running it, netting it and validating it all start here, so they agree on every row.
+     *
+     * @return  the operation with its customer and accounts, why it is skipped, or why its customer refuses it.
+     */
+    Plan plan() {
+        if (invalidAmount != null) return Plan.skip(Problem.INVALID_AMOUNT);
+        switch (action) {
+            case "pays":
+                if (fromCustomer == null) return Plan.skip(Problem.NO_SOURCE);
+                if (toCustomer == null) return Plan.skip(Problem.NO_DESTINATION);
+                if (fromAccount == null) return Plan.skip(Problem.NO_SOURCE_ACCOUNT);
+                if (toAccount == null) return Plan.skip(Problem.NO_DESTINATION_ACCOUNT);
+                return new Plan(OperationResult.Type.SEND, fromCustomer, fromAccount, toAccount, fromCustomer.sendRejection(fromAccount, toAccount));
+            case "transfers":
+                if (fromCustomer == null) return Plan.skip(Problem.NO_SOURCE);
+                if (toCustomer == null) return Plan.skip(Problem.NO_DESTINATION);
+                if (fromAccount == null) return Plan.skip(Problem.NO_SOURCE_ACCOUNT);
+                if (toAccount == null) return Plan.skip(Problem.NO_DESTINATION_ACCOUNT);
+                return new Plan(OperationResult.Type.TRANSFER, fromCustomer, fromAccount, toAccount, fromCustomer.transferRejection(fromAccount, toAccount));
+            case "inquires":
+                // no checking, inquiring is free of charge
+                if (fromCustomer == null) return Plan.skip(Problem.NO_SOURCE);
+                if (toCustomer != null) return Plan.skip(Problem.UNEXPECTED_DESTINATION);
+                if (fromAccount == null) return Plan.skip(Problem.NO_SOURCE_ACCOUNT);
+                return new Plan(OperationResult.Type.INQUIRY, fromCustomer, fromAccount, null, null);
+            case "withdraws":
+                if (fromCustomer == null) return Plan.skip(Problem.NO_SOURCE);
+                if (toCustomer != null || hasToAccountType) return Plan.skip(Problem.UNEXPECTED_DESTINATION);
+                if (fromAccount == null) return Plan.skip(Problem.NO_SOURCE_ACCOUNT);
+                return new Plan(OperationResult.Type.WITHDRAW, fromCustomer, fromAccount, null, fromCustomer.ownerRejection(fromAccount));
+            case "deposits":
+                if (toCustomer == null) return Plan.skip(Problem.NO_DESTINATION);
+                if (fromCustomer != null || hasFromAccountType) return Plan.skip(Problem.UNEXPECTED_SOURCE);
+                if (toAccount == null) return Plan.skip(Problem.NO_DESTINATION_ACCOUNT);
+                return new Plan(OperationResult.Type.DEPOSIT, toCustomer, null, toAccount, toCustomer.ownerRejection(toAccount));
+            default:
+                return Plan.skip(Problem.UNKNOWN_ACTION);
+        }
+    }
+
+    /**
+     * Get the column of every transaction field in a transaction csv.
+     *
+     * @param reader    reader positioned after the headers.
+     * @return          columns of the source first name, last name and account type, the action,
+     *                  the amount and the destination first name, last name and account type (-1 if absent).
+     */
+    static int[] columns(CsvReader reader) {
+        String[] headers = {"From First Name", "From Last Name", "From Where", "Action", "Action Amount", "To First Name", "To Last Name", "To Where"};
+        int[] cols = new int[headers.length];
+        for (int i = 0; i < headers.length; i++) cols[i] = reader.column(headers[i]);
+        return cols;
+    }
+
+    /**
+     * Resolve a row of a transaction file against the bank database: one index probe per customer
+     * and one array read per account, without building Strings for the usual actions and valid amounts.
+     *
+     * @param row   row of the transaction file.
+     * @param cols  columns from {@link #columns(CsvReader)}.
+     * @return      the resolved row.
+     */
+    static TransactionRow parse(CsvRow row, int[] cols) {
+        BankDatabase db = BankDatabase.getInstance();
+        Customer fromCustomer = db.findCustomer(row, cols[0], cols[1]);
+        Customer toCustomer = db.findCustomer(row, cols[5], cols[6]);
+        Account fromAccount = (fromCustomer == null) ? null : fromCustomer.getAccount(AccountKind.parse(row, cols[2]));
+        Account toAccount = (toCustomer == null) ? null : toCustomer.getAccount(AccountKind.parse(row, cols[7]));
+        long cents = 0;
+        String invalidAmount = null;
+        try {
+            if (!row.isEmpty(cols[4])) cents = row.getCents(cols[4]);
+        } catch (NumberFormatException e) {
+            invalidAmount = row.get(cols[4]);
+        }
+        return new TransactionRow(row.getNumber(), row.getEndOffset(), action(row, cols[3]), fromCustomer, !row.isEmpty(cols[2]), fromAccount,
+                toCustomer, !row.isEmpty(cols[7]), toAccount, cents, invalidAmount);
+    }
+
+    /**
+     * Get the action of a row in lower case, sharing one String per known action.
+     *
+     * @param row   row of the transaction file.
+     * @param col   column of the action.
+     * @return      the action in lower case.
+     */
+    private static String action(CsvRow row, int col) {
+        for (String action : ACTIONS) if (row.equalsIgnoreCase(col, action)) return action;
+        return row.get(col).toLowerCase();
+    }
+
+    /**
+     * What a row would do, decided before any balance is looked at (see {@link #plan()}).
+     */
+    static final class Plan {
+
+        /**
+         * Plans of skipped rows, one per problem.
+         */
+        private static final Plan[] SKIPS = new Plan[Problem.values().length];
+
+        static {
+            for (Problem problem : Problem.values()) SKIPS[problem.ordinal()] = new Plan(problem);
+        }
+
+        /**
+         * Operation of the row, null if it is skipped.
+         */
+        final OperationResult.Type type;
+
+        /**
+         * Why the row is skipped, null if it is not.
+         */
+        final Problem problem;
+
+        /**
+         * Why the customer refuses the row whatever the balances, null if it does not.
+         */
+        final OperationResult.Rejection rejection;
+
+        /**
+         * Customer performing the operation.
+         */
+        final Customer customer;
+
+        /**
+         * Account the funds come from, null for a deposit.
+         */
+        final Account source;
+
+        /**
+         * Account the funds go to, null for a withdrawal or an inquiry.
+         */
+        final Account destination;
+
+        /**
+         * Constructor of a plan for a row that is attempted.
+         *
+         * @param type          operation of the row.
+         * @param customer      customer performing the operation.
+         * @param source        account the funds come from.
+         * @param destination   account the funds go to.
+         * @param rejection     why the customer refuses the row, null if it does not.
+         */
+        Plan(OperationResult.Type type, Customer customer, Account source, Account destination, OperationResult.Rejection rejection) {
+            this.type = type;
+            this.problem = null;
+            this.rejection = rejection;
+            this.customer = customer;
+            this.source = source;
+            this.destination = destination;
+        }
+
+        /**
+         * Constructor of a plan for a row that is skipped.
+         *
+         * @param problem   why the row is skipped.
+         */
+        private Plan(Problem problem) {
+            this.type = null;
+            this.problem = problem;
+            this.rejection = null;
+            this.customer = null;
+            this.source = null;
+            this.destination = null;
+        }
+
+        /**
+         * Get the plan of a row that is skipped.
+         *
+         * @param problem   why the row is skipped.
+         * @return          the plan.
+         */
+        static Plan skip(Problem problem) {
+            return SKIPS[problem.ordinal()];
+        }
+    }
+}
@@ -0,0 +1,504 @@
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Columnar store for the transactions of an account.
+ * Each column is a growable primitive array, so appending is amortized O(1)
+ * and a transaction costs 24 bytes instead of a node object with two strings.
+ * Dates are kept in order of appending, which is chronological, so range
+ * queries binary search the date column directly. Once a back-dated transaction
+ * is appended, the store sorts the transactions by date and replays their changes
+ * into running balances in that order, since the balance stored with each
+ * transaction is only the balance at the time it was appended. The store remembers the
+ * last statement period it issued, so the statement of the following period
+ * starts where that one ended and takes its closing balance as opening balance.
+ */
+public class TransactionStore {
+
+    /**
+     * Format of the dates handed to and returned from the store, only used when parsing or rendering.
+     */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-uuuu").withResolverStyle(ResolverStyle.STRICT);
+
+    /**
+     * Capacity of the columns once the first transaction is added.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Shared date and description columns of stores without transactions, so idle accounts allocate no columns.
+     */
+    private static final int[] NO_INTS = new int[0];
+
+    /**
+     * Shared amount columns of stores without transactions.
+     */
+    private static final long[] NO_LONGS = new long[0];
+
+    /**
+     * Date of each transaction as days since 1970-01-01.
+     */
+    private int[] epochDays;
+
+    /**
+     * Amount of each transaction in cents.
+     */
+    private long[] amounts;
+
+    /**
+     * Balance after each transaction in cents.
+     */
+    private long[] newBalances;
+
+    /**
+     * Index of each transaction's description in the description table.
+     */
+    private int[] descriptionIds;
+
+    /**
+     * Distinct descriptions, shared by every transaction that uses them.
+     */
+    private final ArrayList<String> descriptions = new ArrayList<>();
+
+    /**
+     * Description: index in the description table.
+     */
+    private final HashMap<String, Integer> descriptionIndex = new HashMap<>();
+
+    /**
+     * Number of transactions stored.
+     */
+    private int size;
+
+    /**
+     * Flag if the date column is in non-decreasing order.
+     */
+    private boolean sorted = true;
+
+    /**
+     * Transaction indexes ordered by date, only built once a date was appended out of order.
+     */
+    private int[] dateOrder;
+
+    /**
+     * Balance after each transaction in date order, in cents, built along with the date order.
+     */
+    private long[] dateBalances;
+
+    /**
+     * Last day of the last statement issued.
+     */
+    private int statementEndDay = Integer.MIN_VALUE;
+
+    /**
+     * Position in date order right after the last statement issued, -1 if there is no usable checkpoint.
+     */
+    private int statementOffset = -1;
+
+    /**
+     * Balance at the end of the last statement issued, in cents.
+     */
+    private long statementClosing;
+
+    /**
+     * Initial balance before any transactions, in cents.
+     */
+    public final long startingBalance;
+
+    /**
+     * Constructor of the store.
+     *
+     * @param startingBalance starting balance before any transactions, in cents.
+     */
+    public TransactionStore(long startingBalance) {
+        this.startingBalance = startingBalance;
+        this.epochDays = NO_INTS;
+        this.amounts = NO_LONGS;
+        this.newBalances = NO_LONGS;
+        this.descriptionIds = NO_INTS;
+    }
+
+    /**
+     * Adds a transaction with its respective attributes.
+     *
+     * @param epochDay          date of transaction as days since 1970-01-01.
+     * @param description       of transaction.
+     * @param amountCents       transacted, in cents.
+     * @param newBalanceCents   after transaction, in cents.
+     */
+    public void addTransaction(int epochDay, String description, long amountCents, long newBalanceCents) {
+        if (size == epochDays.length) grow();
+        // an older date than the last one means the date column can no longer be searched directly
+        if (size > 0 && epochDay < epochDays[size - 1]) sorted = false;
+        // a transaction dated within the last statement changes what that statement would have shown
+        if (epochDay <= statementEndDay) statementOffset = -1;
+        dateOrder = null;
+        dateBalances = null;
+        epochDays[size] = epochDay;
+        amounts[size] = amountCents;
+        newBalances[size] = newBalanceCents;
+        descriptionIds[size] = descriptionId(description);
+        size++;
+    }
+
+    /**
+     * Get the number of transactions stored.
+     *
+     * @return number of transactions.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the date of a transaction.
+     *
+     * @param index position of the transaction.
+     * @return      days since 1970-01-01.
+     */
+    public int getEpochDay(int index) {
+        return this.epochDays[checkIndex(index)];
+    }
+
+    /**
+     * Get the amount of a transaction.
+     *
+     * @param index position of the transaction.
+     * @return      amount in cents.
+     */
+    public long getAmountCents(int index) {
+        return this.amounts[checkIndex(index)];
+    }
+
+    /**
+     * Get the balance after a transaction.
+     *
+     * @param index position of the transaction.
+     * @return      balance in cents.
+     */
+    public long getNewBalanceCents(int index) {
+        return this.newBalances[checkIndex(index)];
+    }
+
+    /**
+     * Get the description of a transaction.
+     *
+     * @param index position of the transaction.
+     * @return      description of the transaction.
+     */
+    public String getDescription(int index) {
+        return this.descriptions.get(this.descriptionIds[checkIndex(index)]);
+    }
+
+    /**
+     * Materialize one transaction as a node.
+     *
+     * @param index position of the transaction.
+     * @return      node holding the transaction's attributes.
+     */
+    public TransactionNode get(int index) {
+        checkIndex(index);
+        return new TransactionNode(epochDays[index], getDescription(index), amounts[index], newBalances[index]);
+    }
+
+    /**
+     * Get a cursor over the transactions between a start and end range of dates.
+     *
+     * @param startDate         lower bound (mm-dd-yyyy).
+     * @param endDate           upper bound (mm-dd-yyyy).
+     * @return                  cursor over the transactions within that bound.
+     * @throws ParseException   for dates.
+     */
+    public TransactionCursor getTransactionsBetweenDates(String startDate, String endDate) throws ParseException {
+        return this.between(parseEpochDay(startDate), parseEpochDay(endDate));
+    }
+
+    /**
+     * Get a cursor over the transactions between two days, both inclusive.
+     * Costs O(log n) to position the cursor, then O(1) per transaction visited.
+     *
+     * @param startDay  lower bound as days since 1970-01-01.
+     * @param endDay    upper bound as days since 1970-01-01.
+     * @return          cursor over the transactions within that bound.
+     */
+    public TransactionCursor between(int startDay, int endDay) {
+        int[] order = this.dateOrder();
+        int from = lowerBound(order, startDay);
+        // the day after the last one only exists below the largest day
+        int to = (endDay < startDay) ? from : (endDay == Integer.MAX_VALUE) ? size : lowerBound(order, endDay + 1);
+        return new TransactionCursor(this, order, dateBalances, from, to);
+    }
+
+    /**
+     * Issue the statement of a period: its transactions, the balance before the first and after the last.
+     * A period starting the day after the last one issued starts at its checkpoint and only walks its own
+     * transactions; any other period is positioned by binary search. Either way the period becomes the checkpoint.
+     *
+     * @param startDay  first day, as days since 1970-01-01.
+     * @param endDay    last day, as days since 1970-01-01.
+     * @return          the statement period.
+     */
+    public Period statement(int startDay, int endDay) {
+        int[] order = this.dateOrder();
+        boolean resumed = statementOffset >= 0 && startDay == statementEndDay + 1;
+        int from;
+        long opening;
+        if (resumed) {
+            from = statementOffset;
+            opening = statementClosing;
+        } else {
+            from = lowerBound(order, startDay);
+            opening = this.balanceBefore(order, from);
+        }
+        int to = (endDay < startDay) ? from : (endDay == Integer.MAX_VALUE) ? size : this.gallop(order, from, endDay + 1);
+        long closing = this.balanceBefore(order, to);
+        if (endDay >= startDay) {
+            statementEndDay = endDay;
+            statementOffset = to;
+            statementClosing = closing;
+        }
+        return new Period(new TransactionCursor(this, order, dateBalances, from, to), opening, closing, resumed);
+    }
+
+    /**
+     * Get the balance at the end of a day. The date column is its own index: one binary search finds the
+     * last transaction on or before the day, and the balance after it in date order is the answer.
+     *
+     * @param epochDay  day, as days since 1970-01-01.
+     * @return          balance after the day's last transaction or the latest one before it, in cents;
+     *                  the starting balance if the account had no transaction by then.
+     */
+    public long balanceAsOf(int epochDay) {
+        int[] order = this.dateOrder();
+        return this.balanceBefore(order, (epochDay == Integer.MAX_VALUE) ? size : lowerBound(order, epochDay + 1));
+    }
+
+    /**
+     * Get the balance before a position in date order.
+     *
+     * @param order     date order of the transactions, null if appended in date order.
+     * @param position  position in date order.
+     * @return          balance after the transaction before it, the starting balance at position 0.
+     */
+    private long balanceBefore(int[] order, int position) {
+        if (position == 0) return startingBalance;
+        return (order == null) ? newBalances[position - 1] : dateBalances[position - 1];
+    }
+
+    /**
+     * Get the position of the first transaction on or after a day, searching forward from a position
+     * in steps that double, so the cost grows with the distance covered rather than with the history.
+     *
+     * @param order     date order of the transactions, null if appended in date order.
+     * @param from      position to search from, of a transaction before the day or the day's first.
+     * @param epochDay  day to search for.
+     * @return          position of the first transaction on or after the day.
+     */
+    private int gallop(int[] order, int from, int epochDay) {
+        int low = from, step = 1;
+        while (low + step <= size && epochDays[(order == null) ? low + step - 1 : order[low + step - 1]] < epochDay) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(size, low + step - 1);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[(order == null) ? mid : order[mid]] < epochDay) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Get the position of the first transaction on or after a day, in date order.
+     *
+     * @param order     date order of the transactions, null if appended in date order.
+     * @param epochDay  day to search for.
+     * @return          position of the first transaction on or after the day.
+     */
+    private int lowerBound(int[] order, int epochDay) {
+        int low = 0, high = size;
+        // binary search over the date column (or its date ordering)
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int day = epochDays[(order == null) ? mid : order[mid]];
+            if (day < epochDay) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Get the transaction indexes in date order, building the balances in date order with them.
+     *
+     * @return date order of the transactions, null if they were appended in date order.
+     */
+    private int[] dateOrder() {
+        if (sorted) return null;
+        if (dateOrder == null) {
+            // stable sort of the indexes by date, packed as (day, index) pairs
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) keys[i] = ((long) epochDays[i] << 32) | i;
+            Arrays.sort(keys);
+            int[] order = new int[size];
+            long[] balances = new long[size];
+            long balance = startingBalance;
+            for (int i = 0; i < size; i++) {
+                int index = (int) keys[i];
+                order[i] = index;
+                // each transaction changed the balance by the difference to the one appended before it
+                balance += newBalances[index] - ((index == 0) ? startingBalance : newBalances[index - 1]);
+                balances[i] = balance;
+            }
+            dateBalances = balances;
+            dateOrder = order;
+        }
+        return dateOrder;
+    }
+
+    /**
+     * Format days since 1970-01-01 as a mm-dd-yyyy date.
+     *
+     * @param epochDay  days since 1970-01-01.
+     * @return          date in mm-dd-yyyy format.
+     */
+    static String formatEpochDay(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).format(DATE_FORMAT);
+    }
+
+    /**
+     * Parse a mm-dd-yyyy date into days since 1970-01-01.
+     *
+     * @param date              date to parse.
+     * @return                  days since 1970-01-01.
+     * @throws ParseException   if the date is not in mm-dd-yyyy format.
+     */
+    static int parseEpochDay(String date) throws ParseException {
+        try {
+            return (int) LocalDate.parse(date, DATE_FORMAT).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new ParseException(e.getMessage(), e.getErrorIndex());
+        }
+    }
+
+    /**
+     * Get the description table index of a description, adding it if new.
+     *
+     * @param description   description of a transaction.
+     * @return              index in the description table.
+     */
+    private int descriptionId(String description) {
+        Integer id = descriptionIndex.get(description);
+        if (id == null) {
+            id = descriptions.size();
+            descriptions.add(description);
+            descriptionIndex.put(description, id);
+        }
+        return id;
+    }
+
+    /**
+     * Grow every column by half of its capacity.
+     */
+    private void grow() {
+        int capacity = Math.max(INITIAL_CAPACITY, epochDays.length + (epochDays.length >> 1));
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        newBalances = Arrays.copyOf(newBalances, capacity);
+        descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+    }
+
+    /**
+     * Ensure an index refers to a stored transaction.
+     *
+     * @param index position of the transaction.
+     * @return      the index.
+     */
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Transaction " + index + " of " + size);
+        return index;
+    }
+
+    /**
+     * Transactions of a statement period with the balances around them.
+     */
+    public static final class Period {
+
+        /**
+         * Cursor over the transactions of the period.
+         */
+        private final TransactionCursor transactions;
+
+        /**
+         * Balance before the period, in cents.
+         */
+        private final long openingBalance;
+
+        /**
+         * Balance at the end of the period, in cents.
+         */
+        private final long closingBalance;
+
+        /**
+         * Flag if the period continued from the previous statement's checkpoint.
+         */
+        private final boolean resumed;
+
+        /**
+         * Constructor of a period.
+         *
+         * @param transactions      cursor over the transactions of the period.
+         * @param openingBalance    balance before the period, in cents.
+         * @param closingBalance    balance at the end of the period, in cents.
+         * @param resumed           flag if the period continued from the previous statement's checkpoint.
+         */
+        Period(TransactionCursor transactions, long openingBalance, long closingBalance, boolean resumed) {
+            this.transactions = transactions;
+            this.openingBalance = openingBalance;
+            this.closingBalance = closingBalance;
+            this.resumed = resumed;
+        }
+
+        /**
+         * Get the transactions of the period.
+         *
+         * @return cursor over the transactions, in date order.
+         */
+        public TransactionCursor getTransactions() {
+            return this.transactions;
+        }
+
+        /**
+         * Get the balance before the period.
+         *
+         * @return balance after the last earlier transaction, in cents.
+         */
+        public long getOpeningBalanceCents() {
+            return this.openingBalance;
+        }
+
+        /**
+         * Get the balance at the end of the period.
+         *
+         * @return balance after the period's last transaction, in cents.
+         */
+        public long getClosingBalanceCents() {
+            return this.closingBalance;
+        }
+
+        /**
+         * Check if the period continued from the previous statement's checkpoint.
+         *
+         * @return true if no search was needed to position it.
+         */
+        public boolean isResumed() {
+            return this.resumed;
+        }
+    }
+}
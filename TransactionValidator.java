@@ -0,0 +1,274 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+
+/**
+ * Checks a transaction file without running it: every row's action, customers, accounts and amount,
+ * and whether its accounts would accept it given the rows before it. Balances are projected on an
+ * overlay holding a copy of each account the file touches, so the bank database is never changed.
+ * Every failing row is written to one csv error file instead of stopping at the first one.
+ */
+public class TransactionValidator {
+
+    /**
+     * Directory the error files are written to.
+     */
+    public static final Path DIRECTORY = Path.of("BankReports");
+
+    /**
+     * Header of the error file.
+     */
+    private static final String HEADER = "Row,Action,Problem,Amount,Detail";
+
+    /**
+     * Projected balance of every account a checked row changed, in cents.
+     */
+    private final IdentityHashMap<Account, long[]> overlay = new IdentityHashMap<>();
+
+    /**
+     * Error file being written.
+     */
+    private BufferedWriter errors;
+
+    /**
+     * Rows failing so far.
+     */
+    private long failures;
+
+    /**
+     * Get the error file of a transaction file.
+     *
+     * @param file  path of the transaction csv.
+     * @return      path of its error file.
+     */
+    public static Path errorsPathFor(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return DIRECTORY.resolve("EPMB_Validation_" + ((dot > 0) ? name.substring(0, dot) : name) + ".csv");
+    }
+
+    /**
+     * Check every row of a transaction file, writing the failing ones to its error file.
+     *
+     * @param file  path of the transaction csv.
+     * @return      how many rows were checked and how many failed.
+     * @throws IOException if the file cannot be read or the error file cannot be written.
+     */
+    public Report validate(Path file) throws IOException {
+        overlay.clear();
+        failures = 0;
+        long rows = 0;
+        Path errorFile = errorsPathFor(file);
+        Files.createDirectories(DIRECTORY);
+        try (CsvReader reader = new CsvReader(file); BufferedWriter writer = Files.newBufferedWriter(errorFile)) {
+            errors = writer;
+            writer.write(HEADER);
+            writer.newLine();
+            int[] cols = TransactionRow.columns(reader);
+            while (reader.next()) {
+                this.check(TransactionRow.parse(reader.row(), cols));
+                rows++;
+            }
+        } finally {
+            errors = null;
+            overlay.clear();
+        }
+        return new Report(errorFile, rows, failures);
+    }
+
+    /**
+     * Check one row as planned by the row like Manager.applyRow does, projecting its balances on the overlay.
+     *
+     * @param row   resolved row of the transaction file.
+     * @throws IOException if the error file cannot be written.
+     */
+    private void check(TransactionRow row) throws IOException {
+        TransactionRow.Plan plan = row.plan();
+        if (plan.problem != null) {
+            String detail = switch (plan.problem) {
+                case INVALID_AMOUNT -> row.invalidAmount;
+                case NO_SOURCE_ACCOUNT -> row.fromCustomer.getFullName();
+                case NO_DESTINATION_ACCOUNT -> row.toCustomer.getFullName();
+                default -> "";
+            };
+            this.fail(row, plan.problem.name(), detail);
+            return;
+        }
+        if (plan.rejection != null) {
+            this.fail(row, plan.rejection.name(), "");
+            return;
+        }
+        switch (plan.type) {
+            case SEND, TRANSFER -> this.projectTransfer(plan.source, plan.destination, row);
+            case WITHDRAW -> {
+                long balance = plan.source.balanceAfterWithdraw(this.balance(plan.source), row.cents);
+                if (balance == Account.REJECTED) this.refuse(row, OperationResult.Rejection.SOURCE_REFUSED, plan.source);
+                else this.project(plan.source, balance);
+            }
+            case DEPOSIT -> {
+                long balance = plan.destination.balanceAfterDeposit(this.balance(plan.destination), row.cents);
+                if (balance == Account.REJECTED) this.refuse(row, OperationResult.Rejection.DESTINATION_REFUSED, plan.destination);
+                else this.project(plan.destination, balance);
+            }
+            case INQUIRY -> { }
+        }
+    }
+
+    /**
+     * Project both legs of a transfer or send, as the transfer engine validates them.
+     *
+     * @param src   account the funds come from.
+     * @param dst   account the funds go to, distinct from the source.
+     * @param row   resolved row of the transaction file.
+     * @throws IOException if the error file cannot be written.
+     */
+    private void projectTransfer(Account src, Account dst, TransactionRow row) throws IOException {
+        long srcBalance = src.balanceAfterWithdraw(this.balance(src), row.cents);
+        if (srcBalance == Account.REJECTED) {
+            this.refuse(row, OperationResult.Rejection.SOURCE_REFUSED, src);
+            return;
+        }
+        long dstBalance = dst.balanceAfterDeposit(this.balance(dst), row.cents);
+        if (dstBalance == Account.REJECTED) {
+            this.refuse(row, OperationResult.Rejection.DESTINATION_REFUSED, dst);
+            return;
+        }
+        this.project(src, srcBalance);
+        this.project(dst, dstBalance);
+    }
+
+    /**
+     * Get the projected balance of an account.
+     *
+     * @param account   account of a row.
+     * @return          its balance after the rows checked so far, in cents.
+     */
+    private long balance(Account account) {
+        long[] projected = overlay.get(account);
+        return (projected == null) ? account.getBalanceCents() : projected[0];
+    }
+
+    /**
+     * Record the projected balance of an account, copying it into the overlay the first time.
+     *
+     * @param account   account of a row.
+     * @param balance   its balance after the row, in cents.
+     */
+    private void project(Account account, long balance) {
+        long[] projected = overlay.get(account);
+        if (projected == null) overlay.put(account, new long[]{balance});
+        else projected[0] = balance;
+    }
+
+    /**
+     * Record a row its account would refuse.
+     *
+     * @param row       resolved row of the transaction file.
+     * @param rejection which leg refuses it.
+     * @param account   the refusing account.
+     * @throws IOException if the error file cannot be written.
+     */
+    private void refuse(TransactionRow row, OperationResult.Rejection rejection, Account account) throws IOException {
+        this.fail(row, rejection.name(), account.getType() + " " + account.getAccountNumber() + " projected balance $" + Money.format(this.balance(account)));
+    }
+
+    /**
+     * Write a failing row to the error file.
+     *
+     * @param row       resolved row of the transaction file.
+     * @param problem   name of the problem.
+     * @param detail    what was found, may be empty.
+     * @throws IOException if the error file cannot be written.
+     */
+    private void fail(TransactionRow row, String problem, String detail) throws IOException {
+        failures++;
+        errors.write(row.number + "," + escape(row.action) + "," + problem + "," + ((row.invalidAmount == null) ? Money.format(row.cents) : "") + "," + escape(detail));
+        errors.newLine();
+    }
+
+    /**
+     * Quote a csv value if it holds a comma, quote or line break.
+     *
+     * @param value value to write.
+     * @return      the value, quoted if needed.
+     */
+    private static String escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * Outcome of validating a transaction file.
+     */
+    public static final class Report {
+
+        /**
+         * Path of the error file.
+         */
+        private final Path errorFile;
+
+        /**
+         * Rows checked.
+         */
+        private final long rows;
+
+        /**
+         * Rows failing.
+         */
+        private final long failures;
+
+        /**
+         * Constructor of a report.
+         *
+         * @param errorFile path of the error file.
+         * @param rows      rows checked.
+         * @param failures  rows failing.
+         */
+        Report(Path errorFile, long rows, long failures) {
+            this.errorFile = errorFile;
+            this.rows = rows;
+            this.failures = failures;
+        }
+
+        /**
+         * Get the path of the error file.
+         *
+         * @return path of the error file.
+         */
+        public Path getErrorFile() {
+            return this.errorFile;
+        }
+
+        /**
+         * Get the number of rows checked.
+         *
+         * @return rows checked.
+         */
+        public long getRows() {
+            return this.rows;
+        }
+
+        /**
+         * Get the number of rows failing.
+         *
+         * @return rows failing.
+         */
+        public long getFailures() {
+            return this.failures;
+        }
+
+        /**
+         * Check whether every row would run.
+         *
+         * @return true if no row failed.
+         */
+        public boolean isValid() {
+            return this.failures == 0;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Applies deposits, withdrawals and transfers atomically under striped account locks.
+ * The locks of every account involved are taken in stripe order, so concurrent transfers
+ * in opposite directions cannot deadlock. Each operation first validates every leg with the
+ * accounts' pure balance functions and only then applies them, so a transfer is either
+ * applied on both accounts or on neither. Operations recording a transaction are journaled and
+ * only reported durable once their record is on disk; once the journal has failed they are refused,
+ * and an operation applied just before it failed is reported applied but not durable.
+ */
+public class TransferEngine {
+
+    /**
+     * Result of a transfer.
+     */
+    public enum Outcome {
+        /** Both legs were applied. */
+        APPLIED,
+        /** The source account refused the withdrawal, nothing was applied. */
+        SOURCE_REJECTED,
+        /** The destination account refused the deposit, nothing was applied. */
+        DESTINATION_REJECTED,
+        /** The journal had failed or cannot hold a description, so the operation was refused and nothing was applied. */
+        NOT_RECORDED,
+        /** Both legs were applied, but the journal failed before their record was durable. */
+        NOT_DURABLE
+    }
+
+    /**
+     * Number of lock stripes, a power of two.
+     */
+    private static final int STRIPES = 1024;
+
+    /**
+     * One instance of the engine, created eagerly so every operation looks it up without a lock.
+     */
+    private static final TransferEngine INSTANCE = new TransferEngine();
+
+    /**
+     * Locks shared by all accounts hashing to the same stripe.
+     */
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    /**
+     * Initialize the engine singleton.
+     */
+    private TransferEngine() {
+        for (int i = 0; i < STRIPES; i++) locks[i] = new ReentrantLock();
+    }
+
+    /**
+     * Returns the singleton instance of the engine.
+     *
+     * @return The singleton instance of TransferEngine.
+     */
+    public static TransferEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Deposit into an account.
+     *
+     * @param account       account to deposit into.
+     * @param cents         amount to be deposited, in cents.
+     * @param description   transaction to record and journal, null to only change the balance.
+     * @return              whether the deposit was applied, refused by the account or not recorded.
+     */
+    public Outcome deposit(Account account, long cents, String description) {
+        return this.apply(account, cents, description, true);
+    }
+
+    /**
+     * Withdraw from an account.
+     *
+     * @param account       account to withdraw from.
+     * @param cents         amount to be withdrawn, in cents.
+     * @param description   transaction to record and journal, null to only change the balance.
+     * @return              whether the withdrawal was applied, refused by the account or not recorded.
+     */
+    public Outcome withdraw(Account account, long cents, String description) {
+        return this.apply(account, cents, description, false);
+    }
+
+    /**
+     * Move money from one account to another, all or nothing.
+     *
+     * @param src               account the amount is withdrawn from.
+     * @param dst               account the amount is deposited to.
+     * @param cents             amount to be moved, in cents.
+     * @param srcDescription    transaction recorded on the source, null to only change the balances.
+     * @param dstDescription    transaction recorded on the destination.
+     * @return                  whether the transfer was applied and durable, or which leg refused it.
+     */
+    public Outcome transfer(Account src, Account dst, long cents, String srcDescription, String dstDescription) {
+        int first = stripe(src), second = stripe(dst);
+        // always lock the lower stripe first
+        if (first > second) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        long seq = 0;
+        Journal journal = Journal.getInstance();
+        locks[first].lock();
+        if (second != first) locks[second].lock();
+        try {
+            if (srcDescription != null && (journal.isFailed() || !Journal.fits(srcDescription) || !Journal.fits(dstDescription))) return Outcome.NOT_RECORDED;
+            // validate both legs before touching either balance
+            long srcBalance = src.balanceAfterWithdraw(src.balance, cents);
+            if (srcBalance == Account.REJECTED) return Outcome.SOURCE_REJECTED;
+            long dstBalance = dst.balanceAfterDeposit((src == dst) ? srcBalance : dst.balance, cents);
+            if (dstBalance == Account.REJECTED) return Outcome.DESTINATION_REJECTED;
+            src.balance = srcBalance;
+            dst.balance = dstBalance;
+            if (srcDescription != null) {
+                src.addTransaction(srcDescription, cents);
+                dst.addTransaction(dstDescription, cents);
+                seq = journal.record(src, dst);
+            }
+        } finally {
+            if (second != first) locks[second].unlock();
+            locks[first].unlock();
+        }
+        // wait for the disk without holding the accounts
+        // the balances already moved, so a failed commit must not read as a refusal
+        if (srcDescription != null && !journal.awaitCommitted(seq)) return Outcome.NOT_DURABLE;
+        return Outcome.APPLIED;
+    }
+
+    /**
+     * Apply a deposit or a withdrawal to one account.
+     *
+     * @param account       account to change.
+     * @param cents         amount, in cents.
+     * @param description   transaction to record and journal, null to only change the balance.
+     * @param deposit       true to deposit, false to withdraw.
+     * @return              whether applied, refused by the account, not recorded or not durable.
+     */
+    private Outcome apply(Account account, long cents, String description, boolean deposit) {
+        long seq = 0;
+        Journal journal = Journal.getInstance();
+        ReentrantLock lock = locks[stripe(account)];
+        lock.lock();
+        try {
+            if (description != null && (journal.isFailed() || !Journal.fits(description))) return Outcome.NOT_RECORDED;
+            long next = deposit ? account.balanceAfterDeposit(account.balance, cents) : account.balanceAfterWithdraw(account.balance, cents);
+            if (next == Account.REJECTED) return deposit ? Outcome.DESTINATION_REJECTED : Outcome.SOURCE_REJECTED;
+            account.balance = next;
+            if (description != null) {
+                account.addTransaction(description, cents);
+                seq = journal.record(account);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (description != null && !journal.awaitCommitted(seq)) return Outcome.NOT_DURABLE;
+        return Outcome.APPLIED;
+    }
+
+    /**
+     * Run an action holding the locks of a set of accounts, taking each stripe once and in stripe order,
+     * so many operations over the same accounts pay for one lock acquisition per stripe.
+     *
+     * @param accounts  accounts the action reads and changes.
+     * @param action    action to run.
+     */
+    public void runLocked(Collection<Account> accounts, Runnable action) {
+        BitSet stripes = new BitSet(STRIPES);
+        for (Account account : accounts) stripes.set(stripe(account));
+        int[] held = stripes.stream().toArray();
+        int locked = 0;
+        try {
+            for (int stripe : held) {
+                locks[stripe].lock();
+                locked++;
+            }
+            action.run();
+        } finally {
+            while (locked > 0) locks[held[--locked]].unlock();
+        }
+    }
+
+    /**
+     * Get the lock stripe of an account.
+     *
+     * @param account   the account.
+     * @return          index of its lock.
+     */
+    private static int stripe(Account account) {
+        int h = account.accNum * 0x9E3779B9 + AccountKind.of(account).ordinal() * 0x85EBCA6B;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -8,7 +8,6 @@
 // Honesty Statement: We affirm that we have completed this assignment entirely on our own, without any assistance from outside sources, including peers, experts, online resources, or other means. All code and ideas were that of our own work, and we have followed proper academic integrity.
 */
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import static java.lang.System.out;
 
@@ -22,6 +21,11 @@ public abstract class UserInterface {
      */
     public static boolean logout = false;
 
+    /**
+     * Listener printing what every operation started from the menus did.
+     */
+    protected final OperationListener console = new ConsoleRenderer();
+
     /**
      * Displays a welcome message to the user
      */
@@ -85,8 +89,7 @@ public abstract class UserInterface {
             String formattedName = firstName+lastName;
             if (!logout(formattedName)){
                 // get customer object based on username
-                Dictionary<String, Customer> customers = BankDatabase.getInstance().getCustomers();
-                Customer customer = customers.get(formattedName);
+                Customer customer = BankDatabase.getInstance().getCustomers().get(formattedName);
                 if (customer != null) {
                     boolean rc = true;
                     // require password to login if customer, not for manager
@@ -190,20 +193,17 @@ public abstract class UserInterface {
             if (dates.length == 2) {
                 String startDate = dates[0].trim();
                 String endDate = dates[1].trim();
-                SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
-                sdf.setLenient(false);
                 try {
-                    // get start and end date objects
-                    sdf.parse(startDate);
-                    sdf.parse(endDate);
+                    // check both dates before creating any file
+                    TransactionStore.parseEpochDay(startDate);
+                    TransactionStore.parseEpochDay(endDate);
                     // create filename
                     String filename = dir+"/"+customer.getFullName().replace(" ", "");
                     boolean rc = false;
                     if (allTransactions){
                         filename+=type+".txt";
-                        // add every account to file
-                        for (Account account1: customer.getAccounts())
-                            rc = fh.generateUserTransactionsFile(filename,customer, account1, startDate, endDate);
+                        // add every account to file, opening it once
+                        rc = fh.generateUserTransactionsFile(filename, customer, customer.getAccounts(), startDate, endDate);
                     }
                     else{
                         // only add specific account to file
@@ -279,9 +279,8 @@ public abstract class UserInterface {
         };
         List<String> recordFormatted = new ArrayList<>();
         String[] record = new String[prompts.length + 1]; // +1 for the customer ID
-        TreeSet<Integer> customerIDs = BankDatabase.getInstance().getCustomerIDs();
         // assign prompted answers to list
-        record[0] = String.valueOf(customerIDs.last() + 1);
+        record[0] = String.valueOf(BankDatabase.getInstance().allocateCustomerId());
         for (int i = 0; i < prompts.length; i++) {
             record[i + 1] = requestCustomerInfo(scan, prompts[i][0], prompts[i][1], fh);
             if (record[i + 1] == null)return;
@@ -299,11 +298,11 @@ public abstract class UserInterface {
         recordFormatted.add(record[3].toLowerCase());                                                       // dob
         recordFormatted.add(formattedAddress);                                                              // address
         recordFormatted.add(record[8].toLowerCase());                                                       // phone number
-        recordFormatted.add(String.valueOf(BankDatabase.getInstance().getCheckingAccNums().last() + 1)); // checking account number
+        recordFormatted.add(String.valueOf(BankDatabase.getInstance().allocateAccountNumber(AccountKind.CHECKING))); // checking account number
         recordFormatted.add(String.valueOf(0));                                                          // checking current balance
-        recordFormatted.add(String.valueOf(BankDatabase.getInstance().getSavingsAccNums().last() + 1));  // savings account number
+        recordFormatted.add(String.valueOf(BankDatabase.getInstance().allocateAccountNumber(AccountKind.SAVINGS)));  // savings account number
         recordFormatted.add(String.valueOf(0));                                                          // savings current balance
-        recordFormatted.add(String.valueOf(BankDatabase.getInstance().getCreditAccNums().last() + 1));   // credit account number
+        recordFormatted.add(String.valueOf(BankDatabase.getInstance().allocateAccountNumber(AccountKind.CREDIT)));   // credit account number
         recordFormatted.add(String.valueOf(0));                                                          // credit current balance
         recordFormatted.add(String.valueOf(100 + new Random().nextInt(25000 - 100 + 1)));         // credit max
         if (!record[9].equals(record[10])){